@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugCheckerInfo;
+import com.google.errorprone.scanner.BuiltInCheckerSuppliers;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the settings used to track results over time.
+ *
+ * <p>Usage: {@code java -jar benchmarks.jar <result.json> [<benchmark regex>]}
+ *
+ * <p>Results are written as JMH JSON, with the GC profiler enabled so every benchmark also reports
+ * its allocation rate ({@code gc.alloc.rate.norm}). {@link CompilationBenchmark} is run once per
+ * default check, plus {@code all} and {@code none}, giving per-check throughput. For ad-hoc runs
+ * the shaded jar also accepts the standard JMH command line via {@code org.openjdk.jmh.Main}.
+ */
+public final class BenchmarkMain {
+
+  public static void main(String[] args) throws RunnerException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: BenchmarkMain <result.json> [<benchmark regex>]");
+      System.exit(2);
+    }
+    ChainedOptionsBuilder options =
+        new OptionsBuilder()
+            .include(args.length > 1 ? args[1] : BenchmarkMain.class.getPackage().getName())
+            .param("check", checkParams())
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(args[0]);
+    new Runner(options.build()).run();
+  }
+
+  private static String[] checkParams() {
+    ImmutableList.Builder<String> params = ImmutableList.builder();
+    params.add("all", "none");
+    for (BugCheckerInfo info : BuiltInCheckerSuppliers.defaultChecks().getEnabledChecks()) {
+      params.add(info.canonicalName());
+    }
+    return params.build().toArray(new String[0]);
+  }
+
+  private BenchmarkMain() {}
+}
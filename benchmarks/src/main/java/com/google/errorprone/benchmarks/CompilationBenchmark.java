@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.errorprone.BaseErrorProneJavaCompiler;
+import com.google.errorprone.scanner.BuiltInCheckerSuppliers;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.sun.tools.javac.api.JavacTool;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compiles the {@link Corpus} end to end through {@link BaseErrorProneJavaCompiler}.
+ *
+ * <p>The {@code check} parameter selects what runs on top of javac: {@code all} for {@link
+ * BuiltInCheckerSuppliers#defaultChecks()}, {@code none} for plain javac (the baseline), or the
+ * name of a single built-in check. {@link BenchmarkMain} runs one parameter per default check,
+ * which gives a per-check throughput and allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompilationBenchmark {
+
+  @Param({"all", "none"})
+  public String check;
+
+  private JavaCompiler compiler;
+  private ImmutableList<JavaFileObject> sources;
+  private Path output;
+
+  @Setup
+  public void setUp() throws IOException {
+    compiler = compiler(check);
+    sources = Corpus.sources();
+    output = Files.createTempDirectory("error-prone-benchmark");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(output, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public DiagnosticCollector<JavaFileObject> compile() {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    boolean ok =
+        compiler
+            .getTask(
+                /* out= */ null,
+                /* fileManager= */ null,
+                diagnostics,
+                ImmutableList.of("-proc:none", "-d", output.toString()),
+                /* classes= */ null,
+                sources)
+            .call();
+    checkState(ok, "corpus failed to compile: %s", diagnostics.getDiagnostics());
+    return diagnostics;
+  }
+
+  private static JavaCompiler compiler(String check) {
+    switch (check) {
+      case "none":
+        return JavacTool.create();
+      case "all":
+        return new BaseErrorProneJavaCompiler(BuiltInCheckerSuppliers.defaultChecks());
+      default:
+        ScannerSupplier single =
+            BuiltInCheckerSuppliers.allChecks().filter(c -> c.canonicalName().equals(check));
+        checkArgument(!single.getAllChecks().isEmpty(), "unknown check: %s", check);
+        return new BaseErrorProneJavaCompiler(single);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * The fixed set of sources that the benchmarks compile and analyze.
+ *
+ * <p>The corpus is deliberately checked in rather than generated, so that results stay comparable
+ * across runs: changing it invalidates any recorded history.
+ */
+final class Corpus {
+
+  /** Resource names of the corpus files, relative to this class. */
+  private static final ImmutableList<String> FILES =
+      ImmutableList.of("corpus/Inventory.java", "corpus/Reports.java", "corpus/Nulls.java");
+
+  /** Returns the corpus as in-memory sources. */
+  static ImmutableList<JavaFileObject> sources() {
+    return sources(FILES);
+  }
+
+  private static ImmutableList<JavaFileObject> sources(ImmutableList<String> files) {
+    ImmutableList.Builder<JavaFileObject> sources = ImmutableList.builder();
+    for (String file : files) {
+      String content;
+      try {
+        content = Resources.toString(Resources.getResource(Corpus.class, file), UTF_8);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      sources.add(
+          new SimpleJavaFileObject(URI.create("string:///" + file), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+              return content;
+            }
+          });
+    }
+    return sources.build();
+  }
+
+  /**
+   * Parses and attributes the corpus with plain javac, for benchmarks that exercise Error Prone
+   * APIs directly on attributed trees.
+   */
+  static Corpus analyze() {
+    return analyze(FILES);
+  }
+
+  /**
+   * Parses and attributes the given files, relative to this class, instead of the corpus; for
+   * benchmarks that need sources of a particular shape.
+   */
+  static Corpus analyze(ImmutableList<String> files) {
+    Context context = new Context();
+    context.put(ErrorProneOptions.class, ErrorProneOptions.empty());
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    /* out= */ null,
+                    /* fileManager= */ null,
+                    diagnostics,
+                    ImmutableList.of("-proc:none"),
+                    /* classes= */ null,
+                    sources(files),
+                    context);
+    ImmutableList<CompilationUnitTree> units;
+    try {
+      units = ImmutableList.copyOf(task.parse());
+      task.analyze();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      checkState(
+          diagnostic.getKind() != Diagnostic.Kind.ERROR, "corpus does not compile: %s", diagnostic);
+    }
+    return new Corpus(context, units);
+  }
+
+  private final Context context;
+  private final ImmutableList<CompilationUnitTree> units;
+
+  private Corpus(Context context, ImmutableList<CompilationUnitTree> units) {
+    this.context = context;
+    this.units = units;
+  }
+
+  Context context() {
+    return context;
+  }
+
+  ImmutableList<CompilationUnitTree> units() {
+    return units;
+  }
+
+  VisitorState visitorState() {
+    return VisitorState.createForUtilityPurposes(context);
+  }
+
+  /** Returns the paths to every tree of the given type in the corpus, in source order. */
+  <T extends Tree> ImmutableList<TreePath> pathsOf(Class<T> type) {
+    List<TreePath> paths = new ArrayList<>();
+    for (CompilationUnitTree unit : units) {
+      new TreePathScanner<Void, Void>() {
+        @Override
+        public Void scan(Tree tree, Void unused) {
+          if (type.isInstance(tree)) {
+            paths.add(new TreePath(getCurrentPath(), tree));
+          }
+          return super.scan(tree, null);
+        }
+      }.scan(unit, null);
+    }
+    return ImmutableList.copyOf(paths);
+  }
+}
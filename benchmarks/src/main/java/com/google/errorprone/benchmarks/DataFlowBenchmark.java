@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.dataflow.DataFlow;
+import com.google.errorprone.dataflow.nullnesspropagation.Nullness;
+import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnalysis;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.shaded.dataflow.constantpropagation.ConstantPropagationTransfer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Runs {@link DataFlow#expressionDataflow} on every non-literal expression in the {@link Corpus}.
+ *
+ * <p>{@code expressionDataflow} passes a fresh (context-free) constant propagation transfer
+ * function on every call, so it misses the analysis cache and measures fixpoint iteration over
+ * the cached CFG. {@code nullnessAnalysis} goes through {@link NullnessAnalysis}, which reuses one
+ * transfer function and therefore the cached analysis for each method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataFlowBenchmark {
+
+  private Context context;
+  private ImmutableList<TreePath> expressions;
+
+  @Setup
+  public void setUp() {
+    Corpus corpus = Corpus.analyze();
+    context = corpus.context();
+    expressions =
+        corpus.pathsOf(ExpressionTree.class).stream()
+            .filter(p -> !(p.getLeaf() instanceof LiteralTree))
+            .collect(ImmutableList.toImmutableList());
+  }
+
+  @Benchmark
+  public void expressionDataflow(Blackhole blackhole) {
+    for (TreePath path : expressions) {
+      blackhole.consume(
+          DataFlow.expressionDataflow(path, context, new ConstantPropagationTransfer()));
+    }
+  }
+
+  @Benchmark
+  public void nullnessAnalysis(Blackhole blackhole) {
+    NullnessAnalysis analysis = NullnessAnalysis.instance(context);
+    for (TreePath path : expressions) {
+      Nullness nullness = analysis.getNullness(path, context);
+      blackhole.consume(nullness);
+    }
+  }
+}
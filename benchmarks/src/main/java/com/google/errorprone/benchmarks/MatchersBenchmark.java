@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import static com.google.errorprone.matchers.method.MethodMatchers.constructor;
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.util.TreePath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link Matchers#anyOf} with {@link MethodInvocationMatcher#compiledAnyOf} on every
+ * method invocation and constructor call in the {@link Corpus}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchersBenchmark {
+
+  private static final ImmutableList<Matcher<? super ExpressionTree>> METHOD_MATCHERS =
+      ImmutableList.of(
+          staticMethod().onClass("java.util.Objects").named("requireNonNull"),
+          staticMethod().onClass("java.util.Objects").named("equals"),
+          staticMethod().onClass("java.lang.String").named("format"),
+          staticMethod().onClass("java.util.Collections").named("unmodifiableList"),
+          instanceMethod().onDescendantOf("java.util.Collection").named("add"),
+          instanceMethod().onDescendantOf("java.util.Collection").named("contains"),
+          instanceMethod().onDescendantOf("java.util.Map").named("get"),
+          instanceMethod().onDescendantOf("java.util.Map").named("put"),
+          instanceMethod().onExactClass("java.lang.String").named("equals"),
+          instanceMethod().onExactClass("java.lang.StringBuilder").named("append"),
+          instanceMethod().onDescendantOf("java.lang.Object").named("hashCode"),
+          constructor().forClass("java.util.ArrayList"),
+          constructor().forClass("java.lang.StringBuilder"));
+
+  private VisitorState state;
+  private ImmutableList<TreePath> expressions;
+  private Matcher<ExpressionTree> anyOf;
+  private Matcher<ExpressionTree> compiledAnyOf;
+
+  @Setup
+  public void setUp() {
+    Corpus corpus = Corpus.analyze();
+    state = corpus.visitorState();
+    expressions =
+        ImmutableList.<TreePath>builder()
+            .addAll(corpus.pathsOf(MethodInvocationTree.class))
+            .addAll(corpus.pathsOf(NewClassTree.class))
+            .build();
+    anyOf = Matchers.anyOf(METHOD_MATCHERS);
+    compiledAnyOf = MethodInvocationMatcher.compiledAnyOf(METHOD_MATCHERS);
+  }
+
+  @Benchmark
+  public int anyOf() {
+    return countMatches(anyOf);
+  }
+
+  @Benchmark
+  public int compiledAnyOf() {
+    return countMatches(compiledAnyOf);
+  }
+
+  /** Measures building the compiled matcher, which callers pay once per checker instance. */
+  @Benchmark
+  public Matcher<ExpressionTree> compile() {
+    return MethodInvocationMatcher.compiledAnyOf(METHOD_MATCHERS);
+  }
+
+  private int countMatches(Matcher<ExpressionTree> matcher) {
+    int matches = 0;
+    for (TreePath path : expressions) {
+      if (matcher.matches((ExpressionTree) path.getLeaf(), state.withPath(path))) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.refaster.RefasterRuleBuilderScanner;
+import com.google.errorprone.refaster.RefasterRuleSet;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Applies the block templates in {@code corpus/RefasterTemplates.java} to the long methods in
+ * {@code corpus/LongMethods.java}.
+ *
+ * <p>The templates' placeholders may consume any number of statements, so unification has to try
+ * many ways of splitting each method body; {@code sharedNames} matches every template statement
+ * but the last, which is the worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefasterBenchmark {
+
+  private Context context;
+  private CodeTransformer rules;
+  private TreePath longMethods;
+
+  @Setup
+  public void setUp() {
+    Corpus corpus =
+        Corpus.analyze(
+            ImmutableList.of("corpus/RefasterTemplates.java", "corpus/LongMethods.java"));
+    context = corpus.context();
+    List<CodeTransformer> templates = new ArrayList<>();
+    for (TreePath path : corpus.pathsOf(ClassTree.class)) {
+      // Each class nested in RefasterTemplates holds one rule.
+      if (path.getParentPath().getLeaf() instanceof ClassTree) {
+        templates.addAll(
+            RefasterRuleBuilderScanner.extractRules((ClassTree) path.getLeaf(), context));
+      }
+    }
+    rules = RefasterRuleSet.compose(templates);
+    longMethods = new TreePath(corpus.units().get(1));
+  }
+
+  @Benchmark
+  public void blockTemplates(Blackhole blackhole) {
+    rules.apply(longMethods, context, blackhole::consume);
+  }
+}
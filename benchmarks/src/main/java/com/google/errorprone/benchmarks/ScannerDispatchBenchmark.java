@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.scanner.BuiltInCheckerSuppliers;
+import com.google.errorprone.scanner.ErrorProneScannerTransformer;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreePath;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans the already-attributed {@link Corpus} with an {@link
+ * com.google.errorprone.scanner.ErrorProneScanner}, isolating the cost of tree traversal and
+ * matcher dispatch from parsing and attribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerDispatchBenchmark {
+
+  /** {@code default} for the default checks, {@code errors} for the enabled errors only. */
+  @Param({"default", "errors"})
+  public String checks;
+
+  private Corpus corpus;
+  private ImmutableList<TreePath> units;
+  private CodeTransformer transformer;
+
+  @Setup
+  public void setUp() {
+    corpus = Corpus.analyze();
+    ImmutableList.Builder<TreePath> paths = ImmutableList.builder();
+    for (CompilationUnitTree unit : corpus.units()) {
+      paths.add(new TreePath(unit));
+    }
+    units = paths.build();
+    ScannerSupplier scannerSupplier =
+        checks.equals("errors")
+            ? BuiltInCheckerSuppliers.errorChecks()
+            : BuiltInCheckerSuppliers.defaultChecks();
+    transformer = ErrorProneScannerTransformer.create(scannerSupplier.get());
+  }
+
+  @Benchmark
+  public List<Description> scan() {
+    List<Description> descriptions = new ArrayList<>();
+    for (TreePath unit : units) {
+      transformer.apply(unit, corpus.context(), descriptions::add);
+    }
+    return descriptions;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SuggestedFixes#qualifyType(VisitorState, SuggestedFix.Builder, String)} from
+ * inside every class in the {@link Corpus}, for names that are already imported, in {@code
+ * java.lang}, and not yet imported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestedFixesBenchmark {
+
+  private static final ImmutableList<String> TYPE_NAMES =
+      ImmutableList.of(
+          "java.util.List",
+          "java.util.Map.Entry",
+          "java.lang.String",
+          "java.util.concurrent.ConcurrentHashMap",
+          "java.util.function.Function",
+          "javax.annotation.Nullable");
+
+  private ImmutableList<VisitorState> states;
+
+  @Setup
+  public void setUp() {
+    Corpus corpus = Corpus.analyze();
+    VisitorState state = corpus.visitorState();
+    ImmutableList.Builder<VisitorState> states = ImmutableList.builder();
+    for (TreePath path : corpus.pathsOf(ClassTree.class)) {
+      states.add(state.withPath(path));
+    }
+    this.states = states.build();
+  }
+
+  @Benchmark
+  public SuggestedFix qualifyType() {
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    for (VisitorState state : states) {
+      for (String typeName : TYPE_NAMES) {
+        SuggestedFixes.qualifyType(state, fix, typeName);
+      }
+    }
+    return fix.build();
+  }
+}
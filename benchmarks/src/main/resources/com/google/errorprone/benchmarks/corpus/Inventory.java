@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package corpus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/** A small in-memory inventory, written in a deliberately varied style. */
+public class Inventory {
+
+  /** A stocked item. */
+  public static final class Item implements Comparable<Item> {
+    private final String sku;
+    private final String name;
+    private int quantity;
+    private final long priceCents;
+
+    public Item(String sku, String name, int quantity, long priceCents) {
+      this.sku = Objects.requireNonNull(sku);
+      this.name = name;
+      this.quantity = quantity;
+      this.priceCents = priceCents;
+    }
+
+    public String sku() {
+      return sku;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public int quantity() {
+      return quantity;
+    }
+
+    public long priceCents() {
+      return priceCents;
+    }
+
+    void adjust(int delta) {
+      if (quantity + delta < 0) {
+        throw new IllegalArgumentException("insufficient stock for " + sku);
+      }
+      quantity += delta;
+    }
+
+    @Override
+    public int compareTo(Item other) {
+      return sku.compareTo(other.sku);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Item)) {
+        return false;
+      }
+      Item that = (Item) o;
+      return sku.equals(that.sku) && priceCents == that.priceCents;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sku, priceCents);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (%s) x%d @ %d", name, sku, quantity, priceCents);
+    }
+  }
+
+  private final Map<String, Item> items = new HashMap<>();
+  private final List<String> log = new ArrayList<>();
+
+  public void add(Item item) {
+    Item existing = items.get(item.sku());
+    if (existing != null) {
+      existing.adjust(item.quantity());
+    } else {
+      items.put(item.sku(), item);
+    }
+    log.add("add " + item.sku());
+  }
+
+  public boolean remove(String sku, int count) {
+    Item item = items.get(sku);
+    if (item == null) {
+      return false;
+    }
+    try {
+      item.adjust(-count);
+    } catch (IllegalArgumentException e) {
+      log.add("failed remove " + sku + ": " + e.getMessage());
+      return false;
+    }
+    if (item.quantity() == 0) {
+      items.remove(sku);
+    }
+    log.add("remove " + sku);
+    return true;
+  }
+
+  public Optional<Item> find(String sku) {
+    return Optional.ofNullable(items.get(sku));
+  }
+
+  public List<Item> matching(Predicate<? super Item> predicate) {
+    List<Item> result = new ArrayList<>();
+    for (Item item : items.values()) {
+      if (predicate.test(item)) {
+        result.add(item);
+      }
+    }
+    Collections.sort(result);
+    return Collections.unmodifiableList(result);
+  }
+
+  public long totalValueCents() {
+    long total = 0;
+    for (Map.Entry<String, Item> entry : items.entrySet()) {
+      Item item = entry.getValue();
+      total += item.priceCents() * item.quantity();
+    }
+    return total;
+  }
+
+  public int purgeEmpty() {
+    int purged = 0;
+    for (Iterator<Item> it = items.values().iterator(); it.hasNext(); ) {
+      Item item = it.next();
+      if (item.quantity() == 0) {
+        it.remove();
+        purged++;
+      }
+    }
+    return purged;
+  }
+
+  public List<String> log() {
+    return log;
+  }
+
+  public boolean sameName(Item a, Item b) {
+    return a.name() == b.name();
+  }
+
+  public String describe(String sku) {
+    StringBuilder sb = new StringBuilder();
+    Item item = items.get(sku);
+    sb.append("item ").append(sku).append(": ");
+    if (item != null) {
+      sb.append(item.toString());
+    } else {
+      sb.append("missing");
+    }
+    return sb.toString();
+  }
+}
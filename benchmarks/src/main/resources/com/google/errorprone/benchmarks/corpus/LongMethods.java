@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package corpus;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Long method bodies for the block templates in {@code RefasterTemplates}, which can match any
+ * number of their statements.
+ */
+public class LongMethods {
+
+  /** Ends with a copy of the list, which {@code CopyOfFilledList} matches. */
+  public List<String> copiedNames(int[] counts) {
+    List<String> names = new ArrayList<>();
+    int a0 = counts[0] + 0;
+    if (a0 > 1) {
+      names.add("k1");
+    }
+    counts[2]++;
+    counts[2]++;
+    names.add(String.valueOf(a0 * 3));
+    for (int i = 0; i < a0 % 3; i++) {
+      counts[i]--;
+    }
+    int a5 = counts[1] + 5;
+    if (a5 > 6) {
+      names.add("k6");
+    }
+    counts[3]++;
+    counts[3]++;
+    names.add(String.valueOf(a5 * 8));
+    for (int i = 0; i < a5 % 3; i++) {
+      counts[i]--;
+    }
+    int a10 = counts[2] + 10;
+    if (a10 > 11) {
+      names.add("k11");
+    }
+    counts[0]++;
+    counts[0]++;
+    names.add(String.valueOf(a10 * 13));
+    for (int i = 0; i < a10 % 3; i++) {
+      counts[i]--;
+    }
+    int a15 = counts[3] + 15;
+    if (a15 > 16) {
+      names.add("k16");
+    }
+    counts[1]++;
+    counts[1]++;
+    names.add(String.valueOf(a15 * 18));
+    for (int i = 0; i < a15 % 3; i++) {
+      counts[i]--;
+    }
+    int a20 = counts[0] + 20;
+    if (a20 > 21) {
+      names.add("k21");
+    }
+    counts[2]++;
+    counts[2]++;
+    names.add(String.valueOf(a20 * 23));
+    for (int i = 0; i < a20 % 3; i++) {
+      counts[i]--;
+    }
+    int a25 = counts[1] + 25;
+    if (a25 > 26) {
+      names.add("k26");
+    }
+    counts[3]++;
+    counts[3]++;
+    names.add(String.valueOf(a25 * 28));
+    for (int i = 0; i < a25 % 3; i++) {
+      counts[i]--;
+    }
+    int a30 = counts[2] + 30;
+    if (a30 > 31) {
+      names.add("k31");
+    }
+    counts[0]++;
+    counts[0]++;
+    names.add(String.valueOf(a30 * 33));
+    for (int i = 0; i < a30 % 3; i++) {
+      counts[i]--;
+    }
+    int a35 = counts[3] + 35;
+    if (a35 > 36) {
+      names.add("k36");
+    }
+    counts[1]++;
+    counts[1]++;
+    names.add(String.valueOf(a35 * 38));
+    for (int i = 0; i < a35 % 3; i++) {
+      counts[i]--;
+    }
+    return Collections.unmodifiableList(new ArrayList<>(names));
+  }
+
+  /** Looks like {@code copiedNames} until the last statement, so every split is tried. */
+  public List<String> sharedNames(int[] counts) {
+    List<String> names = new ArrayList<>();
+    int a0 = counts[0] + 0;
+    if (a0 > 1) {
+      names.add("k1");
+    }
+    counts[2]++;
+    counts[2]++;
+    names.add(String.valueOf(a0 * 3));
+    for (int i = 0; i < a0 % 3; i++) {
+      counts[i]--;
+    }
+    int a5 = counts[1] + 5;
+    if (a5 > 6) {
+      names.add("k6");
+    }
+    counts[3]++;
+    counts[3]++;
+    names.add(String.valueOf(a5 * 8));
+    for (int i = 0; i < a5 % 3; i++) {
+      counts[i]--;
+    }
+    int a10 = counts[2] + 10;
+    if (a10 > 11) {
+      names.add("k11");
+    }
+    counts[0]++;
+    counts[0]++;
+    names.add(String.valueOf(a10 * 13));
+    for (int i = 0; i < a10 % 3; i++) {
+      counts[i]--;
+    }
+    int a15 = counts[3] + 15;
+    if (a15 > 16) {
+      names.add("k16");
+    }
+    counts[1]++;
+    counts[1]++;
+    names.add(String.valueOf(a15 * 18));
+    for (int i = 0; i < a15 % 3; i++) {
+      counts[i]--;
+    }
+    int a20 = counts[0] + 20;
+    if (a20 > 21) {
+      names.add("k21");
+    }
+    counts[2]++;
+    counts[2]++;
+    names.add(String.valueOf(a20 * 23));
+    for (int i = 0; i < a20 % 3; i++) {
+      counts[i]--;
+    }
+    int a25 = counts[1] + 25;
+    if (a25 > 26) {
+      names.add("k26");
+    }
+    counts[3]++;
+    counts[3]++;
+    names.add(String.valueOf(a25 * 28));
+    for (int i = 0; i < a25 % 3; i++) {
+      counts[i]--;
+    }
+    int a30 = counts[2] + 30;
+    if (a30 > 31) {
+      names.add("k31");
+    }
+    counts[0]++;
+    counts[0]++;
+    names.add(String.valueOf(a30 * 33));
+    for (int i = 0; i < a30 % 3; i++) {
+      counts[i]--;
+    }
+    int a35 = counts[3] + 35;
+    if (a35 > 36) {
+      names.add("k36");
+    }
+    counts[1]++;
+    counts[1]++;
+    names.add(String.valueOf(a35 * 38));
+    for (int i = 0; i < a35 % 3; i++) {
+      counts[i]--;
+    }
+    return names;
+  }
+
+  /** Closes the stream in a {@code finally} block, which {@code CloseInFinally} matches. */
+  public int readAll(String path, int[] counts) throws IOException {
+    InputStream in = new FileInputStream(path);
+    try {
+      int a0 = counts[0] + 0;
+      if (a0 > 1) {
+        counts[1] += a0;
+      }
+      counts[2]++;
+      counts[2]++;
+      counts[3] ^= in.read();
+      for (int i = 0; i < a0 % 3; i++) {
+        counts[i]--;
+      }
+      int a5 = counts[1] + 5;
+      if (a5 > 6) {
+        counts[2] += a5;
+      }
+      counts[3]++;
+      counts[3]++;
+      counts[0] ^= in.read();
+      for (int i = 0; i < a5 % 3; i++) {
+        counts[i]--;
+      }
+      int a10 = counts[2] + 10;
+      if (a10 > 11) {
+        counts[3] += a10;
+      }
+      counts[0]++;
+      counts[0]++;
+      counts[1] ^= in.read();
+      for (int i = 0; i < a10 % 3; i++) {
+        counts[i]--;
+      }
+      int a15 = counts[3] + 15;
+      if (a15 > 16) {
+        counts[0] += a15;
+      }
+      counts[1]++;
+      counts[1]++;
+      counts[2] ^= in.read();
+      for (int i = 0; i < a15 % 3; i++) {
+        counts[i]--;
+      }
+      int a20 = counts[0] + 20;
+      if (a20 > 21) {
+        counts[1] += a20;
+      }
+      counts[2]++;
+      counts[2]++;
+      counts[3] ^= in.read();
+      for (int i = 0; i < a20 % 3; i++) {
+        counts[i]--;
+      }
+      int a25 = counts[1] + 25;
+      if (a25 > 26) {
+        counts[2] += a25;
+      }
+      counts[3]++;
+      counts[3]++;
+      counts[0] ^= in.read();
+      for (int i = 0; i < a25 % 3; i++) {
+        counts[i]--;
+      }
+    } finally {
+      in.close();
+    }
+    return counts[0];
+  }
+}
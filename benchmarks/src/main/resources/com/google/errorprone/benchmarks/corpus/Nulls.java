@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package corpus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Branch-heavy code that gives the nullness dataflow something to do. */
+public class Nulls {
+
+  private String label;
+  private final Map<String, String> aliases = new HashMap<>();
+
+  public String label() {
+    String l = label;
+    if (l == null) {
+      l = aliases.get("default");
+    }
+    if (l == null) {
+      l = "unnamed";
+    }
+    return l;
+  }
+
+  public int lengthOrZero(String s) {
+    return s == null ? 0 : s.length();
+  }
+
+  public String resolve(String name) {
+    String current = name;
+    for (int i = 0; i < 8 && current != null; i++) {
+      String next = aliases.get(current);
+      if (next == null || next.equals(current)) {
+        break;
+      }
+      current = next;
+    }
+    return current;
+  }
+
+  public String joinNonNull(List<String> parts) {
+    StringBuilder sb = null;
+    for (String part : parts) {
+      if (part == null) {
+        continue;
+      }
+      if (sb == null) {
+        sb = new StringBuilder(part);
+      } else {
+        sb.append(',').append(part);
+      }
+    }
+    return sb == null ? "" : sb.toString();
+  }
+
+  public Object choose(boolean a, boolean b, Object x, Object y) {
+    Object result;
+    if (a && x != null) {
+      result = x;
+    } else if (b || y == null) {
+      result = x != null ? x : new Object();
+    } else {
+      result = y;
+    }
+    switch (result.hashCode() % 3) {
+      case 0:
+        return result.toString();
+      case 1:
+        return y;
+      default:
+        return null;
+    }
+  }
+
+  public void setLabel(String label) {
+    this.label = label;
+    if (label != null && label.startsWith("@")) {
+      aliases.put(label.substring(1), label);
+    }
+  }
+}
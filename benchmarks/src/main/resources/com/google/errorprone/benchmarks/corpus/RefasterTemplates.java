@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package corpus;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import com.google.errorprone.refaster.annotation.Placeholder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Block templates for {@code LongMethods}, each a nested class holding one rule. */
+public class RefasterTemplates {
+
+  /** A placeholder that may consume any run of statements, followed by a fixed statement. */
+  abstract static class CopyOfFilledList<E> {
+    @Placeholder
+    abstract void fill(List<E> list);
+
+    @BeforeTemplate
+    List<E> before() {
+      List<E> list = new ArrayList<>();
+      fill(list);
+      return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    @AfterTemplate
+    List<E> after() {
+      List<E> list = new ArrayList<>();
+      fill(list);
+      return Collections.unmodifiableList(list);
+    }
+  }
+
+  /** A placeholder that consumes the whole body of a {@code try} block. */
+  abstract static class CloseInFinally<T extends AutoCloseable> {
+    @Placeholder
+    abstract T open();
+
+    @Placeholder
+    abstract void operateOn(T resource);
+
+    @BeforeTemplate
+    void before() throws Exception {
+      T resource = open();
+      try {
+        operateOn(resource);
+      } finally {
+        resource.close();
+      }
+    }
+
+    @AfterTemplate
+    void after() throws Exception {
+      try (T resource = open()) {
+        operateOn(resource);
+      }
+    }
+  }
+
+  /** Consecutive statements without placeholders. */
+  static class IncrementTwice {
+    @BeforeTemplate
+    void before(int[] counts, int i) {
+      counts[i]++;
+      counts[i]++;
+    }
+
+    @AfterTemplate
+    void after(int[] counts, int i) {
+      counts[i] += 2;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package corpus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/** Aggregations over an {@link Inventory}, mostly stream- and lambda-based. */
+public final class Reports {
+
+  private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+  private Reports() {}
+
+  public static Map<Character, Long> countByInitial(List<Inventory.Item> items) {
+    return items.stream()
+        .filter(i -> !i.name().isEmpty())
+        .collect(
+            Collectors.groupingBy(
+                i -> Character.toUpperCase(i.name().charAt(0)),
+                TreeMap::new,
+                Collectors.counting()));
+  }
+
+  public static List<Inventory.Item> mostValuable(List<Inventory.Item> items, int limit) {
+    return items.stream()
+        .sorted(
+            Comparator.comparingLong((Inventory.Item i) -> i.priceCents() * i.quantity())
+                .reversed())
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  public static <K> Map<K, Long> totals(
+      List<Inventory.Item> items, Function<Inventory.Item, K> key) {
+    Map<K, Long> totals = new LinkedHashMap<>();
+    for (Inventory.Item item : items) {
+      totals.merge(key.apply(item), item.priceCents() * item.quantity(), Long::sum);
+    }
+    return totals;
+  }
+
+  public static String render(Map<String, Long> totals) {
+    String cached = CACHE.get(totals.toString());
+    if (cached != null) {
+      return cached;
+    }
+    List<String> lines = new ArrayList<>();
+    totals.forEach(
+        (k, v) -> lines.add(String.format(Locale.ROOT, "%-20s %10.2f", k, v / 100.0)));
+    String rendered = String.join("\n", lines);
+    CACHE.put(totals.toString(), rendered);
+    return rendered;
+  }
+
+  public static int checksum(String s) {
+    int h = 0;
+    for (int i = 0; i < s.length(); i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return Math.abs(h) % 1024;
+  }
+
+  public static String firstWord(String s) {
+    int space = s.indexOf(' ');
+    return space < 0 ? s : s.substring(0, space);
+  }
+
+  public static boolean isLarge(Inventory.Item item) {
+    Integer threshold = 1000;
+    return threshold.equals(item.quantity()) || item.quantity() > threshold;
+  }
+}
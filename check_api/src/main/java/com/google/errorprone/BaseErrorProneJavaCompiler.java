@@ -247,23 +247,45 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
 
     @Override
     public void finished(TaskEvent event) {
+      if (event.getKind() == Kind.COMPILATION) {
+        awaitChanges();
+        return;
+      }
       if (event.getKind() != Kind.GENERATE) {
         return;
       }
-      RefactoringResult refactoringResult;
       try {
-        refactoringResult = refactoringCollection.applyChanges(event.getSourceFile().toUri());
+        refactoringCollection.applyChanges(event.getSourceFile().toUri());
       } catch (Exception e) {
         PrintWriter out = Log.instance(context).getWriter(WriterKind.ERROR);
         out.println(e.getMessage());
         out.flush();
-        return;
       }
-      if (refactoringResult.type() == RefactoringCollection.RefactoringResultType.CHANGED) {
-        PrintWriter out = Log.instance(context).getWriter(WriterKind.NOTICE);
-        out.println(refactoringResult.message());
+    }
+
+    private void awaitChanges() {
+      Log log = Log.instance(context);
+      ImmutableList<RefactoringResult> refactoringResults;
+      try {
+        refactoringResults = refactoringCollection.awaitChanges();
+      } catch (IllegalStateException e) {
+        PrintWriter out = log.getWriter(WriterKind.ERROR);
+        out.println(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
         out.flush();
+        return;
+      }
+      PrintWriter out = log.getWriter(WriterKind.NOTICE);
+      for (RefactoringResult refactoringResult : refactoringResults) {
+        switch (refactoringResult.type()) {
+          case CHANGED:
+            out.println(refactoringResult.message());
+            break;
+          case FAILED:
+            log.error("error.prone", refactoringResult.message());
+            break;
+        }
       }
+      out.flush();
     }
   }
 }
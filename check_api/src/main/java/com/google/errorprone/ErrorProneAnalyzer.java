@@ -22,10 +22,16 @@ import static com.google.common.base.Verify.verify;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.dataflow.DataFlowCache;
+import com.google.errorprone.dataflow.nullnesspropagation.inference.InferenceCache;
+import com.google.errorprone.matchers.Description;
 import com.google.errorprone.scanner.ErrorProneScannerTransformer;
+import com.google.errorprone.scanner.ParallelScannerTransformer;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.TokenCache;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TaskEvent;
@@ -39,10 +45,16 @@ import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Log.WriterKind;
 import com.sun.tools.javac.util.PropagatedException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
 
 /** A {@link TaskListener} that runs Error Prone over attributed compilation units. */
@@ -56,33 +68,54 @@ public class ErrorProneAnalyzer implements TaskListener {
   private final ErrorProneOptions errorProneOptions;
   private final Context context;
   private final DescriptionListener.Factory descriptionListenerFactory;
+  // Null unless -XepResultCache is set and the checks are known.
+  @Nullable private final Supplier<ResultCache> resultCache;
 
   public static ErrorProneAnalyzer createByScanningForPlugins(
       ScannerSupplier scannerSupplier, ErrorProneOptions errorProneOptions, Context context) {
+    Supplier<ScannerSupplier> configured =
+        loadsPlugins(scannerSupplier, errorProneOptions, context);
+    String resultCacheDirectory = errorProneOptions.resultCache();
     return new ErrorProneAnalyzer(
-        scansPlugins(scannerSupplier, errorProneOptions, context),
+        scansPlugins(configured, errorProneOptions),
         errorProneOptions,
         context,
-        JavacErrorDescriptionListener.provider(context));
+        JavacErrorDescriptionListener.provider(context),
+        resultCacheDirectory == null
+            ? null
+            : Suppliers.memoize(
+                () ->
+                    ResultCache.create(
+                        resultCacheDirectory, configured.get(), errorProneOptions, context)));
   }
 
-  private static Supplier<CodeTransformer> scansPlugins(
+  private static Supplier<ScannerSupplier> loadsPlugins(
       ScannerSupplier scannerSupplier, ErrorProneOptions errorProneOptions, Context context) {
     return Suppliers.memoize(
         () -> {
           // we can't load plugins from the processorpath until the filemanager has been
           // initialized, so do it lazily
           try {
-            return ErrorProneScannerTransformer.create(
-                ErrorPronePlugins.loadPlugins(scannerSupplier, context)
-                    .applyOverrides(errorProneOptions)
-                    .get());
+            return ErrorPronePlugins.loadPlugins(scannerSupplier, context)
+                .applyOverrides(errorProneOptions);
           } catch (InvalidCommandLineOptionException e) {
             throw new PropagatedException(e);
           }
         });
   }
 
+  private static Supplier<CodeTransformer> scansPlugins(
+      Supplier<ScannerSupplier> configured, ErrorProneOptions errorProneOptions) {
+    return Suppliers.memoize(
+        () -> {
+          if (errorProneOptions.parallelism() > 1) {
+            return ParallelScannerTransformer.create(
+                configured.get(), errorProneOptions.parallelism());
+          }
+          return ErrorProneScannerTransformer.create(configured.get().get());
+        });
+  }
+
   static ErrorProneAnalyzer createWithCustomDescriptionListener(
       CodeTransformer codeTransformer,
       ErrorProneOptions errorProneOptions,
@@ -92,17 +125,20 @@ public class ErrorProneAnalyzer implements TaskListener {
         Suppliers.ofInstance(codeTransformer),
         errorProneOptions,
         context,
-        descriptionListenerFactory);
+        descriptionListenerFactory,
+        /* resultCache= */ null);
   }
 
   private ErrorProneAnalyzer(
       Supplier<CodeTransformer> transformer,
       ErrorProneOptions errorProneOptions,
       Context context,
-      DescriptionListener.Factory descriptionListenerFactory) {
+      DescriptionListener.Factory descriptionListenerFactory,
+      @Nullable Supplier<ResultCache> resultCache) {
     this.transformer = checkNotNull(transformer);
     this.errorProneOptions = checkNotNull(errorProneOptions);
     this.descriptionListenerFactory = checkNotNull(descriptionListenerFactory);
+    this.resultCache = resultCache;
 
     Context errorProneContext = new SubContext(context);
     errorProneContext.put(ErrorProneOptions.class, errorProneOptions);
@@ -111,8 +147,17 @@ public class ErrorProneAnalyzer implements TaskListener {
 
   private int errorProneErrors = 0;
 
+  // Whether the transformer has been used, and may own resources that need releasing.
+  private boolean scanned = false;
+
   @Override
   public void finished(TaskEvent taskEvent) {
+    if (taskEvent.getKind() == Kind.COMPILATION) {
+      shutdownWorkers();
+      writeTimings();
+      reportResultCache();
+      return;
+    }
     if (taskEvent.getKind() != Kind.ANALYZE) {
       return;
     }
@@ -145,11 +190,11 @@ public class ErrorProneAnalyzer implements TaskListener {
         // We only get TaskEvents for compilation units if they contain no package declarations
         // (e.g. package-info.java files).  In this case it's safe to analyze the
         // CompilationUnitTree immediately.
-        transformer.get().apply(path, context, countingDescriptionListener);
+        scan(path, compilation, countingDescriptionListener);
       } else if (finishedCompilation(path.getCompilationUnit())) {
         // Otherwise this TaskEvent is for a ClassTree, and we can scan the whole
         // CompilationUnitTree once we've seen all the enclosed classes.
-        transformer.get().apply(new TreePath(compilation), context, countingDescriptionListener);
+        scan(new TreePath(compilation), compilation, countingDescriptionListener);
       }
     } catch (ErrorProneError e) {
       e.logFatalError(log, context);
@@ -174,6 +219,90 @@ public class ErrorProneAnalyzer implements TaskListener {
     }
   }
 
+  /**
+   * Scans {@code path} in {@code compilation}, or replays the descriptions cached for it by
+   * {@code -XepResultCache} if it hasn't changed.
+   */
+  private void scan(TreePath path, JCCompilationUnit compilation, DescriptionListener listener) {
+    CodeTransformer codeTransformer = transformer.get();
+    scanned = true;
+    ResultCache cache = resultCache != null ? resultCache.get() : null;
+    ResultCache.Key key = null;
+    if (cache != null) {
+      try {
+        key = cache.key(compilation);
+      } catch (IOException e) {
+        // Scan without caching.
+      }
+    }
+    if (key != null) {
+      ImmutableList<Description> cached = cache.lookup(key, compilation);
+      if (cached != null) {
+        cached.forEach(listener::onDescribed);
+        return;
+      }
+    }
+    List<Description> described = new ArrayList<>();
+    try {
+      codeTransformer.apply(
+          path,
+          context,
+          d -> {
+            described.add(d);
+            listener.onDescribed(d);
+          });
+    } finally {
+      releaseUnitCaches();
+    }
+    if (key != null) {
+      cache.store(key, described, compilation);
+    }
+  }
+
+  /** Releases the analysis caches that only hold data for the compilation unit just scanned. */
+  private void releaseUnitCaches() {
+    DataFlowCache.instance(context).clear();
+    InferenceCache.instance(context).clear();
+    TokenCache.instance(context).clear();
+  }
+
+  /** Stops the worker threads used by {@code -XepParallelism}, if any were started. */
+  private void shutdownWorkers() {
+    // Don't force the transformer (and plugin loading) if nothing was ever scanned.
+    if (!scanned) {
+      return;
+    }
+    CodeTransformer codeTransformer = transformer.get();
+    if (codeTransformer instanceof ParallelScannerTransformer) {
+      ((ParallelScannerTransformer) codeTransformer).shutdown();
+    }
+  }
+
+  /** Writes the per-check timings to the file given by {@code -XepTimingsOutput}, if any. */
+  private void writeTimings() {
+    String output = errorProneOptions.timingsOutput();
+    if (output == null || !scanned) {
+      return;
+    }
+    try {
+      ErrorProneTimings.instance(context).write(output);
+    } catch (IOException e) {
+      PrintWriter out = Log.instance(context).getWriter(WriterKind.ERROR);
+      out.println("error: could not write timings to " + output + ": " + e.getMessage());
+      out.flush();
+    }
+  }
+
+  /** Reports the hits and misses of {@code -XepResultCache}, if it was used. */
+  private void reportResultCache() {
+    if (resultCache == null || !scanned) {
+      return;
+    }
+    PrintWriter out = Log.instance(context).getWriter(WriterKind.NOTICE);
+    out.println(resultCache.get().summary());
+    out.flush();
+  }
+
   /** Returns true if the given source file should be excluded from analysis. */
   private boolean shouldExcludeSourceFile(CompilationUnitTree tree) {
     Pattern excludedPattern = errorProneOptions.getExcludedPattern();
@@ -181,6 +181,16 @@ public final class ErrorProneFlags implements Serializable {
     return ErrorProneFlags.fromMap(combinedMaps);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ErrorProneFlags && flagsMap.equals(((ErrorProneFlags) o).flagsMap);
+  }
+
+  @Override
+  public int hashCode() {
+    return flagsMap.hashCode();
+  }
+
   /** Builder for Error Prone command-line flags object. Parses flags from strings. */
   public static class Builder {
 
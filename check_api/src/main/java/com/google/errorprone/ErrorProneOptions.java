@@ -25,16 +25,20 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.apply.ImportOrganizer;
+import com.google.errorprone.util.ByteBufferInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * Processes command-line options specific to error-prone.
@@ -51,6 +55,16 @@ public class ErrorProneOptions {
   private static final String PATCH_IMPORT_ORDER_PREFIX = "-XepPatchImportOrder:";
   private static final String EXCLUDED_PATHS_PREFIX = "-XepExcludedPaths:";
   private static final String IGNORE_LARGE_CODE_GENERATORS = "-XepIgnoreLargeCodeGenerators:";
+  private static final String PARALLELISM_PREFIX = "-XepParallelism:";
+  private static final String TIMINGS_OUTPUT_PREFIX = "-XepTimingsOutput:";
+  private static final String DATAFLOW_CACHE_SIZE_PREFIX = "-XepDataFlowCacheSize:";
+  private static final String RESULT_CACHE_PREFIX = "-XepResultCache:";
+
+  /** The first four bytes of a Refaster rule set written in its own format, "RFST". */
+  private static final int REFASTER_RULE_SET_MAGIC = 0x52465354;
+
+  /** The default for {@link #dataFlowCacheSize()}. */
+  public static final int DEFAULT_DATAFLOW_CACHE_SIZE = 64;
 
   private static final String ERRORS_AS_WARNINGS_FLAG = "-XepAllErrorsAsWarnings";
   private static final String ENABLE_ALL_CHECKS = "-XepAllDisabledChecksAsWarnings";
@@ -70,6 +84,10 @@ public class ErrorProneOptions {
             || option.startsWith(PATCH_OUTPUT_LOCATION)
             || option.startsWith(PATCH_CHECKS_PREFIX)
             || option.startsWith(EXCLUDED_PATHS_PREFIX)
+            || option.startsWith(PARALLELISM_PREFIX)
+            || option.startsWith(TIMINGS_OUTPUT_PREFIX)
+            || option.startsWith(DATAFLOW_CACHE_SIZE_PREFIX)
+            || option.startsWith(RESULT_CACHE_PREFIX)
             || option.equals(IGNORE_UNKNOWN_CHECKS_FLAG)
             || option.equals(DISABLE_WARNINGS_IN_GENERATED_CODE_FLAG)
             || option.equals(ERRORS_AS_WARNINGS_FLAG)
@@ -168,6 +186,10 @@ public class ErrorProneOptions {
   private final Pattern excludedPattern;
   private final boolean ignoreSuppressionAnnotations;
   private final boolean ignoreLargeCodeGenerators;
+  private final int parallelism;
+  @Nullable private final String timingsOutput;
+  private final int dataFlowCacheSize;
+  @Nullable private final String resultCache;
 
   private ErrorProneOptions(
       ImmutableMap<String, Severity> severityMap,
@@ -183,7 +205,11 @@ public class ErrorProneOptions {
       PatchingOptions patchingOptions,
       Pattern excludedPattern,
       boolean ignoreSuppressionAnnotations,
-      boolean ignoreLargeCodeGenerators) {
+      boolean ignoreLargeCodeGenerators,
+      int parallelism,
+      @Nullable String timingsOutput,
+      int dataFlowCacheSize,
+      @Nullable String resultCache) {
     this.severityMap = severityMap;
     this.remainingArgs = remainingArgs;
     this.ignoreUnknownChecks = ignoreUnknownChecks;
@@ -198,6 +224,10 @@ public class ErrorProneOptions {
     this.excludedPattern = excludedPattern;
     this.ignoreSuppressionAnnotations = ignoreSuppressionAnnotations;
     this.ignoreLargeCodeGenerators = ignoreLargeCodeGenerators;
+    this.parallelism = parallelism;
+    this.timingsOutput = timingsOutput;
+    this.dataFlowCacheSize = dataFlowCacheSize;
+    this.resultCache = resultCache;
   }
 
   public String[] getRemainingArgs() {
@@ -248,6 +278,41 @@ public class ErrorProneOptions {
     return excludedPattern;
   }
 
+  /**
+   * Returns the number of worker threads used to scan compilation units, or {@code 1} if units
+   * should be scanned serially on the javac thread.
+   */
+  public int parallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Returns the file that per-check timings are written to at the end of compilation, or {@code
+   * null} if they should not be written. The file is CSV if its name ends in {@code .csv}, and
+   * JSON otherwise.
+   */
+  @Nullable
+  public String timingsOutput() {
+    return timingsOutput;
+  }
+
+  /**
+   * Returns the number of methods, lambdas and initializers per compilation unit whose control flow
+   * graphs and dataflow analyses are cached.
+   */
+  public int dataFlowCacheSize() {
+    return dataFlowCacheSize;
+  }
+
+  /**
+   * Returns the directory that holds the results of previous compilations, which are replayed for
+   * compilation units that haven't changed, or {@code null} if results should not be cached.
+   */
+  @Nullable
+  public String resultCache() {
+    return resultCache;
+  }
+
   private static class Builder {
     private boolean ignoreUnknownChecks = false;
     private boolean disableAllWarnings = false;
@@ -262,6 +327,10 @@ public class ErrorProneOptions {
     private final ErrorProneFlags.Builder flagsBuilder = ErrorProneFlags.builder();
     private final PatchingOptions.Builder patchingOptionsBuilder = PatchingOptions.builder();
     private Pattern excludedPattern;
+    private int parallelism = 1;
+    private String timingsOutput;
+    private int dataFlowCacheSize = DEFAULT_DATAFLOW_CACHE_SIZE;
+    private String resultCache;
 
     private void parseSeverity(String arg) {
       // Strip prefix
@@ -337,6 +406,22 @@ public class ErrorProneOptions {
       this.isTestOnlyTarget = isTestOnlyTarget;
     }
 
+    public void setParallelism(int parallelism) {
+      this.parallelism = parallelism;
+    }
+
+    public void setTimingsOutput(String timingsOutput) {
+      this.timingsOutput = timingsOutput;
+    }
+
+    public void setDataFlowCacheSize(int dataFlowCacheSize) {
+      this.dataFlowCacheSize = dataFlowCacheSize;
+    }
+
+    public void setResultCache(String resultCache) {
+      this.resultCache = resultCache;
+    }
+
     public PatchingOptions.Builder patchingOptionsBuilder() {
       return patchingOptionsBuilder;
     }
@@ -356,7 +441,11 @@ public class ErrorProneOptions {
           patchingOptionsBuilder.build(),
           excludedPattern,
           ignoreSuppressionAnnotations,
-          ignoreLargeCodeGenerators);
+          ignoreLargeCodeGenerators,
+          parallelism,
+          timingsOutput,
+          dataFlowCacheSize,
+          resultCache);
     }
 
     public void setExcludedPattern(Pattern excludedPattern) {
@@ -434,20 +523,9 @@ public class ErrorProneOptions {
           } else if (arg.startsWith(PATCH_CHECKS_PREFIX)) {
             String remaining = arg.substring(PATCH_CHECKS_PREFIX.length());
             if (remaining.startsWith("refaster:")) {
-              // Refaster rule, load from InputStream at file
-              builder
-                  .patchingOptionsBuilder()
-                  .customRefactorer(
-                      () -> {
-                        String path = remaining.substring("refaster:".length());
-                        try (InputStream in =
-                                Files.newInputStream(FileSystems.getDefault().getPath(path));
-                            ObjectInputStream ois = new ObjectInputStream(in)) {
-                          return (CodeTransformer) ois.readObject();
-                        } catch (IOException | ClassNotFoundException e) {
-                          throw new RuntimeException("Can't load Refaster rule from " + path, e);
-                        }
-                      });
+              // Refaster rule, load from a memory-mapped file
+              String path = remaining.substring("refaster:".length());
+              builder.patchingOptionsBuilder().customRefactorer(() -> loadRefasterRules(path));
             } else {
               Iterable<String> checks = Splitter.on(',').trimResults().split(remaining);
               builder.patchingOptionsBuilder().namedCheckers(ImmutableSet.copyOf(checks));
@@ -460,6 +538,42 @@ public class ErrorProneOptions {
             String pathRegex = arg.substring(EXCLUDED_PATHS_PREFIX.length());
             builder.setExcludedPattern(Pattern.compile(pathRegex));
 
+          } else if (arg.startsWith(PARALLELISM_PREFIX)) {
+            String remaining = arg.substring(PARALLELISM_PREFIX.length());
+            int parallelism;
+            try {
+              parallelism = Integer.parseInt(remaining);
+            } catch (NumberFormatException e) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            if (parallelism < 1) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            builder.setParallelism(parallelism);
+          } else if (arg.startsWith(TIMINGS_OUTPUT_PREFIX)) {
+            String remaining = arg.substring(TIMINGS_OUTPUT_PREFIX.length());
+            if (remaining.isEmpty()) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            builder.setTimingsOutput(remaining);
+          } else if (arg.startsWith(DATAFLOW_CACHE_SIZE_PREFIX)) {
+            String remaining = arg.substring(DATAFLOW_CACHE_SIZE_PREFIX.length());
+            int dataFlowCacheSize;
+            try {
+              dataFlowCacheSize = Integer.parseInt(remaining);
+            } catch (NumberFormatException e) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            if (dataFlowCacheSize < 1) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            builder.setDataFlowCacheSize(dataFlowCacheSize);
+          } else if (arg.startsWith(RESULT_CACHE_PREFIX)) {
+            String remaining = arg.substring(RESULT_CACHE_PREFIX.length());
+            if (remaining.isEmpty()) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            builder.setResultCache(remaining);
           } else {
             remainingArgs.add(arg);
           }
@@ -469,6 +583,35 @@ public class ErrorProneOptions {
     return builder.build(remainingArgs.build());
   }
 
+  /**
+   * Loads the compiled Refaster rules in {@code path}. The file is memory-mapped: a rule set in
+   * its own format is decoded straight from the mapping, and its rules stay there until they are
+   * needed. Anything else is read as a serialized {@link CodeTransformer}, which copies the file
+   * onto the heap.
+   */
+  private static CodeTransformer loadRefasterRules(String path) {
+    try (FileChannel channel = FileChannel.open(FileSystems.getDefault().getPath(path))) {
+      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() >= 4 && buffer.getInt(0) == REFASTER_RULE_SET_MAGIC) {
+        // RefasterRuleSet lives in core, which check_api can't depend on.
+        return (CodeTransformer)
+            Class.forName("com.google.errorprone.refaster.RefasterRuleSet")
+                .getMethod("decode", ByteBuffer.class)
+                .invoke(null, buffer);
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+        return (CodeTransformer) ois.readObject();
+      }
+    } catch (InvocationTargetException e) {
+      // decode's own message says what is wrong with the file, e.g. that it needs recompiling.
+      throw new RuntimeException(
+          String.format("Can't load Refaster rule from %s: %s", path, e.getCause().getMessage()),
+          e.getCause());
+    } catch (IOException | ReflectiveOperationException e) {
+      throw new RuntimeException("Can't load Refaster rule from " + path, e);
+    }
+  }
+
   /**
    * Given a list of command-line arguments, produce the corresponding {@link ErrorProneOptions}
    * instance.
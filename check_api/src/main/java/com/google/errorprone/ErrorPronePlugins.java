@@ -16,18 +16,31 @@
 
 package com.google.errorprone;
 
-import com.google.common.collect.Iterables;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
+import java.util.Collections;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.WeakHashMap;
 import javax.tools.JavaFileManager;
 import javax.tools.StandardLocation;
 
 /** Loads custom Error Prone checks from the annotation processor classpath. */
 public class ErrorPronePlugins {
 
+  /**
+   * The names of the plugin checkers found by each class loader. Only names are kept, so that the
+   * cache doesn't keep the class loaders it is weakly keyed on alive.
+   */
+  private static final Map<ClassLoader, ImmutableList<String>> PLUGINS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
   public static ScannerSupplier loadPlugins(ScannerSupplier scannerSupplier, Context context) {
     JavaFileManager fileManager = context.get(JavaFileManager.class);
     // Unlike in annotation processor discovery, we never search CLASS_PATH if
@@ -39,12 +52,37 @@ public class ErrorPronePlugins {
     // when using Error Prone plugins together with the Error Prone javac plugin.
     JavacProcessingEnvironment processingEnvironment = JavacProcessingEnvironment.instance(context);
     ClassLoader loader = processingEnvironment.getProcessorClassLoader();
-    Iterable<BugChecker> extraBugCheckers = ServiceLoader.load(BugChecker.class, loader);
-    if (Iterables.isEmpty(extraBugCheckers)) {
+    ImmutableList<Class<? extends BugChecker>> extraBugCheckers = pluginClasses(loader);
+    if (extraBugCheckers.isEmpty()) {
       return scannerSupplier;
     }
-    return scannerSupplier.plus(
-        ScannerSupplier.fromBugCheckerClasses(
-            Iterables.transform(extraBugCheckers, BugChecker::getClass)));
+    return scannerSupplier.plus(ScannerSupplier.fromBugCheckerClasses(extraBugCheckers));
+  }
+
+  /**
+   * Returns the plugin checkers provided by a class loader. Service discovery instantiates every
+   * provider, so it is only done the first time a class loader is seen; after that the classes
+   * are looked up by name.
+   */
+  private static ImmutableList<Class<? extends BugChecker>> pluginClasses(ClassLoader loader) {
+    ImmutableList<String> names = PLUGINS.get(loader);
+    if (names == null) {
+      ImmutableList<Class<? extends BugChecker>> classes =
+          Streams.stream(ServiceLoader.load(BugChecker.class, loader))
+              .map(BugChecker::getClass)
+              .collect(toImmutableList());
+      PLUGINS.put(loader, classes.stream().map(Class::getName).collect(toImmutableList()));
+      return classes;
+    }
+    ImmutableList.Builder<Class<? extends BugChecker>> classes = ImmutableList.builder();
+    for (String name : names) {
+      try {
+        Class<?> checker = Class.forName(name, /* initialize= */ false, loader);
+        classes.add(checker.asSubclass(BugChecker.class));
+      } catch (ClassNotFoundException e) {
+        throw new LinkageError("Could not load BugChecker " + name, e);
+      }
+    }
+    return classes.build();
   }
 }
@@ -17,15 +17,37 @@
 package com.google.errorprone;
 
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.common.base.Stopwatch;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.errorprone.matchers.Suppressible;
 import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
 
-/** A collection of timing data for the runtime of individual checks. */
+/**
+ * A collection of timing data for the runtime of individual checks.
+ *
+ * <p>Each check has a {@link Timer} that accumulates its invocation count, total and maximum
+ * runtime, a latency histogram, and (when {@code -XepTimingsOutput} is set) the bytes it
+ * allocated. Timers are safe to update from several threads, so checks can be timed while scanning
+ * with {@code -XepParallelism}.
+ *
+ * <p>Timers also count the names each check resolved through {@link ResolutionCache} while it was
+ * {@linkplain #attribute attributed} to the current thread.
+ */
 public final class ErrorProneTimings {
 
   private static final Context.Key<ErrorProneTimings> timingsKey = new Context.Key<>();
@@ -38,22 +60,275 @@ public final class ErrorProneTimings {
     return instance;
   }
 
+  /**
+   * The number of histogram buckets. Bucket 0 counts invocations faster than {@code 2^10} ns; each
+   * following bucket {@code i} counts those faster than {@code 2^(10 + 2i)} ns (so buckets grow by
+   * a factor of four), and the last bucket is unbounded.
+   */
+  public static final int HISTOGRAM_BUCKETS = 16;
+
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+  private final ThreadLocal<Timer> attributed = new ThreadLocal<>();
+  @Nullable private final com.sun.management.ThreadMXBean allocationBean;
+
   private ErrorProneTimings(Context context) {
     context.put(timingsKey, this);
+    ErrorProneOptions options = context.get(ErrorProneOptions.class);
+    // Reading a thread's allocation counter costs far more than reading the clock, so only do it
+    // when the results are going to be exported.
+    this.allocationBean =
+        options != null && options.timingsOutput() != null ? allocationBean() : null;
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+    return sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()
+        ? sunBean
+        : null;
+  }
+
+  /**
+   * Returns the timer for the given {@link Suppressible}, creating it if necessary. Callers that
+   * time the same check repeatedly should look its timer up once and keep it.
+   */
+  public Timer timer(Suppressible suppressible) {
+    return timer(suppressible.canonicalName());
+  }
+
+  /**
+   * Returns the timer with the given name, creating it if necessary. This is for timing work that
+   * isn't a check; the name must not contain characters that need escaping in JSON or CSV.
+   */
+  public Timer timer(String name) {
+    return timers.computeIfAbsent(name, k -> new Timer());
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread, or {@code 0} if
+   * allocations are not being measured. Pass this to {@link Timer#record} along with the start
+   * time.
+   */
+  public long threadAllocatedBytes() {
+    return allocationBean == null
+        ? 0
+        : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
   }
 
-  private final Map<String, Stopwatch> timers = new HashMap<>();
+  /**
+   * Makes {@code timer} the one that name resolutions on the current thread are counted against,
+   * and returns the previous one so it can be restored afterwards. {@code null} stops counting.
+   */
+  @Nullable
+  public Timer attribute(@Nullable Timer timer) {
+    Timer previous = attributed.get();
+    attributed.set(timer);
+    return previous;
+  }
+
+  /** Counts a name resolution against the timer attributed to the current thread, if any. */
+  void recordResolution(boolean miss) {
+    Timer timer = attributed.get();
+    if (timer != null) {
+      timer.resolutions.increment();
+      if (miss) {
+        timer.resolutionMisses.increment();
+      }
+    }
+  }
 
-  /** Creates a timing span for the given {@link Suppressible}. */
+  /**
+   * Creates a timing span for the given {@link Suppressible}.
+   *
+   * <p>This allocates a span per call; hot paths should use {@link #timer} and {@link
+   * Timer#record} instead.
+   */
   public AutoCloseable span(Suppressible suppressible) {
-    String key = suppressible.canonicalName();
-    Stopwatch sw = timers.computeIfAbsent(key, k -> Stopwatch.createUnstarted()).start();
-    return () -> sw.stop();
+    Timer timer = timer(suppressible);
+    long startNanos = System.nanoTime();
+    long startBytes = threadAllocatedBytes();
+    return () -> timer.record(startNanos, startBytes);
   }
 
   /** Returns the elapsed durations of each timer. */
   public Map<String, Duration> timings() {
     return timers.entrySet().stream()
-        .collect(toImmutableMap(e -> e.getKey(), e -> e.getValue().elapsed()));
+        .collect(
+            toImmutableMap(e -> e.getKey(), e -> Duration.ofNanos(e.getValue().totalNanos())));
+  }
+
+  /** Returns every timer, keyed by check name. */
+  public ImmutableSortedMap<String, Timer> timers() {
+    return ImmutableSortedMap.copyOf(timers);
+  }
+
+  /**
+   * Writes every timer to the given file, as CSV if the file name ends in {@code .csv} and as JSON
+   * otherwise.
+   */
+  public void write(String output) throws IOException {
+    Path path = Paths.get(output);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    try (Writer writer = Files.newBufferedWriter(path, UTF_8)) {
+      if (output.endsWith(".csv")) {
+        writeCsv(writer);
+      } else {
+        writeJson(writer);
+      }
+    }
+  }
+
+  /** Returns the exclusive upper bound, in nanoseconds, of every histogram bucket but the last. */
+  private static long bucketUpperBound(int bucket) {
+    return 1L << (10 + 2 * bucket);
+  }
+
+  @VisibleForTesting
+  void writeCsv(Appendable out) throws IOException {
+    out.append("check,count,total_nanos,max_nanos,allocated_bytes,resolutions,resolution_misses");
+    for (int i = 0; i < HISTOGRAM_BUCKETS - 1; i++) {
+      out.append(",lt_").append(Long.toString(bucketUpperBound(i))).append("_nanos");
+    }
+    out.append(",unbounded\n");
+    for (Map.Entry<String, Timer> entry : timers().entrySet()) {
+      Timer timer = entry.getValue();
+      out.append(entry.getKey())
+          .append(',')
+          .append(Long.toString(timer.count()))
+          .append(',')
+          .append(Long.toString(timer.totalNanos()))
+          .append(',')
+          .append(Long.toString(timer.maxNanos()))
+          .append(',')
+          .append(Long.toString(timer.allocatedBytes()))
+          .append(',')
+          .append(Long.toString(timer.resolutions()))
+          .append(',')
+          .append(Long.toString(timer.resolutionMisses()));
+      for (long count : timer.histogram()) {
+        out.append(',').append(Long.toString(count));
+      }
+      out.append('\n');
+    }
+  }
+
+  @VisibleForTesting
+  void writeJson(Appendable out) throws IOException {
+    // Check names are Java identifiers, so they never need escaping.
+    out.append("{\n  \"histogramUpperBoundsNanos\": [");
+    for (int i = 0; i < HISTOGRAM_BUCKETS - 1; i++) {
+      out.append(i == 0 ? "" : ", ").append(Long.toString(bucketUpperBound(i)));
+    }
+    out.append("],\n  \"checks\": [");
+    String separator = "\n";
+    for (Map.Entry<String, Timer> entry : timers().entrySet()) {
+      Timer timer = entry.getValue();
+      out.append(separator)
+          .append("    {\"check\": \"")
+          .append(entry.getKey())
+          .append("\", \"count\": ")
+          .append(Long.toString(timer.count()))
+          .append(", \"totalNanos\": ")
+          .append(Long.toString(timer.totalNanos()))
+          .append(", \"maxNanos\": ")
+          .append(Long.toString(timer.maxNanos()))
+          .append(", \"allocatedBytes\": ")
+          .append(Long.toString(timer.allocatedBytes()))
+          .append(", \"resolutions\": ")
+          .append(Long.toString(timer.resolutions()))
+          .append(", \"resolutionMisses\": ")
+          .append(Long.toString(timer.resolutionMisses()))
+          .append(", \"histogram\": [");
+      long[] histogram = timer.histogram();
+      for (int i = 0; i < histogram.length; i++) {
+        out.append(i == 0 ? "" : ", ").append(Long.toString(histogram[i]));
+      }
+      out.append("]}");
+      separator = ",\n";
+    }
+    out.append("\n  ]\n}\n");
+  }
+
+  /** Accumulated timing data for a single check. */
+  public final class Timer {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[HISTOGRAM_BUCKETS];
+    private final LongAdder resolutions = new LongAdder();
+    private final LongAdder resolutionMisses = new LongAdder();
+
+    private Timer() {
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records one invocation that started at {@code startNanos} (from {@link System#nanoTime})
+     * when the current thread had allocated {@code startBytes} (from {@link
+     * ErrorProneTimings#threadAllocatedBytes}), and ends now.
+     */
+    public void record(long startNanos, long startBytes) {
+      long nanos = System.nanoTime() - startNanos;
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      histogram[bucket(nanos)].increment();
+      if (allocationBean != null) {
+        allocatedBytes.add(threadAllocatedBytes() - startBytes);
+      }
+    }
+
+    public long count() {
+      return count.sum();
+    }
+
+    public long totalNanos() {
+      return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+      return maxNanos.get();
+    }
+
+    /** Returns the bytes allocated while the check ran, or {@code 0} if they weren't measured. */
+    public long allocatedBytes() {
+      return allocatedBytes.sum();
+    }
+
+    /** Returns the number of names the check looked up through {@link ResolutionCache}. */
+    public long resolutions() {
+      return resolutions.sum();
+    }
+
+    /** Returns the number of those lookups that weren't cached and had to be resolved by javac. */
+    public long resolutionMisses() {
+      return resolutionMisses.sum();
+    }
+
+    /** Returns the invocation count of each of the {@link #HISTOGRAM_BUCKETS} buckets. */
+    public long[] histogram() {
+      long[] counts = new long[histogram.length];
+      for (int i = 0; i < histogram.length; i++) {
+        counts[i] = histogram[i].sum();
+      }
+      return counts;
+    }
+
+    private int bucket(long nanos) {
+      if (nanos < (1L << 10)) {
+        return 0;
+      }
+      int log2 = 63 - Long.numberOfLeadingZeros(nanos);
+      return Math.min(HISTOGRAM_BUCKETS - 1, (log2 - 10) / 2 + 1);
+    }
   }
 }
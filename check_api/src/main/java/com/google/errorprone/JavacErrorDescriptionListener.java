@@ -22,11 +22,14 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.errorprone.fixes.AppliedFix;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
@@ -37,15 +40,21 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
 
 /**
  * Making our errors appear to the user and break their build.
  *
+ * <p>The diagnostics are reported with their positions resolved to plain offsets, and with
+ * identical messages shared, so that a build that collects many of them doesn't also keep the trees
+ * of every compilation unit they were found in.
+ *
  * @author alexeagle@google.com (Alex Eagle)
  */
 public class JavacErrorDescriptionListener implements DescriptionListener {
   private final Log log;
+  private final EndPosTable endPositions;
   private final JavaFileObject sourceFile;
   private final Function<Fix, AppliedFix> fixToAppliedFix;
   private final Context context;
@@ -55,6 +64,9 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
   // compile.
   private final boolean dontUseErrors;
 
+  /** The messages of the diagnostics reported so far; most findings of a check share theirs. */
+  private static final Interner<String> messages = Interners.newWeakInterner();
+
   // The suffix for properties in src/main/resources/com/google/errorprone/errors.properties
   private static final String MESSAGE_BUNDLE_KEY = "error.prone";
 
@@ -77,6 +89,7 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
       Context context,
       boolean dontUseErrors) {
     this.log = log;
+    this.endPositions = endPositions;
     this.sourceFile = sourceFile;
     this.context = context;
     this.dontUseErrors = dontUseErrors;
@@ -98,13 +111,13 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
             .filter(Objects::nonNull)
             .collect(toImmutableList());
 
-    String message = messageForFixes(description, appliedFixes);
+    String message = messages.intern(messageForFixes(description, appliedFixes));
     // Swap the log's source and the current file's source; then be sure to swap them back later.
     JavaFileObject originalSource = log.useSource(sourceFile);
     try {
       JCDiagnostic.Factory factory = JCDiagnostic.Factory.instance(context);
       JCDiagnostic.DiagnosticType type = JCDiagnostic.DiagnosticType.ERROR;
-      DiagnosticPosition pos = description.position;
+      DiagnosticPosition pos = new ResolvedPosition(description.position, endPositions);
       switch (description.severity) {
         case ERROR:
           if (dontUseErrors) {
@@ -136,6 +149,40 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
     }
   }
 
+  /** A diagnostic position that is detached from the tree it was computed from. */
+  private static final class ResolvedPosition implements DiagnosticPosition {
+    private final int startPosition;
+    private final int preferredPosition;
+    private final int endPosition;
+
+    ResolvedPosition(DiagnosticPosition position, EndPosTable endPositions) {
+      this.startPosition = position.getStartPosition();
+      this.preferredPosition = position.getPreferredPosition();
+      this.endPosition = position.getEndPosition(endPositions);
+    }
+
+    @Override
+    @Nullable
+    public JCTree getTree() {
+      return null;
+    }
+
+    @Override
+    public int getStartPosition() {
+      return startPosition;
+    }
+
+    @Override
+    public int getPreferredPosition() {
+      return preferredPosition;
+    }
+
+    @Override
+    public int getEndPosition(EndPosTable endPosTable) {
+      return endPosition;
+    }
+  }
+
   // b/79407644: Because AppliedFix doesn't consider imports, just don't display a
   // suggested fix to an ImportTree when the fix reports imports to remove/add. Imports can still
   // be fixed if they were specified via SuggestedFix.replace, for example.
@@ -16,47 +16,44 @@
 
 package com.google.errorprone;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
-
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.errorprone.ErrorProneOptions.PatchingOptions;
 import com.google.errorprone.apply.DescriptionBasedDiff;
+import com.google.errorprone.apply.DiffApplier;
 import com.google.errorprone.apply.FileDestination;
-import com.google.errorprone.apply.FileSource;
 import com.google.errorprone.apply.FsFileDestination;
 import com.google.errorprone.apply.FsFileSource;
 import com.google.errorprone.apply.ImportOrganizer;
 import com.google.errorprone.apply.PatchFileDestination;
-import com.google.errorprone.apply.SourceFile;
 import com.google.errorprone.matchers.Description;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Function;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-/** A container of fixes that have been collected during a single compilation phase. */
+/**
+ * A container of fixes that have been collected during a single compilation phase.
+ *
+ * <p>The fixes for each compilation unit are handed to a {@link DiffApplier} as soon as javac is
+ * done with the unit, so that they are applied and written out by a bounded pool of workers while
+ * the rest of the compilation goes on, rather than accumulated until the end.
+ */
 class RefactoringCollection implements DescriptionListener.Factory {
 
-  private static final Logger logger = Logger.getLogger(RefactoringCollection.class.getName());
-
   private final Multimap<URI, DelegatingDescriptionListener> foundSources = HashMultimap.create();
-  private final Path rootPath;
-  private final FileDestination fileDestination;
+  /** The sources that fixes were scheduled for, keyed by the file name their diff reports. */
+  private final Map<String, URI> scheduledSources = new LinkedHashMap<>();
+  private final DiffApplier diffApplier;
   private final Function<URI, RefactoringResult> postProcess;
   private final DescriptionListener.Factory descriptionsFactory;
   private final ImportOrganizer importOrganizer;
@@ -73,8 +70,8 @@ class RefactoringCollection implements DescriptionListener.Factory {
   }
 
   enum RefactoringResultType {
-    NO_CHANGES,
     CHANGED,
+    FAILED,
   }
 
   static RefactoringCollection refactor(PatchingOptions patchingOptions, Context context) {
@@ -96,27 +93,15 @@ class RefactoringCollection implements DescriptionListener.Factory {
       Path baseDir = rootPath.resolve(patchingOptions.baseDirectory());
       Path patchFilePath = baseDir.resolve("error-prone.patch");
 
-      PatchFileDestination patchFileDestination = new PatchFileDestination(baseDir, rootPath);
+      fileDestination = new PatchFileDestination(baseDir, rootPath, patchFilePath);
       postProcess =
-          new Function<URI, RefactoringResult>() {
-            private final AtomicBoolean first = new AtomicBoolean(true);
-
-            @Override
-            public RefactoringResult apply(URI uri) {
-              try {
-                writePatchFile(first, uri, patchFileDestination, patchFilePath);
-                return RefactoringResult.create(
-                    "Changes were written to "
-                        + patchFilePath
-                        + ". Please inspect the file and apply with: "
-                        + "patch -p0 -u -i error-prone.patch",
-                    RefactoringResultType.CHANGED);
-              } catch (IOException e) {
-                throw new RuntimeException("Failed to emit patch file!", e);
-              }
-            }
-          };
-      fileDestination = patchFileDestination;
+          uri ->
+              RefactoringResult.create(
+                  "Changes were written to "
+                      + patchFilePath
+                      + ". Please inspect the file and apply with: "
+                      + "patch -p0 -u -i error-prone.patch",
+                  RefactoringResultType.CHANGED);
     }
 
     ImportOrganizer importOrganizer = patchingOptions.importOrganizer();
@@ -130,8 +115,12 @@ class RefactoringCollection implements DescriptionListener.Factory {
       Function<URI, RefactoringResult> postProcess,
       ImportOrganizer importOrganizer,
       Context context) {
-    this.rootPath = rootPath;
-    this.fileDestination = fileDestination;
+    this.diffApplier =
+        new DiffApplier(
+            Runtime.getRuntime().availableProcessors(),
+            new FsFileSource(rootPath),
+            fileDestination);
+    diffApplier.startAsync().awaitRunning();
     this.postProcess = postProcess;
     this.descriptionsFactory = JavacErrorDescriptionListener.providerForRefactoring(context);
     this.importOrganizer = importOrganizer;
@@ -157,49 +146,41 @@ class RefactoringCollection implements DescriptionListener.Factory {
     return delegate;
   }
 
-  RefactoringResult applyChanges(URI uri) throws Exception {
-    Collection<DelegatingDescriptionListener> listeners = foundSources.removeAll(uri);
-    if (listeners.isEmpty()) {
-      return RefactoringResult.create("", RefactoringResultType.NO_CHANGES);
-    }
-
-    doApplyProcess(fileDestination, new FsFileSource(rootPath), listeners);
-    return postProcess.apply(uri);
-  }
-
-  private static void writePatchFile(
-      AtomicBoolean first, URI uri, PatchFileDestination fileDestination, Path patchFilePatch)
-      throws IOException {
-    String patchFile = fileDestination.patchFile(uri);
-    if (patchFile != null) {
-      if (first.compareAndSet(true, false)) {
-        try {
-          Files.deleteIfExists(patchFilePatch);
-        } catch (IOException e) {
-          throw new UncheckedIOException(e);
-        }
+  /**
+   * Schedules the fixes found in {@code uri} to be applied. They are not guaranteed to have been
+   * applied until {@link #awaitChanges} returns.
+   */
+  void applyChanges(URI uri) {
+    for (DelegatingDescriptionListener listener : foundSources.removeAll(uri)) {
+      if (!listener.base.isEmpty()) {
+        diffApplier.put(listener.base);
+        scheduledSources.put(listener.base.getRelevantFileName(), uri);
       }
-      Files.createDirectories(patchFilePatch.getParent());
-      Files.write(patchFilePatch, patchFile.getBytes(UTF_8), APPEND, CREATE);
     }
   }
 
-  private void doApplyProcess(
-      FileDestination fileDestination,
-      FileSource fileSource,
-      Collection<DelegatingDescriptionListener> listeners) {
-    for (DelegatingDescriptionListener listener : listeners) {
-      try {
-        SourceFile file = fileSource.readFile(listener.base.getRelevantFileName());
-        listener.base.applyDifferences(file);
-        fileDestination.writeFile(file);
-      } catch (IOException e) {
-        logger.log(
-            Level.WARNING,
-            "Failed to apply diff to file " + listener.base.getRelevantFileName(),
-            e);
-      }
-    }
+  /**
+   * Waits for all the scheduled fixes to be applied and the destination to be flushed; called once
+   * the compilation is over.
+   *
+   * @return the outcome for each source that fixes were scheduled for, in scheduling order
+   * @throws IllegalStateException if the destination could not be flushed
+   */
+  ImmutableList<RefactoringResult> awaitChanges() {
+    diffApplier.stopAsync().awaitTerminated();
+    ImmutableMap<String, Exception> failures = diffApplier.failures();
+    ImmutableList.Builder<RefactoringResult> results = ImmutableList.builder();
+    scheduledSources.forEach(
+        (fileName, uri) -> {
+          Exception failure = failures.get(fileName);
+          results.add(
+              failure == null
+                  ? postProcess.apply(uri)
+                  : RefactoringResult.create(
+                      String.format("Failed to apply fixes to %s: %s", uri, failure),
+                      RefactoringResultType.FAILED));
+        });
+    return results.build();
   }
 
   private final class DelegatingDescriptionListener implements DescriptionListener {
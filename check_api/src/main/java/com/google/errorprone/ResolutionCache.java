@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A compilation-wide cache of the {@link Name}s, {@link Type}s and {@link ClassSymbol}s that
+ * checks look up by their fully-qualified names.
+ *
+ * <p>Reads never lock: names listed in {@code well_known_types.txt} (the types the built-in checks
+ * use) live in fixed slots of an array, and every other name lives in a {@link ConcurrentHashMap}.
+ * Only successful resolutions are cached here. A type that is missing from one compilation unit may
+ * be completed while compiling the next, so {@link VisitorState} remembers failures per unit only.
+ *
+ * <p>Every lookup is counted against the check that is running on the current thread, see {@link
+ * ErrorProneTimings#attribute}.
+ */
+public final class ResolutionCache {
+
+  private static final Context.Key<ResolutionCache> resolutionCacheKey = new Context.Key<>();
+
+  public static ResolutionCache instance(Context context) {
+    ResolutionCache instance = context.get(resolutionCacheKey);
+    if (instance == null) {
+      instance = new ResolutionCache(context);
+    }
+    return instance;
+  }
+
+  /** The slot of each well-known name, in the order they appear in the resource. */
+  @VisibleForTesting
+  static final ImmutableMap<String, Integer> WELL_KNOWN_SLOTS = loadWellKnownSlots();
+
+  private static ImmutableMap<String, Integer> loadWellKnownSlots() {
+    List<String> lines;
+    try {
+      lines =
+          Resources.readLines(
+              Resources.getResource(ResolutionCache.class, "well_known_types.txt"), UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ImmutableMap.Builder<String, Integer> slots = ImmutableMap.builder();
+    int slot = 0;
+    for (String line : lines) {
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#")) {
+        slots.put(line, slot++);
+      }
+    }
+    return slots.build();
+  }
+
+  private final Names javacNames;
+  private final ErrorProneTimings timings;
+
+  private final AtomicReferenceArray<Name> wellKnownNames;
+  private final AtomicReferenceArray<Type> wellKnownTypes;
+  private final AtomicReferenceArray<ClassSymbol> wellKnownSymbols;
+  private final ConcurrentHashMap<String, Name> names = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Type> types = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ClassSymbol> symbols = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private ResolutionCache(Context context) {
+    context.put(resolutionCacheKey, this);
+    this.javacNames = Names.instance(context);
+    this.timings = ErrorProneTimings.instance(context);
+    int size = WELL_KNOWN_SLOTS.size();
+    this.wellKnownNames = new AtomicReferenceArray<>(size);
+    this.wellKnownTypes = new AtomicReferenceArray<>(size);
+    this.wellKnownSymbols = new AtomicReferenceArray<>(size);
+  }
+
+  /** Returns the interned {@link Name} for the given string. */
+  public Name name(String name) {
+    Integer slot = WELL_KNOWN_SLOTS.get(name);
+    if (slot != null) {
+      Name result = wellKnownNames.get(slot);
+      if (result == null) {
+        result = javacNames.fromString(name);
+        wellKnownNames.lazySet(slot, result);
+      }
+      return result;
+    }
+    Name result = names.get(name);
+    return result != null ? result : names.computeIfAbsent(name, javacNames::fromString);
+  }
+
+  /**
+   * Returns the type with the given name, using {@code resolver} to look it up if it hasn't been
+   * resolved yet, or {@code null} if it cannot be resolved.
+   */
+  @Nullable
+  public Type type(String name, Function<String, Type> resolver) {
+    return lookup(name, wellKnownTypes, types, resolver);
+  }
+
+  /**
+   * Returns the class symbol with the given name, using {@code resolver} to look it up if it hasn't
+   * been resolved yet, or {@code null} if it cannot be resolved.
+   */
+  @Nullable
+  public ClassSymbol symbol(String name, Function<String, ClassSymbol> resolver) {
+    return lookup(name, wellKnownSymbols, symbols, resolver);
+  }
+
+  @Nullable
+  private <T> T lookup(
+      String name,
+      AtomicReferenceArray<T> wellKnown,
+      ConcurrentHashMap<String, T> cache,
+      Function<String, T> resolver) {
+    Integer slot = WELL_KNOWN_SLOTS.get(name);
+    T result = slot != null ? wellKnown.get(slot) : cache.get(name);
+    if (result != null) {
+      hits.increment();
+      timings.recordResolution(/* miss= */ false);
+      return result;
+    }
+    misses.increment();
+    timings.recordResolution(/* miss= */ true);
+    // Resolving twice on a race is harmless: javac hands out the same symbol both times.
+    result = resolver.apply(name);
+    if (result != null) {
+      if (slot != null) {
+        wellKnown.lazySet(slot, result);
+      } else {
+        cache.putIfAbsent(name, result);
+      }
+    }
+    return result;
+  }
+
+  /** Returns the number of type and symbol lookups that were answered from the cache. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Returns the number of type and symbol lookups that had to be resolved by javac. */
+  public long misses() {
+    return misses.sum();
+  }
+}
@@ -0,0 +1,656 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.Resources;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.fixes.Fix;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Source;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import javax.lang.model.element.ElementKind;
+
+/**
+ * A persistent store of the descriptions reported for each compilation unit, used by {@code
+ * -XepResultCache} to replay the findings of units that haven't changed instead of scanning them.
+ *
+ * <p>A unit's results are stored under a key that hashes:
+ *
+ * <ul>
+ *   <li>the unit's source text;
+ *   <li>the signatures of every class the unit refers to that is declared elsewhere (in other
+ *       sources or on the classpath), including their members and supertypes; and
+ *   <li>a fingerprint of the configuration: the Error Prone version, the enabled checks with their
+ *       severities and code sources, the {@code -XepOpt} flags, and the options that change what
+ *       gets reported.
+ * </ul>
+ *
+ * <p>Each entry is a separate file under {@code entries/}, written to a temporary file and then
+ * renamed, so concurrent builds sharing a cache never see partial entries. A small record per
+ * source file under {@code files/} remembers the last key's components, which is how a miss is
+ * attributed to a {@link MissReason}.
+ */
+final class ResultCache {
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final HashFunction HASH = Hashing.sha256();
+
+  /** Why a compilation unit had to be scanned. */
+  enum MissReason {
+    NEW_FILE("new file"),
+    SOURCE_CHANGED("source changed"),
+    DEPENDENCIES_CHANGED("dependencies changed"),
+    CONFIGURATION_CHANGED("configuration changed"),
+    ENTRY_MISSING("entry missing or unreadable");
+
+    private final String description;
+
+    MissReason(String description) {
+      this.description = description;
+    }
+  }
+
+  /** The components of a compilation unit's cache key. */
+  static final class Key {
+    private final String file;
+    private final HashCode source;
+    private final HashCode dependencies;
+    private final HashCode configuration;
+
+    private Key(String file, HashCode source, HashCode dependencies, HashCode configuration) {
+      this.file = file;
+      this.source = source;
+      this.dependencies = dependencies;
+      this.configuration = configuration;
+    }
+
+    private HashCode combined() {
+      return Hashing.combineOrdered(ImmutableList.of(source, dependencies, configuration));
+    }
+  }
+
+  private final Path entries;
+  private final Path files;
+  private final HashCode configuration;
+
+  /** Signature hashes of the classes seen so far in this compilation. */
+  private final Map<ClassSymbol, HashCode> signatures = new HashMap<>();
+
+  private final Set<ClassSymbol> inProgress = new HashSet<>();
+
+  private int hits = 0;
+  private final Map<MissReason, Integer> misses = new EnumMap<>(MissReason.class);
+
+  private ResultCache(Path directory, HashCode configuration) {
+    this.entries = directory.resolve("entries");
+    this.files = directory.resolve("files");
+    this.configuration = configuration;
+  }
+
+  /**
+   * Creates a cache stored in {@code directory} for a compilation that scans with the enabled
+   * checks of {@code scannerSupplier}.
+   */
+  static ResultCache create(
+      String directory,
+      ScannerSupplier scannerSupplier,
+      ErrorProneOptions errorProneOptions,
+      Context context) {
+    Hasher hasher = HASH.newHasher().putInt(FORMAT_VERSION);
+    putString(hasher, ErrorProneVersion.loadVersionFromPom().or("unknown version"));
+    Map<String, String> checks = new TreeMap<>();
+    Map<Path, HashCode> jarHashes = new HashMap<>();
+    for (BugCheckerInfo check : scannerSupplier.getEnabledChecks()) {
+      checks.put(
+          check.canonicalName(),
+          scannerSupplier.severities().get(check.canonicalName())
+              + " "
+              + codeFingerprint(check.checkerClass(), jarHashes));
+    }
+    putString(hasher, checks.toString());
+    putString(hasher, new TreeMap<>(errorProneOptions.getFlags().getFlagsMap()).toString());
+    hasher
+        .putBoolean(errorProneOptions.disableWarningsInGeneratedCode())
+        .putBoolean(errorProneOptions.isDropErrorsToWarnings())
+        .putBoolean(errorProneOptions.isTestOnlyTarget())
+        .putBoolean(errorProneOptions.isIgnoreSuppressionAnnotations())
+        .putBoolean(errorProneOptions.ignoreLargeCodeGenerators());
+    putString(hasher, Source.instance(context).name);
+    return new ResultCache(Paths.get(directory), hasher.hash());
+  }
+
+  /**
+   * Identifies the code of {@code checkerClass}: where it was loaded from, and a hash of that jar's
+   * contents, or of the class file if it was loaded from a directory. A checker rebuilt in place
+   * therefore changes the fingerprint even though its location doesn't. Jars are hashed once per
+   * compilation, however many checks they hold.
+   */
+  private static String codeFingerprint(Class<?> checkerClass, Map<Path, HashCode> jarHashes) {
+    CodeSource codeSource = checkerClass.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return "";
+    }
+    URL location = codeSource.getLocation();
+    try {
+      Path path = Paths.get(location.toURI());
+      HashCode hash;
+      if (Files.isDirectory(path)) {
+        String name = checkerClass.getName();
+        String simpleBinaryName = name.substring(name.lastIndexOf('.') + 1);
+        URL classFile = checkerClass.getResource(simpleBinaryName + ".class");
+        hash = Resources.asByteSource(classFile).hash(HASH);
+      } else {
+        hash = jarHashes.get(path);
+        if (hash == null) {
+          hash = MoreFiles.asByteSource(path).hash(HASH);
+          jarHashes.put(path, hash);
+        }
+      }
+      return location + " " + hash;
+    } catch (URISyntaxException | IOException | RuntimeException e) {
+      // Not a local file; fall back to the location alone.
+      return location.toString();
+    }
+  }
+
+  /** Computes the cache key of a compilation unit. */
+  Key key(JCCompilationUnit unit) throws IOException {
+    CharSequence content = unit.getSourceFile().getCharContent(true);
+    HashCode source = HASH.hashString(content, UTF_8);
+    Map<String, HashCode> referenced = new TreeMap<>();
+    for (ClassSymbol sym : referencedClasses(unit)) {
+      referenced.put(sym.flatName().toString(), signature(sym));
+    }
+    Hasher dependencies = HASH.newHasher();
+    for (Map.Entry<String, HashCode> entry : referenced.entrySet()) {
+      putString(dependencies, entry.getKey());
+      dependencies.putBytes(entry.getValue().asBytes());
+    }
+    String file = unit.getSourceFile().toUri().toString();
+    return new Key(file, source, dependencies.hash(), configuration);
+  }
+
+  /**
+   * Returns the descriptions stored for {@code key}, positioned in {@code unit}, or {@code null} if
+   * the unit must be scanned.
+   */
+  @Nullable
+  ImmutableList<Description> lookup(Key key, JCCompilationUnit unit) {
+    try {
+      byte[] bytes = Files.readAllBytes(entries.resolve(key.combined().toString()));
+      ImmutableList<Description> descriptions = decode(bytes, unit);
+      hits++;
+      return descriptions;
+    } catch (NoSuchFileException e) {
+      miss(missReason(key));
+    } catch (IOException | RuntimeException e) {
+      miss(MissReason.ENTRY_MISSING);
+    }
+    return null;
+  }
+
+  /** Stores the descriptions that scanning the unit with {@code key} reported. */
+  void store(Key key, List<Description> descriptions, JCCompilationUnit unit) {
+    byte[] encoded;
+    try {
+      encoded = encode(descriptions, unit);
+    } catch (RuntimeException e) {
+      // A fix that can't be materialized outside of its checker; scan this unit every time.
+      return;
+    }
+    try {
+      write(entries.resolve(key.combined().toString()), encoded);
+      ByteArrayOutputStream record = new ByteArrayOutputStream();
+      record.write(key.source.asBytes());
+      record.write(key.dependencies.asBytes());
+      record.write(key.configuration.asBytes());
+      write(files.resolve(HASH.hashString(key.file, UTF_8).toString()), record.toByteArray());
+    } catch (IOException e) {
+      // The cache is best-effort.
+    }
+  }
+
+  /** Returns a one-line summary of the cache's hits and misses. */
+  String summary() {
+    StringBuilder summary = new StringBuilder("Error Prone result cache: ");
+    int total = misses.values().stream().mapToInt(Integer::intValue).sum();
+    summary.append(hits).append(hits == 1 ? " hit, " : " hits, ");
+    summary.append(total).append(total == 1 ? " miss" : " misses");
+    if (total > 0) {
+      String separator = " (";
+      for (Map.Entry<MissReason, Integer> entry : misses.entrySet()) {
+        summary.append(separator).append(entry.getValue()).append(' ');
+        summary.append(entry.getKey().description);
+        separator = ", ";
+      }
+      summary.append(')');
+    }
+    return summary.toString();
+  }
+
+  int hits() {
+    return hits;
+  }
+
+  int misses(MissReason reason) {
+    return misses.getOrDefault(reason, 0);
+  }
+
+  private void miss(MissReason reason) {
+    misses.merge(reason, 1, Integer::sum);
+  }
+
+  private MissReason missReason(Key key) {
+    byte[] record;
+    try {
+      record = Files.readAllBytes(files.resolve(HASH.hashString(key.file, UTF_8).toString()));
+    } catch (IOException e) {
+      return MissReason.NEW_FILE;
+    }
+    int length = HASH.bits() / Byte.SIZE;
+    if (record.length != 3 * length) {
+      return MissReason.NEW_FILE;
+    }
+    if (!HashCode.fromBytes(slice(record, 2 * length, length)).equals(key.configuration)) {
+      return MissReason.CONFIGURATION_CHANGED;
+    }
+    if (!HashCode.fromBytes(slice(record, 0, length)).equals(key.source)) {
+      return MissReason.SOURCE_CHANGED;
+    }
+    if (!HashCode.fromBytes(slice(record, length, length)).equals(key.dependencies)) {
+      return MissReason.DEPENDENCIES_CHANGED;
+    }
+    return MissReason.ENTRY_MISSING;
+  }
+
+  private static byte[] slice(byte[] bytes, int offset, int length) {
+    byte[] slice = new byte[length];
+    System.arraycopy(bytes, offset, slice, 0, length);
+    return slice;
+  }
+
+  private static void write(Path path, byte[] bytes) throws IOException {
+    Files.createDirectories(path.getParent());
+    Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, bytes);
+      try {
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** Returns the outermost classes that {@code unit} refers to and doesn't declare. */
+  private static Set<ClassSymbol> referencedClasses(JCCompilationUnit unit) {
+    Set<ClassSymbol> referenced = new HashSet<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void scan(Tree tree, Void unused) {
+        if (tree != null) {
+          add(ASTHelpers.getSymbol(tree));
+          addType(((JCTree) tree).type);
+        }
+        return super.scan(tree, null);
+      }
+
+      private void addType(@Nullable Type type) {
+        if (type == null) {
+          return;
+        }
+        add(type.tsym);
+        for (Type argument : type.getTypeArguments()) {
+          addType(argument);
+        }
+      }
+
+      private void add(@Nullable Symbol sym) {
+        if (sym == null || sym.getKind() == ElementKind.PACKAGE) {
+          return;
+        }
+        ClassSymbol outermost = ASTHelpers.outermostClass(sym);
+        if (outermost != null && outermost.sourcefile != unit.getSourceFile()) {
+          referenced.add(outermost);
+        }
+      }
+    }.scan(unit, null);
+    return referenced;
+  }
+
+  /**
+   * Returns a hash of everything about {@code sym} that a check could observe from another
+   * compilation unit: its flags, supertypes and annotations, and those of its members, recursively
+   * for member classes and supertypes.
+   */
+  private HashCode signature(ClassSymbol sym) {
+    HashCode cached = signatures.get(sym);
+    if (cached != null) {
+      return cached;
+    }
+    if (!inProgress.add(sym)) {
+      // A cycle through a member class, e.g. a nested class that extends its outer class.
+      return HASH.hashString(sym.flatName().toString(), UTF_8);
+    }
+    Hasher hasher = HASH.newHasher();
+    try {
+      putString(hasher, sym.flatName().toString());
+      hasher.putLong(sym.flags());
+      putString(hasher, sym.getAnnotationMirrors().toString());
+      List<String> members = new ArrayList<>();
+      for (Symbol member : sym.members().getSymbols()) {
+        if (member instanceof ClassSymbol) {
+          members.add(signature((ClassSymbol) member).toString());
+          continue;
+        }
+        StringBuilder signature = new StringBuilder();
+        signature
+            .append(member.getKind())
+            .append(' ')
+            .append(member.getSimpleName())
+            .append(' ')
+            .append(member.flags())
+            .append(' ')
+            .append(member.type)
+            .append(' ')
+            .append(member.getAnnotationMirrors());
+        if (member instanceof VarSymbol) {
+          signature.append(" = ").append(((VarSymbol) member).getConstValue());
+        }
+        members.add(signature.toString());
+      }
+      // Scope iteration order is an implementation detail.
+      members.sort(null);
+      for (String member : members) {
+        putString(hasher, member);
+      }
+      Type superclass = sym.getSuperclass();
+      if (superclass.tsym instanceof ClassSymbol) {
+        hasher.putBytes(signature((ClassSymbol) superclass.tsym).asBytes());
+      }
+      for (Type iface : sym.getInterfaces()) {
+        putString(hasher, iface.toString());
+        if (iface.tsym instanceof ClassSymbol) {
+          hasher.putBytes(signature((ClassSymbol) iface.tsym).asBytes());
+        }
+      }
+    } catch (CompletionFailure e) {
+      putString(hasher, "incomplete: " + e.getMessage());
+    } finally {
+      inProgress.remove(sym);
+    }
+    HashCode signature = hasher.hash();
+    signatures.put(sym, signature);
+    return signature;
+  }
+
+  private static void putString(Hasher hasher, String string) {
+    hasher.putInt(string.length()).putString(string, UTF_8);
+  }
+
+  private static byte[] encode(List<Description> descriptions, JCCompilationUnit unit) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(descriptions.size());
+      for (Description description : descriptions) {
+        out.writeUTF(description.checkName);
+        writeLongString(out, description.getRawMessage());
+        out.writeBoolean(description.getLink() != null);
+        if (description.getLink() != null) {
+          out.writeUTF(description.getLink());
+        }
+        out.writeUTF(description.severity.name());
+        DiagnosticPosition position = description.position;
+        Tree tree = position.getTree();
+        out.writeBoolean(tree == null || tree.getKind() == Tree.Kind.IMPORT);
+        out.writeInt(position.getStartPosition());
+        out.writeInt(position.getPreferredPosition());
+        out.writeInt(position.getEndPosition(unit.endPositions));
+        out.writeInt(description.fixes.size());
+        for (Fix fix : description.fixes) {
+          out.writeUTF(fix.getShortDescription());
+          writeStrings(out, fix.getImportsToAdd());
+          writeStrings(out, fix.getImportsToRemove());
+          Set<Replacement> replacements = fix.getReplacements(unit.endPositions);
+          out.writeInt(replacements.size());
+          for (Replacement replacement : replacements) {
+            out.writeInt(replacement.startPosition());
+            out.writeInt(replacement.endPosition());
+            writeLongString(out, replacement.replaceWith());
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e); // in-memory
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ImmutableList<Description> decode(byte[] bytes, JCCompilationUnit unit)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    if (in.readInt() != FORMAT_VERSION) {
+      throw new IOException("unsupported format");
+    }
+    int count = in.readInt();
+    ImmutableList.Builder<Description> descriptions = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      String checkName = in.readUTF();
+      String message = readLongString(in);
+      String link = in.readBoolean() ? in.readUTF() : null;
+      SeverityLevel severity = SeverityLevel.valueOf(in.readUTF());
+      boolean importOrNoTree = in.readBoolean();
+      DiagnosticPosition position =
+          new CachedPosition(
+              importOrNoTree ? null : unit, in.readInt(), in.readInt(), in.readInt());
+      Description.Builder description =
+          Description.builder(position, checkName, link, severity, message);
+      int fixes = in.readInt();
+      for (int j = 0; j < fixes; j++) {
+        String shortDescription = in.readUTF();
+        ImmutableList<String> importsToAdd = readStrings(in);
+        ImmutableList<String> importsToRemove = readStrings(in);
+        int replacementCount = in.readInt();
+        ImmutableSet.Builder<Replacement> replacements = ImmutableSet.builder();
+        for (int k = 0; k < replacementCount; k++) {
+          replacements.add(Replacement.create(in.readInt(), in.readInt(), readLongString(in)));
+        }
+        description.addFix(
+            new CachedFix(shortDescription, replacements.build(), importsToAdd, importsToRemove));
+      }
+      descriptions.add(description.build());
+    }
+    return descriptions.build();
+  }
+
+  // DataOutput.writeUTF is limited to 64K of encoded text, which a replacement can exceed.
+  private static void writeLongString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readLongString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  private static ImmutableList<String> readStrings(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    ImmutableList.Builder<String> strings = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      strings.add(in.readUTF());
+    }
+    return strings.build();
+  }
+
+  /**
+   * The position of a replayed description. The original tree is gone, so {@link #getTree()}
+   * returns the compilation unit, or {@code null} if the original tree was an import or absent;
+   * that is all that {@link JavacErrorDescriptionListener} distinguishes.
+   */
+  private static final class CachedPosition implements DiagnosticPosition {
+    @Nullable private final JCTree tree;
+    private final int start;
+    private final int preferred;
+    private final int end;
+
+    CachedPosition(@Nullable JCTree tree, int start, int preferred, int end) {
+      this.tree = tree;
+      this.start = start;
+      this.preferred = preferred;
+      this.end = end;
+    }
+
+    @Override
+    @Nullable
+    public JCTree getTree() {
+      return tree;
+    }
+
+    @Override
+    public int getStartPosition() {
+      return start;
+    }
+
+    @Override
+    public int getPreferredPosition() {
+      return preferred;
+    }
+
+    @Override
+    public int getEndPosition(EndPosTable endPosTable) {
+      return end;
+    }
+  }
+
+  /** A replayed fix, whose replacements were resolved when it was stored. */
+  private static final class CachedFix implements Fix {
+    private final String shortDescription;
+    private final ImmutableSet<Replacement> replacements;
+    private final ImmutableList<String> importsToAdd;
+    private final ImmutableList<String> importsToRemove;
+
+    CachedFix(
+        String shortDescription,
+        ImmutableSet<Replacement> replacements,
+        ImmutableList<String> importsToAdd,
+        ImmutableList<String> importsToRemove) {
+      this.shortDescription = shortDescription;
+      this.replacements = replacements;
+      this.importsToAdd = importsToAdd;
+      this.importsToRemove = importsToRemove;
+    }
+
+    @Override
+    public String toString(JCCompilationUnit compilationUnit) {
+      StringBuilder result = new StringBuilder("replace ");
+      for (Replacement replacement : replacements) {
+        result.append(
+            String.format(
+                "position %d:%d with \"%s\" ",
+                replacement.startPosition(), replacement.endPosition(), replacement.replaceWith()));
+      }
+      return result.toString();
+    }
+
+    @Override
+    public String getShortDescription() {
+      return shortDescription;
+    }
+
+    @Override
+    public Set<Replacement> getReplacements(EndPosTable endPositions) {
+      return replacements;
+    }
+
+    @Override
+    public Collection<String> getImportsToAdd() {
+      return importsToAdd;
+    }
+
+    @Override
+    public Collection<String> getImportsToRemove() {
+      return importsToRemove;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return replacements.isEmpty() && importsToAdd.isEmpty() && importsToRemove.isEmpty();
+    }
+  }
+}
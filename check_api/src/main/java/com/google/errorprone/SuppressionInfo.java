@@ -35,6 +35,7 @@ import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Pair;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
@@ -139,13 +140,21 @@ public class SuppressionInfo {
    */
   public SuppressionInfo withExtendedSuppressions(
       Symbol sym, VisitorState state, Set<? extends Name> customSuppressionAnnosToLookFor) {
+    // Only classes can inherit annotations, so other symbols without any can't add signals.
+    if (!(sym instanceof ClassSymbol) && sym.getRawAttributes().isEmpty()) {
+      return this;
+    }
     boolean newInGeneratedCode = inGeneratedCode || isGenerated(sym, state);
     boolean anyModification = newInGeneratedCode != inGeneratedCode;
 
     /* Handle custom suppression annotations. */
-    Set<Name> lookingFor = new HashSet<>(customSuppressionAnnosToLookFor);
-    lookingFor.removeAll(customSuppressions);
-    Set<Name> newlyPresent = ASTHelpers.annotationsAmong(sym, lookingFor, state);
+    Set<Name> newlyPresent;
+    if (customSuppressionAnnosToLookFor.isEmpty()) {
+      newlyPresent = ImmutableSet.of();
+    } else {
+      newlyPresent = ASTHelpers.annotationsAmong(sym, customSuppressionAnnosToLookFor, state);
+      newlyPresent.removeAll(customSuppressions);
+    }
     Set<Name> newCustomSuppressions;
     if (!newlyPresent.isEmpty()) {
       anyModification = true;
@@ -198,6 +207,29 @@ public class SuppressionInfo {
     return new SuppressionInfo(newSuppressions, newCustomSuppressions, newInGeneratedCode);
   }
 
+  /**
+   * Two instances are equal if they carry the same signals, so that results derived from them can
+   * be shared between declarations that are suppressed in the same way.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof SuppressionInfo)) {
+      return false;
+    }
+    SuppressionInfo that = (SuppressionInfo) obj;
+    return inGeneratedCode == that.inGeneratedCode
+        && suppressWarningsStrings.equals(that.suppressWarningsStrings)
+        && customSuppressions.equals(that.customSuppressions);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(suppressWarningsStrings, customSuppressions, inGeneratedCode);
+  }
+
   public enum SuppressedState {
     UNSUPPRESSED,
     SUPPRESSED
@@ -32,6 +32,7 @@ import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ErrorProneToken;
 import com.google.errorprone.util.ErrorProneTokens;
+import com.google.errorprone.util.TokenCache;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Kinds.Kind;
@@ -56,10 +57,10 @@ import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Options;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import javax.annotation.Nullable;
 import javax.lang.model.util.Elements;
 
@@ -317,7 +318,7 @@ public class VisitorState {
   }
 
   public Name getName(String nameStr) {
-    return getNames().fromString(nameStr);
+    return sharedState.resolutionCache.name(nameStr);
   }
 
   /**
@@ -339,10 +340,14 @@ public class VisitorState {
    */
   @Nullable
   public Type getTypeFromString(String typeStr) {
-    return sharedState
-        .typeCache
-        .computeIfAbsent(typeStr, key -> Optional.ofNullable(getTypeFromStringInternal(key)))
-        .orElse(null);
+    if (sharedState.unresolvedTypes.contains(typeStr)) {
+      return null;
+    }
+    Type type = sharedState.resolutionCache.type(typeStr, this::getTypeFromStringInternal);
+    if (type == null) {
+      sharedState.unresolvedTypes.add(typeStr);
+    }
+    return type;
   }
 
   @Nullable
@@ -369,7 +374,8 @@ public class VisitorState {
   // TODO(cushon): deal with binary compat issues and return ClassSymbol
   @Nullable
   public Symbol getSymbolFromString(String symStr) {
-    return getSymbolFromName(binaryNameFromClassname(symStr));
+    return sharedState.resolutionCache.symbol(
+        symStr, key -> getSymbolFromName(binaryNameFromClassname(key)));
   }
 
   /**
@@ -554,35 +560,46 @@ public class VisitorState {
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are sliced from the tokens of the whole compilation unit, which is lexed once and
+   * shared by all checks, see {@link TokenCache}.
    */
   public List<ErrorProneToken> getTokensForNode(Tree tree) {
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), context);
+    return getTokensForNode(tree, 0);
   }
 
   /**
    * Returns the list of {@link Token}s for the given {@link JCTree}, offset by the start position
    * of the tree within the overall source.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are sliced from the tokens of the whole compilation unit, which is lexed once and
+   * shared by all checks, see {@link TokenCache}.
    */
   public List<ErrorProneToken> getOffsetTokensForNode(Tree tree) {
-    int start = getStartPosition(tree);
-    return ErrorProneTokens.getTokens(getSourceForNode(tree), start, context);
+    return getTokensForNode(tree, getStartPosition(tree));
+  }
+
+  private List<ErrorProneToken> getTokensForNode(Tree tree, int offset) {
+    int end = getEndPosition(tree);
+    if (end < 0) {
+      return ErrorProneTokens.getTokens(null, offset, context);
+    }
+    return getTokens(getStartPosition(tree), end, offset);
   }
 
   /**
    * Returns the list of {@link Token}s for source code between the given positions, offset by the
    * start position.
    *
-   * <p>This is moderately expensive (the source of the node has to be re-lexed), so it should only
-   * be used if a fix is already going to be emitted.
+   * <p>The tokens are sliced from the tokens of the whole compilation unit, which is lexed once and
+   * shared by all checks, see {@link TokenCache}.
    */
   public List<ErrorProneToken> getOffsetTokens(int start, int end) {
-    return ErrorProneTokens.getTokens(
-        getSourceCode().subSequence(start, end).toString(), start, context);
+    return getTokens(start, end, start);
+  }
+
+  private List<ErrorProneToken> getTokens(int start, int end, int offset) {
+    return TokenCache.instance(context)
+        .getTokens(getPath().getCompilationUnit(), getSourceCode(), start, end, offset);
   }
 
   /** Returns the end position of the node, or -1 if it is not available. */
@@ -653,37 +670,41 @@ public class VisitorState {
     /* Uses T instead of Optional<T> because we don't want to cache null results
     (b/138753468). These inline caches persist between compilation units, and a type that fails to
     resolve in one may become available in the next; we want to keep looking it up
-    (relying on the per-file cache in typeCache) if we don't have a result. If you want to cache a
-    computation which can return null, wrap it in an Optional at the call site.*/
+    (relying on the per-file cache in unresolvedTypes) if we don't have a result. If you want to
+    cache a computation which can return null, wrap it in an Optional at the call site.*/
+
+    /** The cached value and the compilation it belongs to, published together. */
+    private static final class Memo<V> extends SoftReference<V> {
+      private final JavacInvocationInstance provenance;
+
+      Memo(V value, JavacInvocationInstance provenance) {
+        super(value);
+        this.provenance = provenance;
+      }
+    }
 
-    private SoftReference<T> cache = new SoftReference<>(null);
-    private JavacInvocationInstance provenance;
+    // Reads are a single volatile load. Two threads racing on an empty cache both compute the
+    // value, which is harmless because it's the same for the whole compilation.
+    @Nullable private volatile Memo<T> memo;
 
     private Cache(Supplier<T> impl) {
       this.impl = impl;
-      // provenance intentionally left null-initialized
     }
 
     @Override
-    public synchronized T get(VisitorState state) {
-      /* javac is single-threaded, so in principle we don't really need to lock.
-      But in practice it's cheap enough to be worth getting peace of mind that this is
-      always correct. */
-      T value = cache.get();
-      if (value == null) {
-        value = impl.get(state);
+    public T get(VisitorState state) {
+      JavacInvocationInstance current = state.sharedState.javacInvocationInstance;
+      Memo<T> memo = this.memo;
+      if (memo != null && memo.provenance == current) {
+        T value = memo.get();
         if (value != null) {
-          cache = new SoftReference<>(value);
-          provenance = state.sharedState.javacInvocationInstance;
-        }
-      } else {
-        JavacInvocationInstance current = state.sharedState.javacInvocationInstance;
-        if (provenance != current) {
-          value = impl.get(state);
-          cache = new SoftReference<>(value);
-          provenance = current;
+          return value;
         }
       }
+      T value = impl.get(state);
+      if (value != null) {
+        this.memo = new Memo<>(value, current);
+      }
       return value;
     }
   }
@@ -708,6 +729,7 @@ public class VisitorState {
     private final Names names;
     private final Symtab symtab;
     private final ErrorProneTimings timings;
+    private final ResolutionCache resolutionCache;
     private final Types types;
     private final TreeMaker treeMaker;
     private final JavacInvocationInstance javacInvocationInstance;
@@ -717,10 +739,11 @@ public class VisitorState {
     private final Map<String, SeverityLevel> severityMap;
     private final ErrorProneOptions errorProneOptions;
 
-    // TODO(ronshapiro): should we presize this with a reasonable size? We can check for the
-    // smallest build and see how many types are loaded and use that. Or perhaps a heuristic
-    // based on number of files?
-    private final Map<String, Optional<Type>> typeCache = new HashMap<>();
+    /**
+     * Types that failed to resolve while scanning this compilation unit. Successful resolutions
+     * are shared by the whole compilation through {@link ResolutionCache}.
+     */
+    private final Set<String> unresolvedTypes = new HashSet<>();
 
     SharedState(
         Context context,
@@ -732,6 +755,7 @@ public class VisitorState {
       this.names = Names.instance(context);
       this.symtab = Symtab.instance(context);
       this.timings = ErrorProneTimings.instance(context);
+      this.resolutionCache = ResolutionCache.instance(context);
       this.types = Types.instance(context);
       this.treeMaker = TreeMaker.instance(context);
       this.javacInvocationInstance = JavacInvocationInstance.instance(context);
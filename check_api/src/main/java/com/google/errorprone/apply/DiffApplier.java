@@ -16,13 +16,13 @@ package com.google.errorprone.apply;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractService;
-import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -42,7 +42,7 @@ public class DiffApplier extends AbstractService {
   private static final Logger logger = Logger.getLogger(DiffApplier.class.getName());
   private final ExecutorService workerService;
   private final Set<String> refactoredPaths;
-  private final Set<String> diffsFailedPaths;
+  private final Map<String, Exception> failures;
   private final FileSource source;
   private final FileDestination destination;
   private final AtomicInteger completedFiles;
@@ -54,7 +54,7 @@ public class DiffApplier extends AbstractService {
   public DiffApplier(int diffParallelism, FileSource source, FileDestination destination) {
     Preconditions.checkNotNull(source);
     Preconditions.checkNotNull(destination);
-    this.diffsFailedPaths = new ConcurrentSkipListSet<>();
+    this.failures = new ConcurrentSkipListMap<>();
     this.refactoredPaths = Sets.newConcurrentHashSet();
     this.source = source;
     this.destination = destination;
@@ -94,14 +94,7 @@ public class DiffApplier extends AbstractService {
         notifyFailed(e);
       }
       logger.log(
-          Level.INFO, String.format("Completed %d files in %s", completedFiles.get(), stopwatch));
-      if (!diffsFailedPaths.isEmpty()) {
-        logger.log(
-            Level.SEVERE,
-            String.format(
-                "Diffs failed to apply to %d files: %s",
-                diffsFailedPaths.size(), Iterables.limit(diffsFailedPaths, 30)));
-      }
+          Level.FINE, String.format("Completed %d files in %s", completedFiles.get(), stopwatch));
     }
   }
 
@@ -121,17 +114,25 @@ public class DiffApplier extends AbstractService {
 
         int completed = completedFiles.incrementAndGet();
         if (completed % 100 == 0) {
-          logger.log(Level.INFO, String.format("Completed %d files in %s", completed, stopwatch));
+          logger.log(Level.FINE, String.format("Completed %d files in %s", completed, stopwatch));
         }
-      } catch (IOException | DiffNotApplicableException e) {
-        logger.log(Level.WARNING, "Failed to apply diff to file " + diff.getRelevantFileName(), e);
-        diffsFailedPaths.add(diff.getRelevantFileName());
+      } catch (Exception e) {
+        // Anything thrown here would otherwise be swallowed by the executor.
+        failures.put(diff.getRelevantFileName(), e);
       } finally {
         decrementTasks();
       }
     }
   }
 
+  /**
+   * Returns the files whose diffs could not be applied or written, with the reason for each. Only
+   * complete once the service has terminated.
+   */
+  public ImmutableMap<String, Exception> failures() {
+    return ImmutableMap.copyOf(failures);
+  }
+
   @Nullable
   public Future<?> put(Diff diff) {
     if (refactoredPaths.add(diff.getRelevantFileName())) {
@@ -17,6 +17,8 @@
 package com.google.errorprone.apply;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
 
 import com.github.difflib.DiffUtils;
 import com.github.difflib.UnifiedDiffUtils;
@@ -31,10 +33,15 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
  * A {@link FileDestination} that writes a unix-patch file to {@code rootPath} containing the
  * suggested changes.
+ *
+ * <p>If created with a patch file, the diff of each file is appended to it as soon as the file is
+ * written, so that no more than one file's diff is held in memory at a time. Files may be written
+ * concurrently, in which case the order of the diffs in the patch is unspecified.
  */
 public final class PatchFileDestination implements FileDestination {
 
@@ -47,9 +54,24 @@ public final class PatchFileDestination implements FileDestination {
   // Path -> Unified Diff, sorted by path
   private final Map<URI, String> diffByFile = new TreeMap<>();
 
+  @Nullable private final Path patchFile;
+
+  /** Whether {@link #patchFile} has been replaced since this destination was created. */
+  private boolean patchFileCreated;
+
+  /** Creates a destination that holds the diffs in memory until {@link #patchFile} is called. */
   public PatchFileDestination(Path baseDir, Path rootPath) {
+    this(baseDir, rootPath, /* patchFile= */ null);
+  }
+
+  /**
+   * Creates a destination that replaces {@code patchFile} and appends each file's diff to it as the
+   * file is written.
+   */
+  public PatchFileDestination(Path baseDir, Path rootPath, @Nullable Path patchFile) {
     this.baseDir = baseDir;
     this.rootPath = rootPath;
+    this.patchFile = patchFile;
   }
 
   @Override
@@ -70,14 +92,41 @@ public final class PatchFileDestination implements FileDestination {
       List<String> unifiedDiff =
           UnifiedDiffUtils.generateUnifiedDiff(relativePath, relativePath, originalLines, diff, 2);
       String diffString = Joiner.on("\n").join(unifiedDiff) + "\n";
-      diffByFile.put(sourceFilePath.toUri(), diffString);
+      if (patchFile != null) {
+        appendToPatchFile(diffString);
+      } else {
+        synchronized (diffByFile) {
+          diffByFile.put(sourceFilePath.toUri(), diffString);
+        }
+      }
     }
   }
 
+  private synchronized void appendToPatchFile(String diff) throws IOException {
+    if (!patchFileCreated) {
+      Files.createDirectories(patchFile.getParent());
+      Files.deleteIfExists(patchFile);
+      patchFileCreated = true;
+    }
+    Files.write(patchFile, diff.getBytes(UTF_8), APPEND, CREATE);
+  }
+
+  /**
+   * Returns the diff of the given file and forgets it, or null if the file is unchanged. Always
+   * null if the diffs are written straight to a patch file.
+   */
+  @Nullable
   public String patchFile(URI uri) {
-    return diffByFile.remove(uri);
+    synchronized (diffByFile) {
+      return diffByFile.remove(uri);
+    }
   }
 
   @Override
-  public void flush() throws IOException {}
+  public synchronized void flush() throws IOException {
+    // Don't leave behind the patch of an earlier run if there were no changes this time.
+    if (patchFile != null && !patchFileCreated) {
+      Files.deleteIfExists(patchFile);
+    }
+  }
 }
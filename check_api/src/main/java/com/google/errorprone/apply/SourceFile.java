@@ -19,6 +19,8 @@ package com.google.errorprone.apply;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.io.CharSource;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.StringReader;
@@ -38,7 +40,7 @@ import javax.tools.JavaFileObject;
 public class SourceFile {
 
   private final String path;
-  private final StringBuilder sourceBuilder;
+  private StringBuilder sourceBuilder;
 
   public static SourceFile create(JavaFileObject fileObject) throws IOException {
     return new SourceFile(fileObject.toUri().getPath(), fileObject.getCharContent(false));
@@ -141,6 +143,36 @@ public class SourceFile {
     replaceLines(newLines);
   }
 
+  /**
+   * Makes all of the given replacements in a single pass over the source, instead of shifting the
+   * rest of the file once per replacement.
+   *
+   * @param replacements non-overlapping replacements in ascending order of position, as returned by
+   *     {@link Replacements#ascending()}
+   */
+  public void applyReplacements(Iterable<Replacement> replacements) {
+    StringBuilder result = new StringBuilder(sourceBuilder.length());
+    int pos = 0;
+    for (Replacement replacement : replacements) {
+      if (replacement.startPosition() < pos || replacement.endPosition() > sourceBuilder.length()) {
+        throw new IndexOutOfBoundsException(
+            String.format(
+                "Replacement cannot be made. Source file %s has length %d, requested start "
+                    + "position %d, requested end position %d, replacement %s",
+                path,
+                sourceBuilder.length(),
+                replacement.startPosition(),
+                replacement.endPosition(),
+                replacement.replaceWith()));
+      }
+      result.append(sourceBuilder, pos, replacement.startPosition());
+      result.append(replacement.replaceWith());
+      pos = replacement.endPosition();
+    }
+    result.append(sourceBuilder, pos, sourceBuilder.length());
+    sourceBuilder = result;
+  }
+
   /**
    * Replace the source code between the start and end character positions with a new string.
    *
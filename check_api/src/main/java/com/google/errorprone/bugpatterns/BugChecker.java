@@ -18,7 +18,10 @@ package com.google.errorprone.bugpatterns;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugCheckerInfo;
 import com.google.errorprone.BugPattern.SeverityLevel;
@@ -27,6 +30,7 @@ import com.google.errorprone.annotations.CheckReturnValue;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.suppliers.Supplier;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.AnnotatedTypeTree;
@@ -88,6 +92,9 @@ import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 import com.sun.tools.javac.util.Name;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
@@ -270,6 +277,19 @@ public abstract class BugChecker implements Suppressible, Serializable {
         && !Collections.disjoint(Arrays.asList(suppression.value()), allNames());
   }
 
+  /**
+   * Declares that a checker keeps no state between matches, so a single instance of it may be
+   * shared by every scanner and compilation in the same class loader (one per set of flags, for
+   * checkers constructed from {@link com.google.errorprone.ErrorProneFlags}). Checkers without
+   * this annotation are instantiated for each scanner.
+   *
+   * <p>Not inherited: a subclass must opt in itself.
+   */
+  @Documented
+  @Retention(RUNTIME)
+  @Target(TYPE)
+  public @interface Stateless {}
+
   public interface AnnotationTreeMatcher extends Suppressible {
     Description matchAnnotation(AnnotationTree tree, VisitorState state);
   }
@@ -404,6 +424,17 @@ public abstract class BugChecker implements Suppressible, Serializable {
     Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state);
   }
 
+  /**
+   * A {@link MethodInvocationTreeMatcher} that only ever reports on invocations of the methods
+   * matched by {@link #invocationMatchers}. The scanner indexes the matchers of all such checkers
+   * by method name, owner and parameter types, and skips a checker on invocations that none of its
+   * matchers could match.
+   */
+  public interface IndexedMethodInvocationTreeMatcher extends MethodInvocationTreeMatcher {
+    /** Returns matchers that, together, match every invocation this checker can report on. */
+    ImmutableList<MethodMatcher> invocationMatchers();
+  }
+
   public interface ModifiersTreeMatcher extends Suppressible {
     Description matchModifiers(ModifiersTree tree, VisitorState state);
   }
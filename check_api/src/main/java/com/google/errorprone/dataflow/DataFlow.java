@@ -16,12 +16,7 @@
 
 package com.google.errorprone.dataflow;
 
-import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
@@ -31,14 +26,12 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
-import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
 import javax.annotation.Nullable;
 import javax.annotation.processing.ProcessingEnvironment;
 import org.checkerframework.shaded.dataflow.analysis.AbstractValue;
 import org.checkerframework.shaded.dataflow.analysis.Analysis;
-import org.checkerframework.shaded.dataflow.analysis.ForwardAnalysisImpl;
 import org.checkerframework.shaded.dataflow.analysis.ForwardTransferFunction;
 import org.checkerframework.shaded.dataflow.analysis.Store;
 import org.checkerframework.shaded.dataflow.analysis.TransferFunction;
@@ -61,72 +54,38 @@ public final class DataFlow {
     ControlFlowGraph getControlFlowGraph();
   }
 
-  /*
-   * We cache both the control flow graph and the analyses that are run on it.
-   * We tuned performance to the following assumptions (which are currently true for error-prone):
-   *
-   * <ul>
-   * <li> all dataflow analyses for a method are finished before another method is analyzed
-   * <li> multiple dataflow analyses for the same method are executed in arbitrary order
-   * </ul>
-   *
-   * TODO(b/158869538): Write a test that checks these assumptions
+  /**
+   * Builds the control flow graph of the method, lambda or initializer at the leaf of {@code
+   * methodPath}. Graphs and the analyses run on them are cached in the {@link DataFlowCache}.
    */
-  private static final LoadingCache<AnalysisParams, Analysis<?, ?, ?>> analysisCache =
-      CacheBuilder.newBuilder()
-          .build(
-              new CacheLoader<AnalysisParams, Analysis<?, ?, ?>>() {
-                @Override
-                public Analysis<?, ?, ?> load(AnalysisParams key) {
-                  final ControlFlowGraph cfg = key.cfg();
-                  final ForwardTransferFunction<?, ?> transfer = key.transferFunction();
-
-                  @SuppressWarnings({"unchecked", "rawtypes"})
-                  final Analysis<?, ?, ?> analysis = new ForwardAnalysisImpl(transfer);
-                  analysis.performAnalysis(cfg);
-                  return analysis;
-                }
-              });
-
-  private static final LoadingCache<CfgParams, ControlFlowGraph> cfgCache =
-      CacheBuilder.newBuilder()
-          .maximumSize(1)
-          .build(
-              new CacheLoader<CfgParams, ControlFlowGraph>() {
-                @Override
-                public ControlFlowGraph load(CfgParams key) {
-                  final TreePath methodPath = key.methodPath();
-                  final UnderlyingAST ast;
-                  ClassTree classTree = null;
-                  MethodTree methodTree = null;
-                  for (Tree parent : methodPath) {
-                    if (parent instanceof MethodTree) {
-                      methodTree = (MethodTree) parent;
-                    }
-                    if (parent instanceof ClassTree) {
-                      classTree = (ClassTree) parent;
-                      break;
-                    }
-                  }
-                  if (methodPath.getLeaf() instanceof LambdaExpressionTree) {
-                    ast =
-                        new UnderlyingAST.CFGLambda(
-                            (LambdaExpressionTree) methodPath.getLeaf(), classTree, methodTree);
-                  } else if (methodPath.getLeaf() instanceof MethodTree) {
-                    methodTree = (MethodTree) methodPath.getLeaf();
-                    ast = new UnderlyingAST.CFGMethod(methodTree, classTree);
-                  } else {
-                    // must be an initializer per findEnclosingMethodOrLambdaOrInitializer
-                    ast = new UnderlyingAST.CFGStatement(methodPath.getLeaf(), classTree);
-                  }
-                  final ProcessingEnvironment env = key.environment();
-
-                  analysisCache.invalidateAll();
-                  CompilationUnitTree root = methodPath.getCompilationUnit();
-                  // TODO(b/158869538): replace with faster build(bodyPath, env, ast, false, false);
-                  return CFGBuilder.build(root, ast, false, false, env);
-                }
-              });
+  private static ControlFlowGraph buildCfg(TreePath methodPath, ProcessingEnvironment env) {
+    final UnderlyingAST ast;
+    ClassTree classTree = null;
+    MethodTree methodTree = null;
+    for (Tree parent : methodPath) {
+      if (parent instanceof MethodTree) {
+        methodTree = (MethodTree) parent;
+      }
+      if (parent instanceof ClassTree) {
+        classTree = (ClassTree) parent;
+        break;
+      }
+    }
+    if (methodPath.getLeaf() instanceof LambdaExpressionTree) {
+      ast =
+          new UnderlyingAST.CFGLambda(
+              (LambdaExpressionTree) methodPath.getLeaf(), classTree, methodTree);
+    } else if (methodPath.getLeaf() instanceof MethodTree) {
+      methodTree = (MethodTree) methodPath.getLeaf();
+      ast = new UnderlyingAST.CFGMethod(methodTree, classTree);
+    } else {
+      // must be an initializer per findEnclosingMethodOrLambdaOrInitializer
+      ast = new UnderlyingAST.CFGStatement(methodPath.getLeaf(), classTree);
+    }
+    CompilationUnitTree root = methodPath.getCompilationUnit();
+    // TODO(b/158869538): replace with faster build(bodyPath, env, ast, false, false);
+    return CFGBuilder.build(root, ast, false, false, env);
+  }
 
   // TODO(b/158869538): remove once we merge jdk8 specific's with core
   @Nullable
@@ -161,25 +120,21 @@ public final class DataFlow {
    * Run the {@code transfer} dataflow analysis over the method or lambda which is the leaf of the
    * {@code methodPath}.
    *
-   * <p>For caching, we make the following assumptions: - if two paths to methods are {@code equal},
-   * their control flow graph is the same. - if two transfer functions are {@code equal}, and are
-   * run over the same control flow graph, the analysis result is the same. - for all contexts, the
-   * analysis result is the same.
+   * <p>For caching, we make the following assumptions: - if two paths lead to the same method
+   * tree, their control flow graph is the same. - if two transfer functions are {@code equal},
+   * and are run over the same control flow graph, the analysis result is the same. - for all
+   * contexts of a compilation, the analysis result is the same.
    */
   private static <
           A extends AbstractValue<A>, S extends Store<S>, T extends ForwardTransferFunction<A, S>>
       Result<A, S, T> methodDataflow(TreePath methodPath, Context context, T transfer) {
     final ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
 
-    final ControlFlowGraph cfg;
-    try {
-      cfg = cfgCache.getUnchecked(CfgParams.create(methodPath, env));
-    } catch (UncheckedExecutionException e) {
-      throw e.getCause() instanceof CompletionFailure ? (CompletionFailure) e.getCause() : e;
-    }
-    final AnalysisParams aparams = AnalysisParams.create(transfer, cfg, env);
+    final DataFlowCache.Entry entry =
+        DataFlowCache.instance(context).entry(methodPath, path -> buildCfg(path, env));
+    final ControlFlowGraph cfg = entry.cfg();
     @SuppressWarnings("unchecked")
-    final Analysis<A, S, T> analysis = (Analysis<A, S, T>) analysisCache.getUnchecked(aparams);
+    final Analysis<A, S, T> analysis = (Analysis<A, S, T>) entry.analysis(transfer);
 
     return new Result<A, S, T>() {
       @Override
@@ -235,46 +190,4 @@ public final class DataFlow {
 
     return methodDataflow(enclosingMethodPath, context, transfer).getAnalysis().getValue(expr);
   }
-
-  @AutoValue
-  abstract static class CfgParams {
-    abstract TreePath methodPath();
-
-    // Should not be used for hashCode or equals
-    private ProcessingEnvironment environment;
-
-    private static CfgParams create(TreePath methodPath, ProcessingEnvironment environment) {
-      CfgParams cp = new AutoValue_DataFlow_CfgParams(methodPath);
-      cp.environment = environment;
-      return cp;
-    }
-
-    ProcessingEnvironment environment() {
-      return environment;
-    }
-  }
-
-  @AutoValue
-  abstract static class AnalysisParams {
-
-    abstract ForwardTransferFunction<?, ?> transferFunction();
-
-    abstract ControlFlowGraph cfg();
-
-    // Should not be used for hashCode or equals
-    private ProcessingEnvironment environment;
-
-    private static AnalysisParams create(
-        ForwardTransferFunction<?, ?> transferFunction,
-        ControlFlowGraph cfg,
-        ProcessingEnvironment environment) {
-      AnalysisParams ap = new AutoValue_DataFlow_AnalysisParams(transferFunction, cfg);
-      ap.environment = environment;
-      return ap;
-    }
-
-    ProcessingEnvironment environment() {
-      return environment;
-    }
-  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.errorprone.ErrorProneOptions;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.checkerframework.shaded.dataflow.analysis.Analysis;
+import org.checkerframework.shaded.dataflow.analysis.ForwardAnalysisImpl;
+import org.checkerframework.shaded.dataflow.analysis.ForwardTransferFunction;
+import org.checkerframework.shaded.dataflow.cfg.ControlFlowGraph;
+
+/**
+ * The control flow graphs and dataflow analyses computed by {@link DataFlow} for one compilation.
+ *
+ * <p>Entries are keyed by the identity of the method, lambda or initializer tree, so checks that
+ * reach the same method through different {@link TreePath}s, or that interleave their analyses of
+ * several methods, share one graph. At most {@link ErrorProneOptions#dataFlowCacheSize()} methods
+ * are cached, and the cache is cleared after each compilation unit has been scanned.
+ */
+public final class DataFlowCache {
+
+  private static final Context.Key<DataFlowCache> dataFlowCacheKey = new Context.Key<>();
+
+  public static DataFlowCache instance(Context context) {
+    DataFlowCache instance = context.get(dataFlowCacheKey);
+    if (instance == null) {
+      instance = new DataFlowCache(context);
+    }
+    return instance;
+  }
+
+  private final Cache<Tree, Entry> entries;
+
+  private final LongAdder cfgHits = new LongAdder();
+  private final LongAdder cfgMisses = new LongAdder();
+  private final LongAdder cfgBuildNanos = new LongAdder();
+  private final LongAdder analysisHits = new LongAdder();
+  private final LongAdder analysisMisses = new LongAdder();
+  private final LongAdder analysisNanos = new LongAdder();
+
+  private DataFlowCache(Context context) {
+    context.put(dataFlowCacheKey, this);
+    ErrorProneOptions options = context.get(ErrorProneOptions.class);
+    int maximumSize =
+        options != null
+            ? options.dataFlowCacheSize()
+            : ErrorProneOptions.DEFAULT_DATAFLOW_CACHE_SIZE;
+    // weakKeys() also makes the cache compare keys by identity.
+    this.entries = CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * Returns the entry for the method, lambda or initializer at the leaf of {@code methodPath},
+   * building its control flow graph with {@code cfgBuilder} if it isn't cached.
+   */
+  Entry entry(TreePath methodPath, Function<TreePath, ControlFlowGraph> cfgBuilder) {
+    Tree method = methodPath.getLeaf();
+    Entry entry = entries.getIfPresent(method);
+    if (entry != null) {
+      cfgHits.increment();
+      return entry;
+    }
+    cfgMisses.increment();
+    // Built outside the cache's loader so that exceptions such as CompletionFailure propagate
+    // unwrapped. Two threads may race to build the same graph; the first one wins.
+    long start = System.nanoTime();
+    ControlFlowGraph cfg = cfgBuilder.apply(methodPath);
+    cfgBuildNanos.add(System.nanoTime() - start);
+    entry = new Entry(cfg);
+    Entry existing = entries.asMap().putIfAbsent(method, entry);
+    return existing != null ? existing : entry;
+  }
+
+  /** Drops every cached graph and analysis; called when a compilation unit has been scanned. */
+  public void clear() {
+    entries.invalidateAll();
+  }
+
+  /** Returns the number of requests served by a cached control flow graph. */
+  public long cfgHits() {
+    return cfgHits.sum();
+  }
+
+  /** Returns the number of control flow graphs built. */
+  public long cfgMisses() {
+    return cfgMisses.sum();
+  }
+
+  /** Returns the total time spent building control flow graphs, in nanoseconds. */
+  public long cfgBuildNanos() {
+    return cfgBuildNanos.sum();
+  }
+
+  /** Returns the number of requests served by a cached analysis. */
+  public long analysisHits() {
+    return analysisHits.sum();
+  }
+
+  /** Returns the number of analyses performed. */
+  public long analysisMisses() {
+    return analysisMisses.sum();
+  }
+
+  /** Returns the total time spent performing analyses, in nanoseconds. */
+  public long analysisNanos() {
+    return analysisNanos.sum();
+  }
+
+  /** The control flow graph of a single method, and the analyses that have been run on it. */
+  final class Entry {
+    private final ControlFlowGraph cfg;
+    private final Map<ForwardTransferFunction<?, ?>, Analysis<?, ?, ?>> analyses =
+        new ConcurrentHashMap<>();
+
+    private Entry(ControlFlowGraph cfg) {
+      this.cfg = cfg;
+    }
+
+    ControlFlowGraph cfg() {
+      return cfg;
+    }
+
+    /**
+     * Returns the result of running {@code transfer} over this graph. Transfer functions that are
+     * {@code equal} are assumed to produce the same result.
+     */
+    Analysis<?, ?, ?> analysis(ForwardTransferFunction<?, ?> transfer) {
+      Analysis<?, ?, ?> analysis = analyses.get(transfer);
+      if (analysis != null) {
+        analysisHits.increment();
+        return analysis;
+      }
+      analysisMisses.increment();
+      long start = System.nanoTime();
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      Analysis<?, ?, ?> performed = new ForwardAnalysisImpl(transfer);
+      performed.performAnalysis(cfg);
+      analysisNanos.add(System.nanoTime() - start);
+      Analysis<?, ?, ?> existing = analyses.putIfAbsent(transfer, performed);
+      return existing != null ? existing : performed;
+    }
+  }
+}
@@ -53,7 +53,8 @@ public final class NullnessAnalysis implements Serializable {
    * getNullness} returns the {@code Nullness} <i>after</i> the boxing/unboxing. This implies that,
    * in those cases, it will always return {@code NONNULL}.
    */
-  public Nullness getNullness(TreePath exprPath, Context context) {
+  // The transfer function is stateful, so calls must not overlap when checks run concurrently.
+  public synchronized Nullness getNullness(TreePath exprPath, Context context) {
     try {
       nullnessPropagation.setContext(context).setCompilationUnit(exprPath.getCompilationUnit());
       return DataFlow.expressionDataflow(exprPath, context, nullnessPropagation);
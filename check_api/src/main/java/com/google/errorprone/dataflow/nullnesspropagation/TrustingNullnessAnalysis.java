@@ -74,7 +74,8 @@ public final class TrustingNullnessAnalysis implements Serializable {
    * getNullness} returns the {@code Nullness} <i>after</i> the boxing/unboxing. This implies that,
    * in those cases, it will always return {@code NONNULL}.
    */
-  public Nullness getNullness(TreePath exprPath, Context context) {
+  // The transfer function is stateful, so calls must not overlap when checks run concurrently.
+  public synchronized Nullness getNullness(TreePath exprPath, Context context) {
     try {
       nullnessPropagation.setContext(context).setCompilationUnit(exprPath.getCompilationUnit());
       return DataFlow.expressionDataflow(exprPath, context, nullnessPropagation);
@@ -88,7 +89,8 @@ public final class TrustingNullnessAnalysis implements Serializable {
    * given {@code fieldDeclPath}. Returns {@link Nullness#NULL} should there be no initializer.
    */
   // TODO(kmb): Fold this functionality into Dataflow.expressionDataflow
-  public Nullness getFieldInitializerNullness(TreePath fieldDeclPath, Context context) {
+  public synchronized Nullness getFieldInitializerNullness(
+      TreePath fieldDeclPath, Context context) {
     Tree decl = fieldDeclPath.getLeaf();
     checkArgument(
         decl instanceof VariableTree && ((JCVariableDecl) decl).sym.getKind() == ElementKind.FIELD,
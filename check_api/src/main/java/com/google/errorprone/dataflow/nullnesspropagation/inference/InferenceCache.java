@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow.nullnesspropagation.inference;
+
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.util.Context;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The results of {@link NullnessQualifierInference} for the methods, lambdas and initializers of
+ * the compilation unit being scanned.
+ *
+ * <p>Results are keyed by the identity of the tree they were inferred for, and are safe to share
+ * between threads. The cache is cleared once each compilation unit has been scanned, so it never
+ * holds on to the trees of finished units.
+ */
+public final class InferenceCache {
+
+  private static final Context.Key<InferenceCache> inferenceCacheKey = new Context.Key<>();
+
+  public static InferenceCache instance(Context context) {
+    InferenceCache instance = context.get(inferenceCacheKey);
+    if (instance == null) {
+      instance = new InferenceCache(context);
+    }
+    return instance;
+  }
+
+  // JCTree doesn't override equals or hashCode, so this is an identity map.
+  private final Map<Tree, InferredNullability> results = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder inferences = new LongAdder();
+
+  private InferenceCache(Context context) {
+    context.put(inferenceCacheKey, this);
+  }
+
+  InferredNullability get(Tree tree, Function<Tree, InferredNullability> inference) {
+    InferredNullability result = results.get(tree);
+    if (result != null) {
+      hits.increment();
+      return result;
+    }
+    // Inference only reads the tree, so if two threads race on it the loser's result is dropped.
+    result = inference.apply(tree);
+    inferences.increment();
+    InferredNullability previous = results.putIfAbsent(tree, result);
+    return previous != null ? previous : result;
+  }
+
+  /** Drops every cached result; called once a compilation unit has been scanned. */
+  public void clear() {
+    results.clear();
+  }
+
+  /** Returns the number of lookups that were answered from the cache. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Returns the number of times inference had to run. */
+  public long inferences() {
+    return inferences.sum();
+  }
+}
@@ -19,15 +19,11 @@ package com.google.errorprone.dataflow.nullnesspropagation.inference;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.errorprone.dataflow.nullnesspropagation.Nullness;
 import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnnotations;
 import com.sun.source.tree.ArrayAccessTree;
@@ -47,7 +43,6 @@ import com.sun.source.tree.Tree.Kind;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symbol;
-import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.TypeVariableSymbol;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
@@ -60,6 +55,7 @@ import com.sun.tools.javac.tree.JCTree.JCFieldAccess;
 import com.sun.tools.javac.tree.JCTree.JCIdent;
 import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
 import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.Context;
 import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.List;
@@ -77,21 +73,31 @@ import javax.lang.model.type.TypeVariable;
  */
 public class NullnessQualifierInference extends TreeScanner<Void, Void> {
 
-  private static final LoadingCache<Tree, InferredNullability> inferenceCache =
-      CacheBuilder.newBuilder()
-          .maximumSize(1)
-          .build(
-              new CacheLoader<Tree, InferredNullability>() {
-                @Override
-                public InferredNullability load(Tree methodOrInitializer) {
-                  NullnessQualifierInference inferenceEngine =
-                      new NullnessQualifierInference(methodOrInitializer);
-                  inferenceEngine.scan(methodOrInitializer, null);
-                  return new InferredNullability(inferenceEngine.qualifierConstraints);
-                }
-              });
+  /**
+   * Returns the inferred nullability of the expressions in the given method, lambda or initializer,
+   * reusing the result from the {@link InferenceCache} of {@code context} if it was already
+   * inferred while scanning the current compilation unit.
+   */
+  public static InferredNullability getInferredNullability(
+      Tree methodOrInitializerOrLambda, Context context) {
+    checkProcedure(methodOrInitializerOrLambda);
+    return InferenceCache.instance(context)
+        .get(methodOrInitializerOrLambda, NullnessQualifierInference::infer);
+  }
 
+  /**
+   * Returns the inferred nullability of the expressions in the given method, lambda or initializer.
+   *
+   * @deprecated this runs inference on every call; prefer {@link #getInferredNullability(Tree,
+   *     Context)}, which caches results for the current compilation unit.
+   */
+  @Deprecated
   public static InferredNullability getInferredNullability(Tree methodOrInitializerOrLambda) {
+    checkProcedure(methodOrInitializerOrLambda);
+    return infer(methodOrInitializerOrLambda);
+  }
+
+  private static void checkProcedure(Tree methodOrInitializerOrLambda) {
     checkArgument(
         methodOrInitializerOrLambda instanceof MethodTree
             || methodOrInitializerOrLambda instanceof LambdaExpressionTree
@@ -99,11 +105,13 @@ public class NullnessQualifierInference extends TreeScanner<Void, Void> {
             || methodOrInitializerOrLambda instanceof VariableTree,
         "Tree `%s` is not a lambda, initializer, or method.",
         methodOrInitializerOrLambda);
-    try {
-      return inferenceCache.getUnchecked(methodOrInitializerOrLambda);
-    } catch (UncheckedExecutionException e) {
-      throw e.getCause() instanceof CompletionFailure ? (CompletionFailure) e.getCause() : e;
-    }
+  }
+
+  private static InferredNullability infer(Tree methodOrInitializer) {
+    NullnessQualifierInference inferenceEngine =
+        new NullnessQualifierInference(methodOrInitializer);
+    inferenceEngine.scan(methodOrInitializer, null);
+    return new InferredNullability(inferenceEngine.qualifierConstraints);
   }
 
   /**
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.fixes;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CharStreams;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.apply.DescriptionBasedDiff;
+import com.google.errorprone.apply.ImportOrganizer;
+import com.google.errorprone.apply.SourceFile;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.main.Arguments;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Recompiles the current compilation with a fix applied, to find out whether the fix breaks it.
+ * This is the implementation of {@link SuggestedFixes#compilesWithFix}.
+ *
+ * <p>Verdicts are cached for the rest of the compilation, keyed by a hash of the fixed compilation
+ * unit and of the options it was checked with, so a fix that is proposed again (by another check,
+ * or for another finding that produces the same edit) is only compiled once. When only diagnostics
+ * in the fixed compilation unit matter, the other units are parsed and entered but only the fixed
+ * one is attributed.
+ *
+ * <p>The number of compiles and their duration are recorded in {@link ErrorProneTimings} under
+ * {@link #TIMER_NAME}.
+ */
+public final class SpeculativeCompiler {
+
+  private static final Context.Key<SpeculativeCompiler> speculativeCompilerKey =
+      new Context.Key<>();
+
+  public static SpeculativeCompiler instance(Context context) {
+    SpeculativeCompiler instance = context.get(speculativeCompilerKey);
+    if (instance == null) {
+      instance = new SpeculativeCompiler(context);
+    }
+    return instance;
+  }
+
+  /** The name of the {@link ErrorProneTimings.Timer} that speculative compiles are recorded in. */
+  public static final String TIMER_NAME = "SuggestedFixes.compilesWithFix";
+
+  private static final ImmutableSet<String> SOURCE_TARGET_OPTIONS =
+      ImmutableSet.of("-source", "--source", "-target", "--target");
+
+  private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+  private final ErrorProneTimings timings;
+  private final ErrorProneTimings.Timer timer;
+  private final LongAdder cacheHits = new LongAdder();
+
+  private SpeculativeCompiler(Context context) {
+    context.put(speculativeCompilerKey, this);
+    this.timings = ErrorProneTimings.instance(context);
+    this.timer = timings.timer(TIMER_NAME);
+  }
+
+  /** Returns the number of speculative compiles that have run. */
+  public long compiles() {
+    return timer.count();
+  }
+
+  /** Returns the total time spent in speculative compiles, in nanoseconds. */
+  public long compileNanos() {
+    return timer.totalNanos();
+  }
+
+  /** Returns the number of verdicts that were answered without compiling. */
+  public long cacheHits() {
+    return cacheHits.sum();
+  }
+
+  /**
+   * Returns, for each of the given fixes to the compilation unit of {@code state}, whether the
+   * compilation would succeed with it applied. The unit's source is read once for all of them, and
+   * fixes that produce the same source are compiled once.
+   */
+  ImmutableList<Boolean> compilesWithFixes(
+      List<? extends Fix> fixes,
+      VisitorState state,
+      ImmutableList<String> extraOptions,
+      boolean onlyInSameCompilationUnit,
+      int maxErrors,
+      int maxWarnings) {
+    JCCompilationUnit compilationUnit = (JCCompilationUnit) state.getPath().getCompilationUnit();
+    JavaFileObject modifiedFile = compilationUnit.getSourceFile();
+    BasicJavacTask javacTask = (BasicJavacTask) state.context.get(JavacTask.class);
+    if (javacTask == null) {
+      throw new IllegalArgumentException("No JavacTask in context.");
+    }
+    CharSequence originalSource = null;
+    String optionsKey =
+        String.join("\0", extraOptions)
+            + "\0"
+            + onlyInSameCompilationUnit
+            + "\0"
+            + maxErrors
+            + "\0"
+            + maxWarnings;
+
+    ImmutableList.Builder<Boolean> results = ImmutableList.builder();
+    for (Fix fix : fixes) {
+      if (fix.isEmpty() && extraOptions.isEmpty()) {
+        results.add(true);
+        continue;
+      }
+      if (originalSource == null) {
+        try {
+          originalSource = modifiedFile.getCharContent(false /*ignoreEncodingErrors*/);
+        } catch (IOException e) {
+          results.add(false);
+          continue;
+        }
+      }
+      DescriptionBasedDiff diff =
+          DescriptionBasedDiff.create(compilationUnit, ImportOrganizer.STATIC_FIRST_ORGANIZER);
+      diff.handleFix(fix);
+      SourceFile fixSource = new SourceFile(modifiedFile.getName(), originalSource);
+      diff.applyDifferences(fixSource);
+      String fixedSource = fixSource.getSourceText();
+
+      Hasher hasher = Hashing.sha256().newHasher();
+      hasher.putString(modifiedFile.toUri().toString(), UTF_8).putByte((byte) 0);
+      hasher.putString(optionsKey, UTF_8).putByte((byte) 0);
+      String key = hasher.putString(fixedSource, UTF_8).hash().toString();
+      Boolean verdict = verdicts.get(key);
+      if (verdict != null) {
+        cacheHits.increment();
+      } else {
+        verdict =
+            compile(
+                javacTask,
+                state,
+                modifiedFile,
+                fixedSource,
+                extraOptions,
+                onlyInSameCompilationUnit,
+                maxErrors,
+                maxWarnings);
+        verdicts.put(key, verdict);
+      }
+      results.add(verdict);
+    }
+    return results.build();
+  }
+
+  private boolean compile(
+      BasicJavacTask javacTask,
+      VisitorState state,
+      JavaFileObject modifiedFile,
+      String fixedSource,
+      ImmutableList<String> extraOptions,
+      boolean onlyInSameCompilationUnit,
+      int maxErrors,
+      int maxWarnings) {
+    long startNanos = System.nanoTime();
+    long startBytes = timings.threadAllocatedBytes();
+    try {
+      return doCompile(
+          javacTask,
+          state,
+          modifiedFile,
+          fixedSource,
+          extraOptions,
+          onlyInSameCompilationUnit,
+          maxErrors,
+          maxWarnings);
+    } finally {
+      timer.record(startNanos, startBytes);
+    }
+  }
+
+  private static boolean doCompile(
+      BasicJavacTask javacTask,
+      VisitorState state,
+      JavaFileObject modifiedFile,
+      String fixedSource,
+      ImmutableList<String> extraOptions,
+      boolean onlyInSameCompilationUnit,
+      int maxErrors,
+      int maxWarnings) {
+    Arguments arguments = Arguments.instance(javacTask.getContext());
+    List<JavaFileObject> fileObjects = new ArrayList<>(arguments.getFileObjects());
+    URI modifiedFileUri = modifiedFile.toUri();
+    URI fixedFileUri = SuggestedFixes.sourceURI(modifiedFileUri);
+    for (int i = 0; i < fileObjects.size(); i++) {
+      if (modifiedFileUri.equals(fileObjects.get(i).toUri())) {
+        fileObjects.set(
+            i,
+            new SimpleJavaFileObject(fixedFileUri, Kind.SOURCE) {
+              @Override
+              public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return fixedSource;
+              }
+            });
+        break;
+      }
+    }
+    DiagnosticCollector<JavaFileObject> diagnosticListener = new DiagnosticCollector<>();
+    Context context = new Context();
+    Options options = Options.instance(context);
+    Options originalOptions = Options.instance(javacTask.getContext());
+    for (String key : originalOptions.keySet()) {
+      String value = originalOptions.get(key);
+      if (key.equals("-Xplugin:") && value.startsWith("ErrorProne")) {
+        // When using the -Xplugin Error Prone integration, disable Error Prone for speculative
+        // recompiles to avoid infinite recursion.
+        continue;
+      }
+      if (SOURCE_TARGET_OPTIONS.contains(key) && originalOptions.isSet("--release")) {
+        // javac does not allow -source and -target to be specified explicitly when --release is,
+        // but does add them in response to passing --release. Here we invert that operation.
+        continue;
+      }
+      options.put(key, value);
+    }
+    JavacTask newTask =
+        JavacTool.create()
+            .getTask(
+                CharStreams.nullWriter(),
+                state.context.get(JavaFileManager.class),
+                diagnosticListener,
+                extraOptions,
+                arguments.getClassNames(),
+                fileObjects,
+                context);
+    try {
+      List<ClassSymbol> fixedClasses =
+          onlyInSameCompilationUnit ? enterAndFindClasses(newTask, fixedFileUri) : null;
+      if (fixedClasses != null) {
+        // Diagnostics outside the fixed unit don't matter, so leave the other units unattributed.
+        ((JavacTaskImpl) newTask).analyze(fixedClasses);
+      } else {
+        newTask.analyze();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    // If we reached the maximum number of diagnostics of a given kind without finding one in the
+    // modified compilation unit, we won't find any more diagnostics, but we can't be sure that
+    // there isn't an diagnostic, as the diagnostic may simply be the (max+1)-th diagnostic, and
+    // thus was dropped.
+    int countErrors = 0;
+    int countWarnings = 0;
+    boolean warningIsError = false;
+    boolean warningInSameCompilationUnit = false;
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticListener.getDiagnostics()) {
+      warningIsError |= diagnostic.getCode().equals("compiler.err.warnings.and.werror");
+      boolean diagnosticInSameCompilationUnit =
+          diagnostic.getSource().toUri().equals(modifiedFileUri);
+      switch (diagnostic.getKind()) {
+        case ERROR:
+          ++countErrors;
+          if (!onlyInSameCompilationUnit || diagnosticInSameCompilationUnit) {
+            return false;
+          }
+          break;
+        case WARNING:
+          ++countWarnings;
+          warningInSameCompilationUnit |= diagnosticInSameCompilationUnit;
+          break;
+        default:
+          continue;
+      }
+
+      if ((warningIsError && warningInSameCompilationUnit)
+          || (countErrors >= maxErrors)
+          || (countWarnings >= maxWarnings)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses and enters every compilation unit of {@code task}, and returns the classes declared in
+   * the one at {@code uri}, or {@code null} if they can't be singled out and the whole task has to
+   * be analyzed.
+   */
+  @Nullable
+  private static List<ClassSymbol> enterAndFindClasses(JavacTask task, URI uri)
+      throws IOException {
+    if (!(task instanceof JavacTaskImpl)) {
+      return null;
+    }
+    JavacTaskImpl taskImpl = (JavacTaskImpl) task;
+    List<ClassSymbol> classes = new ArrayList<>();
+    Iterable<? extends CompilationUnitTree> units = taskImpl.parse();
+    taskImpl.enter();
+    for (CompilationUnitTree unit : units) {
+      if (!unit.getSourceFile().toUri().equals(uri)) {
+        continue;
+      }
+      for (Tree decl : unit.getTypeDecls()) {
+        if (decl instanceof JCClassDecl && ((JCClassDecl) decl).sym != null) {
+          classes.add(((JCClassDecl) decl).sym);
+        }
+      }
+    }
+    return classes.isEmpty() ? null : classes;
+  }
+}
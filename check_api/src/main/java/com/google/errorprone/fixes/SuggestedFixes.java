@@ -47,11 +47,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Streams;
-import com.google.common.io.CharStreams;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.apply.DescriptionBasedDiff;
-import com.google.errorprone.apply.ImportOrganizer;
-import com.google.errorprone.apply.SourceFile;
 import com.google.errorprone.fixes.SuggestedFix.Builder;
 import com.google.errorprone.util.ASTHelpers;
 import com.google.errorprone.util.ErrorProneToken;
@@ -78,11 +74,8 @@ import com.sun.source.tree.VariableTree;
 import com.sun.source.util.DocSourcePositions;
 import com.sun.source.util.DocTreePath;
 import com.sun.source.util.DocTreeScanner;
-import com.sun.source.util.JavacTask;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
-import com.sun.tools.javac.api.BasicJavacTask;
-import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.code.BoundKind;
 import com.sun.tools.javac.code.Flags;
@@ -92,7 +85,6 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types.DefaultTypeVisitor;
-import com.sun.tools.javac.main.Arguments;
 import com.sun.tools.javac.parser.Tokens;
 import com.sun.tools.javac.parser.Tokens.Comment;
 import com.sun.tools.javac.parser.Tokens.TokenKind;
@@ -100,8 +92,6 @@ import com.sun.tools.javac.tree.DCTree;
 import com.sun.tools.javac.tree.DCTree.DCDocComment;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
-import com.sun.tools.javac.util.Context;
-import com.sun.tools.javac.util.Options;
 import com.sun.tools.javac.util.Position;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -134,12 +124,6 @@ import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.SimpleTypeVisitor8;
-import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
-import javax.tools.JavaFileManager;
-import javax.tools.JavaFileObject;
-import javax.tools.JavaFileObject.Kind;
-import javax.tools.SimpleJavaFileObject;
 
 /** Factories for constructing {@link Fix}es. */
 public class SuggestedFixes {
@@ -1225,118 +1209,31 @@ public class SuggestedFixes {
       boolean onlyInSameCompilationUnit,
       int maxErrors,
       int maxWarnings) {
-    if (fix.isEmpty() && extraOptions.isEmpty()) {
-      return true;
-    }
-
-    JCCompilationUnit compilationUnit = (JCCompilationUnit) state.getPath().getCompilationUnit();
-    JavaFileObject modifiedFile = compilationUnit.getSourceFile();
-    BasicJavacTask javacTask = (BasicJavacTask) state.context.get(JavacTask.class);
-    if (javacTask == null) {
-      throw new IllegalArgumentException("No JavacTask in context.");
-    }
-    Arguments arguments = Arguments.instance(javacTask.getContext());
-    List<JavaFileObject> fileObjects = new ArrayList<>(arguments.getFileObjects());
-    URI modifiedFileUri = modifiedFile.toUri();
-    for (int i = 0; i < fileObjects.size(); i++) {
-      final JavaFileObject oldFile = fileObjects.get(i);
-      if (modifiedFileUri.equals(oldFile.toUri())) {
-        DescriptionBasedDiff diff =
-            DescriptionBasedDiff.create(compilationUnit, ImportOrganizer.STATIC_FIRST_ORGANIZER);
-        diff.handleFix(fix);
-        SourceFile fixSource;
-        try {
-          fixSource =
-              new SourceFile(
-                  modifiedFile.getName(),
-                  modifiedFile.getCharContent(false /*ignoreEncodingErrors*/));
-        } catch (IOException e) {
-          return false;
-        }
-        diff.applyDifferences(fixSource);
-        fileObjects.set(
-            i,
-            new SimpleJavaFileObject(sourceURI(modifiedFile.toUri()), Kind.SOURCE) {
-              @Override
-              public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
-                return fixSource.getAsSequence();
-              }
-            });
-        break;
-      }
-    }
-    DiagnosticCollector<JavaFileObject> diagnosticListener = new DiagnosticCollector<>();
-    Context context = new Context();
-    Options options = Options.instance(context);
-    Options originalOptions = Options.instance(javacTask.getContext());
-    for (String key : originalOptions.keySet()) {
-      String value = originalOptions.get(key);
-      if (key.equals("-Xplugin:") && value.startsWith("ErrorProne")) {
-        // When using the -Xplugin Error Prone integration, disable Error Prone for speculative
-        // recompiles to avoid infinite recursion.
-        continue;
-      }
-      if (SOURCE_TARGET_OPTIONS.contains(key) && originalOptions.isSet("--release")) {
-        // javac does not allow -source and -target to be specified explicitly when --release is,
-        // but does add them in response to passing --release. Here we invert that operation.
-        continue;
-      }
-      options.put(key, value);
-    }
-    JavacTask newTask =
-        JavacTool.create()
-            .getTask(
-                CharStreams.nullWriter(),
-                state.context.get(JavaFileManager.class),
-                diagnosticListener,
-                extraOptions,
-                arguments.getClassNames(),
-                fileObjects,
-                context);
-    try {
-      newTask.analyze();
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    }
-
-    // If we reached the maximum number of diagnostics of a given kind without finding one in the
-    // modified compilation unit, we won't find any more diagnostics, but we can't be sure that
-    // there isn't an diagnostic, as the diagnostic may simply be the (max+1)-th diagnostic, and
-    // thus was dropped.
-    int countErrors = 0;
-    int countWarnings = 0;
-    boolean warningIsError = false;
-    boolean warningInSameCompilationUnit = false;
-    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticListener.getDiagnostics()) {
-      warningIsError |= diagnostic.getCode().equals("compiler.err.warnings.and.werror");
-      boolean diagnosticInSameCompilationUnit =
-          diagnostic.getSource().toUri().equals(modifiedFileUri);
-      switch (diagnostic.getKind()) {
-        case ERROR:
-          ++countErrors;
-          if (!onlyInSameCompilationUnit || diagnosticInSameCompilationUnit) {
-            return false;
-          }
-          break;
-        case WARNING:
-          ++countWarnings;
-          warningInSameCompilationUnit |= diagnosticInSameCompilationUnit;
-          break;
-        default:
-          continue;
-      }
-
-      if ((warningIsError && warningInSameCompilationUnit)
-          || (countErrors >= maxErrors)
-          || (countWarnings >= maxWarnings)) {
-        return false;
-      }
-    }
-    return true;
+    return SpeculativeCompiler.instance(state.context)
+        .compilesWithFixes(
+            ImmutableList.of(fix),
+            state,
+            extraOptions,
+            onlyInSameCompilationUnit,
+            maxErrors,
+            maxWarnings)
+        .get(0);
   }
 
-  private static final ImmutableSet<String> SOURCE_TARGET_OPTIONS =
-      ImmutableSet.of("-source", "--source", "-target", "--target");
+  /**
+   * Returns, for each of the given fixes, whether the current compilation would succeed with it
+   * applied. This is cheaper than calling {@link #compilesWithFix(Fix, VisitorState)} for each fix,
+   * as fixes that produce the same source are only compiled once, but every other fix still costs a
+   * compile.
+   */
+  public static ImmutableList<Boolean> compilesWithFixes(
+      List<? extends Fix> fixes, VisitorState state) {
+    ImmutableList.Builder<String> extraOptions = ImmutableList.builder();
+    int maxErrors = findOptionOrAppend(extraOptions, ImmutableList.of(), "-Xmaxerrs", 100);
+    int maxWarnings = findOptionOrAppend(extraOptions, ImmutableList.of(), "-Xmaxwarns", 100);
+    return SpeculativeCompiler.instance(state.context)
+        .compilesWithFixes(fixes, state, extraOptions.build(), false, maxErrors, maxWarnings);
+  }
 
   /** Create a plausible URI to use in {@link #compilesWithFix}. */
   @VisibleForTesting
@@ -19,10 +19,14 @@ package com.google.errorprone.scanner;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.BugCheckerInfo;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.ErrorProneError;
 import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.SuppressionInfo;
 import com.google.errorprone.SuppressionInfo.SuppressedState;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
@@ -139,9 +143,14 @@ import com.sun.tools.javac.util.Name;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import javax.annotation.Nullable;
 
 /**
  * Scans the parsed AST, looking for violations of any of the enabled checks.
@@ -154,7 +163,6 @@ public class ErrorProneScanner extends Scanner {
       customSuppressionAnnotations;
 
   private final Map<String, SeverityLevel> severities;
-  private final ImmutableSet<BugChecker> bugCheckers;
 
   /**
    * Create an error-prone scanner for the given checkers.
@@ -181,12 +189,60 @@ public class ErrorProneScanner extends Scanner {
    * @param severities The default check severities.
    */
   public ErrorProneScanner(Iterable<BugChecker> checkers, Map<String, SeverityLevel> severities) {
-    this.bugCheckers = ImmutableSet.copyOf(checkers);
+    this(ImmutableSet.copyOf(checkers).toArray(new BugChecker[0]), severities);
+  }
+
+  private ErrorProneScanner(BugChecker[] checkers, Map<String, SeverityLevel> severities) {
+    this(checkers, checkers, /* instantiator= */ null, severities);
+  }
+
+  /**
+   * Create an error-prone scanner that instantiates each checker the first time it has a tree to
+   * match, so that checkers with nothing to match in a compilation are never created.
+   *
+   * @param checkers The checkers that this scanner should use.
+   * @param instantiator Creates the checker for a {@link BugCheckerInfo}.
+   * @param severities The default check severities.
+   */
+  ErrorProneScanner(
+      List<BugCheckerInfo> checkers,
+      Function<BugCheckerInfo, BugChecker> instantiator,
+      Map<String, SeverityLevel> severities) {
+    this(
+        new BugChecker[checkers.size()],
+        checkers.stream().map(DeferredChecker::new).toArray(Suppressible[]::new),
+        i -> instantiator.apply(checkers.get(i)),
+        severities);
+  }
+
+  private ErrorProneScanner(
+      BugChecker[] checkers,
+      Suppressible[] suppressibles,
+      @Nullable IntFunction<BugChecker> instantiator,
+      Map<String, SeverityLevel> severities) {
     this.severities = severities;
+    this.checkers = new AtomicReferenceArray<>(checkers);
+    this.instantiator = instantiator;
+    this.suppressibles = suppressibles;
+    Class<?>[] checkerClasses = new Class<?>[suppressibles.length];
+    for (int i = 0; i < suppressibles.length; i++) {
+      if (suppressibles[i] instanceof DeferredChecker) {
+        DeferredChecker deferred = (DeferredChecker) suppressibles[i];
+        checkerClasses[i] = deferred.info.checkerClass();
+        if (!deferred.customSuppressionAnnotations().isEmpty()) {
+          // Only the checker itself can tell whether custom annotations suppress it.
+          suppressibles[i] = checker(i);
+        }
+      } else {
+        checkerClasses[i] = checkers[i].getClass();
+      }
+    }
+    this.checkersByKind = buildDispatchTable(checkerClasses);
+    this.methodIndex = MethodIndex.create(checkerClasses, this::checker);
     ImmutableSet.Builder<Class<? extends Annotation>> annotationClassesBuilder =
         ImmutableSet.builder();
-    for (BugChecker checker : this.bugCheckers) {
-      registerNodeTypes(checker, annotationClassesBuilder);
+    for (Suppressible suppressible : this.suppressibles) {
+      annotationClassesBuilder.addAll(suppressible.customSuppressionAnnotations());
     }
     ImmutableSet<Class<? extends Annotation>> annotationClasses = annotationClassesBuilder.build();
     this.customSuppressionAnnotations =
@@ -200,6 +256,59 @@ public class ErrorProneScanner extends Scanner {
             });
   }
 
+  /**
+   * A checker that hasn't been instantiated yet, described by its {@link BugCheckerInfo} for the
+   * purposes of suppression. Checkers with custom suppression annotations are instantiated up
+   * front, so this is never suppressed by one.
+   */
+  private static final class DeferredChecker implements Suppressible {
+    final BugCheckerInfo info;
+
+    DeferredChecker(BugCheckerInfo info) {
+      this.info = info;
+    }
+
+    @Override
+    public Set<String> allNames() {
+      return info.allNames();
+    }
+
+    @Override
+    public String canonicalName() {
+      return info.canonicalName();
+    }
+
+    @Override
+    public boolean supportsSuppressWarnings() {
+      return info.supportsSuppressWarnings();
+    }
+
+    @Override
+    public Set<Class<? extends Annotation>> customSuppressionAnnotations() {
+      return info.customSuppressionAnnotations();
+    }
+
+    @Override
+    public boolean suppressedByAnyOf(Set<Name> annotations, VisitorState s) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the checker at the given index, instantiating it if this is its first use. Scanning may
+   * be split across threads, so a checker can be instantiated twice; only one instance is kept.
+   */
+  private BugChecker checker(int index) {
+    BugChecker checker = checkers.get(index);
+    if (checker == null) {
+      checker = instantiator.apply(index);
+      if (!checkers.compareAndSet(index, null, checker)) {
+        checker = checkers.get(index);
+      }
+    }
+    return checker;
+  }
+
   private static Map<String, BugPattern.SeverityLevel> defaultSeverities(
       Iterable<BugChecker> checkers) {
     ImmutableMap.Builder<String, BugPattern.SeverityLevel> builder = ImmutableMap.builder();
@@ -214,218 +323,186 @@ public class ErrorProneScanner extends Scanner {
     return customSuppressionAnnotations.get(state);
   }
 
-  private final List<AnnotationTreeMatcher> annotationMatchers = new ArrayList<>();
-  private final List<AnnotatedTypeTreeMatcher> annotatedTypeMatchers = new ArrayList<>();
-  private final List<ArrayAccessTreeMatcher> arrayAccessMatchers = new ArrayList<>();
-  private final List<ArrayTypeTreeMatcher> arrayTypeMatchers = new ArrayList<>();
-  private final List<AssertTreeMatcher> assertMatchers = new ArrayList<>();
-  private final List<AssignmentTreeMatcher> assignmentMatchers = new ArrayList<>();
-  private final List<BinaryTreeMatcher> binaryMatchers = new ArrayList<>();
-  private final List<BlockTreeMatcher> blockMatchers = new ArrayList<>();
-  private final List<BreakTreeMatcher> breakMatchers = new ArrayList<>();
-  private final List<CaseTreeMatcher> caseMatchers = new ArrayList<>();
-  private final List<CatchTreeMatcher> catchMatchers = new ArrayList<>();
-  private final List<ClassTreeMatcher> classMatchers = new ArrayList<>();
-  private final List<CompilationUnitTreeMatcher> compilationUnitMatchers = new ArrayList<>();
-  private final List<CompoundAssignmentTreeMatcher> compoundAssignmentMatchers = new ArrayList<>();
-  private final List<ConditionalExpressionTreeMatcher> conditionalExpressionMatchers =
-      new ArrayList<>();
-  private final List<ContinueTreeMatcher> continueMatchers = new ArrayList<>();
-  private final List<DoWhileLoopTreeMatcher> doWhileLoopMatchers = new ArrayList<>();
-  private final List<EmptyStatementTreeMatcher> emptyStatementMatchers = new ArrayList<>();
-  private final List<EnhancedForLoopTreeMatcher> enhancedForLoopMatchers = new ArrayList<>();
-  private final List<ExpressionStatementTreeMatcher> expressionStatementMatchers =
-      new ArrayList<>();
-  private final List<ForLoopTreeMatcher> forLoopMatchers = new ArrayList<>();
-  private final List<IdentifierTreeMatcher> identifierMatchers = new ArrayList<>();
-  private final List<IfTreeMatcher> ifMatchers = new ArrayList<>();
-  private final List<ImportTreeMatcher> importMatchers = new ArrayList<>();
-  private final List<InstanceOfTreeMatcher> instanceOfMatchers = new ArrayList<>();
-  private final List<IntersectionTypeTreeMatcher> intersectionTypeMatchers = new ArrayList<>();
-  private final List<LabeledStatementTreeMatcher> labeledStatementMatchers = new ArrayList<>();
-  private final List<LambdaExpressionTreeMatcher> lambdaExpressionMatchers = new ArrayList<>();
-  private final List<LiteralTreeMatcher> literalMatchers = new ArrayList<>();
-  private final List<MemberReferenceTreeMatcher> memberReferenceMatchers = new ArrayList<>();
-  private final List<MemberSelectTreeMatcher> memberSelectMatchers = new ArrayList<>();
-  private final List<MethodTreeMatcher> methodMatchers = new ArrayList<>();
-  private final List<MethodInvocationTreeMatcher> methodInvocationMatchers = new ArrayList<>();
-  private final List<ModifiersTreeMatcher> modifiersMatchers = new ArrayList<>();
-  private final List<NewArrayTreeMatcher> newArrayMatchers = new ArrayList<>();
-  private final List<NewClassTreeMatcher> newClassMatchers = new ArrayList<>();
-  private final List<ParameterizedTypeTreeMatcher> parameterizedTypeMatchers = new ArrayList<>();
-  private final List<ParenthesizedTreeMatcher> parenthesizedMatchers = new ArrayList<>();
-  private final List<PrimitiveTypeTreeMatcher> primitiveTypeMatchers = new ArrayList<>();
-  private final List<ReturnTreeMatcher> returnMatchers = new ArrayList<>();
-  private final List<SwitchTreeMatcher> switchMatchers = new ArrayList<>();
-  private final List<SynchronizedTreeMatcher> synchronizedMatchers = new ArrayList<>();
-  private final List<ThrowTreeMatcher> throwMatchers = new ArrayList<>();
-  private final List<TryTreeMatcher> tryMatchers = new ArrayList<>();
-  private final List<TypeCastTreeMatcher> typeCastMatchers = new ArrayList<>();
-  private final List<TypeParameterTreeMatcher> typeParameterMatchers = new ArrayList<>();
-  private final List<UnaryTreeMatcher> unaryMatchers = new ArrayList<>();
-  private final List<UnionTypeTreeMatcher> unionTypeMatchers = new ArrayList<>();
-  private final List<VariableTreeMatcher> variableMatchers = new ArrayList<>();
-  private final List<WhileLoopTreeMatcher> whileLoopMatchers = new ArrayList<>();
-  private final List<WildcardTreeMatcher> wildcardMatchers = new ArrayList<>();
-
-  private void registerNodeTypes(
-      BugChecker checker,
-      ImmutableSet.Builder<Class<? extends Annotation>> customSuppressionAnnotationClasses) {
-    customSuppressionAnnotationClasses.addAll(checker.customSuppressionAnnotations());
-
-    if (checker instanceof AnnotationTreeMatcher) {
-      annotationMatchers.add((AnnotationTreeMatcher) checker);
-    }
-    if (checker instanceof AnnotatedTypeTreeMatcher) {
-      annotatedTypeMatchers.add((AnnotatedTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ArrayAccessTreeMatcher) {
-      arrayAccessMatchers.add((ArrayAccessTreeMatcher) checker);
-    }
-    if (checker instanceof ArrayTypeTreeMatcher) {
-      arrayTypeMatchers.add((ArrayTypeTreeMatcher) checker);
-    }
-    if (checker instanceof AssertTreeMatcher) {
-      assertMatchers.add((AssertTreeMatcher) checker);
-    }
-    if (checker instanceof AssignmentTreeMatcher) {
-      assignmentMatchers.add((AssignmentTreeMatcher) checker);
-    }
-    if (checker instanceof BinaryTreeMatcher) {
-      binaryMatchers.add((BinaryTreeMatcher) checker);
-    }
-    if (checker instanceof BlockTreeMatcher) {
-      blockMatchers.add((BlockTreeMatcher) checker);
-    }
-    if (checker instanceof BreakTreeMatcher) {
-      breakMatchers.add((BreakTreeMatcher) checker);
-    }
-    if (checker instanceof CaseTreeMatcher) {
-      caseMatchers.add((CaseTreeMatcher) checker);
-    }
-    if (checker instanceof CatchTreeMatcher) {
-      catchMatchers.add((CatchTreeMatcher) checker);
-    }
-    if (checker instanceof ClassTreeMatcher) {
-      classMatchers.add((ClassTreeMatcher) checker);
-    }
-    if (checker instanceof CompilationUnitTreeMatcher) {
-      compilationUnitMatchers.add((CompilationUnitTreeMatcher) checker);
-    }
-    if (checker instanceof CompoundAssignmentTreeMatcher) {
-      compoundAssignmentMatchers.add((CompoundAssignmentTreeMatcher) checker);
-    }
-    if (checker instanceof ConditionalExpressionTreeMatcher) {
-      conditionalExpressionMatchers.add((ConditionalExpressionTreeMatcher) checker);
-    }
-    if (checker instanceof ContinueTreeMatcher) {
-      continueMatchers.add((ContinueTreeMatcher) checker);
-    }
-    if (checker instanceof DoWhileLoopTreeMatcher) {
-      doWhileLoopMatchers.add((DoWhileLoopTreeMatcher) checker);
-    }
-    if (checker instanceof EmptyStatementTreeMatcher) {
-      emptyStatementMatchers.add((EmptyStatementTreeMatcher) checker);
-    }
-    if (checker instanceof EnhancedForLoopTreeMatcher) {
-      enhancedForLoopMatchers.add((EnhancedForLoopTreeMatcher) checker);
-    }
-    if (checker instanceof ExpressionStatementTreeMatcher) {
-      expressionStatementMatchers.add((ExpressionStatementTreeMatcher) checker);
-    }
-    if (checker instanceof ForLoopTreeMatcher) {
-      forLoopMatchers.add((ForLoopTreeMatcher) checker);
-    }
-    if (checker instanceof IdentifierTreeMatcher) {
-      identifierMatchers.add((IdentifierTreeMatcher) checker);
-    }
-    if (checker instanceof IfTreeMatcher) {
-      ifMatchers.add((IfTreeMatcher) checker);
-    }
-    if (checker instanceof ImportTreeMatcher) {
-      importMatchers.add((ImportTreeMatcher) checker);
-    }
-    if (checker instanceof InstanceOfTreeMatcher) {
-      instanceOfMatchers.add((InstanceOfTreeMatcher) checker);
-    }
-    if (checker instanceof IntersectionTypeTreeMatcher) {
-      intersectionTypeMatchers.add((IntersectionTypeTreeMatcher) checker);
-    }
-    if (checker instanceof LabeledStatementTreeMatcher) {
-      labeledStatementMatchers.add((LabeledStatementTreeMatcher) checker);
-    }
-    if (checker instanceof LambdaExpressionTreeMatcher) {
-      lambdaExpressionMatchers.add((LambdaExpressionTreeMatcher) checker);
-    }
-    if (checker instanceof LiteralTreeMatcher) {
-      literalMatchers.add((LiteralTreeMatcher) checker);
-    }
-    if (checker instanceof MemberReferenceTreeMatcher) {
-      memberReferenceMatchers.add((MemberReferenceTreeMatcher) checker);
-    }
-    if (checker instanceof MemberSelectTreeMatcher) {
-      memberSelectMatchers.add((MemberSelectTreeMatcher) checker);
-    }
-    if (checker instanceof MethodTreeMatcher) {
-      methodMatchers.add((MethodTreeMatcher) checker);
-    }
-    if (checker instanceof MethodInvocationTreeMatcher) {
-      methodInvocationMatchers.add((MethodInvocationTreeMatcher) checker);
-    }
-    if (checker instanceof ModifiersTreeMatcher) {
-      modifiersMatchers.add((ModifiersTreeMatcher) checker);
-    }
-    if (checker instanceof NewArrayTreeMatcher) {
-      newArrayMatchers.add((NewArrayTreeMatcher) checker);
-    }
-    if (checker instanceof NewClassTreeMatcher) {
-      newClassMatchers.add((NewClassTreeMatcher) checker);
-    }
-    if (checker instanceof ParameterizedTypeTreeMatcher) {
-      parameterizedTypeMatchers.add((ParameterizedTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ParenthesizedTreeMatcher) {
-      parenthesizedMatchers.add((ParenthesizedTreeMatcher) checker);
-    }
-    if (checker instanceof PrimitiveTypeTreeMatcher) {
-      primitiveTypeMatchers.add((PrimitiveTypeTreeMatcher) checker);
-    }
-    if (checker instanceof ReturnTreeMatcher) {
-      returnMatchers.add((ReturnTreeMatcher) checker);
-    }
-    if (checker instanceof SwitchTreeMatcher) {
-      switchMatchers.add((SwitchTreeMatcher) checker);
-    }
-    if (checker instanceof SynchronizedTreeMatcher) {
-      synchronizedMatchers.add((SynchronizedTreeMatcher) checker);
-    }
-    if (checker instanceof ThrowTreeMatcher) {
-      throwMatchers.add((ThrowTreeMatcher) checker);
-    }
-    if (checker instanceof TryTreeMatcher) {
-      tryMatchers.add((TryTreeMatcher) checker);
-    }
-    if (checker instanceof TypeCastTreeMatcher) {
-      typeCastMatchers.add((TypeCastTreeMatcher) checker);
-    }
-    if (checker instanceof TypeParameterTreeMatcher) {
-      typeParameterMatchers.add((TypeParameterTreeMatcher) checker);
-    }
-    if (checker instanceof UnaryTreeMatcher) {
-      unaryMatchers.add((UnaryTreeMatcher) checker);
+  /**
+   * Maps each matcher interface to the tree interface it matches. Every {@link Tree.Kind} whose
+   * {@link Tree.Kind#asInterface()} is one of these tree interfaces is dispatched to the checkers
+   * that implement the corresponding matcher.
+   */
+  private static final ImmutableMap<Class<?>, Class<? extends Tree>> MATCHER_TREE_TYPES =
+      ImmutableMap.<Class<?>, Class<? extends Tree>>builder()
+          .put(AnnotatedTypeTreeMatcher.class, AnnotatedTypeTree.class)
+          .put(AnnotationTreeMatcher.class, AnnotationTree.class)
+          .put(ArrayAccessTreeMatcher.class, ArrayAccessTree.class)
+          .put(ArrayTypeTreeMatcher.class, ArrayTypeTree.class)
+          .put(AssertTreeMatcher.class, AssertTree.class)
+          .put(AssignmentTreeMatcher.class, AssignmentTree.class)
+          .put(BinaryTreeMatcher.class, BinaryTree.class)
+          .put(BlockTreeMatcher.class, BlockTree.class)
+          .put(BreakTreeMatcher.class, BreakTree.class)
+          .put(CaseTreeMatcher.class, CaseTree.class)
+          .put(CatchTreeMatcher.class, CatchTree.class)
+          .put(ClassTreeMatcher.class, ClassTree.class)
+          .put(CompilationUnitTreeMatcher.class, CompilationUnitTree.class)
+          .put(CompoundAssignmentTreeMatcher.class, CompoundAssignmentTree.class)
+          .put(ConditionalExpressionTreeMatcher.class, ConditionalExpressionTree.class)
+          .put(ContinueTreeMatcher.class, ContinueTree.class)
+          .put(DoWhileLoopTreeMatcher.class, DoWhileLoopTree.class)
+          .put(EmptyStatementTreeMatcher.class, EmptyStatementTree.class)
+          .put(EnhancedForLoopTreeMatcher.class, EnhancedForLoopTree.class)
+          .put(ExpressionStatementTreeMatcher.class, ExpressionStatementTree.class)
+          .put(ForLoopTreeMatcher.class, ForLoopTree.class)
+          .put(IdentifierTreeMatcher.class, IdentifierTree.class)
+          .put(IfTreeMatcher.class, IfTree.class)
+          .put(ImportTreeMatcher.class, ImportTree.class)
+          .put(InstanceOfTreeMatcher.class, InstanceOfTree.class)
+          .put(IntersectionTypeTreeMatcher.class, IntersectionTypeTree.class)
+          .put(LabeledStatementTreeMatcher.class, LabeledStatementTree.class)
+          .put(LambdaExpressionTreeMatcher.class, LambdaExpressionTree.class)
+          .put(LiteralTreeMatcher.class, LiteralTree.class)
+          .put(MemberReferenceTreeMatcher.class, MemberReferenceTree.class)
+          .put(MemberSelectTreeMatcher.class, MemberSelectTree.class)
+          .put(MethodInvocationTreeMatcher.class, MethodInvocationTree.class)
+          .put(MethodTreeMatcher.class, MethodTree.class)
+          .put(ModifiersTreeMatcher.class, ModifiersTree.class)
+          .put(NewArrayTreeMatcher.class, NewArrayTree.class)
+          .put(NewClassTreeMatcher.class, NewClassTree.class)
+          .put(ParameterizedTypeTreeMatcher.class, ParameterizedTypeTree.class)
+          .put(ParenthesizedTreeMatcher.class, ParenthesizedTree.class)
+          .put(PrimitiveTypeTreeMatcher.class, PrimitiveTypeTree.class)
+          .put(ReturnTreeMatcher.class, ReturnTree.class)
+          .put(SwitchTreeMatcher.class, SwitchTree.class)
+          .put(SynchronizedTreeMatcher.class, SynchronizedTree.class)
+          .put(ThrowTreeMatcher.class, ThrowTree.class)
+          .put(TryTreeMatcher.class, TryTree.class)
+          .put(TypeCastTreeMatcher.class, TypeCastTree.class)
+          .put(TypeParameterTreeMatcher.class, TypeParameterTree.class)
+          .put(UnaryTreeMatcher.class, UnaryTree.class)
+          .put(UnionTypeTreeMatcher.class, UnionTypeTree.class)
+          .put(VariableTreeMatcher.class, VariableTree.class)
+          .put(WhileLoopTreeMatcher.class, WhileLoopTree.class)
+          .put(WildcardTreeMatcher.class, WildcardTree.class)
+          .build();
+
+  /**
+   * The checkers of this scanner, in registration order; positions are checker indices. Entries are
+   * null until the checker is first needed, see {@link #checker}.
+   */
+  private final AtomicReferenceArray<BugChecker> checkers;
+
+  /** Creates the checker at an index, or null if all checkers were provided up front. */
+  @Nullable private final IntFunction<BugChecker> instantiator;
+
+  /**
+   * The suppression information of each checker, by checker index: the checker itself, or a {@link
+   * DeferredChecker} if that is enough to decide whether it's suppressed.
+   */
+  private final Suppressible[] suppressibles;
+
+  /**
+   * For each {@link Tree.Kind} (by ordinal), the indices of the checkers that match trees of that
+   * kind. Kinds that no checker is interested in map to an empty array.
+   */
+  private final int[][] checkersByKind;
+
+  /**
+   * The method matchers declared by this scanner's checkers, used to skip checkers that can't match
+   * a method invocation, or null if no checker declares them.
+   */
+  @Nullable private final MethodIndex methodIndex;
+
+  /**
+   * The indices of the checkers suppressed under {@link #resolvedSuppressions}. Suppressions only
+   * change at declarations that add new suppression signals, so this is resolved once per {@link
+   * SuppressionInfo} instead of once per checker per node, and while scanning a whole compilation
+   * unit it is shared through its {@link SuppressionIndex}.
+   */
+  private BitSet suppressedCheckers = new BitSet();
+
+  private SuppressionInfo resolvedSuppressions;
+
+  /** The timings that {@link #timers} record into. */
+  private ErrorProneTimings timings;
+
+  /** The timer of each checker, by checker index, looked up once per {@link ErrorProneTimings}. */
+  private ErrorProneTimings.Timer[] timers;
+
+  private static int[][] buildDispatchTable(Class<?>[] checkers) {
+    Tree.Kind[] kinds = Tree.Kind.values();
+    int[][] table = new int[kinds.length][];
+    for (Tree.Kind kind : kinds) {
+      Class<? extends Tree> treeType = kind.asInterface();
+      List<Integer> matching = new ArrayList<>();
+      for (int i = 0; i < checkers.length; i++) {
+        for (Map.Entry<Class<?>, Class<? extends Tree>> entry : MATCHER_TREE_TYPES.entrySet()) {
+          if (entry.getValue().equals(treeType) && entry.getKey().isAssignableFrom(checkers[i])) {
+            matching.add(i);
+            break;
+          }
+        }
+      }
+      table[kind.ordinal()] = Ints.toArray(matching);
     }
-    if (checker instanceof UnionTypeTreeMatcher) {
-      unionTypeMatchers.add((UnionTypeTreeMatcher) checker);
+    return table;
+  }
+
+  /**
+   * Returns the indices of the checkers suppressed under the current suppressions, recomputing them
+   * only if the suppressions have changed since the last call.
+   */
+  private BitSet resolveSuppressions(VisitorState state) {
+    SuppressionInfo current = currentSuppressions();
+    if (current != resolvedSuppressions) {
+      SuppressionIndex index = suppressionIndex();
+      suppressedCheckers =
+          index != null ? index.suppressedCheckers(current) : suppressedCheckers(current, state);
+      resolvedSuppressions = current;
+    }
+    return suppressedCheckers;
+  }
+
+  private BitSet suppressedCheckers(SuppressionInfo suppressions, VisitorState state) {
+    ErrorProneOptions errorProneOptions = state.errorProneOptions();
+    BitSet suppressed = new BitSet(suppressibles.length);
+    for (int i = 0; i < suppressibles.length; i++) {
+      if (isSuppressed(suppressions, suppressibles[i], errorProneOptions, state)
+          == SuppressedState.SUPPRESSED) {
+        suppressed.set(i);
+      }
     }
-    if (checker instanceof VariableTreeMatcher) {
-      variableMatchers.add((VariableTreeMatcher) checker);
+    return suppressed;
+  }
+
+  /**
+   * Scans a tree. When it is a whole compilation unit, its suppressions are collected into a {@link
+   * SuppressionIndex} as the scan goes, so that each distinct set of suppressions is only resolved
+   * once per unit.
+   */
+  @Override
+  public Void scan(TreePath path, VisitorState state) {
+    if (!(path.getLeaf() instanceof CompilationUnitTree) || suppressionIndex() != null) {
+      return super.scan(path, state);
     }
-    if (checker instanceof WhileLoopTreeMatcher) {
-      whileLoopMatchers.add((WhileLoopTreeMatcher) checker);
+    setSuppressionIndex(
+        new SuppressionIndex(
+            getCustomSuppressionAnnotations(state),
+            suppressions -> suppressedCheckers(suppressions, state)));
+    try {
+      return super.scan(path, state);
+    } finally {
+      setSuppressionIndex(null);
     }
-    if (checker instanceof WildcardTreeMatcher) {
-      wildcardMatchers.add((WildcardTreeMatcher) checker);
+  }
+
+  private ErrorProneTimings.Timer[] resolveTimers(VisitorState state) {
+    ErrorProneTimings current = ErrorProneTimings.instance(state.context);
+    if (current != timings) {
+      timers = new ErrorProneTimings.Timer[suppressibles.length];
+      for (int i = 0; i < suppressibles.length; i++) {
+        timers[i] = current.timer(suppressibles[i]);
+      }
+      timings = current;
     }
+    return timers;
   }
 
   @FunctionalInterface
@@ -434,25 +511,65 @@ public class ErrorProneScanner extends Scanner {
   }
 
   private <M extends Suppressible, T extends Tree> VisitorState processMatchers(
-      Iterable<M> matchers, T tree, TreeProcessor<M, T> processingFunction, VisitorState oldState) {
+      T tree, TreeProcessor<M, T> processingFunction, VisitorState oldState) {
+    return processMatchers(tree, processingFunction, oldState, /* candidates= */ null);
+  }
+
+  /**
+   * Runs the checkers that match trees of this kind on {@code tree}, skipping those not in {@code
+   * candidates} unless it is null.
+   */
+  private <M extends Suppressible, T extends Tree> VisitorState processMatchers(
+      T tree,
+      TreeProcessor<M, T> processingFunction,
+      VisitorState oldState,
+      @Nullable BitSet candidates) {
+    int[] matchers = checkersByKind[tree.getKind().ordinal()];
+    if (matchers.length == 0) {
+      // Nothing to report for this node. Children derive their own state from the current path,
+      // so there is no need to allocate one here.
+      return oldState;
+    }
     ErrorProneOptions errorProneOptions = oldState.errorProneOptions();
     // A VisitorState with our new path, but without mentioning the suppression of any matcher.
     VisitorState newState = oldState.withPath(getCurrentPath());
-    for (M matcher : matchers) {
-      SuppressedState suppressed = isSuppressed(matcher, errorProneOptions, newState);
-      // If the ErrorProneOptions say to visit suppressed code, we still visit it
-      if (suppressed == SuppressedState.UNSUPPRESSED
-          || errorProneOptions.isIgnoreSuppressionAnnotations()) {
-        try (AutoCloseable unused = oldState.timingSpan(matcher)) {
-          // We create a new VisitorState with the suppression info specific to this matcher.
-          VisitorState stateWithSuppressionInformation = newState.withSuppression(suppressed);
-          reportMatch(
-              processingFunction.process(matcher, tree, stateWithSuppressionInformation),
-              stateWithSuppressionInformation);
-        } catch (Throwable t) {
-          handleError(matcher, t);
+    BitSet suppressedCheckers = resolveSuppressions(newState);
+    ErrorProneTimings.Timer[] timers = resolveTimers(newState);
+    ErrorProneTimings.Timer outer = timings.attribute(null);
+    try {
+      for (int index : matchers) {
+        if (candidates != null && !candidates.get(index)) {
+          continue;
+        }
+        SuppressedState suppressed =
+            suppressedCheckers.get(index)
+                ? SuppressedState.SUPPRESSED
+                : SuppressedState.UNSUPPRESSED;
+        // If the ErrorProneOptions say to visit suppressed code, we still visit it
+        if (suppressed == SuppressedState.UNSUPPRESSED
+            || errorProneOptions.isIgnoreSuppressionAnnotations()) {
+          long startNanos = System.nanoTime();
+          long startBytes = timings.threadAllocatedBytes();
+          timings.attribute(timers[index]);
+          try {
+            // Instantiating the checker on first use can fail too; report that against the check.
+            @SuppressWarnings("unchecked") // checkersByKind only holds matchers of M for T
+            M matcher = (M) checker(index);
+            // We create a new VisitorState with the suppression info specific to this matcher.
+            VisitorState stateWithSuppressionInformation = newState.withSuppression(suppressed);
+            reportMatch(
+                processingFunction.process(matcher, tree, stateWithSuppressionInformation),
+                stateWithSuppressionInformation);
+          } catch (Throwable t) {
+            handleError(suppressibles[index], t);
+          } finally {
+            timers[index].record(startNanos, startBytes);
+          }
         }
       }
+    } finally {
+      // Even if handleError rethrows, later time must not be charged to the last checker.
+      timings.attribute(outer);
     }
     return newState;
   }
@@ -460,92 +577,76 @@ public class ErrorProneScanner extends Scanner {
   @Override
   public Void visitAnnotation(AnnotationTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            annotationMatchers, tree, AnnotationTreeMatcher::matchAnnotation, visitorState);
+        processMatchers(tree, AnnotationTreeMatcher::matchAnnotation, visitorState);
     return super.visitAnnotation(tree, state);
   }
 
   @Override
   public Void visitAnnotatedType(AnnotatedTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            annotatedTypeMatchers,
-            tree,
-            AnnotatedTypeTreeMatcher::matchAnnotatedType,
-            visitorState);
+        processMatchers(tree, AnnotatedTypeTreeMatcher::matchAnnotatedType, visitorState);
     return super.visitAnnotatedType(tree, state);
   }
 
   @Override
   public Void visitArrayAccess(ArrayAccessTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            arrayAccessMatchers, tree, ArrayAccessTreeMatcher::matchArrayAccess, visitorState);
+        processMatchers(tree, ArrayAccessTreeMatcher::matchArrayAccess, visitorState);
     return super.visitArrayAccess(tree, state);
   }
 
   @Override
   public Void visitArrayType(ArrayTypeTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            arrayTypeMatchers, tree, ArrayTypeTreeMatcher::matchArrayType, visitorState);
+    VisitorState state = processMatchers(tree, ArrayTypeTreeMatcher::matchArrayType, visitorState);
     return super.visitArrayType(tree, state);
   }
 
   @Override
   public Void visitAssert(AssertTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(assertMatchers, tree, AssertTreeMatcher::matchAssert, visitorState);
+    VisitorState state = processMatchers(tree, AssertTreeMatcher::matchAssert, visitorState);
     return super.visitAssert(tree, state);
   }
 
   @Override
   public Void visitAssignment(AssignmentTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            assignmentMatchers, tree, AssignmentTreeMatcher::matchAssignment, visitorState);
+        processMatchers(tree, AssignmentTreeMatcher::matchAssignment, visitorState);
     return super.visitAssignment(tree, state);
   }
 
   @Override
   public Void visitBinary(BinaryTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(binaryMatchers, tree, BinaryTreeMatcher::matchBinary, visitorState);
+    VisitorState state = processMatchers(tree, BinaryTreeMatcher::matchBinary, visitorState);
     return super.visitBinary(tree, state);
   }
 
   @Override
   public Void visitBlock(BlockTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(blockMatchers, tree, BlockTreeMatcher::matchBlock, visitorState);
+    VisitorState state = processMatchers(tree, BlockTreeMatcher::matchBlock, visitorState);
     return super.visitBlock(tree, state);
   }
 
   @Override
   public Void visitBreak(BreakTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(breakMatchers, tree, BreakTreeMatcher::matchBreak, visitorState);
+    VisitorState state = processMatchers(tree, BreakTreeMatcher::matchBreak, visitorState);
     return super.visitBreak(tree, state);
   }
 
   @Override
   public Void visitCase(CaseTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(caseMatchers, tree, CaseTreeMatcher::matchCase, visitorState);
+    VisitorState state = processMatchers(tree, CaseTreeMatcher::matchCase, visitorState);
     return super.visitCase(tree, state);
   }
 
   @Override
   public Void visitCatch(CatchTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(catchMatchers, tree, CatchTreeMatcher::matchCatch, visitorState);
+    VisitorState state = processMatchers(tree, CatchTreeMatcher::matchCatch, visitorState);
     return super.visitCatch(tree, state);
   }
 
   @Override
   public Void visitClass(ClassTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(classMatchers, tree, ClassTreeMatcher::matchClass, visitorState);
+    VisitorState state = processMatchers(tree, ClassTreeMatcher::matchClass, visitorState);
     return super.visitClass(tree, state);
   }
 
@@ -553,22 +654,14 @@ public class ErrorProneScanner extends Scanner {
   public Void visitCompilationUnit(CompilationUnitTree tree, VisitorState visitorState) {
 
     VisitorState state =
-        processMatchers(
-            compilationUnitMatchers,
-            tree,
-            CompilationUnitTreeMatcher::matchCompilationUnit,
-            visitorState);
+        processMatchers(tree, CompilationUnitTreeMatcher::matchCompilationUnit, visitorState);
     return super.visitCompilationUnit(tree, state);
   }
 
   @Override
   public Void visitCompoundAssignment(CompoundAssignmentTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            compoundAssignmentMatchers,
-            tree,
-            CompoundAssignmentTreeMatcher::matchCompoundAssignment,
-            visitorState);
+        processMatchers(tree, CompoundAssignmentTreeMatcher::matchCompoundAssignment, visitorState);
     return super.visitCompoundAssignment(tree, state);
   }
 
@@ -577,7 +670,6 @@ public class ErrorProneScanner extends Scanner {
       ConditionalExpressionTree tree, VisitorState visitorState) {
     VisitorState state =
         processMatchers(
-            conditionalExpressionMatchers,
             tree,
             ConditionalExpressionTreeMatcher::matchConditionalExpression,
             visitorState);
@@ -586,38 +678,28 @@ public class ErrorProneScanner extends Scanner {
 
   @Override
   public Void visitContinue(ContinueTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(continueMatchers, tree, ContinueTreeMatcher::matchContinue, visitorState);
+    VisitorState state = processMatchers(tree, ContinueTreeMatcher::matchContinue, visitorState);
     return super.visitContinue(tree, state);
   }
 
   @Override
   public Void visitDoWhileLoop(DoWhileLoopTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            doWhileLoopMatchers, tree, DoWhileLoopTreeMatcher::matchDoWhileLoop, visitorState);
+        processMatchers(tree, DoWhileLoopTreeMatcher::matchDoWhileLoop, visitorState);
     return super.visitDoWhileLoop(tree, state);
   }
 
   @Override
   public Void visitEmptyStatement(EmptyStatementTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            emptyStatementMatchers,
-            tree,
-            EmptyStatementTreeMatcher::matchEmptyStatement,
-            visitorState);
+        processMatchers(tree, EmptyStatementTreeMatcher::matchEmptyStatement, visitorState);
     return super.visitEmptyStatement(tree, state);
   }
 
   @Override
   public Void visitEnhancedForLoop(EnhancedForLoopTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            enhancedForLoopMatchers,
-            tree,
-            EnhancedForLoopTreeMatcher::matchEnhancedForLoop,
-            visitorState);
+        processMatchers(tree, EnhancedForLoopTreeMatcher::matchEnhancedForLoop, visitorState);
     return super.visitEnhancedForLoop(tree, state);
   }
 
@@ -627,7 +709,6 @@ public class ErrorProneScanner extends Scanner {
   public Void visitExpressionStatement(ExpressionStatementTree tree, VisitorState visitorState) {
     VisitorState state =
         processMatchers(
-            expressionStatementMatchers,
             tree,
             ExpressionStatementTreeMatcher::matchExpressionStatement,
             visitorState);
@@ -636,96 +717,74 @@ public class ErrorProneScanner extends Scanner {
 
   @Override
   public Void visitForLoop(ForLoopTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(forLoopMatchers, tree, ForLoopTreeMatcher::matchForLoop, visitorState);
+    VisitorState state = processMatchers(tree, ForLoopTreeMatcher::matchForLoop, visitorState);
     return super.visitForLoop(tree, state);
   }
 
   @Override
   public Void visitIdentifier(IdentifierTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            identifierMatchers, tree, IdentifierTreeMatcher::matchIdentifier, visitorState);
+        processMatchers(tree, IdentifierTreeMatcher::matchIdentifier, visitorState);
     return super.visitIdentifier(tree, state);
   }
 
   @Override
   public Void visitIf(IfTree tree, VisitorState visitorState) {
-    VisitorState state = processMatchers(ifMatchers, tree, IfTreeMatcher::matchIf, visitorState);
+    VisitorState state = processMatchers(tree, IfTreeMatcher::matchIf, visitorState);
     return super.visitIf(tree, state);
   }
 
   @Override
   public Void visitImport(ImportTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(importMatchers, tree, ImportTreeMatcher::matchImport, visitorState);
+    VisitorState state = processMatchers(tree, ImportTreeMatcher::matchImport, visitorState);
     return super.visitImport(tree, state);
   }
 
   @Override
   public Void visitInstanceOf(InstanceOfTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            instanceOfMatchers, tree, InstanceOfTreeMatcher::matchInstanceOf, visitorState);
+        processMatchers(tree, InstanceOfTreeMatcher::matchInstanceOf, visitorState);
     return super.visitInstanceOf(tree, state);
   }
 
   @Override
   public Void visitIntersectionType(IntersectionTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            intersectionTypeMatchers,
-            tree,
-            IntersectionTypeTreeMatcher::matchIntersectionType,
-            visitorState);
+        processMatchers(tree, IntersectionTypeTreeMatcher::matchIntersectionType, visitorState);
     return super.visitIntersectionType(tree, state);
   }
 
   @Override
   public Void visitLabeledStatement(LabeledStatementTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            labeledStatementMatchers,
-            tree,
-            LabeledStatementTreeMatcher::matchLabeledStatement,
-            visitorState);
+        processMatchers(tree, LabeledStatementTreeMatcher::matchLabeledStatement, visitorState);
     return super.visitLabeledStatement(tree, state);
   }
 
   @Override
   public Void visitLambdaExpression(LambdaExpressionTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            lambdaExpressionMatchers,
-            tree,
-            LambdaExpressionTreeMatcher::matchLambdaExpression,
-            visitorState);
+        processMatchers(tree, LambdaExpressionTreeMatcher::matchLambdaExpression, visitorState);
     return super.visitLambdaExpression(tree, state);
   }
 
   @Override
   public Void visitLiteral(LiteralTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(literalMatchers, tree, LiteralTreeMatcher::matchLiteral, visitorState);
+    VisitorState state = processMatchers(tree, LiteralTreeMatcher::matchLiteral, visitorState);
     return super.visitLiteral(tree, state);
   }
 
   @Override
   public Void visitMemberReference(MemberReferenceTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            memberReferenceMatchers,
-            tree,
-            MemberReferenceTreeMatcher::matchMemberReference,
-            visitorState);
+        processMatchers(tree, MemberReferenceTreeMatcher::matchMemberReference, visitorState);
     return super.visitMemberReference(tree, state);
   }
 
   @Override
   public Void visitMemberSelect(MemberSelectTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            memberSelectMatchers, tree, MemberSelectTreeMatcher::matchMemberSelect, visitorState);
+        processMatchers(tree, MemberSelectTreeMatcher::matchMemberSelect, visitorState);
     return super.visitMemberSelect(tree, state);
   }
 
@@ -736,42 +795,38 @@ public class ErrorProneScanner extends Scanner {
       return null;
     }
 
-    VisitorState state =
-        processMatchers(methodMatchers, tree, MethodTreeMatcher::matchMethod, visitorState);
+    VisitorState state = processMatchers(tree, MethodTreeMatcher::matchMethod, visitorState);
     return super.visitMethod(tree, state);
   }
 
   @Override
   public Void visitMethodInvocation(MethodInvocationTree tree, VisitorState visitorState) {
+    BitSet candidates =
+        methodIndex != null && checkersByKind[tree.getKind().ordinal()].length > 0
+            ? methodIndex.candidates(tree, visitorState)
+            : null;
     VisitorState state =
         processMatchers(
-            methodInvocationMatchers,
-            tree,
-            MethodInvocationTreeMatcher::matchMethodInvocation,
-            visitorState);
+            tree, MethodInvocationTreeMatcher::matchMethodInvocation, visitorState, candidates);
     return super.visitMethodInvocation(tree, state);
   }
 
   @Override
   public Void visitModifiers(ModifiersTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            modifiersMatchers, tree, ModifiersTreeMatcher::matchModifiers, visitorState);
+    VisitorState state = processMatchers(tree, ModifiersTreeMatcher::matchModifiers, visitorState);
 
     return super.visitModifiers(tree, state);
   }
 
   @Override
   public Void visitNewArray(NewArrayTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(newArrayMatchers, tree, NewArrayTreeMatcher::matchNewArray, visitorState);
+    VisitorState state = processMatchers(tree, NewArrayTreeMatcher::matchNewArray, visitorState);
     return super.visitNewArray(tree, state);
   }
 
   @Override
   public Void visitNewClass(NewClassTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(newClassMatchers, tree, NewClassTreeMatcher::matchNewClass, visitorState);
+    VisitorState state = processMatchers(tree, NewClassTreeMatcher::matchNewClass, visitorState);
     return super.visitNewClass(tree, state);
   }
 
@@ -781,123 +836,95 @@ public class ErrorProneScanner extends Scanner {
   @Override
   public Void visitParameterizedType(ParameterizedTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            parameterizedTypeMatchers,
-            tree,
-            ParameterizedTypeTreeMatcher::matchParameterizedType,
-            visitorState);
+        processMatchers(tree, ParameterizedTypeTreeMatcher::matchParameterizedType, visitorState);
     return super.visitParameterizedType(tree, state);
   }
 
   @Override
   public Void visitParenthesized(ParenthesizedTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            parenthesizedMatchers,
-            tree,
-            ParenthesizedTreeMatcher::matchParenthesized,
-            visitorState);
+        processMatchers(tree, ParenthesizedTreeMatcher::matchParenthesized, visitorState);
     return super.visitParenthesized(tree, state);
   }
 
   @Override
   public Void visitPrimitiveType(PrimitiveTypeTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            primitiveTypeMatchers,
-            tree,
-            PrimitiveTypeTreeMatcher::matchPrimitiveType,
-            visitorState);
+        processMatchers(tree, PrimitiveTypeTreeMatcher::matchPrimitiveType, visitorState);
     return super.visitPrimitiveType(tree, state);
   }
 
   @Override
   public Void visitReturn(ReturnTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(returnMatchers, tree, ReturnTreeMatcher::matchReturn, visitorState);
+    VisitorState state = processMatchers(tree, ReturnTreeMatcher::matchReturn, visitorState);
     return super.visitReturn(tree, state);
   }
 
   @Override
   public Void visitSwitch(SwitchTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(switchMatchers, tree, SwitchTreeMatcher::matchSwitch, visitorState);
+    VisitorState state = processMatchers(tree, SwitchTreeMatcher::matchSwitch, visitorState);
     return super.visitSwitch(tree, state);
   }
 
   @Override
   public Void visitSynchronized(SynchronizedTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            synchronizedMatchers, tree, SynchronizedTreeMatcher::matchSynchronized, visitorState);
+        processMatchers(tree, SynchronizedTreeMatcher::matchSynchronized, visitorState);
     return super.visitSynchronized(tree, state);
   }
 
   @Override
   public Void visitThrow(ThrowTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(throwMatchers, tree, ThrowTreeMatcher::matchThrow, visitorState);
+    VisitorState state = processMatchers(tree, ThrowTreeMatcher::matchThrow, visitorState);
     return super.visitThrow(tree, state);
   }
 
   @Override
   public Void visitTry(TryTree tree, VisitorState visitorState) {
-    VisitorState state = processMatchers(tryMatchers, tree, TryTreeMatcher::matchTry, visitorState);
+    VisitorState state = processMatchers(tree, TryTreeMatcher::matchTry, visitorState);
     return super.visitTry(tree, state);
   }
 
   @Override
   public Void visitTypeCast(TypeCastTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(typeCastMatchers, tree, TypeCastTreeMatcher::matchTypeCast, visitorState);
+    VisitorState state = processMatchers(tree, TypeCastTreeMatcher::matchTypeCast, visitorState);
     return super.visitTypeCast(tree, state);
   }
 
   @Override
   public Void visitTypeParameter(TypeParameterTree tree, VisitorState visitorState) {
     VisitorState state =
-        processMatchers(
-            typeParameterMatchers,
-            tree,
-            TypeParameterTreeMatcher::matchTypeParameter,
-            visitorState);
+        processMatchers(tree, TypeParameterTreeMatcher::matchTypeParameter, visitorState);
     return super.visitTypeParameter(tree, state);
   }
 
   @Override
   public Void visitUnary(UnaryTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(unaryMatchers, tree, UnaryTreeMatcher::matchUnary, visitorState);
+    VisitorState state = processMatchers(tree, UnaryTreeMatcher::matchUnary, visitorState);
     return super.visitUnary(tree, state);
   }
 
   @Override
   public Void visitUnionType(UnionTypeTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            unionTypeMatchers, tree, UnionTypeTreeMatcher::matchUnionType, visitorState);
+    VisitorState state = processMatchers(tree, UnionTypeTreeMatcher::matchUnionType, visitorState);
     return super.visitUnionType(tree, state);
   }
 
   @Override
   public Void visitVariable(VariableTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(variableMatchers, tree, VariableTreeMatcher::matchVariable, visitorState);
+    VisitorState state = processMatchers(tree, VariableTreeMatcher::matchVariable, visitorState);
     return super.visitVariable(tree, state);
   }
 
   @Override
   public Void visitWhileLoop(WhileLoopTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(
-            whileLoopMatchers, tree, WhileLoopTreeMatcher::matchWhileLoop, visitorState);
+    VisitorState state = processMatchers(tree, WhileLoopTreeMatcher::matchWhileLoop, visitorState);
     return super.visitWhileLoop(tree, state);
   }
 
   @Override
   public Void visitWildcard(WildcardTree tree, VisitorState visitorState) {
-    VisitorState state =
-        processMatchers(wildcardMatchers, tree, WildcardTreeMatcher::matchWildcard, visitorState);
+    VisitorState state = processMatchers(tree, WildcardTreeMatcher::matchWildcard, visitorState);
     return super.visitWildcard(tree, state);
   }
 
@@ -927,7 +954,12 @@ public class ErrorProneScanner extends Scanner {
     return severities;
   }
 
+  /** Returns the checkers of this scanner, instantiating any that haven't been used yet. */
   public ImmutableSet<BugChecker> getBugCheckers() {
-    return this.bugCheckers;
+    ImmutableSet.Builder<BugChecker> bugCheckers = ImmutableSet.builder();
+    for (int i = 0; i < suppressibles.length; i++) {
+      bugCheckers.add(checker(i));
+    }
+    return bugCheckers.build();
   }
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Rule;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.Token;
+import com.google.errorprone.matchers.method.MethodInvocationMatcher.TokenType;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Name;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+import javax.annotation.Nullable;
+
+/**
+ * An index of the {@link MethodMatcher}s declared by the {@link
+ * IndexedMethodInvocationTreeMatcher}s of a scanner, answering which checkers could match a given
+ * method invocation.
+ *
+ * <p>The rules of all the matchers are merged into one trie, keyed first by method name, then by
+ * the class the method is defined in or invoked on, and then by parameter types. Looking up an
+ * invocation walks a single path of the trie and unions the checkers found along it, so the method
+ * symbol, owner and name are examined once per invocation rather than once per checker. Checkers
+ * that don't declare their matchers, or whose matchers can't be expressed as rules, are always
+ * candidates.
+ */
+final class MethodIndex {
+
+  /**
+   * Returns the index of the given checker classes, by checker index, or {@code null} if none of
+   * them declares its invocation matchers. Only the checkers that do are instantiated, through
+   * {@code checkers}.
+   */
+  @Nullable
+  static MethodIndex create(Class<?>[] checkerClasses, IntFunction<BugChecker> checkers) {
+    List<IndexedRule> rules = new ArrayList<>();
+    BitSet always = new BitSet(checkerClasses.length);
+    boolean anyIndexed = false;
+    for (int i = 0; i < checkerClasses.length; i++) {
+      if (!MethodInvocationTreeMatcher.class.isAssignableFrom(checkerClasses[i])) {
+        continue;
+      }
+      List<IndexedRule> checkerRules =
+          IndexedMethodInvocationTreeMatcher.class.isAssignableFrom(checkerClasses[i])
+              ? rules(i, (IndexedMethodInvocationTreeMatcher) checkers.apply(i))
+              : null;
+      if (checkerRules == null) {
+        always.set(i);
+      } else {
+        anyIndexed = true;
+        rules.addAll(checkerRules);
+      }
+    }
+    return anyIndexed ? new MethodIndex(always, ImmutableList.copyOf(rules)) : null;
+  }
+
+  /** Returns the rules of a checker's matchers, or {@code null} if it can't be indexed. */
+  @Nullable
+  private static List<IndexedRule> rules(int checker, IndexedMethodInvocationTreeMatcher matcher) {
+    List<IndexedRule> rules = new ArrayList<>();
+    for (MethodMatcher methodMatcher : matcher.invocationMatchers()) {
+      Optional<Rule> rule = methodMatcher.asRule();
+      if (!rule.isPresent()) {
+        return null;
+      }
+      rules.add(new IndexedRule(checker, rule.get()));
+    }
+    return rules;
+  }
+
+  /** A rule, and the index of the checker that declared it. */
+  private static final class IndexedRule {
+    final int checker;
+    final Rule rule;
+
+    IndexedRule(int checker, Rule rule) {
+      this.checker = checker;
+      this.rule = rule;
+    }
+
+    Set<? extends Token> tokens(TokenType type) {
+      Set<? extends Token> tokens = rule.required().get(type);
+      return tokens != null ? tokens : ImmutableSet.of();
+    }
+  }
+
+  /** The checkers that are candidates for every invocation. */
+  private final BitSet always;
+
+  private final ImmutableList<IndexedRule> rules;
+
+  /** The trie, with names resolved against the current compilation's name table. */
+  private final Supplier<Trie> trie;
+
+  /** The checkers found by the last lookup; scanners are only ever used by one thread at a time. */
+  private final BitSet candidates = new BitSet();
+
+  private MethodIndex(BitSet always, ImmutableList<IndexedRule> rules) {
+    this.always = always;
+    this.rules = rules;
+    this.trie = VisitorState.memoize(this::buildTrie);
+  }
+
+  /**
+   * Returns the checkers that could match the given invocation. The result is only valid until the
+   * next call.
+   */
+  BitSet candidates(MethodInvocationTree tree, VisitorState state) {
+    candidates.clear();
+    candidates.or(always);
+    Symbol sym = ASTHelpers.getSymbol(tree);
+    if (!(sym instanceof MethodSymbol)) {
+      // Leave it to the checkers to make sense of invocations we can't resolve.
+      for (IndexedRule rule : rules) {
+        candidates.set(rule.checker);
+      }
+      return candidates;
+    }
+    MethodSymbol method = (MethodSymbol) sym;
+    Trie trie = this.trie.get(state);
+    candidates.or(trie.anyName);
+    Node byName = trie.byName.get(method.getSimpleName());
+    if (byName == null) {
+      return candidates;
+    }
+    byName.addCandidates(method, candidates);
+    if (!byName.byDefinedIn.isEmpty()) {
+      Node byOwner = byName.byDefinedIn.get(method.owner.getQualifiedName());
+      if (byOwner != null) {
+        byOwner.addCandidates(method, candidates);
+      }
+    }
+    if (!byName.byReceiver.isEmpty()) {
+      Type receiver = ASTHelpers.getReceiverType(tree);
+      if (receiver == null || receiver.tsym == null) {
+        byName.byReceiver.values().forEach(n -> n.addAllCandidates(candidates));
+      } else {
+        Node byReceiver = byName.byReceiver.get(receiver.tsym.getQualifiedName());
+        if (byReceiver != null) {
+          byReceiver.addCandidates(method, candidates);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private Trie buildTrie(VisitorState state) {
+    Trie trie = new Trie();
+    for (IndexedRule rule : rules) {
+      Set<? extends Token> names = rule.tokens(TokenType.METHOD_NAME);
+      if (names.isEmpty()) {
+        trie.anyName.set(rule.checker);
+        continue;
+      }
+      for (Token name : names) {
+        Name methodName = state.getName((String) name.comparisonKey());
+        Node byName = trie.byName.computeIfAbsent(methodName, n -> new Node());
+        // A rule that constrains both prefers the class it's defined in, which is cheaper to find.
+        Set<? extends Token> owners = rule.tokens(TokenType.DEFINED_IN);
+        Map<Name, Node> byOwner = byName.byDefinedIn;
+        if (owners.isEmpty()) {
+          owners = rule.tokens(TokenType.RECEIVER_TYPE);
+          byOwner = byName.byReceiver;
+        }
+        if (owners.isEmpty()) {
+          byName.add(rule, state);
+          continue;
+        }
+        for (Token owner : owners) {
+          byOwner
+              .computeIfAbsent(state.getName((String) owner.comparisonKey()), n -> new Node())
+              .add(rule, state);
+        }
+      }
+    }
+    return trie;
+  }
+
+  /** The root of the trie. */
+  private static final class Trie {
+    /** The checkers with a rule that matches any method name. */
+    final BitSet anyName = new BitSet();
+
+    final Map<Name, Node> byName = new HashMap<>();
+  }
+
+  /** A level of the trie, for a method name or for a method name and owner. */
+  private static final class Node {
+    /** The checkers with a rule that ends at this node and matches any parameter types. */
+    final BitSet anySignature = new BitSet();
+
+    final List<Signature> signatures = new ArrayList<>();
+
+    final Map<Name, Node> byDefinedIn = new HashMap<>();
+
+    final Map<Name, Node> byReceiver = new HashMap<>();
+
+    void add(IndexedRule rule, VisitorState state) {
+      Set<? extends Token> signatures = rule.tokens(TokenType.PARAMETER_TYPES);
+      if (signatures.isEmpty()) {
+        anySignature.set(rule.checker);
+        return;
+      }
+      for (Token signature : signatures) {
+        @SuppressWarnings("unchecked") // ParameterTypes tokens are keyed by their type names
+        List<String> types = (List<String>) signature.comparisonKey();
+        Name[] names = new Name[types.size()];
+        for (int i = 0; i < names.length; i++) {
+          names[i] = state.getName(types.get(i));
+        }
+        this.signatures.add(new Signature(names, rule.checker));
+      }
+    }
+
+    void addCandidates(MethodSymbol method, BitSet candidates) {
+      candidates.or(anySignature);
+      if (signatures.isEmpty()) {
+        return;
+      }
+      List<VarSymbol> parameters = method.getParameters();
+      for (Signature signature : signatures) {
+        if (signature.matches(parameters)) {
+          candidates.set(signature.checker);
+        }
+      }
+    }
+
+    void addAllCandidates(BitSet candidates) {
+      candidates.or(anySignature);
+      for (Signature signature : signatures) {
+        candidates.set(signature.checker);
+      }
+    }
+  }
+
+  /** The parameter types a rule requires, by qualified name. */
+  private static final class Signature {
+    final Name[] parameterTypes;
+    final int checker;
+
+    Signature(Name[] parameterTypes, int checker) {
+      this.parameterTypes = parameterTypes;
+      this.checker = checker;
+    }
+
+    boolean matches(List<VarSymbol> parameters) {
+      if (parameters.size() != parameterTypes.length) {
+        return false;
+      }
+      int i = 0;
+      for (VarSymbol parameter : parameters) {
+        if (!parameter.type.tsym.getQualifiedName().equals(parameterTypes[i++])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.errorprone.BugCheckerInfo;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneTimings;
+import com.google.errorprone.ResolutionCache;
+import com.google.errorprone.dataflow.DataFlowCache;
+import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnalysis;
+import com.google.errorprone.dataflow.nullnesspropagation.TrustingNullnessAnalysis;
+import com.google.errorprone.dataflow.nullnesspropagation.inference.InferenceCache;
+import com.google.errorprone.fixes.SpeculativeCompiler;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.TokenCache;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link CodeTransformer} that splits the enabled checks of a {@link ScannerSupplier} into
+ * partitions and scans each compilation unit with all partitions concurrently.
+ *
+ * <p>The calling (javac) thread blocks until every partition has finished with the unit, so the
+ * trees are never lowered while they are still being scanned. Descriptions are buffered per
+ * partition and replayed into the caller's {@link DescriptionListener} on the calling thread, in
+ * source order.
+ *
+ * <p>This is experimental: checks must not rely on state shared with other checks, and javac's
+ * symbol completion is not thread-safe, so checks that complete symbols which were not completed
+ * during attribution may race.
+ */
+public final class ParallelScannerTransformer implements CodeTransformer {
+
+  /** Orders descriptions by start position; ties keep their partition and emission order. */
+  private static final Comparator<Description> SOURCE_ORDER =
+      Comparator.comparingInt(d -> d.position.getStartPosition());
+
+  private final ImmutableList<CodeTransformer> partitions;
+  private final ExecutorService executor;
+
+  private ParallelScannerTransformer(
+      ImmutableList<CodeTransformer> partitions, ExecutorService executor) {
+    this.partitions = partitions;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates a transformer that scans with the enabled checks of {@code scannerSupplier}, split
+   * round-robin into at most {@code parallelism} partitions.
+   */
+  public static ParallelScannerTransformer create(
+      ScannerSupplier scannerSupplier, int parallelism) {
+    checkArgument(parallelism > 1, "parallelism must be greater than 1, was %s", parallelism);
+    ImmutableList<BugCheckerInfo> enabled =
+        scannerSupplier.getEnabledChecks().stream()
+            .sorted(Comparator.comparing(BugCheckerInfo::canonicalName))
+            .collect(toImmutableList());
+    int partitionCount = Math.max(1, Math.min(parallelism, enabled.size()));
+    ImmutableList.Builder<CodeTransformer> partitions = ImmutableList.builder();
+    for (int i = 0; i < partitionCount; i++) {
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      for (int j = i; j < enabled.size(); j += partitionCount) {
+        names.add(enabled.get(j).canonicalName());
+      }
+      ImmutableSet<String> partition = names.build();
+      partitions.add(
+          ErrorProneScannerTransformer.create(
+              scannerSupplier.filter(c -> partition.contains(c.canonicalName())).get()));
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            partitionCount,
+            new ThreadFactoryBuilder()
+                .setNameFormat("error-prone-scanner-%d")
+                .setDaemon(true)
+                .build());
+    return new ParallelScannerTransformer(partitions.build(), executor);
+  }
+
+  @Override
+  public void apply(TreePath tree, Context context, DescriptionListener listener) {
+    // Context isn't thread-safe, so make sure the shared instances that checks lazily create are
+    // registered before any worker asks for them.
+    ErrorProneTimings.instance(context);
+    ResolutionCache.instance(context);
+    DataFlowCache.instance(context);
+    InferenceCache.instance(context);
+    TokenCache.instance(context);
+    SpeculativeCompiler.instance(context);
+    NullnessAnalysis.instance(context);
+    TrustingNullnessAnalysis.instance(context);
+    JavacProcessingEnvironment.instance(context);
+
+    List<Future<ImmutableList<Description>>> results = new ArrayList<>(partitions.size());
+    for (CodeTransformer partition : partitions) {
+      results.add(
+          executor.submit(
+              () -> {
+                List<Description> descriptions = new ArrayList<>();
+                partition.apply(tree, context, descriptions::add);
+                return ImmutableList.copyOf(descriptions);
+              }));
+    }
+
+    List<Description> descriptions = new ArrayList<>();
+    Throwable failure = null;
+    for (Future<ImmutableList<Description>> result : results) {
+      try {
+        descriptions.addAll(Uninterruptibles.getUninterruptibly(result));
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+    descriptions.sort(SOURCE_ORDER);
+    descriptions.forEach(listener::onDescribed);
+  }
+
+  /** Stops the worker threads; the transformer must not be used afterwards. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.of();
+  }
+}
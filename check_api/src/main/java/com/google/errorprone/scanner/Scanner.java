@@ -37,6 +37,7 @@ import com.sun.tools.javac.util.Name;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * TODO(eaftan): I'm worried about this performance of this code, specifically the part that handles
@@ -50,6 +51,9 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
 
   private SuppressionInfo currentSuppressions = SuppressionInfo.EMPTY;
 
+  /** The suppressions collected for the compilation unit being scanned, if any. */
+  @Nullable private SuppressionIndex suppressionIndex;
+
   /** Scan a tree from a position identified by a TreePath. */
   @Override
   public Void scan(TreePath path, VisitorState state) {
@@ -90,14 +94,40 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
     } else {
       Symbol sym = ASTHelpers.getDeclaredSymbol(tree);
       if (sym != null) {
+        Set<? extends Name> customSuppressionAnnotations =
+            suppressionIndex != null
+                ? suppressionIndex.customSuppressionAnnotations()
+                : getCustomSuppressionAnnotations(state);
         currentSuppressions =
-            currentSuppressions.withExtendedSuppressions(
-                sym, state, getCustomSuppressionAnnotations(state));
+            currentSuppressions.withExtendedSuppressions(sym, state, customSuppressionAnnotations);
       }
     }
     return prevSuppressionInfo;
   }
 
+  /**
+   * Returns the suppression signals in effect for the tree currently being scanned. A new instance
+   * is only produced when a tree adds suppression signals, so callers may cache results derived
+   * from it by identity.
+   */
+  SuppressionInfo currentSuppressions() {
+    return currentSuppressions;
+  }
+
+  /**
+   * Makes subsequent scans collect their suppressions into {@code index}, or stops collecting them
+   * if {@code index} is null.
+   */
+  void setSuppressionIndex(@Nullable SuppressionIndex index) {
+    this.suppressionIndex = index;
+  }
+
+  /** Returns the index set by {@link #setSuppressionIndex}, if any. */
+  @Nullable
+  SuppressionIndex suppressionIndex() {
+    return suppressionIndex;
+  }
+
   /**
    * Returns if this checker should be suppressed on the current tree path.
    *
@@ -107,11 +137,20 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
   protected SuppressedState isSuppressed(
       Suppressible suppressible, ErrorProneOptions errorProneOptions, VisitorState state) {
 
+    return isSuppressed(currentSuppressions, suppressible, errorProneOptions, state);
+  }
+
+  /** Returns if this checker should be suppressed under the given suppression signals. */
+  SuppressedState isSuppressed(
+      SuppressionInfo suppressions,
+      Suppressible suppressible,
+      ErrorProneOptions errorProneOptions,
+      VisitorState state) {
     boolean suppressedInGeneratedCode =
         errorProneOptions.disableWarningsInGeneratedCode()
             && severityMap().get(suppressible.canonicalName()) != SeverityLevel.ERROR;
 
-    return currentSuppressions.suppressedState(suppressible, suppressedInGeneratedCode, state);
+    return suppressions.suppressedState(suppressible, suppressedInGeneratedCode, state);
   }
 
   /**
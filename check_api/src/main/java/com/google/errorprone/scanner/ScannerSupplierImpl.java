@@ -31,6 +31,9 @@ import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * An implementation of a {@link ScannerSupplier}, abstracted as a set of all known {@link
@@ -60,47 +63,98 @@ class ScannerSupplierImpl extends ScannerSupplier implements Serializable {
     this.flags = flags;
   }
 
+  /**
+   * The constructor and shared instances of each checker class. A {@link ClassValue} keeps them
+   * with the class itself, so they are dropped along with the class loader that loaded it.
+   */
+  private static final ClassValue<CheckerInstances> INSTANCES =
+      new ClassValue<CheckerInstances>() {
+        @Override
+        protected CheckerInstances computeValue(Class<?> type) {
+          return new CheckerInstances(type.asSubclass(BugChecker.class));
+        }
+      };
+
   private BugChecker instantiateChecker(BugCheckerInfo checker) {
-    // Invoke BugChecker(ErrorProneFlags) constructor, if it exists.
-    @SuppressWarnings("unchecked")
-    /* getConstructors() actually returns Constructor<BugChecker>[], though the return type is
-     * Constructor<?>[]. See getConstructors() javadoc for more info. */
-    Optional<Constructor<BugChecker>> flagsConstructor =
-        Arrays.stream((Constructor<BugChecker>[]) checker.checkerClass().getConstructors())
-            .filter(
-                c -> Arrays.equals(c.getParameterTypes(), new Class<?>[] {ErrorProneFlags.class}))
-            .findFirst();
-    if (flagsConstructor.isPresent()) {
+    return INSTANCES.get(checker.checkerClass()).get(getFlags());
+  }
+
+  /**
+   * Instantiates a checker class, reusing one instance per set of flags if the class is annotated
+   * {@link BugChecker.Stateless}. Other checkers may record state while matching, so every scanner
+   * gets its own instance of them.
+   */
+  private static final class CheckerInstances {
+    private final Class<? extends BugChecker> checkerClass;
+    @Nullable private final Constructor<? extends BugChecker> flagsConstructor;
+    @Nullable private final ConcurrentMap<ErrorProneFlags, BugChecker> shared;
+
+    CheckerInstances(Class<? extends BugChecker> checkerClass) {
+      this.checkerClass = checkerClass;
+      this.flagsConstructor = flagsConstructor(checkerClass);
+      this.shared =
+          checkerClass.isAnnotationPresent(BugChecker.Stateless.class)
+              ? new ConcurrentHashMap<>()
+              : null;
+    }
+
+    BugChecker get(ErrorProneFlags flags) {
+      if (shared == null) {
+        return instantiate(flags);
+      }
+      // Checkers that don't take flags are the same whatever the flags are.
+      ErrorProneFlags key = flagsConstructor != null ? flags : ErrorProneFlags.empty();
+      return shared.computeIfAbsent(key, this::instantiate);
+    }
+
+    private BugChecker instantiate(ErrorProneFlags flags) {
+      // Invoke BugChecker(ErrorProneFlags) constructor, if it exists.
+      if (flagsConstructor != null) {
+        try {
+          return flagsConstructor.newInstance(flags);
+        } catch (ReflectiveOperationException e) {
+          throw new LinkageError("Could not instantiate BugChecker.", e);
+        }
+      }
+
+      // If no flags constructor, invoke default constructor.
       try {
-        return flagsConstructor.get().newInstance(getFlags());
+        return checkerClass.getConstructor().newInstance();
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new LinkageError(
+            String.format(
+                "Could not instantiate BugChecker %s: Are both the class and the zero-arg"
+                    + " constructor public?",
+                checkerClass),
+            e);
       } catch (ReflectiveOperationException e) {
         throw new LinkageError("Could not instantiate BugChecker.", e);
       }
     }
 
-    // If no flags constructor, invoke default constructor.
-    Class<? extends BugChecker> checkerClass = checker.checkerClass();
-    try {
-      return checkerClass.getConstructor().newInstance();
-    } catch (NoSuchMethodException | IllegalAccessException e) {
-      throw new LinkageError(
-          String.format(
-              "Could not instantiate BugChecker %s: Are both the class and the zero-arg"
-                  + " constructor public?",
-              checkerClass),
-          e);
-    } catch (ReflectiveOperationException e) {
-      throw new LinkageError("Could not instantiate BugChecker.", e);
+    @Nullable
+    private static Constructor<? extends BugChecker> flagsConstructor(
+        Class<? extends BugChecker> checkerClass) {
+      @SuppressWarnings("unchecked")
+      /* getConstructors() actually returns Constructor<BugChecker>[], though the return type is
+       * Constructor<?>[]. See getConstructors() javadoc for more info. */
+      Optional<Constructor<BugChecker>> flagsConstructor =
+          Arrays.stream((Constructor<BugChecker>[]) checkerClass.getConstructors())
+              .filter(
+                  c -> Arrays.equals(c.getParameterTypes(), new Class<?>[] {ErrorProneFlags.class}))
+              .findFirst();
+      return flagsConstructor.orElse(null);
     }
   }
 
+  /**
+   * Returns a scanner for the enabled checks. Each checker is only instantiated once the scanner
+   * reaches a tree it matches.
+   */
   @Override
   public ErrorProneScanner get() {
     return new ErrorProneScanner(
-        getEnabledChecks().stream()
-            .map(this::instantiateChecker)
-            .collect(ImmutableSet.toImmutableSet()),
-        severities);
+        getEnabledChecks().asList(), this::instantiateChecker, severities);
   }
 
   @Override
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.SuppressionInfo;
+import com.sun.tools.javac.util.Name;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The suppressions of a compilation unit, collected while the unit is scanned.
+ *
+ * <p>The custom suppression annotations are looked up once for the whole unit rather than at every
+ * declaration, and each distinct {@link SuppressionInfo} is resolved once into the set of
+ * suppressed checker indices. {@code SuppressionInfo}s are compared by value, so declarations that
+ * are suppressed in the same way share a single entry, and asking whether a checker is suppressed
+ * is a single bit test.
+ */
+final class SuppressionIndex {
+
+  private final ImmutableSet<Name> customSuppressionAnnotations;
+
+  private final Function<SuppressionInfo, BitSet> resolver;
+
+  /** The indices of the checkers suppressed under each distinct set of suppressions. */
+  private final Map<SuppressionInfo, BitSet> suppressed = new HashMap<>();
+
+  /**
+   * @param customSuppressionAnnotations the custom suppression annotations to look for
+   * @param resolver returns the indices of the checkers that are suppressed by a {@code
+   *     SuppressionInfo}
+   */
+  SuppressionIndex(
+      Set<? extends Name> customSuppressionAnnotations,
+      Function<SuppressionInfo, BitSet> resolver) {
+    this.customSuppressionAnnotations = ImmutableSet.copyOf(customSuppressionAnnotations);
+    this.resolver = resolver;
+  }
+
+  /** Returns the custom suppression annotations to look for in this compilation unit. */
+  ImmutableSet<Name> customSuppressionAnnotations() {
+    return customSuppressionAnnotations;
+  }
+
+  /** Returns the indices of the checkers suppressed under {@code suppressions}. */
+  BitSet suppressedCheckers(SuppressionInfo suppressions) {
+    return suppressed.computeIfAbsent(suppressions, resolver);
+  }
+}
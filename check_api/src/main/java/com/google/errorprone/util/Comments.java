@@ -28,6 +28,7 @@ import com.google.errorprone.util.Commented.Position;
 import com.google.errorprone.util.ErrorProneTokens.CommentWithTextAndPosition;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.NewClassTree;
@@ -53,11 +54,9 @@ public class Comments {
    * param1 /* c1 *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the
    * comment c2 to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node.
-   *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>The tokens of the call are sliced from those of the whole compilation unit, see {@link
+   * TokenCache}, so the source positions in the returned {@code Comment} objects are relative to
+   * the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       NewClassTree newClassTree, VisitorState state) {
@@ -71,11 +70,9 @@ public class Comments {
    * *&#47;, /* c2 *&#47; param2)} will attach the comment c1 to {@code param1} and the comment c2
    * to {@code param2}.
    *
-   * <p>Warning: this is expensive to compute as it involves re-tokenizing the source for this node
-   *
-   * <p>Currently this method will only tokenize the source code of the method call itself. However,
-   * the source positions in the returned {@code Comment} objects are adjusted so that they are
-   * relative to the whole file.
+   * <p>The tokens of the call are sliced from those of the whole compilation unit, see {@link
+   * TokenCache}, so the source positions in the returned {@code Comment} objects are relative to
+   * the whole file.
    */
   public static ImmutableList<Commented<ExpressionTree>> findCommentsForArguments(
       MethodInvocationTree methodInvocationTree, VisitorState state) {
@@ -127,23 +124,21 @@ public class Comments {
     }
 
     // The token position of the end of the method invocation
-    int invocationEnd = state.getEndPosition(tree) - invocationStart;
+    int invocationEnd = state.getEndPosition(tree);
 
     // Ignore comments nested inside arguments.
     TreeRangeSet<Integer> exclude = TreeRangeSet.create();
     arguments.forEach(
-        arg ->
-            exclude.add(
-                Range.closed(
-                    getStartPosition(arg) - invocationStart,
-                    state.getEndPosition(arg) - invocationStart)));
-
-    ErrorProneTokens errorProneTokens = new ErrorProneTokens(source.toString(), state.context);
-    ImmutableList<ErrorProneToken> tokens = errorProneTokens.getTokens();
-    LineMap lineMap = errorProneTokens.getLineMap();
-
-    ArgumentTracker argumentTracker =
-        new ArgumentTracker(arguments, invocationStart, state, lineMap);
+        arg -> exclude.add(Range.closed(getStartPosition(arg), state.getEndPosition(arg))));
+
+    // Positions are relative to the whole file, since the tokens are sliced from the unit's.
+    CompilationUnitTree unit = state.getPath().getCompilationUnit();
+    TokenCache tokenCache = TokenCache.instance(state.context);
+    List<ErrorProneToken> tokens =
+        tokenCache.getTokens(unit, sourceCode, invocationStart, endPosition.get(), invocationStart);
+    LineMap lineMap = tokenCache.getLineMap(unit, sourceCode);
+
+    ArgumentTracker argumentTracker = new ArgumentTracker(arguments, 0, state, lineMap);
     TokenTracker tokenTracker = new TokenTracker(lineMap);
 
     argumentTracker.advance();
@@ -25,15 +25,49 @@ import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.util.Name;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /** Wraps a javac {@link Token} to return comments in declaration order. */
 public class ErrorProneToken {
   private final int offset;
   private final Token token;
+  private final int pos;
+  private final int endPos;
+  // In javac's order, see comments()
+  @Nullable private final List<Comment> comments;
 
   ErrorProneToken(Token token, int offset) {
+    this(token, offset, token.pos, token.endPos, token.comments);
+  }
+
+  private ErrorProneToken(
+      Token token, int offset, int pos, int endPos, @Nullable List<Comment> comments) {
     this.token = token;
     this.offset = offset;
+    this.pos = pos;
+    this.endPos = endPos;
+    this.comments = comments;
+  }
+
+  /** Returns this token with its positions offset by {@code offset} more. */
+  ErrorProneToken withOffset(int offset) {
+    return offset == 0
+        ? this
+        : new ErrorProneToken(token, this.offset + offset, pos, endPos, comments);
+  }
+
+  /**
+   * Returns this token with only the given comments, which are in javac's order, and with its
+   * positions replaced by {@code pos} and {@code endPos}.
+   */
+  ErrorProneToken withComments(int pos, int endPos, @Nullable List<Comment> comments) {
+    return new ErrorProneToken(token, offset, pos, endPos, comments);
+  }
+
+  /** Returns the comments of this token as javac stores them, which may be null. */
+  @Nullable
+  List<Comment> rawComments() {
+    return comments;
   }
 
   public TokenKind kind() {
@@ -41,24 +75,24 @@ public class ErrorProneToken {
   }
 
   public int pos() {
-    return offset + token.pos;
+    return offset + pos;
   }
 
   public int endPos() {
-    return offset + token.endPos;
+    return offset + endPos;
   }
 
   public List<Comment> comments() {
     // javac stores the comments in reverse declaration order because appending to linked
     // lists is expensive
-    if (token.comments == null) {
+    if (comments == null) {
       return Collections.emptyList();
     }
     if (offset == 0) {
-      return Lists.reverse(token.comments);
+      return Lists.reverse(comments);
     }
     return Lists.reverse(
-        token.comments.stream().map(c -> new OffsetComment(c, offset)).collect(toList()));
+        comments.stream().map(c -> new OffsetComment(c, offset)).collect(toList()));
   }
 
   public Name name() {
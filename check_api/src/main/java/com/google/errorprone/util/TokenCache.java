@@ -0,0 +1,303 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.util.ErrorProneTokens.CommentWithTextAndPosition;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Position.LineMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * The tokens of the compilation unit being scanned, lexed once and shared by every check.
+ *
+ * <p>Queries for the tokens of a range of the source are answered by binary search over the token
+ * array of the whole unit, and return the same tokens and comments as lexing just that range would.
+ * The rare ranges that start or end in the middle of a token or comment are lexed on their own.
+ */
+public final class TokenCache {
+
+  private static final Context.Key<TokenCache> tokenCacheKey = new Context.Key<>();
+
+  public static TokenCache instance(Context context) {
+    TokenCache instance = context.get(tokenCacheKey);
+    if (instance == null) {
+      instance = new TokenCache(context);
+    }
+    return instance;
+  }
+
+  private final Context context;
+
+  /**
+   * The tokens of the most recently lexed unit. Units are scanned one at a time, so there is no
+   * need to keep more than one.
+   */
+  @Nullable private volatile UnitTokens current;
+
+  private final LongAdder lexedUnits = new LongAdder();
+  private final LongAdder lexedRanges = new LongAdder();
+
+  private TokenCache(Context context) {
+    context.put(tokenCacheKey, this);
+    this.context = context;
+  }
+
+  /**
+   * Returns the tokens of {@code source} between {@code start} and {@code end}, including comments,
+   * with their positions offset by {@code offset}. The last token is always an {@code EOF} token
+   * positioned at {@code end}.
+   *
+   * @param source the source of {@code unit}
+   */
+  public ImmutableList<ErrorProneToken> getTokens(
+      CompilationUnitTree unit, CharSequence source, int start, int end, int offset) {
+    ImmutableList<ErrorProneToken> tokens =
+        unitTokens(unit, source).slice(start, end, offset - start);
+    if (tokens == null) {
+      lexedRanges.increment();
+      tokens = lexRange(source, start, end, offset - start);
+    }
+    return tokens;
+  }
+
+  /**
+   * Lexes just the given range. Everything before it is blanked out rather than cut off, so that
+   * the positions of comments, which can't be offset, are still relative to the whole file.
+   */
+  private ImmutableList<ErrorProneToken> lexRange(
+      CharSequence source, int start, int end, int offset) {
+    StringBuilder range = new StringBuilder(end);
+    for (int i = 0; i < start; i++) {
+      range.append(' ');
+    }
+    range.append(source, start, end);
+    ImmutableList.Builder<ErrorProneToken> tokens = ImmutableList.builder();
+    for (ErrorProneToken token : ErrorProneTokens.getTokens(range.toString(), context)) {
+      tokens.add(token.withOffset(offset));
+    }
+    return tokens.build();
+  }
+
+  /**
+   * Returns whether there is a comment, or part of one, between {@code start} and {@code end}.
+   *
+   * <p>The positions of the comments of the unit are indexed once, so this is a binary search that
+   * doesn't allocate.
+   *
+   * @param source the source of {@code unit}
+   */
+  public boolean containsComment(
+      CompilationUnitTree unit, CharSequence source, int start, int end) {
+    return unitTokens(unit, source).containsComment(start, end);
+  }
+
+  /** Returns the line map of {@code unit}. */
+  public LineMap getLineMap(CompilationUnitTree unit, CharSequence source) {
+    return unitTokens(unit, source).lineMap;
+  }
+
+  private UnitTokens unitTokens(CompilationUnitTree unit, CharSequence source) {
+    UnitTokens tokens = current;
+    if (tokens == null || tokens.unit != unit) {
+      synchronized (this) {
+        tokens = current;
+        if (tokens == null || tokens.unit != unit) {
+          lexedUnits.increment();
+          tokens = new UnitTokens(unit, new ErrorProneTokens(source.toString(), context));
+          current = tokens;
+        }
+      }
+    }
+    return tokens;
+  }
+
+  /** Drops the tokens of the last unit; called once a compilation unit has been scanned. */
+  public void clear() {
+    current = null;
+  }
+
+  /** Returns the number of compilation units that were lexed. */
+  public long lexedUnits() {
+    return lexedUnits.sum();
+  }
+
+  /** Returns the number of ranges that could not be sliced from their unit and were lexed alone. */
+  public long lexedRanges() {
+    return lexedRanges.sum();
+  }
+
+  /** The tokens of a compilation unit, ending with {@code EOF}, and their positions. */
+  private static final class UnitTokens {
+    final CompilationUnitTree unit;
+    final LineMap lineMap;
+    final ErrorProneToken[] tokens;
+    final int[] starts;
+    final int[] ends;
+
+    /**
+     * The start and end positions of the comments of the unit, in order; computed the first time a
+     * range is checked for comments.
+     */
+    @Nullable private volatile int[] commentPositions;
+
+    UnitTokens(CompilationUnitTree unit, ErrorProneTokens lexer) {
+      this.unit = unit;
+      this.tokens = lexer.getTokens().toArray(new ErrorProneToken[0]);
+      this.lineMap = lexer.getLineMap();
+      this.starts = new int[tokens.length];
+      this.ends = new int[tokens.length];
+      for (int i = 0; i < tokens.length; i++) {
+        starts[i] = tokens[i].pos();
+        ends[i] = tokens[i].endPos();
+      }
+    }
+
+    boolean containsComment(int start, int end) {
+      int[] positions = commentPositions;
+      if (positions == null) {
+        positions = indexComments(tokens);
+        commentPositions = positions;
+      }
+      // Comments don't overlap, so an odd index is the end of the comment that the range starts in.
+      int i = firstAtOrAfter(positions, start + 1, 0, positions.length);
+      return i < positions.length && (i % 2 == 1 || positions[i] < end);
+    }
+
+    private static int[] indexComments(ErrorProneToken[] tokens) {
+      int count = 0;
+      for (ErrorProneToken token : tokens) {
+        if (token.rawComments() != null) {
+          count += token.rawComments().size();
+        }
+      }
+      long[] comments = new long[count];
+      int i = 0;
+      for (ErrorProneToken token : tokens) {
+        if (token.rawComments() != null) {
+          for (Comment c : token.rawComments()) {
+            CommentWithTextAndPosition comment = (CommentWithTextAndPosition) c;
+            comments[i++] = ((long) comment.getPos() << 32) | comment.getEndPos();
+          }
+        }
+      }
+      // The comments of a token are in reverse order.
+      Arrays.sort(comments);
+      int[] positions = new int[2 * count];
+      for (i = 0; i < count; i++) {
+        positions[2 * i] = (int) (comments[i] >>> 32);
+        positions[2 * i + 1] = (int) comments[i];
+      }
+      return positions;
+    }
+
+    /**
+     * Returns the tokens between {@code start} and {@code end}, offset by {@code offset}, or {@code
+     * null} if the range cuts through a token or comment.
+     */
+    @Nullable
+    ImmutableList<ErrorProneToken> slice(int start, int end, int offset) {
+      int eof = tokens.length - 1;
+      if (start < 0 || end < start || end > ends[eof]) {
+        return null;
+      }
+      // The first token starting in the range, and the first token (or EOF) ending after it.
+      int first = firstAtOrAfter(starts, start, 0, eof);
+      int last = firstAtOrAfter(ends, end + 1, first, eof);
+      if ((first > 0 && ends[first - 1] > start) || (last < eof && starts[last] < end)) {
+        return null;
+      }
+      ImmutableList.Builder<ErrorProneToken> slice = ImmutableList.builder();
+      for (int i = first; i < last; i++) {
+        ErrorProneToken token = tokens[i];
+        if (i == first) {
+          List<Comment> comments = commentsWithin(token, start, Integer.MAX_VALUE);
+          if (comments == NOT_SLICEABLE) {
+            return null;
+          }
+          if (comments != token.rawComments()) {
+            token = token.withComments(token.pos(), token.endPos(), comments);
+          }
+        }
+        slice.add(token.withOffset(offset));
+      }
+      // Lexing the range alone would attach any comments after its last token to EOF.
+      List<Comment> trailing = commentsWithin(tokens[last], start, end);
+      if (trailing == NOT_SLICEABLE) {
+        return null;
+      }
+      slice.add(tokens[eof].withComments(end, end, trailing).withOffset(offset));
+      return slice.build();
+    }
+
+    private static final List<Comment> NOT_SLICEABLE = new ArrayList<>();
+
+    /**
+     * Returns the comments of {@code token} that lie within {@code [start, end]}, the token's own
+     * list if that is all of them, or {@link #NOT_SLICEABLE} if a comment crosses either bound.
+     */
+    @Nullable
+    private static List<Comment> commentsWithin(ErrorProneToken token, int start, int end) {
+      List<Comment> comments = token.rawComments();
+      if (comments == null) {
+        return null;
+      }
+      boolean all = true;
+      for (Comment c : comments) {
+        CommentWithTextAndPosition comment = (CommentWithTextAndPosition) c;
+        if (comment.getPos() < start || comment.getEndPos() > end) {
+          if (comment.getEndPos() > start && comment.getPos() < end) {
+            return NOT_SLICEABLE;
+          }
+          all = false;
+        }
+      }
+      if (all) {
+        return comments;
+      }
+      List<Comment> within = new ArrayList<>();
+      for (Comment c : comments) {
+        CommentWithTextAndPosition comment = (CommentWithTextAndPosition) c;
+        if (comment.getPos() >= start && comment.getEndPos() <= end) {
+          within.add(comment);
+        }
+      }
+      return within.isEmpty() ? null : within;
+    }
+
+    /** Returns the first index in {@code [from, to]} whose position is at least {@code pos}. */
+    private static int firstAtOrAfter(int[] positions, int pos, int from, int to) {
+      int lo = from;
+      int hi = to;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (positions[mid] < pos) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+  }
+}
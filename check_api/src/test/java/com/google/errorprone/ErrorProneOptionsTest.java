@@ -190,6 +190,70 @@ public class ErrorProneOptionsTest {
     assertThat(excludedPattern.matcher("foo/other_output/subdir/Gen.cpp").matches()).isFalse();
   }
 
+  @Test
+  public void recognizesParallelism() {
+    ErrorProneOptions options = ErrorProneOptions.processArgs(new String[] {"-XepParallelism:8"});
+    assertThat(options.parallelism()).isEqualTo(8);
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.parallelism()).isEqualTo(1);
+  }
+
+  @Test
+  public void throwsExceptionWithBadParallelism() {
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepParallelism:0"}));
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepParallelism:many"}));
+  }
+
+  @Test
+  public void recognizesTimingsOutput() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(new String[] {"-XepTimingsOutput:/tmp/timings.csv"});
+    assertThat(options.timingsOutput()).isEqualTo("/tmp/timings.csv");
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.timingsOutput()).isNull();
+  }
+
+  @Test
+  public void throwsExceptionWithEmptyTimingsOutput() {
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepTimingsOutput:"}));
+  }
+
+  @Test
+  public void recognizesDataFlowCacheSize() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(new String[] {"-XepDataFlowCacheSize:8"});
+    assertThat(options.dataFlowCacheSize()).isEqualTo(8);
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.dataFlowCacheSize())
+        .isEqualTo(ErrorProneOptions.DEFAULT_DATAFLOW_CACHE_SIZE);
+  }
+
+  @Test
+  public void throwsExceptionWithBadDataFlowCacheSize() {
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepDataFlowCacheSize:0"}));
+  }
+
+  @Test
+  public void recognizesResultCache() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(new String[] {"-XepResultCache:/tmp/ep-cache"});
+    assertThat(options.resultCache()).isEqualTo("/tmp/ep-cache");
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.resultCache()).isNull();
+  }
+
   @Test
   public void recognizesPatch() {
     ErrorProneOptions options =
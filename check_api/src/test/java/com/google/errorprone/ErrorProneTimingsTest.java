@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.matchers.Suppressible;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ErrorProneTimings}. */
+@RunWith(JUnit4.class)
+public class ErrorProneTimingsTest {
+
+  private static Suppressible check(String name) {
+    return new Suppressible() {
+      @Override
+      public Set<String> allNames() {
+        return ImmutableSet.of(name);
+      }
+
+      @Override
+      public String canonicalName() {
+        return name;
+      }
+
+      @Override
+      public boolean supportsSuppressWarnings() {
+        return true;
+      }
+
+      @Override
+      public Set<Class<? extends Annotation>> customSuppressionAnnotations() {
+        return ImmutableSet.of();
+      }
+
+      @Override
+      public boolean suppressedByAnyOf(Set<Name> annotations, VisitorState s) {
+        return false;
+      }
+    };
+  }
+
+  @Test
+  public void recordsInvocations() throws Exception {
+    ErrorProneTimings timings = ErrorProneTimings.instance(new Context());
+    ErrorProneTimings.Timer timer = timings.timer(check("Foo"));
+    assertThat(timings.timer(check("Foo"))).isSameInstanceAs(timer);
+
+    timer.record(System.nanoTime(), timings.threadAllocatedBytes());
+    try (AutoCloseable unused = timings.span(check("Foo"))) {
+      // nothing
+    }
+
+    assertThat(timer.count()).isEqualTo(2);
+    assertThat(timer.maxNanos()).isAtMost(timer.totalNanos());
+    assertThat(timer.allocatedBytes()).isEqualTo(0);
+    long histogramTotal = 0;
+    for (long count : timer.histogram()) {
+      histogramTotal += count;
+    }
+    assertThat(histogramTotal).isEqualTo(2);
+    assertThat(timings.timings()).containsKey("Foo");
+  }
+
+  @Test
+  public void countsResolutionsAgainstAttributedTimer() {
+    ErrorProneTimings timings = ErrorProneTimings.instance(new Context());
+    ErrorProneTimings.Timer timer = timings.timer(check("Foo"));
+
+    timings.recordResolution(/* miss= */ true);
+    assertThat(timings.attribute(timer)).isNull();
+    timings.recordResolution(/* miss= */ true);
+    timings.recordResolution(/* miss= */ false);
+    assertThat(timings.attribute(null)).isSameInstanceAs(timer);
+    timings.recordResolution(/* miss= */ false);
+
+    assertThat(timer.resolutions()).isEqualTo(2);
+    assertThat(timer.resolutionMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void writesCsvAndJson() throws Exception {
+    Context context = new Context();
+    context.put(
+        ErrorProneOptions.class,
+        ErrorProneOptions.processArgs(new String[] {"-XepTimingsOutput:timings.json"}));
+    ErrorProneTimings timings = ErrorProneTimings.instance(context);
+    timings.timer(check("Foo")).record(System.nanoTime(), timings.threadAllocatedBytes());
+    timings.timer(check("Bar"));
+
+    StringBuilder csv = new StringBuilder();
+    timings.writeCsv(csv);
+    List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(csv);
+    assertThat(lines).hasSize(3);
+    assertThat(lines.get(0)).startsWith("check,count,total_nanos,max_nanos,allocated_bytes,");
+    assertThat(lines.get(1)).startsWith("Bar,0,0,0,0,0,0,");
+    assertThat(lines.get(2)).startsWith("Foo,1,");
+    assertThat(Splitter.on(',').splitToList(lines.get(2)))
+        .hasSize(7 + ErrorProneTimings.HISTOGRAM_BUCKETS);
+
+    StringBuilder json = new StringBuilder();
+    timings.writeJson(json);
+    assertThat(json.toString()).contains("{\"check\": \"Bar\", \"count\": 0,");
+    assertThat(json.toString()).contains("{\"check\": \"Foo\", \"count\": 1,");
+  }
+}
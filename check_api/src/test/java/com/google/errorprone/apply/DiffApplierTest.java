@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DiffApplier}. */
+@RunWith(JUnit4.class)
+public class DiffApplierTest {
+
+  private static final int FILES = 200;
+
+  private final Map<String, String> written = new ConcurrentHashMap<>();
+
+  private final FileSource source = path -> new SourceFile(path, "class Test {}");
+
+  private final FileDestination destination =
+      new FileDestination() {
+        @Override
+        public void writeFile(SourceFile file) {
+          written.put(file.getPath(), file.getSourceText());
+        }
+
+        @Override
+        public void flush() {}
+      };
+
+  private static Diff diff(String fileName, Consumer<SourceFile> apply) {
+    return new Diff() {
+      @Override
+      public String getRelevantFileName() {
+        return fileName;
+      }
+
+      @Override
+      public void applyDifferences(SourceFile sourceFile) {
+        apply.accept(sourceFile);
+      }
+    };
+  }
+
+  @Test
+  public void appliesDiffsConcurrently() {
+    DiffApplier applier = new DiffApplier(4, source, destination);
+    applier.startAsync().awaitRunning();
+    for (int i = 0; i < FILES; i++) {
+      applier.put(diff("Test" + i + ".java", f -> f.replaceChars(0, 5, "final class")));
+    }
+    applier.stopAsync().awaitTerminated();
+
+    assertThat(applier.failures()).isEmpty();
+    assertThat(written).hasSize(FILES);
+    assertThat(ImmutableSet.copyOf(written.values())).containsExactly("final class Test {}");
+  }
+
+  @Test
+  public void reportsFailedDiffs() {
+    DiffApplier applier = new DiffApplier(4, source, destination);
+    applier.startAsync().awaitRunning();
+    for (int i = 0; i < FILES; i++) {
+      String fileName = "Test" + i + ".java";
+      switch (i) {
+        case 17:
+          applier.put(
+              diff(
+                  fileName,
+                  f -> {
+                    throw new DiffNotApplicableException("overlapping replacements");
+                  }));
+          break;
+        case 42:
+          // Not a DiffNotApplicableException, but must still be reported.
+          applier.put(diff(fileName, f -> f.replaceChars(100, 200, "")));
+          break;
+        default:
+          applier.put(diff(fileName, f -> {}));
+          break;
+      }
+    }
+    applier.stopAsync().awaitTerminated();
+
+    assertThat(applier.failures().keySet()).containsExactly("Test17.java", "Test42.java");
+    assertThat(applier.failures().get("Test17.java"))
+        .isInstanceOf(DiffNotApplicableException.class);
+    assertThat(applier.failures().get("Test42.java")).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThat(written).hasSize(FILES - 2);
+  }
+
+  @Test
+  public void reportsUnreadableFiles() {
+    DiffApplier applier =
+        new DiffApplier(
+            4,
+            path -> {
+              throw new IOException("cannot read " + path);
+            },
+            destination);
+    applier.startAsync().awaitRunning();
+    applier.put(diff("Test.java", f -> {}));
+    applier.stopAsync().awaitTerminated();
+
+    assertThat(applier.failures()).containsKey("Test.java");
+    assertThat(applier.failures().get("Test.java")).isInstanceOf(IOException.class);
+    assertThat(written).isEmpty();
+  }
+}
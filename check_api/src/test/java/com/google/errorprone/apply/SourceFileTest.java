@@ -18,6 +18,8 @@ package com.google.errorprone.apply;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.Before;
@@ -78,6 +80,18 @@ public class SourceFileTest {
         .isEqualTo("// Sasquatch ipsum dolor sit amet, consectetur adipisicing elit, sed do");
   }
 
+  @Test
+  public void applyReplacements() {
+    Replacements replacements =
+        new Replacements()
+            .add(Replacement.create(3, 8, "Sasquatch"))
+            .add(Replacement.create(3, 3, "> "))
+            .add(Replacement.create(SOURCE_TEXT.length() - 8, SOURCE_TEXT.length() - 2, ""));
+    sourceFile.applyReplacements(replacements.ascending());
+    assertThat(sourceFile.getSourceText())
+        .isEqualTo(SOURCE_TEXT.replace("Lorem", "> Sasquatch").replace("laborum", "l"));
+  }
+
   @Test
   public void replaceLines() {
     sourceFile.replaceLines(Arrays.asList("Line1", "Line2"));
@@ -97,6 +97,21 @@ public class ReplacementsTest {
     replacements.add(Replacement.create(42, 43, "hello"));
   }
 
+  @Test
+  public void ascending() {
+    Replacements replacements =
+        new Replacements()
+            .add(Replacement.create(10, 12, "b"))
+            .add(Replacement.create(0, 1, "a"))
+            .add(Replacement.create(10, 10, "c"));
+    assertThat(replacements.ascending())
+        .containsExactly(
+            Replacement.create(0, 1, "a"),
+            Replacement.create(10, 10, "c"),
+            Replacement.create(10, 12, "b"))
+        .inOrder();
+  }
+
   @Test
   public void coalesceExistingFirst() {
     // A replacement of an empty region represents an insertion.
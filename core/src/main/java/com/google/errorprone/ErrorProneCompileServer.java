@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * A long-lived Error Prone compiler that serves a stream of compilation requests, so that repeated
+ * builds don't pay for JVM startup, loading the checkers and JIT warm-up on every invocation.
+ *
+ * <p>Requests are read from standard input, or with {@code --port=<port>} from connections to that
+ * port on the loopback interface. A request is a list of javac and Error Prone command-line
+ * arguments, one per line, terminated by an empty line; {@code @argfiles} are not expanded. The
+ * response is a header line holding the exit code, the time the compilation took in milliseconds
+ * and the length in bytes of the compiler output, followed by that output in UTF-8.
+ *
+ * <p>Each request is compiled by its own javac task, with its own {@link
+ * com.sun.tools.javac.util.Context}. What carries over from one request to the next is the checker
+ * registry, the checker instances that are safe to share, and whatever the checkers load
+ * statically. Requests are served one at a time.
+ *
+ * <p>After each request, the server shuts down if the heap is still fuller than {@code
+ * --max-heap-fraction} (0.9 by default) after a garbage collection, so that clients can start a
+ * fresh server instead of running into an {@link OutOfMemoryError} halfway through a compilation.
+ */
+public final class ErrorProneCompileServer {
+
+  // The exit codes of javac's command-line compiler.
+  static final int EXIT_OK = 0;
+  static final int EXIT_ERROR = 1;
+  static final int EXIT_CMDERR = 2;
+  static final int EXIT_ABNORMAL = 4;
+
+  private static final double DEFAULT_MAX_HEAP_FRACTION = 0.9;
+
+  private final BaseErrorProneJavaCompiler compiler;
+  private final double maxHeapFraction;
+  private final PrintStream log;
+  private int requests;
+
+  ErrorProneCompileServer(
+      BaseErrorProneJavaCompiler compiler, double maxHeapFraction, PrintStream log) {
+    this.compiler = compiler;
+    this.maxHeapFraction = maxHeapFraction;
+    this.log = log;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = -1;
+    double maxHeapFraction = DEFAULT_MAX_HEAP_FRACTION;
+    for (String arg : args) {
+      if (arg.startsWith("--port=")) {
+        port = Integer.parseInt(arg.substring("--port=".length()));
+      } else if (arg.startsWith("--max-heap-fraction=")) {
+        maxHeapFraction = Double.parseDouble(arg.substring("--max-heap-fraction=".length()));
+      } else {
+        System.err.println(
+            "Usage: ErrorProneCompileServer [--port=<port>] [--max-heap-fraction=<fraction>]");
+        System.exit(EXIT_CMDERR);
+      }
+    }
+    ErrorProneCompileServer server =
+        new ErrorProneCompileServer(new ErrorProneJavaCompiler(), maxHeapFraction, System.err);
+    if (port < 0) {
+      server.serve(System.in, System.out);
+      return;
+    }
+    try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+      boolean running = true;
+      while (running) {
+        try (Socket connection = serverSocket.accept()) {
+          running = server.serve(connection.getInputStream(), connection.getOutputStream());
+        }
+      }
+    }
+  }
+
+  /**
+   * Serves the requests read from {@code in} until it is exhausted.
+   *
+   * @return false if the server is running out of memory and should shut down
+   */
+  boolean serve(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    List<String> request;
+    while ((request = readRequest(reader)) != null) {
+      long startNanos = System.nanoTime();
+      StringWriter output = new StringWriter();
+      int exitCode;
+      try (PrintWriter writer = new PrintWriter(output)) {
+        exitCode = compile(request, writer);
+      }
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      byte[] bytes = output.toString().getBytes(UTF_8);
+      out.write(String.format("%d %d %d\n", exitCode, millis, bytes.length).getBytes(UTF_8));
+      out.write(bytes);
+      out.flush();
+      requests++;
+      log.printf("Request %d: exit code %d in %d ms%n", requests, exitCode, millis);
+      if (heapExhausted()) {
+        log.printf(
+            "Shutting down: heap is over %d%% full after %d requests%n",
+            Math.round(maxHeapFraction * 100), requests);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Reads the arguments of the next request, or returns null at the end of the input. */
+  @Nullable
+  private static List<String> readRequest(BufferedReader reader) throws IOException {
+    List<String> args = new ArrayList<>();
+    String line;
+    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+      args.add(line);
+    }
+    return line == null && args.isEmpty() ? null : args;
+  }
+
+  /** Compiles one request in a fresh javac task, writing diagnostics to {@code out}. */
+  private int compile(List<String> args, PrintWriter out) {
+    List<String> options = new ArrayList<>();
+    List<File> files = new ArrayList<>();
+    for (int i = 0; i < args.size(); i++) {
+      String arg = args.get(i);
+      int arity = compiler.isSupportedOption(arg);
+      if (arity < 0 && arg.endsWith(".java")) {
+        files.add(new File(arg));
+        continue;
+      }
+      options.add(arg);
+      for (int j = 0; j < arity && i + 1 < args.size(); j++) {
+        options.add(args.get(++i));
+      }
+    }
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(/* diagnosticListener= */ null, null, null)) {
+      boolean ok =
+          compiler
+              .getTask(
+                  out,
+                  fileManager,
+                  /* diagnosticListener= */ null,
+                  options,
+                  /* classes= */ null,
+                  fileManager.getJavaFileObjectsFromFiles(files))
+              .call();
+      return ok ? EXIT_OK : EXIT_ERROR;
+    } catch (InvalidCommandLineOptionException | IllegalArgumentException e) {
+      out.println(e.getMessage());
+      return EXIT_CMDERR;
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace(out);
+      return EXIT_ABNORMAL;
+    }
+  }
+
+  /** Returns true if the heap stays fuller than the limit even after a garbage collection. */
+  private boolean heapExhausted() {
+    if (heapFraction() <= maxHeapFraction) {
+      return false;
+    }
+    System.gc();
+    return heapFraction() > maxHeapFraction;
+  }
+
+  private static double heapFraction() {
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    return heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0;
+  }
+}
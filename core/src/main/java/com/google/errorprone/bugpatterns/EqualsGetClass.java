@@ -27,14 +27,16 @@ import static com.google.errorprone.util.ASTHelpers.getReceiver;
 import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 import static com.google.errorprone.util.ASTHelpers.getSymbol;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.StandardTags;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.sun.source.tree.BinaryTree;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ClassTree;
@@ -67,11 +69,16 @@ import javax.lang.model.element.Modifier;
     summary = "Prefer instanceof to getClass when implementing Object#equals.",
     severity = WARNING,
     tags = StandardTags.FRAGILE_CODE)
-public final class EqualsGetClass extends BugChecker implements MethodInvocationTreeMatcher {
+public final class EqualsGetClass extends BugChecker implements IndexedMethodInvocationTreeMatcher {
 
-  private static final Matcher<ExpressionTree> GET_CLASS =
+  private static final MethodMatcher GET_CLASS =
       instanceMethod().onDescendantOf("java.lang.Object").named("getClass");
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(GET_CLASS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!GET_CLASS.matches(tree, state)) {
@@ -20,14 +20,16 @@ import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.matchers.Matchers.anyOf;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
@@ -43,12 +45,21 @@ import java.util.concurrent.ConcurrentHashMap;
     name = "HashtableContains",
     summary = "contains() is a legacy method that is equivalent to containsValue()",
     severity = ERROR)
-public class HashtableContains extends BugChecker implements MethodInvocationTreeMatcher {
+public class HashtableContains extends BugChecker implements IndexedMethodInvocationTreeMatcher {
+
+  private static final MethodMatcher HASHTABLE_CONTAINS =
+      instanceMethod().onDescendantOf(Hashtable.class.getName()).named("contains");
+
+  private static final MethodMatcher CONCURRENT_HASH_MAP_CONTAINS =
+      instanceMethod().onDescendantOf(ConcurrentHashMap.class.getName()).named("contains");
 
   static final Matcher<ExpressionTree> CONTAINS_MATCHER =
-      anyOf(
-          instanceMethod().onDescendantOf(Hashtable.class.getName()).named("contains"),
-          instanceMethod().onDescendantOf(ConcurrentHashMap.class.getName()).named("contains"));
+      anyOf(HASHTABLE_CONTAINS, CONCURRENT_HASH_MAP_CONTAINS);
+
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(HASHTABLE_CONTAINS, CONCURRENT_HASH_MAP_CONTAINS);
+  }
 
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
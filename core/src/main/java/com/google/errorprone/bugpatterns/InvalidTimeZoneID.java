@@ -18,16 +18,16 @@ package com.google.errorprone.bugpatterns;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.util.ASTHelpers;
-import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
@@ -39,11 +39,11 @@ import java.util.regex.Pattern;
         "Invalid time zone identifier. TimeZone.getTimeZone(String) will silently return GMT"
             + " instead of the time zone you intended.",
     severity = ERROR)
-public class InvalidTimeZoneID extends BugChecker implements MethodInvocationTreeMatcher {
+public class InvalidTimeZoneID extends BugChecker implements IndexedMethodInvocationTreeMatcher {
   private static final ImmutableSet<String> AVAILABLE_IDS =
       ImmutableSet.copyOf(TimeZone.getAvailableIDs());
 
-  private static final Matcher<ExpressionTree> METHOD_MATCHER =
+  private static final MethodMatcher METHOD_MATCHER =
       MethodMatchers.staticMethod()
           .onClass("java.util.TimeZone")
           .named("getTimeZone")
@@ -58,6 +58,11 @@ public class InvalidTimeZoneID extends BugChecker implements MethodInvocationTre
   private static final Pattern CUSTOM_ID_PATTERN =
       Pattern.compile("GMT[+\\-]" + HOURS_PATTERN + ":?" + MINUTES_PATTERN);
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(METHOD_MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, final VisitorState state) {
     if (!METHOD_MATCHER.matches(tree, state)) {
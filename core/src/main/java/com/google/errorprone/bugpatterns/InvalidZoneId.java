@@ -19,14 +19,14 @@ package com.google.errorprone.bugpatterns;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.util.ASTHelpers;
-import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import java.time.DateTimeException;
 import java.time.ZoneId;
@@ -40,14 +40,19 @@ import java.time.ZoneId;
     name = "InvalidZoneId",
     summary = "Invalid zone identifier. ZoneId.of(String) will throw exception at runtime.",
     severity = ERROR)
-public class InvalidZoneId extends BugChecker implements MethodInvocationTreeMatcher {
+public class InvalidZoneId extends BugChecker implements IndexedMethodInvocationTreeMatcher {
 
-  private static final Matcher<ExpressionTree> METHOD_MATCHER =
+  private static final MethodMatcher METHOD_MATCHER =
       MethodMatchers.staticMethod()
           .onClass("java.time.ZoneId")
           .named("of")
           .withParameters("java.lang.String");
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(METHOD_MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, final VisitorState state) {
     if (!METHOD_MATCHER.matches(tree, state)) {
@@ -22,13 +22,15 @@ import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
 import static com.google.errorprone.util.ASTHelpers.getReceiver;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.ExpressionStatementTree;
 import com.sun.source.tree.ExpressionTree;
@@ -51,13 +53,19 @@ import com.sun.source.util.TreeScanner;
         "Calls to Lock#lock should be immediately followed by a try block which releases the lock.",
     severity = WARNING,
     tags = FRAGILE_CODE)
-public final class LockNotBeforeTry extends BugChecker implements MethodInvocationTreeMatcher {
+public final class LockNotBeforeTry extends BugChecker
+    implements IndexedMethodInvocationTreeMatcher {
 
-  private static final Matcher<ExpressionTree> LOCK =
+  private static final MethodMatcher LOCK =
       instanceMethod().onDescendantOf("java.util.concurrent.locks.Lock").named("lock");
   private static final Matcher<ExpressionTree> UNLOCK =
       instanceMethod().onDescendantOf("java.util.concurrent.locks.Lock").named("unlock");
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(LOCK);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!LOCK.matches(tree, state)) {
@@ -21,12 +21,13 @@ import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
 import static com.google.errorprone.util.ASTHelpers.getType;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.tools.javac.code.Symtab;
@@ -39,10 +40,15 @@ import java.util.List;
     summary =
         "The first argument to nCopies is the number of copies, and the second is the item to copy",
     severity = ERROR)
-public class NCopiesOfChar extends BugChecker implements MethodInvocationTreeMatcher {
-  private static final Matcher<ExpressionTree> MATCHER =
+public class NCopiesOfChar extends BugChecker implements IndexedMethodInvocationTreeMatcher {
+  private static final MethodMatcher MATCHER =
       staticMethod().onClass("java.util.Collections").named("nCopies");
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
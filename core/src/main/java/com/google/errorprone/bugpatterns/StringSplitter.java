@@ -25,13 +25,14 @@ import static com.google.errorprone.util.ASTHelpers.getStartPosition;
 import static com.google.errorprone.util.Regexes.convertRegexToLiteral;
 import static java.lang.String.format;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.util.ASTHelpers;
 import com.google.errorprone.util.SourceCodeEscapers;
 import com.sun.source.tree.ArrayAccessTree;
@@ -56,14 +57,19 @@ import java.util.Optional;
     name = "StringSplitter",
     summary = "String.split(String) has surprising behavior",
     severity = WARNING)
-public class StringSplitter extends BugChecker implements MethodInvocationTreeMatcher {
+public class StringSplitter extends BugChecker implements IndexedMethodInvocationTreeMatcher {
 
-  private static final Matcher<ExpressionTree> MATCHER =
+  private static final MethodMatcher MATCHER =
       instanceMethod()
           .onExactClass("java.lang.String")
           .named("split")
           .withParameters("java.lang.String");
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
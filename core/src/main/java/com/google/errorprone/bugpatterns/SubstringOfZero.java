@@ -18,14 +18,16 @@ package com.google.errorprone.bugpatterns;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
@@ -39,8 +41,9 @@ import java.util.Objects;
         "String.substring(int) gives you the substring from the index to the end, inclusive."
             + " Calling that method with an index of 0 will return the same String.",
     severity = ERROR)
-public final class SubstringOfZero extends BugChecker implements MethodInvocationTreeMatcher {
-  private static final Matcher<ExpressionTree> SUBSTRING_CALLS =
+public final class SubstringOfZero extends BugChecker
+    implements IndexedMethodInvocationTreeMatcher {
+  private static final MethodMatcher SUBSTRING_CALLS =
       Matchers.instanceMethod()
           .onExactClass("java.lang.String")
           .named("substring")
@@ -52,6 +55,11 @@ public final class SubstringOfZero extends BugChecker implements MethodInvocatio
   private static final Matcher<MethodInvocationTree> SUBSTRING_CALLS_WITH_ZERO_ARG =
       Matchers.allOf(SUBSTRING_CALLS, ARGUMENT_IS_ZERO);
 
+  @Override
+  public ImmutableList<MethodMatcher> invocationMatchers() {
+    return ImmutableList.of(SUBSTRING_CALLS);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!SUBSTRING_CALLS_WITH_ZERO_ARG.matches(tree, state)) {
@@ -18,6 +18,8 @@ package com.google.errorprone.bugpatterns.apidiff;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
@@ -40,6 +42,11 @@ import java.util.stream.Collectors;
 // TODO(b/32513850): Allow Android N+ APIs, e.g., by computing API diff using android.jar
 public class AndroidJdkLibsChecker extends ApiDiffChecker {
 
+  // Derived once per setting, so that every compilation shares the diff and its index.
+  private static final Supplier<ApiDiff> API_DIFF = Suppliers.memoize(() -> deriveApiDiff(false));
+  private static final Supplier<ApiDiff> JAVA8_LIBS_API_DIFF =
+      Suppliers.memoize(() -> deriveApiDiff(true));
+
   public AndroidJdkLibsChecker(ErrorProneFlags flags) {
     this(flags.getBoolean("Android:Java8Libs").orElse(false));
   }
@@ -49,15 +56,16 @@ public class AndroidJdkLibsChecker extends ApiDiffChecker {
   }
 
   private AndroidJdkLibsChecker(boolean allowJava8) {
-    super(deriveApiDiff(allowJava8));
+    super(allowJava8 ? JAVA8_LIBS_API_DIFF : API_DIFF);
   }
 
   private static ApiDiff deriveApiDiff(boolean allowJava8) {
     ClassSupportInfo support = new ClassSupportInfo(allowJava8);
+    ApiDiff java7ApiDiff = Java7ApiChecker.API_DIFF.get();
     ImmutableSet<String> unsupportedClasses =
         ImmutableSet.<String>builder()
             .addAll(
-                Java7ApiChecker.API_DIFF.unsupportedClasses().stream()
+                java7ApiDiff.unsupportedClasses().stream()
                     .filter(cls -> !support.allowedPackages.contains(packageName(cls)))
                     .filter(cls -> !support.allowedClasses.contains(cls))
                     .collect(Collectors.toSet()))
@@ -67,7 +75,7 @@ public class AndroidJdkLibsChecker extends ApiDiffChecker {
     ImmutableMultimap<String, ClassMemberKey> unsupportedMembers =
         ImmutableSetMultimap.<String, ClassMemberKey>builder()
             .putAll(
-                Java7ApiChecker.API_DIFF.unsupportedMembersByClass().entries().stream()
+                java7ApiDiff.unsupportedMembersByClass().entries().stream()
                     .filter(e -> !support.allowedPackages.contains(packageName(e.getKey())))
                     .filter(e -> !support.allowedClasses.contains(e.getKey()))
                     .filter(e -> support.bannedMembers.isEmpty() || !support.memberIsAllowed(e))
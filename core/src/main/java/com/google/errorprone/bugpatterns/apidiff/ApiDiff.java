@@ -17,11 +17,18 @@
 package com.google.errorprone.bugpatterns.apidiff;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import com.google.errorprone.bugpatterns.apidiff.ApiDiffProto.Diff;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.util.Name;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 /** The difference between two APIs. */
 @AutoValue
@@ -65,6 +72,79 @@ public abstract class ApiDiff {
             .containsEntry(className, ClassMemberKey.create(memberKey.identifier(), ""));
   }
 
+  /** The {@link Index} of this diff, built on first use and shared by every compilation. */
+  @Nullable private transient volatile Index index;
+
+  /** Returns this diff indexed for lookups by symbol. */
+  Index index() {
+    Index result = index;
+    if (result == null) {
+      // Threads that race here build equal indices; any of them will do.
+      result = new Index(this);
+      index = result;
+    }
+    return result;
+  }
+
+  /**
+   * An {@link ApiDiff} keyed for lookups by symbol. Classes are keyed by their flat name, so that a
+   * symbol can be looked up without building its descriptor, and member descriptors are only
+   * needed for members whose class and name are in the diff.
+   */
+  static final class Index {
+    private final ImmutableSet<String> unsupportedClasses;
+
+    /**
+     * For each class with unsupported members, the descriptors of those members by name. An empty
+     * descriptor stands for every member of that name.
+     */
+    private final ImmutableMap<String, ImmutableSetMultimap<String, String>> unsupportedMembers;
+
+    private Index(ApiDiff diff) {
+      ImmutableSet.Builder<String> classes = ImmutableSet.builder();
+      for (String className : diff.unsupportedClasses()) {
+        classes.add(flatName(className));
+      }
+      this.unsupportedClasses = classes.build();
+      ImmutableMap.Builder<String, ImmutableSetMultimap<String, String>> members =
+          ImmutableMap.builder();
+      for (Map.Entry<String, Collection<ClassMemberKey>> entry :
+          diff.unsupportedMembersByClass().asMap().entrySet()) {
+        ImmutableSetMultimap.Builder<String, String> descriptors = ImmutableSetMultimap.builder();
+        for (ClassMemberKey member : entry.getValue()) {
+          descriptors.put(member.identifier(), member.descriptor());
+        }
+        members.put(flatName(entry.getKey()), descriptors.build());
+      }
+      this.unsupportedMembers = members.build();
+    }
+
+    /** Converts a binary name from the diff, like {@code java/util/Map$Entry}, to a flat name. */
+    private static String flatName(String className) {
+      return className.replace('/', '.');
+    }
+
+    /** Returns true if the given class is unsupported. */
+    boolean isClassUnsupported(ClassSymbol clazz) {
+      return unsupportedClasses.contains(clazz.flatName().toString());
+    }
+
+    /**
+     * Returns true if the given member of {@code owner} is unsupported. The member's descriptor is
+     * only computed if the diff lists a member of that name with a specific descriptor.
+     */
+    boolean isMemberUnsupported(ClassSymbol owner, Name name, Supplier<String> descriptor) {
+      ImmutableSetMultimap<String, String> members =
+          unsupportedMembers.get(owner.flatName().toString());
+      if (members == null) {
+        return false;
+      }
+      ImmutableSet<String> descriptors = members.get(name.toString());
+      return !descriptors.isEmpty()
+          && (descriptors.contains("") || descriptors.contains(descriptor.get()));
+    }
+  }
+
   public static ApiDiff fromMembers(
       Set<String> unsupportedClasses, Multimap<String, ClassMemberKey> unsupportedMembersByClass) {
     return new AutoValue_ApiDiff(
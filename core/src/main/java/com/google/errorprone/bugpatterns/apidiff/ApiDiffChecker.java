@@ -22,7 +22,6 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.bugpatterns.BugChecker.IdentifierTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.MemberSelectTreeMatcher;
-import com.google.errorprone.bugpatterns.apidiff.ApiDiff.ClassMemberKey;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.util.ASTHelpers;
 import com.google.errorprone.util.Signatures;
@@ -35,23 +34,38 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
 import com.sun.tools.javac.code.Type;
-import com.sun.tools.javac.code.Types;
 import java.lang.annotation.Annotation;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /** A base Error Prone check implementation to enforce compliance with a given API diff. */
 public abstract class ApiDiffChecker extends BugChecker
     implements IdentifierTreeMatcher, MemberSelectTreeMatcher {
 
-  private final ApiDiff apiDiff;
+  /** The diff, which is only loaded once the first symbol needs to be checked against it. */
+  private final Supplier<ApiDiff> apiDiff;
+
   private final Optional<Class<? extends Annotation>> alsoForbidApisAnnotated;
 
   protected ApiDiffChecker(ApiDiff apiDiff) {
+    this(() -> apiDiff);
+  }
+
+  protected ApiDiffChecker(ApiDiff apiDiff, Class<? extends Annotation> alsoForbidApisAnnotated) {
+    this(() -> apiDiff, alsoForbidApisAnnotated);
+  }
+
+  /**
+   * Creates a checker for a diff that is expensive to load. The supplier should memoize the diff,
+   * so that its index is built once and shared by every compilation.
+   */
+  protected ApiDiffChecker(Supplier<ApiDiff> apiDiff) {
     this.apiDiff = apiDiff;
     this.alsoForbidApisAnnotated = Optional.empty();
   }
 
-  protected ApiDiffChecker(ApiDiff apiDiff, Class<? extends Annotation> alsoForbidApisAnnotated) {
+  protected ApiDiffChecker(
+      Supplier<ApiDiff> apiDiff, Class<? extends Annotation> alsoForbidApisAnnotated) {
     this.apiDiff = apiDiff;
     this.alsoForbidApisAnnotated = Optional.of(alsoForbidApisAnnotated);
   }
@@ -79,9 +93,9 @@ public abstract class ApiDiffChecker extends BugChecker
       // e.g. package symbols
       return Description.NO_MATCH;
     }
-    Types types = state.getTypes();
+    ApiDiff.Index apiDiff = this.apiDiff.get().index();
     // check for information associated with the class
-    if (apiDiff.isClassUnsupported(Signatures.classDescriptor(receiver.type, types))
+    if (apiDiff.isClassUnsupported(receiver)
         || classOrEnclosingClassIsForbiddenByAnnotation(receiver, state)) {
       return buildDescription(tree)
           .setMessage(String.format("%s is not available", receiver))
@@ -91,11 +105,9 @@ public abstract class ApiDiffChecker extends BugChecker
     if (!(sym instanceof VarSymbol || sym instanceof MethodSymbol)) {
       return Description.NO_MATCH;
     }
-    ClassMemberKey memberKey =
-        ClassMemberKey.create(
-            sym.getSimpleName().toString(), Signatures.descriptor(sym.type, types));
     ClassSymbol owner = sym.owner.enclClass();
-    if (apiDiff.isMemberUnsupported(Signatures.classDescriptor(owner.type, types), memberKey)
+    if (apiDiff.isMemberUnsupported(
+            owner, sym.getSimpleName(), () -> Signatures.descriptor(sym.type, state.getTypes()))
         || hasAnnotationForbiddingUse(sym, state)) {
       return buildDescription(tree)
           .setMessage(String.format("%s#%s is not available in %s", owner, sym, receiver))
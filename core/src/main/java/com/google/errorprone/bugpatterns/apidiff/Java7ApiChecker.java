@@ -18,9 +18,12 @@ package com.google.errorprone.bugpatterns.apidiff;
 
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.io.Resources;
 import com.google.errorprone.BugPattern;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 
 /** Checks for uses of classes, fields, or methods that are not compatible with JDK 7 */
@@ -33,38 +36,37 @@ import java.io.UncheckedIOException;
     severity = ERROR)
 public class Java7ApiChecker extends ApiDiffChecker {
 
-  static final ApiDiff API_DIFF = loadApiDiff();
+  /** The JDK 7 to 8 diff, loaded on first use rather than when this class is initialized. */
+  static final Supplier<ApiDiff> API_DIFF = Suppliers.memoize(Java7ApiChecker::loadApiDiff);
 
   private static ApiDiff loadApiDiff() {
-    try {
-      ApiDiffProto.Diff.Builder diffBuilder = ApiDiffProto.Diff.newBuilder();
-      byte[] diffData =
-          Resources.toByteArray(Resources.getResource(Java7ApiChecker.class, "7to8diff.binarypb"));
-      diffBuilder
-          .mergeFrom(diffData)
-          .addClassDiff(
-              ApiDiffProto.ClassDiff.newBuilder()
-                  .setMemberDiff(
-                      ApiDiffProto.MemberDiff.newBuilder()
-                          .setClassName("com/google/common/base/Predicate")
-                          .addMember(
-                              ApiDiffProto.ClassMember.newBuilder()
-                                  .setIdentifier("test")
-                                  .setMemberDescriptor("(Ljava/lang/Object;)Z"))))
-          .addClassDiff(
-              ApiDiffProto.ClassDiff.newBuilder()
-                  .setMemberDiff(
-                      ApiDiffProto.MemberDiff.newBuilder()
-                          .setClassName("com/google/common/base/BinaryPredicate")
-                          .addMember(
-                              ApiDiffProto.ClassMember.newBuilder()
-                                  .setIdentifier("test")
-                                  .setMemberDescriptor(
-                                      "(Ljava/lang/Object;Ljava/lang/Object;)Z"))));
-      return ApiDiff.fromProto(diffBuilder.build());
+    ApiDiffProto.Diff.Builder diffBuilder = ApiDiffProto.Diff.newBuilder();
+    try (InputStream diffData =
+        Resources.getResource(Java7ApiChecker.class, "7to8diff.binarypb").openStream()) {
+      diffBuilder.mergeFrom(diffData);
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
+    diffBuilder
+        .addClassDiff(
+            ApiDiffProto.ClassDiff.newBuilder()
+                .setMemberDiff(
+                    ApiDiffProto.MemberDiff.newBuilder()
+                        .setClassName("com/google/common/base/Predicate")
+                        .addMember(
+                            ApiDiffProto.ClassMember.newBuilder()
+                                .setIdentifier("test")
+                                .setMemberDescriptor("(Ljava/lang/Object;)Z"))))
+        .addClassDiff(
+            ApiDiffProto.ClassDiff.newBuilder()
+                .setMemberDiff(
+                    ApiDiffProto.MemberDiff.newBuilder()
+                        .setClassName("com/google/common/base/BinaryPredicate")
+                        .addMember(
+                            ApiDiffProto.ClassMember.newBuilder()
+                                .setIdentifier("test")
+                                .setMemberDescriptor("(Ljava/lang/Object;Ljava/lang/Object;)Z"))));
+    return ApiDiff.fromProto(diffBuilder.build());
   }
 
   public Java7ApiChecker() {
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.Objects;
+
+/**
+ * Where a diagnostic sits in a commit: its project-relative file, the check that raised it and its
+ * line. Two diagnostics with equal keys are candidates for being the same bug.
+ */
+public final class DiagnosticKey {
+    private final String path;
+    private final String checkName;
+    private final long line;
+
+    public DiagnosticKey(String path, String checkName, long line) {
+        this.path = path;
+        this.checkName = checkName;
+        this.line = line;
+    }
+
+    public static DiagnosticKey of(Diagnostic<? extends JavaFileObject> diagnostic) {
+        return new DiagnosticKey(
+                DiagnosticUtils.getProjectRelativePath(diagnostic),
+                DiagnosticUtils.getCheckName(diagnostic),
+                diagnostic.getLineNumber());
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getCheckName() {
+        return checkName;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DiagnosticKey)) {
+            return false;
+        }
+        DiagnosticKey other = (DiagnosticKey) o;
+        return line == other.line && path.equals(other.path) && checkName.equals(other.checkName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, checkName, line);
+    }
+
+    @Override
+    public String toString() {
+        return path + ":" + line + " [" + checkName + "]";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack;
+
+import com.google.common.collect.Iterables;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.*;
+
+/**
+ * Pairs up the diagnostics of an older and a newer commit.
+ *
+ * <p>With a {@link KeyedBugComparer} this is a hash join: the newer diagnostics are bucketed by
+ * {@link DiagnosticKey}, each older diagnostic is looked up in the bucket of its mapped key, and
+ * {@link BugComparer#breakTies} only runs inside a bucket. Any other comparer falls back to comparing
+ * every pair. Results are handed to a {@link Listener} as they are found, so callers can stream them
+ * out rather than collecting them.
+ */
+public final class DiagnosticMatcher {
+
+    public interface Listener {
+        void matched(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                     Diagnostic<? extends JavaFileObject> newDiagnostic);
+
+        void unmatchedOld(Diagnostic<? extends JavaFileObject> oldDiagnostic);
+
+        void unmatchedNew(Diagnostic<? extends JavaFileObject> newDiagnostic);
+    }
+
+    private DiagnosticMatcher() {}
+
+    public static void match(Collection<Diagnostic<? extends JavaFileObject>> oldDiagnostics,
+                             Collection<Diagnostic<? extends JavaFileObject>> newDiagnostics,
+                             BugComparer comparer,
+                             Listener listener) {
+        Set<Diagnostic<? extends JavaFileObject>> matchedNew = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        if (comparer instanceof KeyedBugComparer) {
+            KeyedBugComparer keyedComparer = (KeyedBugComparer) comparer;
+            Map<DiagnosticKey, List<Diagnostic<? extends JavaFileObject>>> buckets = new HashMap<>();
+            for (Diagnostic<? extends JavaFileObject> newDiagnostic : newDiagnostics) {
+                buckets.computeIfAbsent(DiagnosticKey.of(newDiagnostic), k -> new ArrayList<>(1)).add(newDiagnostic);
+            }
+
+            for (Diagnostic<? extends JavaFileObject> oldDiagnostic : oldDiagnostics) {
+                Collection<Diagnostic<? extends JavaFileObject>> candidates = keyedComparer.keyInNewerCommit(oldDiagnostic)
+                        .map(buckets::get)
+                        .orElse(Collections.emptyList());
+                report(oldDiagnostic, pick(oldDiagnostic, candidates, comparer), matchedNew, listener);
+            }
+        } else {
+            for (Diagnostic<? extends JavaFileObject> oldDiagnostic : oldDiagnostics) {
+                Collection<Diagnostic<? extends JavaFileObject>> candidates = CollectionUtil.filter(
+                        newDiagnostics, newDiagnostic -> comparer.areSame(oldDiagnostic, newDiagnostic));
+                report(oldDiagnostic, pick(oldDiagnostic, candidates, comparer), matchedNew, listener);
+            }
+        }
+
+        for (Diagnostic<? extends JavaFileObject> newDiagnostic : newDiagnostics) {
+            if (!matchedNew.contains(newDiagnostic)) {
+                listener.unmatchedNew(newDiagnostic);
+            }
+        }
+    }
+
+    private static Optional<Diagnostic<? extends JavaFileObject>> pick(
+            Diagnostic<? extends JavaFileObject> oldDiagnostic,
+            Collection<Diagnostic<? extends JavaFileObject>> candidates,
+            BugComparer comparer) {
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        } else if (candidates.size() == 1) {
+            return Optional.of(Iterables.getOnlyElement(candidates));
+        }
+        return comparer.breakTies(oldDiagnostic, candidates);
+    }
+
+    private static void report(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                               Optional<Diagnostic<? extends JavaFileObject>> match,
+                               Set<Diagnostic<? extends JavaFileObject>> matchedNew,
+                               Listener listener) {
+        if (match.isPresent()) {
+            matchedNew.add(match.get());
+            listener.matched(oldDiagnostic, match.get());
+        } else {
+            listener.unmatchedOld(oldDiagnostic);
+        }
+    }
+}
@@ -44,4 +44,11 @@ public final class DiagnosticUtils {
         }
     }
 
+    public static String getCheckName(Diagnostic<? extends JavaFileObject> diagnostic) {
+        // Error Prone messages start with "[CheckName] "; plain javac diagnostics have no check name.
+        String message = diagnostic.getMessage(null);
+        int end = message.indexOf(']');
+        return message.startsWith("[") && end > 0 ? message.substring(1, end) : "";
+    }
+
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.Optional;
+
+/**
+ * A {@link BugComparer} that can say up front where an older diagnostic would be in the newer
+ * commit, so matching can look candidates up by {@link DiagnosticKey} instead of comparing every
+ * pair of diagnostics.
+ *
+ * <p>An older and a newer diagnostic must be {@link #areSame} exactly when the newer one's key is
+ * the older one's mapped key.
+ */
+public interface KeyedBugComparer extends BugComparer {
+
+    /** Returns the key of the older diagnostic in the newer commit, or empty if it can't be there. */
+    Optional<DiagnosticKey> keyInNewerCommit(Diagnostic<? extends JavaFileObject> oldDiagnostic);
+
+    @Override
+    default boolean areSame(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                            Diagnostic<? extends JavaFileObject> newDiagnostic) {
+        return keyInNewerCommit(oldDiagnostic).map(DiagnosticKey.of(newDiagnostic)::equals).orElse(false);
+    }
+}
@@ -29,20 +29,29 @@ import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class LineMotionComparer implements BugComparer {
+public class LineMotionComparer implements KeyedBugComparer {
     private final Repository repo;
     private final RevCommit oldCommit;
     private final RevCommit newCommit;
 
     private final Map<String, LineMotionTracker> lineTrackers;
-    private final List<DiffEntry> diffs;
+    private final Map<String, String> renamedPaths;
+    private final Set<String> deletedPaths;
 
     public LineMotionComparer(Repository repo, RevCommit oldCommit, RevCommit newCommit) throws GitAPIException, IOException {
         this.repo = repo;
         this.oldCommit = oldCommit;
         this.newCommit = newCommit;
         this.lineTrackers = new HashMap<>();
-        this.diffs = GitUtils.computeDiffs(repo, oldCommit, newCommit);
+        this.renamedPaths = new HashMap<>();
+        this.deletedPaths = new HashSet<>();
+        for (DiffEntry diff : GitUtils.computeDiffs(repo, oldCommit, newCommit)) {
+            if (diff.getChangeType() == DiffEntry.ChangeType.RENAME) {
+                renamedPaths.put(diff.getOldPath(), diff.getNewPath());
+            } else if (diff.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                deletedPaths.add(diff.getOldPath());
+            }
+        }
     }
 
     public LineMotionComparer(Repository repo, String oldCommitHash, String newCommitHash) throws IOException, GitAPIException {
@@ -51,69 +60,47 @@ public class LineMotionComparer implements BugComparer {
                 GitUtils.parseCommit(repo, newCommitHash));
     }
 
-    private boolean inSameFile(Diagnostic<? extends JavaFileObject> oldDiagnostic,
-                               Diagnostic<? extends JavaFileObject> newDiagnostic) {
-        String oldPath = DiagnosticUtils.getProjectRelativePath(oldDiagnostic);
-        String newPath = DiagnosticUtils.getProjectRelativePath(newDiagnostic);
-
-        if (oldPath.equals(newPath)) {
-            return true;
-        }
-
-        return diffs.stream().filter(diff -> diff.getChangeType() == DiffEntry.ChangeType.RENAME)
-                .anyMatch(diff -> diff.getOldPath().equals(oldPath) && diff.getNewPath().equals(newPath));
-    }
-
-    private LineMotionTracker createLineMotionTracker(Diagnostic<? extends JavaFileObject> oldDiagnostic,
-                                                      Diagnostic<? extends JavaFileObject> newDiagnostic) throws DiffException, IOException {
-        List<String> oldText = GitUtils.loadSrcFile(repo, oldCommit, DiagnosticUtils.getProjectRelativePath(oldDiagnostic));
-        List<String> newText = GitUtils.loadSrcFile(repo, newCommit, DiagnosticUtils.getProjectRelativePath(newDiagnostic));
-
-        return new LineMotionTracker(oldText, newText);
+    private String getNewPath(String oldPath) {
+        return renamedPaths.getOrDefault(oldPath, oldPath);
     }
 
-    private LineMotionTracker getLineMotionTracker(Diagnostic<? extends JavaFileObject> oldDiagnostic,
-                                                   Diagnostic<? extends JavaFileObject> newDiagnostic) throws DiffException, IOException {
-        String oldFile = DiagnosticUtils.getProjectRelativePath(oldDiagnostic);
-        if (!lineTrackers.containsKey(oldFile)) {
-            lineTrackers.put(oldFile, createLineMotionTracker(oldDiagnostic, newDiagnostic));
+    private LineMotionTracker getLineMotionTracker(String oldPath) throws DiffException, IOException {
+        LineMotionTracker lineTracker = lineTrackers.get(oldPath);
+        if (lineTracker == null) {
+            List<String> oldText = GitUtils.loadSrcFile(repo, oldCommit, oldPath);
+            List<String> newText = GitUtils.loadSrcFile(repo, newCommit, getNewPath(oldPath));
+            lineTracker = new LineMotionTracker(oldText, newText);
+            lineTrackers.put(oldPath, lineTracker);
         }
 
-        return lineTrackers.get(oldFile);
+        return lineTracker;
     }
 
     @Override
-    public boolean areSame(Diagnostic<? extends JavaFileObject> oldDiagnostic,
-                           Diagnostic<? extends JavaFileObject> newDiagnostic) {
-        if (!inSameFile(oldDiagnostic, newDiagnostic)) {
-            return false;
+    public Optional<DiagnosticKey> keyInNewerCommit(Diagnostic<? extends JavaFileObject> oldDiagnostic) {
+        String oldPath = DiagnosticUtils.getProjectRelativePath(oldDiagnostic);
+        if (deletedPaths.contains(oldPath)) {
+            return Optional.empty();
         }
 
         try {
-            LineMotionTracker lineTracker = getLineMotionTracker(oldDiagnostic, newDiagnostic);
-
-            Optional<Long> newLine = lineTracker.getNewLine(oldDiagnostic.getLineNumber());
-
-            return newLine.isPresent() && newLine.get() == newDiagnostic.getLineNumber();
+            return getLineMotionTracker(oldPath).getNewLine(oldDiagnostic.getLineNumber())
+                    .map(newLine -> new DiagnosticKey(
+                            getNewPath(oldPath), DiagnosticUtils.getCheckName(oldDiagnostic), newLine));
         } catch (IOException | DiffException e) {
             System.out.println("whoopsie when comparing");
-            return false;
+            return Optional.empty();
         }
     }
 
-    private String extractDiagnosticType(Diagnostic<? extends JavaFileObject> diagnostic) {
-        String message = diagnostic.getMessage(null);
-        return message.substring(1, message.indexOf(']'));
-    }
-
     @Override
     public Optional<Diagnostic<? extends JavaFileObject>> breakTies(Diagnostic<? extends JavaFileObject> oldDiagnostic,
                                                                     Collection<Diagnostic<? extends JavaFileObject>> matchingNewDiagnostics) {
         // Break tie by choosing same diagnostic type
-        final String oldDiagnosticType = extractDiagnosticType(oldDiagnostic);
+        final String oldDiagnosticType = DiagnosticUtils.getCheckName(oldDiagnostic);
 
         Collection<Diagnostic<? extends JavaFileObject>> sameTypeNewDiagnostics = CollectionUtil.filter(
-                matchingNewDiagnostics, diagnostic -> extractDiagnosticType(diagnostic).equals(oldDiagnosticType));
+                matchingNewDiagnostics, diagnostic -> DiagnosticUtils.getCheckName(diagnostic).equals(oldDiagnosticType));
 
         if (sameTypeNewDiagnostics.size() == 0) {
             return Optional.empty();
@@ -22,22 +22,48 @@ import com.github.difflib.algorithm.jgit.HistogramDiff;
 import com.github.difflib.patch.AbstractDelta;
 import com.github.difflib.patch.Chunk;
 import com.github.difflib.patch.Patch;
-import com.google.common.collect.Iterables;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
+/**
+ * Maps line numbers of an old version of a file to the new version.
+ *
+ * <p>The deltas of the diff are turned into a table sorted by source position, with the line shift
+ * caused by all earlier deltas summed up front, so each lookup is a binary search.
+ */
 public final class LineMotionTracker {
+    /** Returned by {@link #mapLines} for lines that don't survive into the new file. */
+    public static final long NO_LINE = -1;
+
     private final List<String> oldText;
-    private final List<String> newText;
 
-    private final Patch<String> filePatch;
+    private final List<AbstractDelta<String>> deltas;
+    // Source chunk of each delta as [sourceStart, sourceEnd), 0-based, in ascending order.
+    private final int[] sourceStart;
+    private final int[] sourceEnd;
+    // shiftBefore[i] is the total line shift caused by deltas 0 .. i-1.
+    private final long[] shiftBefore;
+    // For CHANGE deltas, the first index of each line of the target chunk; built when first needed.
+    private final Map<Integer, Map<String, Integer>> changeTargetIndices = new HashMap<>();
 
     public LineMotionTracker(List<String> oldText, List<String> newText) throws DiffException {
         this.oldText = oldText;
-        this.newText = newText;
-        this.filePatch = DiffUtils.diff(oldText, newText, new HistogramDiff<>());
+        Patch<String> filePatch = DiffUtils.diff(oldText, newText, new HistogramDiff<>());
+
+        this.deltas = new ArrayList<>(filePatch.getDeltas());
+        deltas.sort(Comparator.comparingInt((AbstractDelta<String> delta) -> delta.getSource().getPosition())
+                .thenComparingInt(delta -> delta.getSource().size()));
+
+        int size = deltas.size();
+        this.sourceStart = new int[size];
+        this.sourceEnd = new int[size];
+        this.shiftBefore = new long[size + 1];
+        for (int i = 0; i < size; i++) {
+            AbstractDelta<String> delta = deltas.get(i);
+            sourceStart[i] = delta.getSource().getPosition();
+            sourceEnd[i] = sourceStart[i] + delta.getSource().size();
+            shiftBefore[i + 1] = shiftBefore[i] + shiftCausedBy(delta);
+        }
     }
 
     public LineMotionTracker(String oldText, String newText) throws DiffException {
@@ -45,53 +71,85 @@ public final class LineMotionTracker {
                 Arrays.asList(newText.split("\n").clone()));
     }
 
-    private static boolean isLineInChunk(Chunk<String> chunk, final long line) {
-        return chunk.getPosition() <= line && line < (chunk.getPosition() + chunk.getLines().size());
+    private static int shiftCausedBy(AbstractDelta<String> delta) {
+        switch (delta.getType()) {
+            case DELETE:
+                return -delta.getSource().size();
+            case INSERT:
+                return delta.getTarget().size();
+            case CHANGE:
+                return delta.getTarget().size() - delta.getSource().size();
+            default:
+                return 0;
+        }
+    }
+
+    /** Returns the index of the last delta whose source chunk starts at or before {@code line}, or -1. */
+    private int lastDeltaStartingAtOrBefore(long line) {
+        int low = 0;
+        int high = sourceStart.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sourceStart[mid] <= line) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
     }
 
-    private Optional<AbstractDelta<String>> findSourcePatchAffectingLine(final long line) {
-        return filePatch.getDeltas().stream()
-                .filter(delta -> isLineInChunk(delta.getSource(), line))
-                .findFirst();
+    public Optional<Long> getNewLine(final long line) throws RuntimeException {
+        long newLine = mapLine(line);
+        return newLine == NO_LINE ? Optional.empty() : Optional.of(newLine);
     }
 
-    private int getShiftCausedByPatchesAboveLine(final long line) {
-        return filePatch.getDeltas().stream()
-                .filter(delta -> delta.getSource().getPosition() + delta.getSource().size() <= line)
-                .mapToInt(delta -> {
-                    switch (delta.getType()) {
-                        case DELETE:
-                            return -delta.getSource().size();
-                        case INSERT:
-                            return delta.getTarget().size();
-                        case CHANGE:
-                            return delta.getTarget().size() - delta.getSource().size();
-                        default:
-                            return 0;
-                    }
-                }).sum();
+    /**
+     * Maps each of the given 1-based old line numbers to its new line number, or to {@link #NO_LINE}
+     * if the line was deleted or changed beyond recognition.
+     */
+    public long[] mapLines(long[] lines) {
+        long[] newLines = new long[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            newLines[i] = mapLine(lines[i]);
+        }
+        return newLines;
     }
 
-    public Optional<Long> getNewLine(final long line) throws RuntimeException {
+    private long mapLine(final long line) {
         final long internalLine = line - 1;
 
-        Optional<AbstractDelta<String>> patch = findSourcePatchAffectingLine(internalLine);
-
-        if (patch.isPresent()) {
-            Chunk<String> target = patch.get().getTarget();
-            switch (patch.get().getType()) {
-                case EQUAL:
-                    throw new RuntimeException("unsure when i'd encounter this");
-                case INSERT:
-                    return Optional.of((long) target.getPosition() + target.size());
-                case CHANGE:
-                    int offsetInChange = target.getLines().indexOf(oldText.get((int) internalLine));
-                    return offsetInChange == -1 ? Optional.empty() : Optional.of((long) target.getPosition() + offsetInChange);
-                default: // case DELETE:
-                    return Optional.empty();
-            }
-        } else {
-            return Optional.of(line + getShiftCausedByPatchesAboveLine(internalLine));
+        int index = lastDeltaStartingAtOrBefore(internalLine);
+        if (index == -1 || internalLine >= sourceEnd[index]) {
+            // Every delta up to and including index ends at or before this line.
+            return line + shiftBefore[index + 1];
         }
+
+        AbstractDelta<String> delta = deltas.get(index);
+        Chunk<String> target = delta.getTarget();
+        switch (delta.getType()) {
+            case EQUAL:
+                throw new RuntimeException("unsure when i'd encounter this");
+            case INSERT:
+                return (long) target.getPosition() + target.size();
+            case CHANGE:
+                Integer offsetInChange = changeTargetIndex(index).get(oldText.get((int) internalLine));
+                return offsetInChange == null ? NO_LINE : (long) target.getPosition() + offsetInChange;
+            default: // case DELETE:
+                return NO_LINE;
+        }
+    }
+
+    private Map<String, Integer> changeTargetIndex(int index) {
+        return changeTargetIndices.computeIfAbsent(index, i -> {
+            List<String> targetLines = deltas.get(i).getTarget().getLines();
+            Map<String, Integer> firstIndex = new HashMap<>();
+            for (int offset = 0; offset < targetLines.size(); offset++) {
+                firstIndex.putIfAbsent(targetLines.get(offset), offset);
+            }
+            return firstIndex;
+        });
     }
 }
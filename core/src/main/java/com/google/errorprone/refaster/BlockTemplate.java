@@ -27,6 +27,7 @@ import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.refaster.UStatement.UnifierWithUnconsumedStatements;
 import com.google.errorprone.refaster.annotation.UseImportPolicy;
+import com.sun.source.tree.BlockTree;
 import com.sun.source.tree.StatementTree;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCBlock;
@@ -105,6 +106,11 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
     return ImmutableList.of();
   }
 
+  @Override
+  TemplateSignature signature() {
+    return TemplateSignature.create(BlockTree.class, null);
+  }
+
   private Choice<List<BlockTemplateMatch>> matchesStartingAtBeginning(
       final JCBlock block,
       final int offset,
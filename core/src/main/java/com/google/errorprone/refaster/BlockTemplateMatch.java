@@ -20,11 +20,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCBlock;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCStatement;
-import java.io.IOException;
 
 /**
  * A representation of a match against a {@code BlockTemplate}. The "location" is the first
@@ -45,17 +43,12 @@ class BlockTemplateMatch extends TemplateMatch {
   }
 
   @Override
-  public String getRange(JCCompilationUnit unit) {
-    try {
-      CharSequence sequence = unit.getSourceFile().getCharContent(true);
-      JCTree firstStatement = statements.get(0);
-      JCTree lastStatement = Iterables.getLast(statements);
-      return sequence
-          .subSequence(
-              firstStatement.getStartPosition(), lastStatement.getEndPosition(unit.endPositions))
-          .toString();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  public int getStartPosition() {
+    return statements.get(0).getStartPosition();
+  }
+
+  @Override
+  public int getEndPosition(JCCompilationUnit unit) {
+    return Iterables.getLast(statements).getEndPosition(unit.endPositions);
   }
 }
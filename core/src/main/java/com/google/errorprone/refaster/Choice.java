@@ -23,12 +23,16 @@ import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.errorprone.annotations.ForOverride;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * A representation of a choice with zero or more options, which may be evaluated lazily or
@@ -84,6 +88,11 @@ public abstract class Choice<T> {
           return this;
         }
 
+        @Override
+        public Choice<Object> memoize() {
+          return this;
+        }
+
         @Override
         public String toString() {
           return "Choice.NONE";
@@ -130,6 +139,11 @@ public abstract class Choice<T> {
         return of(function.apply(t));
       }
 
+      @Override
+      public Choice<T> memoize() {
+        return this;
+      }
+
       @Override
       public String toString() {
         return String.format("Choice.of(%s)", t);
@@ -256,6 +270,53 @@ public abstract class Choice<T> {
     };
   }
 
+  /**
+   * Returns a choice of the same options as this {@code Choice}, each of which is computed at most
+   * once however many times the returned choice is iterated over. This is worthwhile when the same
+   * choice is chosen from repeatedly, but only if its options are not mutated along the way.
+   */
+  public Choice<T> memoize() {
+    final Choice<T> thisChoice = this;
+    return new Choice<T>() {
+      private final List<T> computed = new ArrayList<>();
+      @Nullable private Iterator<T> remaining;
+
+      @Override
+      protected Iterator<T> iterator() {
+        return new AbstractIterator<T>() {
+          private int index = 0;
+
+          @Override
+          protected T computeNext() {
+            if (index < computed.size()) {
+              return computed.get(index++);
+            }
+            if (remaining == null) {
+              remaining = thisChoice.iterator();
+            }
+            if (!remaining.hasNext()) {
+              return endOfData();
+            }
+            T next = remaining.next();
+            computed.add(next);
+            index++;
+            return next;
+          }
+        };
+      }
+
+      @Override
+      public Choice<T> memoize() {
+        return this;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("%s.memoize()", thisChoice);
+      }
+    };
+  }
+
   /** Returns a choice of the options from this {@code Choice} or from {@code other}. */
   public Choice<T> or(final Choice<T> other) {
     checkNotNull(other);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.util.ByteBufferInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * A rule of a {@link RefasterRuleSet}. What is needed to index the rule's before templates and to
+ * keep the rule out of its own template class is available up front; the templates themselves are
+ * only deserialized when the rule is first a candidate for a tree.
+ */
+final class CompiledRefasterRule {
+  private final String qualifiedTemplateClass;
+  private final ImmutableList<TemplateSignature> beforeTemplateSignatures;
+
+  /** The serialized rule, until it is decoded. */
+  @Nullable private ByteBuffer encoded;
+
+  /** Written once, under the lock; read without it once set. */
+  @Nullable private volatile RefasterRule<?, ?> rule;
+
+  static CompiledRefasterRule of(RefasterRule<?, ?> rule) {
+    ImmutableList.Builder<TemplateSignature> signatures = ImmutableList.builder();
+    for (Template<?> template : rule.beforeTemplates()) {
+      signatures.add(template.signature());
+    }
+    return new CompiledRefasterRule(
+        rule.qualifiedTemplateClass(), signatures.build(), /* encoded= */ null, rule);
+  }
+
+  /** Returns a rule that is deserialized from {@code encoded} when it is first needed. */
+  static CompiledRefasterRule lazy(
+      String qualifiedTemplateClass,
+      ImmutableList<TemplateSignature> beforeTemplateSignatures,
+      ByteBuffer encoded) {
+    return new CompiledRefasterRule(
+        qualifiedTemplateClass, beforeTemplateSignatures, encoded, /* rule= */ null);
+  }
+
+  private CompiledRefasterRule(
+      String qualifiedTemplateClass,
+      ImmutableList<TemplateSignature> beforeTemplateSignatures,
+      @Nullable ByteBuffer encoded,
+      @Nullable RefasterRule<?, ?> rule) {
+    this.qualifiedTemplateClass = qualifiedTemplateClass;
+    this.beforeTemplateSignatures = beforeTemplateSignatures;
+    this.encoded = encoded;
+    this.rule = rule;
+  }
+
+  String qualifiedTemplateClass() {
+    return qualifiedTemplateClass;
+  }
+
+  /** The signatures of the rule's before templates, in order. */
+  ImmutableList<TemplateSignature> beforeTemplateSignatures() {
+    return beforeTemplateSignatures;
+  }
+
+  boolean isDecoded() {
+    return rule != null;
+  }
+
+  /** Returns the rule, deserializing it if this is the first time it is needed. */
+  RefasterRule<?, ?> rule() {
+    RefasterRule<?, ?> result = rule;
+    if (result == null) {
+      result = decode();
+    }
+    return result;
+  }
+
+  private synchronized RefasterRule<?, ?> decode() {
+    if (rule == null) {
+      try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(encoded))) {
+        rule = (RefasterRule<?, ?>) in.readObject();
+      } catch (IOException | ClassNotFoundException e) {
+        throw new RuntimeException("Can't load Refaster rule " + qualifiedTemplateClass, e);
+      }
+      encoded = null;
+    }
+    return rule;
+  }
+
+  /** Returns the serialized rule. */
+  synchronized ByteBuffer encoded() {
+    if (encoded == null) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(rule);
+      } catch (IOException e) {
+        throw new RuntimeException("Can't serialize Refaster rule " + qualifiedTemplateClass, e);
+      }
+      return ByteBuffer.wrap(bytes.toByteArray());
+    }
+    return encoded.duplicate();
+  }
+}
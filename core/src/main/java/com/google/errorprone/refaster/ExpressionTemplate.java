@@ -133,6 +133,11 @@ public abstract class ExpressionTemplate extends Template<ExpressionTemplateMatc
     return ImmutableList.of();
   }
 
+  @Override
+  TemplateSignature signature() {
+    return TemplateSignature.of(expression());
+  }
+
   static boolean trueOrNull(@Nullable Boolean b) {
     return b == null || b;
   }
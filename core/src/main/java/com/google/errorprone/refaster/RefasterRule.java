@@ -115,11 +115,14 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
   @Override
   public abstract ImmutableClassToInstanceMap<Annotation> annotations();
 
+  private transient RefasterRuleSet ruleSet;
+
   @Override
   public void apply(TreePath path, Context context, DescriptionListener listener) {
-    RefasterScanner.create(this, listener)
-        .scan(
-            path.getLeaf(), prepareContext(context, (JCCompilationUnit) path.getCompilationUnit()));
+    if (ruleSet == null) {
+      ruleSet = RefasterRuleSet.create(ImmutableList.of(this));
+    }
+    ruleSet.apply(path, context, listener);
   }
 
   boolean rejectMatchesWithComments() {
@@ -128,7 +131,8 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
 
   static final Context.Key<ImmutableList<UTypeVar>> RULE_TYPE_VARS = new Context.Key<>();
 
-  private Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
+  /** Returns the context in which this rule's templates are matched against a compilation unit. */
+  Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
     Context context = new SubContext(baseContext);
     if (context.get(JavaFileManager.class) == null) {
       JavacFileManager.preRegister(context);
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CodeTransformer} that applies many {@link RefasterRule}s in a single walk over each
+ * tree, instead of walking it once per rule as a {@link CompositeCodeTransformer} of the rules
+ * would.
+ *
+ * <p>With {@code -XepParallelism} greater than one, the rules are split round-robin into that many
+ * partitions, and each partition walks the tree on a worker thread from a pool shared by all rule
+ * sets; the calling thread waits for all of them. As with the parallel scanner, this is
+ * experimental: javac's symbol completion is not thread-safe.
+ *
+ * <p>Either way, the matches are reported on the calling thread in the order a {@link
+ * CompositeCodeTransformer} of the same rules would report them: rule by rule, and in tree order
+ * for each rule.
+ *
+ * <p>A rule set is serialized in a versioned format that stores, ahead of the rules themselves, a
+ * table of the strings they are indexed by and the {@link TemplateSignature}s of their before
+ * templates. Each rule is serialized separately, so a deserialized rule set can index all its rules
+ * without decoding any of them; a rule's templates are only decoded when they are first a
+ * candidate for a tree.
+ */
+public final class RefasterRuleSet implements CodeTransformer, Serializable {
+  /**
+   * Combines the specified transformers, applying all the Refaster rules among them (including
+   * those in nested {@link CompositeCodeTransformer}s) in a single {@link RefasterRuleSet}, which
+   * is applied before any other transformers.
+   */
+  public static CodeTransformer compose(Iterable<? extends CodeTransformer> transformers) {
+    List<CompiledRefasterRule> rules = new ArrayList<>();
+    List<CodeTransformer> others = new ArrayList<>();
+    flatten(transformers, rules, others);
+    if (rules.isEmpty()) {
+      return CompositeCodeTransformer.compose(others);
+    }
+    RefasterRuleSet ruleSet = new RefasterRuleSet(ImmutableList.copyOf(rules));
+    if (others.isEmpty()) {
+      return ruleSet;
+    }
+    others.add(0, ruleSet);
+    return CompositeCodeTransformer.compose(others);
+  }
+
+  private static void flatten(
+      Iterable<? extends CodeTransformer> transformers,
+      List<CompiledRefasterRule> rules,
+      List<CodeTransformer> others) {
+    for (CodeTransformer transformer : transformers) {
+      if (transformer instanceof RefasterRule) {
+        rules.add(CompiledRefasterRule.of((RefasterRule<?, ?>) transformer));
+      } else if (transformer instanceof RefasterRuleSet) {
+        rules.addAll(((RefasterRuleSet) transformer).rules());
+      } else if (transformer instanceof CompositeCodeTransformer) {
+        flatten(((CompositeCodeTransformer) transformer).transformers(), rules, others);
+      } else {
+        others.add(transformer);
+      }
+    }
+  }
+
+  public static RefasterRuleSet create(Iterable<? extends RefasterRule<?, ?>> rules) {
+    ImmutableList.Builder<CompiledRefasterRule> compiled = ImmutableList.builder();
+    for (RefasterRule<?, ?> rule : rules) {
+      compiled.add(CompiledRefasterRule.of(rule));
+    }
+    return new RefasterRuleSet(compiled.build());
+  }
+
+  private final ImmutableList<CompiledRefasterRule> rules;
+
+  private RefasterRuleSet(ImmutableList<CompiledRefasterRule> rules) {
+    this.rules = rules;
+  }
+
+  ImmutableList<CompiledRefasterRule> rules() {
+    return rules;
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.of();
+  }
+
+  /** The partitions of the rules, built for the parallelism they were last requested for. */
+  private transient ImmutableList<RefasterScanner.Rules> partitions;
+
+  /**
+   * The workers that scan the partitions of every rule set in this JVM. Rule sets are deserialized
+   * for each compilation, so they share one pool, bounded by the number of processors, rather than
+   * each starting threads of their own; idle workers time out.
+   */
+  private static final class Workers {
+    static final ExecutorService EXECUTOR = create();
+
+    private static ExecutorService create() {
+      int threads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              30,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("refaster-scanner-%d")
+                  .setDaemon(true)
+                  .build());
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+
+  @Override
+  public void apply(TreePath path, Context context, DescriptionListener listener) {
+    ErrorProneOptions options = context.get(ErrorProneOptions.class);
+    int parallelism = (options == null) ? 1 : options.parallelism();
+    ImmutableList<RefasterScanner.Rules> partitions = partitions(parallelism);
+    JCCompilationUnit compilationUnit = (JCCompilationUnit) path.getCompilationUnit();
+    SortedMap<Integer, List<Description>> descriptions;
+    if (partitions.size() == 1) {
+      descriptions = partitions.get(0).scan(path.getLeaf(), context, compilationUnit);
+    } else {
+      descriptions = new TreeMap<>();
+      List<Future<SortedMap<Integer, List<Description>>>> results = new ArrayList<>();
+      for (RefasterScanner.Rules partition : partitions) {
+        results.add(
+            Workers.EXECUTOR.submit(
+                () -> partition.scan(path.getLeaf(), context, compilationUnit)));
+      }
+      for (Future<SortedMap<Integer, List<Description>>> result : results) {
+        try {
+          descriptions.putAll(Uninterruptibles.getUninterruptibly(result));
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+    }
+    for (List<Description> ruleDescriptions : descriptions.values()) {
+      ruleDescriptions.forEach(listener::onDescribed);
+    }
+  }
+
+  private synchronized ImmutableList<RefasterScanner.Rules> partitions(int parallelism) {
+    int partitionCount = Math.max(1, Math.min(parallelism, rules.size()));
+    if (partitions != null && partitions.size() == partitionCount) {
+      return partitions;
+    }
+    ImmutableList.Builder<RefasterScanner.Rules> builder = ImmutableList.builder();
+    for (int i = 0; i < partitionCount; i++) {
+      List<Integer> ruleIndices = new ArrayList<>();
+      for (int j = i; j < rules.size(); j += partitionCount) {
+        ruleIndices.add(j);
+      }
+      builder.add(RefasterScanner.Rules.create(rules, ruleIndices));
+    }
+    partitions = builder.build();
+    return partitions;
+  }
+
+  private static final int MAGIC = 0x52465354; // "RFST"
+  private static final int VERSION = 1;
+
+  /**
+   * Encodes this rule set: the magic number and format version, then the string table, then for
+   * each rule the index of its template class name, the root type and method name indices of each
+   * of its before templates' signatures (-1 if absent), and the length and bytes of the serialized
+   * rule. All integers are big-endian and four bytes wide; strings are length-prefixed UTF-8.
+   */
+  byte[] encode() {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    for (CompiledRefasterRule rule : rules) {
+      strings.putIfAbsent(rule.qualifiedTemplateClass(), strings.size());
+      for (TemplateSignature signature : rule.beforeTemplateSignatures()) {
+        if (signature.rootType() != null) {
+          strings.putIfAbsent(signature.rootType().getName(), strings.size());
+        }
+        if (signature.methodName() != null) {
+          strings.putIfAbsent(signature.methodName(), strings.size());
+        }
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      for (String string : strings.keySet()) {
+        byte[] utf8 = string.getBytes(UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+      }
+      out.writeInt(rules.size());
+      for (CompiledRefasterRule rule : rules) {
+        out.writeInt(strings.get(rule.qualifiedTemplateClass()));
+        out.writeInt(rule.beforeTemplateSignatures().size());
+        for (TemplateSignature signature : rule.beforeTemplateSignatures()) {
+          Class<? extends Tree> rootType = signature.rootType();
+          out.writeInt(rootType == null ? -1 : strings.get(rootType.getName()));
+          out.writeInt(signature.methodName() == null ? -1 : strings.get(signature.methodName()));
+        }
+        ByteBuffer encoded = rule.encoded();
+        byte[] serialized = new byte[encoded.remaining()];
+        encoded.get(serialized);
+        out.writeInt(serialized.length);
+        out.write(serialized);
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a rule set {@linkplain #encode encoded} in {@code buffer}, which may be memory-mapped.
+   * The rules are decoded lazily, from slices of the buffer.
+   *
+   * <p>{@code ErrorProneOptions} calls this reflectively to load rule set files that start with
+   * the encoding's magic number, so the mapped file is never copied onto the heap.
+   */
+  public static RefasterRuleSet decode(ByteBuffer buffer) {
+    buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a compiled Refaster rule set");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Compiled Refaster rule set has format version %d, expected %d: the rule file was"
+                  + " written by an incompatible version; recompile it",
+              version, VERSION));
+    }
+    String[] strings = new String[buffer.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      byte[] utf8 = new byte[buffer.getInt()];
+      buffer.get(utf8);
+      strings[i] = new String(utf8, UTF_8);
+    }
+    Map<String, Class<? extends Tree>> rootTypes = new HashMap<>();
+    ImmutableList.Builder<CompiledRefasterRule> rules = ImmutableList.builder();
+    int ruleCount = buffer.getInt();
+    for (int i = 0; i < ruleCount; i++) {
+      String qualifiedTemplateClass = strings[buffer.getInt()];
+      ImmutableList.Builder<TemplateSignature> signatures = ImmutableList.builder();
+      int templateCount = buffer.getInt();
+      for (int j = 0; j < templateCount; j++) {
+        int rootTypeIndex = buffer.getInt();
+        int methodNameIndex = buffer.getInt();
+        Class<? extends Tree> rootType = null;
+        if (rootTypeIndex >= 0) {
+          rootType = rootTypes.computeIfAbsent(strings[rootTypeIndex], RefasterRuleSet::treeType);
+        }
+        signatures.add(
+            TemplateSignature.create(
+                rootType, methodNameIndex < 0 ? null : strings[methodNameIndex]));
+      }
+      int length = buffer.getInt();
+      ByteBuffer encoded = buffer.slice();
+      encoded.limit(length);
+      buffer.position(buffer.position() + length);
+      rules.add(CompiledRefasterRule.lazy(qualifiedTemplateClass, signatures.build(), encoded));
+    }
+    return new RefasterRuleSet(rules.build());
+  }
+
+  private static Class<? extends Tree> treeType(String name) {
+    try {
+      return Class.forName(name, /* initialize= */ false, Tree.class.getClassLoader())
+          .asSubclass(Tree.class);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Unknown tree type in compiled Refaster rule set", e);
+    }
+  }
+
+  private Object writeReplace() {
+    return new SerializedForm(encode());
+  }
+
+  private void readObject(ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("Expected a serialized form");
+  }
+
+  /** The serialized form of a {@link RefasterRuleSet}: its {@linkplain #encode encoding}. */
+  private static final class SerializedForm implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] encoded;
+
+    SerializedForm(byte[] encoded) {
+      this.encoded = encoded;
+    }
+
+    private Object readResolve() {
+      return decode(ByteBuffer.wrap(encoded));
+    }
+  }
+}
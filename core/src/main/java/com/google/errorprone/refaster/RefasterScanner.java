@@ -16,12 +16,14 @@
 
 package com.google.errorprone.refaster;
 
-import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.TokenCache;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.IfTree;
@@ -32,48 +34,186 @@ import com.sun.source.tree.WhileLoopTree;
 import com.sun.source.util.SimpleTreeVisitor;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symbol;
-import com.sun.tools.javac.parser.JavaTokenizer;
-import com.sun.tools.javac.parser.ScannerFactory;
-import com.sun.tools.javac.parser.Tokens.Token;
-import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCStatement;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
-import java.nio.CharBuffer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
- * Scanner that outputs suggested fixes generated by a {@code RefasterMatcher}.
+ * Scanner that outputs suggested fixes generated by a set of {@link RefasterRule}s. The tree is
+ * walked once for all the rules, and each node is only unified with the before templates whose
+ * {@link TemplateSignature} is compatible with it.
  *
  * @author lowasser@google.com (Louis Wasserman)
  */
-@AutoValue
-abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
-    extends TreeScanner<Void, Context> {
-  static <M extends TemplateMatch, T extends Template<M>> RefasterScanner<M, T> create(
-      RefasterRule<M, T> rule, DescriptionListener listener) {
-    return new AutoValue_RefasterScanner<>(rule, listener);
+final class RefasterScanner extends TreeScanner<Void, Context> {
+
+  /** A before template of a rule, identified by its position and the rule's in the rule set. */
+  static final class RuleTemplate {
+    final int ruleIndex;
+    final int templateIndex;
+    final TemplateSignature signature;
+
+    RuleTemplate(int ruleIndex, int templateIndex, TemplateSignature signature) {
+      this.ruleIndex = ruleIndex;
+      this.templateIndex = templateIndex;
+      this.signature = signature;
+    }
+  }
+
+  /** Reports the matches of the specified before template of a rule against a tree. */
+  private <M extends TemplateMatch, T extends Template<M>> void reportMatches(
+      RefasterRule<M, T> rule,
+      int templateIndex,
+      JCTree tree,
+      Context context,
+      DescriptionListener listener) {
+    for (M match : rule.beforeTemplates().get(templateIndex).match(tree, context)) {
+      if (rule.rejectMatchesWithComments() && containsComment(match)) {
+        continue;
+      }
+      Description.Builder builder =
+          Description.builder(
+              match.getLocation(), rule.qualifiedTemplateClass(), "", SeverityLevel.WARNING, "");
+
+      if (rule.afterTemplates().isEmpty()) {
+        builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
+      } else {
+        for (T afterTemplate : rule.afterTemplates()) {
+          builder.addFix(afterTemplate.replace(match));
+        }
+      }
+      listener.onDescribed(builder.build());
+    }
   }
 
-  abstract RefasterRule<M, T> rule();
+  /**
+   * Returns whether the source of a match contains a comment, which the fix would drop. The
+   * comments of the compilation unit are indexed once by the {@link TokenCache} rather than lexing
+   * the source of every match.
+   */
+  private boolean containsComment(TemplateMatch match) {
+    if (source == null) {
+      try {
+        source = compilationUnit.getSourceFile().getCharContent(true);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return tokenCache.containsComment(
+        compilationUnit, source, match.getStartPosition(), match.getEndPosition(compilationUnit));
+  }
+
+  /** The before templates of some of the rules of a rule set, indexed for scanning. */
+  static final class Rules {
+    private final ImmutableList<CompiledRefasterRule> allRules;
+    private final TemplateIndex<RuleTemplate> index;
+    private final ImmutableListMultimap<String, Integer> rulesByTemplateClass;
 
-  abstract DescriptionListener listener();
+    /** Indexes the rules at the specified positions of {@code allRules}. */
+    static Rules create(
+        ImmutableList<CompiledRefasterRule> allRules, Iterable<Integer> ruleIndices) {
+      List<RuleTemplate> templates = new ArrayList<>();
+      ImmutableListMultimap.Builder<String, Integer> rulesByTemplateClass =
+          ImmutableListMultimap.builder();
+      for (int ruleIndex : ruleIndices) {
+        CompiledRefasterRule rule = allRules.get(ruleIndex);
+        ImmutableList<TemplateSignature> signatures = rule.beforeTemplateSignatures();
+        for (int templateIndex = 0; templateIndex < signatures.size(); templateIndex++) {
+          templates.add(
+              new RuleTemplate(ruleIndex, templateIndex, signatures.get(templateIndex)));
+        }
+        rulesByTemplateClass.put(rule.qualifiedTemplateClass(), ruleIndex);
+      }
+      return new Rules(
+          allRules,
+          TemplateIndex.create(templates, t -> t.signature),
+          rulesByTemplateClass.build());
+    }
+
+    private Rules(
+        ImmutableList<CompiledRefasterRule> allRules,
+        TemplateIndex<RuleTemplate> index,
+        ImmutableListMultimap<String, Integer> rulesByTemplateClass) {
+      this.allRules = allRules;
+      this.index = index;
+      this.rulesByTemplateClass = rulesByTemplateClass;
+    }
+
+    /**
+     * Scans the specified tree with these rules, returning the descriptions of the matches keyed
+     * by the position of their rule in the rule set.
+     */
+    SortedMap<Integer, List<Description>> scan(
+        Tree tree, Context context, JCCompilationUnit compilationUnit) {
+      RefasterScanner scanner =
+          new RefasterScanner(this, compilationUnit, TokenCache.instance(context));
+      scanner.scan(tree, context);
+      return scanner.descriptions;
+    }
+  }
+
+  private final Rules rules;
+  private final JCCompilationUnit compilationUnit;
+  private final TokenCache tokenCache;
+
+  /** The source of the compilation unit, once a match has been checked for comments. */
+  @Nullable private CharSequence source;
+
+  /**
+   * Each rule that was a candidate for any tree yet, resolved once so that the scan doesn't go
+   * through {@link CompiledRefasterRule#rule()} for every candidate.
+   */
+  private final RefasterRule<?, ?>[] resolvedRules;
+
+  /** The context of each rule that was a candidate for any tree yet, as prepared by the rule. */
+  private final Context[] ruleContexts;
+
+  /** How many of the enclosing classes define templates of each rule. */
+  private final int[] enclosingTemplateClasses;
+
+  private final SortedMap<Integer, List<Description>> descriptions = new TreeMap<>();
+
+  private RefasterScanner(Rules rules, JCCompilationUnit compilationUnit, TokenCache tokenCache) {
+    this.rules = rules;
+    this.compilationUnit = compilationUnit;
+    this.tokenCache = tokenCache;
+    this.resolvedRules = new RefasterRule<?, ?>[rules.allRules.size()];
+    this.ruleContexts = new Context[rules.allRules.size()];
+    this.enclosingTemplateClasses = new int[rules.allRules.size()];
+  }
 
   @Override
   public Void visitClass(ClassTree node, Context context) {
+    // Rules don't rewrite their own templates.
+    ImmutableList<Integer> templateRules = ImmutableList.of();
     Symbol sym = ASTHelpers.getSymbol(node);
-    if (sym == null || !sym.getQualifiedName().contentEquals(rule().qualifiedTemplateClass())) {
-      ListBuffer<JCStatement> statements = new ListBuffer<>();
-      for (Tree tree : node.getMembers()) {
-        if (tree instanceof JCStatement) {
-          statements.append((JCStatement) tree);
-        } else {
-          tree.accept(this, context);
-        }
+    if (sym != null) {
+      templateRules = rules.rulesByTemplateClass.get(sym.getQualifiedName().toString());
+    }
+    for (int ruleIndex : templateRules) {
+      enclosingTemplateClasses[ruleIndex]++;
+    }
+    ListBuffer<JCStatement> statements = new ListBuffer<>();
+    for (Tree tree : node.getMembers()) {
+      if (tree instanceof JCStatement) {
+        statements.append((JCStatement) tree);
+      } else {
+        tree.accept(this, context);
       }
-      scan(TreeMaker.instance(context).Block(0, statements.toList()), context);
+    }
+    scan(TreeMaker.instance(context).Block(0, statements.toList()), context);
+    for (int ruleIndex : templateRules) {
+      enclosingTemplateClasses[ruleIndex]--;
     }
     return null;
   }
@@ -83,40 +223,23 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
     if (tree == null) {
       return null;
     }
-    JCCompilationUnit compilationUnit = context.get(JCCompilationUnit.class);
-    for (T beforeTemplate : rule().beforeTemplates()) {
-      matchLoop:
-      for (M match : beforeTemplate.match((JCTree) tree, context)) {
-        if (rule().rejectMatchesWithComments()) {
-          String matchContents = match.getRange(compilationUnit);
-          JavaTokenizer tokenizer =
-              new JavaTokenizer(
-                  ScannerFactory.instance(context), CharBuffer.wrap(matchContents)) {};
-          for (Token token = tokenizer.readToken();
-              token.kind != TokenKind.EOF;
-              token = tokenizer.readToken()) {
-            if (token.comments != null && !token.comments.isEmpty()) {
-              continue matchLoop;
-            }
-          }
-        }
-        Description.Builder builder =
-            Description.builder(
-                match.getLocation(),
-                rule().qualifiedTemplateClass(),
-                "",
-                SeverityLevel.WARNING,
-                "");
-
-        if (rule().afterTemplates().isEmpty()) {
-          builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
-        } else {
-          for (T afterTemplate : rule().afterTemplates()) {
-            builder.addFix(afterTemplate.replace(match));
-          }
-        }
-        listener().onDescribed(builder.build());
+    for (RuleTemplate candidate : rules.index.candidates(tree)) {
+      int ruleIndex = candidate.ruleIndex;
+      if (enclosingTemplateClasses[ruleIndex] > 0) {
+        continue;
+      }
+      RefasterRule<?, ?> rule = resolvedRules[ruleIndex];
+      if (rule == null) {
+        rule = rules.allRules.get(ruleIndex).rule();
+        resolvedRules[ruleIndex] = rule;
+        ruleContexts[ruleIndex] = rule.prepareContext(context, compilationUnit);
       }
+      reportMatches(
+          rule,
+          candidate.templateIndex,
+          (JCTree) tree,
+          ruleContexts[ruleIndex],
+          d -> descriptions.computeIfAbsent(ruleIndex, i -> new ArrayList<>()).add(d));
     }
     return super.scan(tree, context);
   }
@@ -99,6 +99,11 @@ public abstract class Template<M extends TemplateMatch> implements Serializable
 
   public abstract Fix replace(M match);
 
+  /** Returns a cheap necessary condition for this template to match a tree. */
+  TemplateSignature signature() {
+    return TemplateSignature.ANY;
+  }
+
   Iterable<UTypeVar> typeVariables(Context context) {
     ImmutableList<UTypeVar> ruleTypeVars = context.get(RefasterRule.RULE_TYPE_VARS);
     return Iterables.concat(
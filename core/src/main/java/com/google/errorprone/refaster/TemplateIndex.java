@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.lang.model.element.Name;
+
+/**
+ * Indexes templates by their {@link TemplateSignature}, so that only the templates that might match
+ * a tree are unified with it.
+ *
+ * <p>The candidates for a tree are returned in the order the templates were indexed in.
+ *
+ * @param <T> The type of the indexed templates, or of entries that carry them.
+ */
+final class TemplateIndex<T> {
+  /** The templates that may match trees of any type for which there is no more specific entry. */
+  private final ImmutableList<T> anyTree;
+
+  private final ImmutableMap<Class<? extends Tree>, ImmutableList<T>> byRootType;
+
+  /** The candidates for invocations of each method that some template is known to invoke. */
+  private final ImmutableMap<String, ImmutableList<T>> byMethodName;
+
+  static <T> TemplateIndex<T> create(
+      Iterable<? extends T> templates, Function<? super T, TemplateSignature> signatures) {
+    Set<Class<? extends Tree>> rootTypes = new LinkedHashSet<>();
+    Set<String> methodNames = new LinkedHashSet<>();
+    for (T template : templates) {
+      TemplateSignature signature = signatures.apply(template);
+      if (signature.rootType() != null) {
+        rootTypes.add(signature.rootType());
+      }
+      if (signature.methodName() != null) {
+        methodNames.add(signature.methodName());
+      }
+    }
+    ImmutableMap.Builder<Class<? extends Tree>, ImmutableList<T>> byRootType =
+        ImmutableMap.builder();
+    for (Class<? extends Tree> rootType : rootTypes) {
+      byRootType.put(rootType, candidates(templates, signatures, rootType, null));
+    }
+    ImmutableMap.Builder<String, ImmutableList<T>> byMethodName = ImmutableMap.builder();
+    for (String methodName : methodNames) {
+      byMethodName.put(
+          methodName, candidates(templates, signatures, MethodInvocationTree.class, methodName));
+    }
+    return new TemplateIndex<>(
+        candidates(templates, signatures, null, null), byRootType.build(), byMethodName.build());
+  }
+
+  /**
+   * Returns the templates whose signature is compatible with a tree of the specified type invoking
+   * the specified method, where null stands for a tree or method that no template is specific to.
+   */
+  private static <T> ImmutableList<T> candidates(
+      Iterable<? extends T> templates,
+      Function<? super T, TemplateSignature> signatures,
+      @Nullable Class<? extends Tree> rootType,
+      @Nullable String methodName) {
+    ImmutableList.Builder<T> candidates = ImmutableList.builder();
+    for (T template : templates) {
+      TemplateSignature signature = signatures.apply(template);
+      if (signature.rootType() != null && !signature.rootType().equals(rootType)) {
+        continue;
+      }
+      if (signature.methodName() != null && !signature.methodName().equals(methodName)) {
+        continue;
+      }
+      candidates.add(template);
+    }
+    return candidates.build();
+  }
+
+  private TemplateIndex(
+      ImmutableList<T> anyTree,
+      ImmutableMap<Class<? extends Tree>, ImmutableList<T>> byRootType,
+      ImmutableMap<String, ImmutableList<T>> byMethodName) {
+    this.anyTree = anyTree;
+    this.byRootType = byRootType;
+    this.byMethodName = byMethodName;
+  }
+
+  /** Returns the templates that might match the specified tree. */
+  ImmutableList<T> candidates(Tree tree) {
+    Class<? extends Tree> rootType = tree.getKind().asInterface();
+    if (rootType == null) {
+      return anyTree;
+    }
+    if (rootType.equals(MethodInvocationTree.class) && !byMethodName.isEmpty()) {
+      Name methodName = TemplateSignature.invokedMethodName((MethodInvocationTree) tree);
+      if (methodName != null) {
+        ImmutableList<T> candidates = byMethodName.get(methodName.toString());
+        if (candidates != null) {
+          return candidates;
+        }
+      }
+    }
+    ImmutableList<T> candidates = byRootType.get(rootType);
+    return (candidates != null) ? candidates : anyTree;
+  }
+}
@@ -48,12 +48,20 @@ public abstract class TemplateMatch {
     return unifier.createInliner();
   }
 
+  /** Returns the position in the source of the start of the match. */
+  public int getStartPosition() {
+    return location.getStartPosition();
+  }
+
+  /** Returns the position in the source of the end of the match. */
+  public int getEndPosition(JCCompilationUnit unit) {
+    return location.getEndPosition(unit.endPositions);
+  }
+
   public String getRange(JCCompilationUnit unit) {
     try {
       CharSequence sequence = unit.getSourceFile().getCharContent(true);
-      return sequence
-          .subSequence(location.getStartPosition(), location.getEndPosition(unit.endPositions))
-          .toString();
+      return sequence.subSequence(getStartPosition(), getEndPosition(unit)).toString();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
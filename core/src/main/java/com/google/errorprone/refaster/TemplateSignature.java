@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.auto.value.AutoValue;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import javax.annotation.Nullable;
+import javax.lang.model.element.Name;
+
+/**
+ * A cheap necessary condition for a template to match a tree: the type of tree at the root of the
+ * template and, for method invocations, the simple name of the invoked method. Checking it is much
+ * cheaper than attempting unification, which allocates a {@link Unifier} and visits the template.
+ */
+@AutoValue
+abstract class TemplateSignature {
+  /** The signature of a template that may match any tree. */
+  static final TemplateSignature ANY = create(null, null);
+
+  static TemplateSignature create(
+      @Nullable Class<? extends Tree> rootType, @Nullable String methodName) {
+    return new AutoValue_TemplateSignature(rootType, methodName);
+  }
+
+  /**
+   * Returns the signature of a template rooted at the specified expression.
+   *
+   * <p>Only templates whose root unifies exclusively with trees of its own kind are restricted;
+   * identifiers, parentheses, placeholders and {@code Refaster.anyOf} and friends may match trees
+   * of other kinds, so their signature is {@link #ANY}.
+   */
+  static TemplateSignature of(UExpression expression) {
+    if (expression instanceof UMethodInvocation) {
+      UExpression methodSelect = ((UMethodInvocation) expression).getMethodSelect();
+      String methodName = null;
+      if (methodSelect instanceof UStaticIdent) {
+        methodName = ((UStaticIdent) methodSelect).getName().contents();
+      } else if (methodSelect instanceof UMemberSelect) {
+        methodName = ((UMemberSelect) methodSelect).getIdentifier().contents();
+      }
+      return create(MethodInvocationTree.class, methodName);
+    }
+    if (expression instanceof UArrayAccess
+        || expression instanceof UAssign
+        || expression instanceof UAssignOp
+        || expression instanceof UBinary
+        || expression instanceof UConditional
+        || expression instanceof UInstanceOf
+        || expression instanceof ULambda
+        || expression instanceof ULiteral
+        || expression instanceof UMemberReference
+        || expression instanceof UNewArray
+        || expression instanceof UNewClass
+        || expression instanceof UTypeCast
+        || expression instanceof UUnary) {
+      return create(expression.getKind().asInterface(), null);
+    }
+    return ANY;
+  }
+
+  /** The interface of the trees the template may match, or null if it may match any tree. */
+  @Nullable
+  abstract Class<? extends Tree> rootType();
+
+  /** The simple name of the method the template invokes, or null if it may invoke any method. */
+  @Nullable
+  abstract String methodName();
+
+  /** Returns the simple name of the method invoked by the specified tree, if it is that simple. */
+  @Nullable
+  static Name invokedMethodName(MethodInvocationTree tree) {
+    Tree methodSelect = tree.getMethodSelect();
+    switch (methodSelect.getKind()) {
+      case IDENTIFIER:
+        return ((IdentifierTree) methodSelect).getName();
+      case MEMBER_SELECT:
+        return ((MemberSelectTree) methodSelect).getIdentifier();
+      default:
+        return null;
+    }
+  }
+}
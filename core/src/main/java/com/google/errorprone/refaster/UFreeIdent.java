@@ -74,6 +74,13 @@ public abstract class UFreeIdent extends UIdent {
       JCExpression expression = (JCExpression) target;
 
       JCExpression currentBinding = unifier.getBinding(key());
+      // If it's the same code, treat it as the same expression. Anything else is rejected before
+      // scanning the expression, which is much more expensive.
+      // TODO(lowasser): try checking types here in a way that doesn't reject
+      // different wildcard captures
+      if (currentBinding != null && !currentBinding.toString().equals(expression.toString())) {
+        return Choice.none();
+      }
 
       // Check that the expression does not reference any template-local variables.
       boolean isGood =
@@ -100,13 +107,8 @@ public abstract class UFreeIdent extends UIdent {
         return Choice.none();
       } else if (currentBinding == null) {
         unifier.putBinding(key(), expression);
-        return Choice.of(unifier);
-      } else if (currentBinding.toString().equals(expression.toString())) {
-        // TODO(lowasser): try checking types here in a way that doesn't reject
-        // different wildcard captures
-        // If it's the same code, treat it as the same expression.
-        return Choice.of(unifier);
       }
+      return Choice.of(unifier);
     }
     return Choice.none();
   }
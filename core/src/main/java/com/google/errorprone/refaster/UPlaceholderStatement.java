@@ -124,15 +124,19 @@ abstract class UPlaceholderStatement implements UStatement {
         break; // we saw a variable that's not allowed to be referenced
       }
       // Consume another statement, or if that fails, fall back to the previous choices...
+      // Each choice is chosen from both by the next one and by realOptions, so it is memoized
+      // rather than unifying the statements before it again for every option that is tried.
       choiceToHere =
-          choiceToHere.thenChoose(
-              (final State<ConsumptionState> consumptionState) ->
-                  visitor
-                      .unifyStatement(targetStatement, consumptionState)
-                      .transform(
-                          (State<? extends JCStatement> stmtState) ->
-                              stmtState.withResult(
-                                  consumptionState.result().consume(stmtState.result()))));
+          choiceToHere
+              .thenChoose(
+                  (final State<ConsumptionState> consumptionState) ->
+                      visitor
+                          .unifyStatement(targetStatement, consumptionState)
+                          .transform(
+                              (State<? extends JCStatement> stmtState) ->
+                                  stmtState.withResult(
+                                      consumptionState.result().consume(stmtState.result()))))
+              .memoize();
       if (verification.allRequiredMatched()) {
         realOptions = choiceToHere.or(realOptions);
       }
@@ -27,28 +27,58 @@ import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
  * A mutable representation of an attempt to match a template source tree against a target source
  * tree.
  *
+ * <p>The bindings are a persistent list that is shared with the {@code Unifier}s this one was
+ * forked from and into, so forking takes constant time however many bindings there are; binding a
+ * key adds an entry to the head of this {@code Unifier}'s list without affecting any other.
+ *
  * @author Louis Wasserman
  */
 public final class Unifier {
-  private final Bindings bindings;
+  /** A binding, or the removal of one if {@code value} is null, and the entries before it. */
+  private static final class Entry {
+    final Bindings.Key<?> key;
+    @Nullable final Object value;
+    @Nullable final Entry next;
+
+    Entry(Bindings.Key<?> key, @Nullable Object value, @Nullable Entry next) {
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  @Nullable private Entry bindings;
 
-  private final Context context;
+  /** The bindings as a map, if they were requested since they last changed. */
+  @Nullable private Bindings bindingsMap;
+
+  /** The context of the {@code Unifier} this one was forked from, or its own if it isn't a fork. */
+  private final Context baseContext;
+
+  /**
+   * The context of this {@code Unifier}, which for a fork is a {@link SubContext} of its base
+   * context that is only created once it is needed.
+   */
+  @Nullable private Context context;
 
   public Unifier(Context context) {
-    this.bindings = Bindings.create();
-    this.context = checkNotNull(context);
+    this(checkNotNull(context), null, null);
+    this.context = context;
   }
 
-  private Unifier(Context context, Bindings bindings) {
-    this.context = new SubContext(context);
-    this.bindings = Bindings.create(bindings);
+  private Unifier(Context baseContext, @Nullable Entry bindings, @Nullable Bindings bindingsMap) {
+    this.baseContext = baseContext;
+    this.bindings = bindings;
+    this.bindingsMap = bindingsMap;
   }
 
   /**
@@ -56,51 +86,82 @@ public final class Unifier {
    * succeed or fail independently of this {@code Unifier}.
    */
   public Unifier fork() {
-    return new Unifier(context, bindings);
+    return new Unifier((context != null) ? context : baseContext, bindings, bindingsMap);
   }
 
   public Types types() {
-    return Types.instance(context);
+    return Types.instance(baseContext);
   }
 
   public JCExpression thisExpression(Type type) {
-    return TreeMaker.instance(context).This(type);
+    return TreeMaker.instance(baseContext).This(type);
   }
 
   public Inliner createInliner() {
-    return new Inliner(context, bindings);
+    return new Inliner(getContext(), getBindings());
   }
 
   @Nullable
+  @SuppressWarnings("unchecked")
   public <V> V getBinding(Bindings.Key<V> key) {
-    return bindings.getBinding(key);
+    checkNotNull(key);
+    for (Entry entry = bindings; entry != null; entry = entry.next) {
+      if (entry.key == key || entry.key.equals(key)) {
+        return (V) entry.value;
+      }
+    }
+    return null;
   }
 
   public <V> V putBinding(Bindings.Key<V> key, V value) {
-    checkArgument(!bindings.containsKey(key), "Cannot bind %s more than once", key);
-    return bindings.putBinding(key, value);
+    checkArgument(getBinding(key) == null, "Cannot bind %s more than once", key);
+    bind(key, checkNotNull(value));
+    return null;
   }
 
   public <V> V replaceBinding(Bindings.Key<V> key, V value) {
-    checkArgument(bindings.containsKey(key), "Binding for %s does not exist", key);
-    return bindings.putBinding(key, value);
+    V previous = getBinding(key);
+    checkArgument(previous != null, "Binding for %s does not exist", key);
+    bind(key, checkNotNull(value));
+    return previous;
   }
 
   public void clearBinding(Bindings.Key<?> key) {
-    bindings.remove(key);
+    if (getBinding(key) != null) {
+      bind(key, null);
+    }
+  }
+
+  private void bind(Bindings.Key<?> key, @Nullable Object value) {
+    bindings = new Entry(key, value, bindings);
+    bindingsMap = null;
   }
 
+  @SuppressWarnings("unchecked")
   public Bindings getBindings() {
-    return bindings.unmodifiable();
+    if (bindingsMap == null) {
+      Bindings map = Bindings.create();
+      Set<Bindings.Key<?>> seen = new HashSet<>();
+      for (Entry entry = bindings; entry != null; entry = entry.next) {
+        if (seen.add(entry.key) && entry.value != null) {
+          map.putBinding((Bindings.Key<Object>) entry.key, entry.value);
+        }
+      }
+      bindingsMap = map.unmodifiable();
+    }
+    return bindingsMap;
   }
 
   public Context getContext() {
+    if (context == null) {
+      context = new SubContext(baseContext);
+    }
     return context;
   }
 
   @Override
   public String toString() {
-    return "Unifier{" + bindings + "}";
+    return "Unifier{" + getBindings() + "}";
   }
 
   public static <T, U extends Unifiable<? super T>> Function<Unifier, Choice<Unifier>> unifications(
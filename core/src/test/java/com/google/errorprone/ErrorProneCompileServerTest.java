@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.bugpatterns.DeadException;
+import com.google.errorprone.scanner.ScannerSupplier;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ErrorProneCompileServer}. */
+@RunWith(JUnit4.class)
+public class ErrorProneCompileServerTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+  private ErrorProneCompileServer server(double maxHeapFraction) {
+    return new ErrorProneCompileServer(
+        new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(DeadException.class)),
+        maxHeapFraction,
+        new PrintStream(log, true));
+  }
+
+  private String request(String... args) {
+    return Joiner.on('\n').join(args) + "\n\n";
+  }
+
+  @Test
+  public void servesSeveralRequests() throws IOException {
+    Path out = temporaryFolder.newFolder().toPath();
+    Path bad = temporaryFolder.newFile("Bad.java").toPath();
+    Files.write(
+        bad, ImmutableList.of("class Bad {", "  void f() {", "    new Exception();", "  }", "}"));
+    Path good = temporaryFolder.newFile("Good.java").toPath();
+    Files.write(good, ImmutableList.of("class Good {}"));
+    String input =
+        request("-d", out.toString(), bad.toString())
+            + request("-d", out.toString(), good.toString());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    boolean running = server(1).serve(new ByteArrayInputStream(input.getBytes(UTF_8)), output);
+
+    assertThat(running).isTrue();
+    List<Response> responses = Response.parse(output.toByteArray());
+    assertThat(responses).hasSize(2);
+    assertThat(responses.get(0).exitCode).isEqualTo(ErrorProneCompileServer.EXIT_ERROR);
+    assertThat(responses.get(0).output).contains("[DeadException]");
+    assertThat(responses.get(1).exitCode).isEqualTo(ErrorProneCompileServer.EXIT_OK);
+    assertThat(responses.get(1).output).isEmpty();
+    assertThat(Files.exists(out.resolve("Good.class"))).isTrue();
+    assertThat(new String(log.toByteArray(), UTF_8)).contains("Request 2: exit code 0");
+  }
+
+  @Test
+  public void shutsDownWhenHeapIsFull() throws IOException {
+    Path good = temporaryFolder.newFile("Good.java").toPath();
+    Files.write(good, ImmutableList.of("class Good {}"));
+    String request = request("-d", temporaryFolder.newFolder().toString(), good.toString());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    boolean running =
+        server(0).serve(new ByteArrayInputStream((request + request).getBytes(UTF_8)), output);
+
+    assertThat(running).isFalse();
+    assertThat(Response.parse(output.toByteArray())).hasSize(1);
+    assertThat(new String(log.toByteArray(), UTF_8)).contains("Shutting down");
+  }
+
+  private static final class Response {
+    final int exitCode;
+    final String output;
+
+    Response(int exitCode, String output) {
+      this.exitCode = exitCode;
+      this.output = output;
+    }
+
+    static List<Response> parse(byte[] bytes) {
+      List<Response> responses = new ArrayList<>();
+      int pos = 0;
+      while (pos < bytes.length) {
+        int newline = pos;
+        while (bytes[newline] != '\n') {
+          newline++;
+        }
+        String[] header = new String(bytes, pos, newline - pos, UTF_8).split(" ");
+        int length = Integer.parseInt(header[2]);
+        responses.add(
+            new Response(
+                Integer.parseInt(header[0]), new String(bytes, newline + 1, length, UTF_8)));
+        pos = newline + 1 + length;
+      }
+      return responses;
+    }
+  }
+}
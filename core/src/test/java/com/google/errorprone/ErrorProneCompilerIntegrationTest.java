@@ -54,9 +54,11 @@ import com.sun.source.tree.Tree;
 import com.sun.tools.javac.main.Main.Result;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import javax.lang.model.element.Name;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
@@ -693,4 +695,67 @@ public class ErrorProneCompilerIntegrationTest {
     outputStream.flush();
     assertThat(outputStream.toString(), exitCode, is(Result.OK));
   }
+
+  @Test
+  public void parallelismReportsSameFindings() {
+    List<JavaFileObject> sources =
+        Arrays.asList(
+            compiler
+                .fileManager()
+                .forSourceLines(
+                    "Test.java",
+                    "package test;",
+                    "public class Test {",
+                    "  Object f() { return \"XYLOPHONE\"; }",
+                    "  Object g() { return null; }",
+                    "}"));
+
+    compilerBuilder.report(
+        ScannerSupplier.fromBugCheckerClasses(CPSChecker.class, ForbiddenString.class));
+    compiler = compilerBuilder.build();
+    Result exitCode =
+        compiler.compile(
+            new String[] {"-XepParallelism:4", "-XepOpt:Forbidden=xylophone"}, sources);
+    outputStream.flush();
+    assertThat(outputStream.toString(), exitCode, is(Result.ERROR));
+    String output = diagnosticHelper.getDiagnostics().toString();
+    assertThat(output).contains("[ForbiddenString]");
+    assertThat(output).contains("[CPSChecker]");
+  }
+
+  @Test
+  public void resultCacheReplaysFindingsForUnchangedSources() throws Exception {
+    List<JavaFileObject> sources =
+        Arrays.asList(
+            compiler
+                .fileManager()
+                .forSourceLines(
+                    "Test.java",
+                    "package test;",
+                    "public class Test {",
+                    "  Object f() { return \"XYLOPHONE\"; }",
+                    "}"));
+    String[] args = {
+      "-XepResultCache:" + tmpFolder.newFolder().getAbsolutePath(), "-XepOpt:Forbidden=xylophone"
+    };
+
+    compilerBuilder.report(ScannerSupplier.fromBugCheckerClasses(ForbiddenString.class));
+    compiler = compilerBuilder.build();
+    Result exitCode = compiler.compile(args, sources);
+    outputStream.flush();
+    assertThat(outputStream.toString(), exitCode, is(Result.ERROR));
+    assertThat(outputStream.toString()).contains("0 hits, 1 miss (1 new file)");
+
+    exitCode = compiler.compile(args, sources);
+    outputStream.flush();
+    assertThat(outputStream.toString(), exitCode, is(Result.ERROR));
+    assertThat(outputStream.toString()).contains("1 hit, 0 misses");
+    List<String> findings = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticHelper.getDiagnostics()) {
+      findings.add(diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ENGLISH));
+    }
+    assertThat(findings).hasSize(2);
+    assertThat(findings.get(1)).isEqualTo(findings.get(0));
+    assertThat(findings.get(0)).contains("[ForbiddenString]");
+  }
 }
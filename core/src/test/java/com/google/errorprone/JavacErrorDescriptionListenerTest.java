@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.bugpatterns.DeadException;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.sun.tools.javac.util.JCDiagnostic;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link JavacErrorDescriptionListener}. */
+@RunWith(JUnit4.class)
+public class JavacErrorDescriptionListenerTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void diagnosticsDontKeepTrees() throws IOException {
+    Path source = temporaryFolder.newFile("Test.java").toPath();
+    Files.write(
+        source,
+        ImmutableList.of(
+            "class Test {",
+            "  void f() {",
+            "    new RuntimeException();",
+            "    new RuntimeException();",
+            "  }",
+            "}"));
+    ErrorProneJavaCompiler compiler =
+        new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(DeadException.class));
+    DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(diagnosticCollector, null, null)) {
+      CompilationTask task =
+          compiler.getTask(
+              null,
+              fileManager,
+              diagnosticCollector,
+              ImmutableList.of("-d", temporaryFolder.newFolder().toString()),
+              null,
+              fileManager.getJavaFileObjects(source.toFile()));
+      assertThat(task.call()).isFalse();
+    }
+
+    List<Diagnostic<? extends JavaFileObject>> diagnostics = diagnosticCollector.getDiagnostics();
+    assertThat(diagnostics).hasSize(2);
+    JCDiagnostic first = (JCDiagnostic) diagnostics.get(0);
+    JCDiagnostic second = (JCDiagnostic) diagnostics.get(1);
+    assertThat(first.getDiagnosticPosition().getTree()).isNull();
+    assertThat(first.getLineNumber()).isEqualTo(3);
+    assertThat(first.getEndPosition()).isGreaterThan(first.getStartPosition());
+    assertThat(second.getLineNumber()).isEqualTo(4);
+    assertThat(second.getArgs()[0]).isSameInstanceAs(first.getArgs()[0]);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.MethodInvocationTree;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ResolutionCache}. */
+@RunWith(JUnit4.class)
+public class ResolutionCacheTest {
+
+  /** Resolves the same names twice on each method invocation, and reports its resolutions. */
+  @BugPattern(
+      name = "ResolutionCounters",
+      summary = "Reports ResolutionCache counters",
+      severity = ERROR)
+  public static final class ResolutionCounters extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      for (int i = 0; i < 2; i++) {
+        state.getTypeFromString("java.util.List");
+        state.getTypeFromString("java.util.BitSet");
+        state.getTypeFromString("does.not.Exist");
+      }
+      ErrorProneTimings.Timer timer = ErrorProneTimings.instance(state.context).timer(this);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "resolutions/misses: %d/%d", timer.resolutions(), timer.resolutionMisses()))
+          .build();
+    }
+  }
+
+  private final CompilationTestHelper compilationHelper =
+      CompilationTestHelper.newInstance(ResolutionCounters.class, getClass());
+
+  @Test
+  public void cachesResolvedNamesAndCountsThemPerCheck() {
+    // The first invocation resolves each type and its symbol once; the unresolvable name is only
+    // looked up once per compilation unit.
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "import java.util.BitSet;",
+            "import java.util.List;",
+            "class Test {",
+            "  void f(List<String> xs, BitSet bits) {",
+            "    // BUG: Diagnostic contains: resolutions/misses: 8/6",
+            "    xs.clear();",
+            "    // BUG: Diagnostic contains: resolutions/misses: 12/6",
+            "    bits.clear();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void wellKnownNames() {
+    assertThat(ResolutionCache.WELL_KNOWN_SLOTS).containsKey("java.lang.String");
+    assertThat(ResolutionCache.WELL_KNOWN_SLOTS).doesNotContainKey("java.util.BitSet");
+  }
+}
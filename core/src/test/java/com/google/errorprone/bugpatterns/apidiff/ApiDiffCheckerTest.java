@@ -88,6 +88,18 @@ public class ApiDiffCheckerTest {
     }
   }
 
+  /** An {@link ApiDiffChecker} for members of nested JDK classes. */
+  @BugPattern(name = "NestedClassChecker", severity = SeverityLevel.ERROR, summary = "")
+  public static class NestedClassApiDiffChecker extends ApiDiffChecker {
+    public NestedClassApiDiffChecker() {
+      super(
+          ApiDiff.fromMembers(
+              ImmutableSet.of("java/util/AbstractMap$SimpleImmutableEntry"),
+              ImmutableSetMultimap.of(
+                  "java/util/Map$Entry", ClassMemberKey.create("comparingByKey", ""))));
+    }
+  }
+
   public ApiDiffCheckerTest() {
     compilationHelper =
         CompilationTestHelper.newInstance(AnnotationOnlyApiDiffChecker.class, getClass());
@@ -277,6 +289,28 @@ public class ApiDiffCheckerTest {
     assertThat(result.diagnostics()).isEmpty();
   }
 
+  @Test
+  public void nestedClasses() {
+    CompilationTestHelper.newInstance(NestedClassApiDiffChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "import java.util.AbstractMap;",
+            "import java.util.Map;",
+            "class Test {",
+            "  void f() {",
+            "    // BUG: Diagnostic contains: java.util.Map.Entry#<K,V>comparingByKey()",
+            "    Map.Entry.comparingByKey();",
+            "    // BUG: Diagnostic contains: java.util.Map.Entry#<K,V>comparingByKey",
+            "    Map.Entry.comparingByKey(String.CASE_INSENSITIVE_ORDER);",
+            "    Map.Entry.comparingByValue();",
+            "    // BUG: Diagnostic contains: AbstractMap.SimpleImmutableEntry is not available",
+            "    new AbstractMap.SimpleImmutableEntry<>(1, 2);",
+            "    new AbstractMap.SimpleEntry<>(1, 2);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
   @Test
   public void movedToSuperMethodFromMiddle() throws Exception {
     ApiDiff diff =
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+import java.util.*;
+
+@RunWith(JUnit4.class)
+public class DiagnosticMatcherTest {
+
+    private static Diagnostic<JavaFileObject> diagnostic(String path, String check, long line, long column) {
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("file://" + path), JavaFileObject.Kind.SOURCE) {};
+        return new Diagnostic<JavaFileObject>() {
+            @Override public Kind getKind() { return Kind.WARNING; }
+            @Override public JavaFileObject getSource() { return source; }
+            @Override public long getPosition() { return NOPOS; }
+            @Override public long getStartPosition() { return NOPOS; }
+            @Override public long getEndPosition() { return NOPOS; }
+            @Override public long getLineNumber() { return line; }
+            @Override public long getColumnNumber() { return column; }
+            @Override public String getCode() { return null; }
+            @Override public String getMessage(Locale locale) { return "[" + check + "] message"; }
+            @Override public String toString() { return path + ":" + line + ":" + column + " " + check; }
+        };
+    }
+
+    /** Moves every diagnostic down one line, and renames Old.java to New.java. */
+    private static final class ShiftingComparer implements KeyedBugComparer {
+        @Override
+        public Optional<DiagnosticKey> keyInNewerCommit(Diagnostic<? extends JavaFileObject> oldDiagnostic) {
+            DiagnosticKey key = DiagnosticKey.of(oldDiagnostic);
+            String path = key.getPath().equals("/Old.java") ? "/New.java" : key.getPath();
+            return Optional.of(new DiagnosticKey(path, key.getCheckName(), key.getLine() + 1));
+        }
+
+        @Override
+        public Optional<Diagnostic<? extends JavaFileObject>> breakTies(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                                                                        Collection<Diagnostic<? extends JavaFileObject>> newDiagnostics) {
+            return newDiagnostics.stream()
+                    .filter(diagnostic -> diagnostic.getColumnNumber() == oldDiagnostic.getColumnNumber())
+                    .findFirst();
+        }
+    }
+
+    private static final class RecordingListener implements DiagnosticMatcher.Listener {
+        final Map<Diagnostic<? extends JavaFileObject>, Diagnostic<? extends JavaFileObject>> matches = new HashMap<>();
+        final List<Diagnostic<? extends JavaFileObject>> unmatchedOld = new ArrayList<>();
+        final List<Diagnostic<? extends JavaFileObject>> unmatchedNew = new ArrayList<>();
+
+        @Override
+        public void matched(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                            Diagnostic<? extends JavaFileObject> newDiagnostic) {
+            matches.put(oldDiagnostic, newDiagnostic);
+        }
+
+        @Override
+        public void unmatchedOld(Diagnostic<? extends JavaFileObject> oldDiagnostic) {
+            unmatchedOld.add(oldDiagnostic);
+        }
+
+        @Override
+        public void unmatchedNew(Diagnostic<? extends JavaFileObject> newDiagnostic) {
+            unmatchedNew.add(newDiagnostic);
+        }
+    }
+
+    @Test
+    public void matchesByKeyAndBreaksTiesInsideBucket() {
+        Diagnostic<JavaFileObject> moved = diagnostic("/A.java", "DeadException", 3, 5);
+        Diagnostic<JavaFileObject> renamed = diagnostic("/Old.java", "DeadException", 7, 1);
+        Diagnostic<JavaFileObject> tiedLeft = diagnostic("/A.java", "ReferenceEquality", 10, 9);
+        Diagnostic<JavaFileObject> fixed = diagnostic("/A.java", "DeadException", 20, 1);
+
+        Diagnostic<JavaFileObject> movedNew = diagnostic("/A.java", "DeadException", 4, 5);
+        Diagnostic<JavaFileObject> renamedNew = diagnostic("/New.java", "DeadException", 8, 1);
+        Diagnostic<JavaFileObject> tiedLeftNew = diagnostic("/A.java", "ReferenceEquality", 11, 9);
+        Diagnostic<JavaFileObject> tiedRightNew = diagnostic("/A.java", "ReferenceEquality", 11, 30);
+        Diagnostic<JavaFileObject> otherCheck = diagnostic("/A.java", "MissingOverride", 21, 1);
+
+        RecordingListener listener = new RecordingListener();
+        DiagnosticMatcher.match(
+                Arrays.asList(moved, renamed, tiedLeft, fixed),
+                Arrays.asList(movedNew, renamedNew, tiedLeftNew, tiedRightNew, otherCheck),
+                new ShiftingComparer(),
+                listener);
+
+        Assert.assertEquals(3, listener.matches.size());
+        Assert.assertSame(movedNew, listener.matches.get(moved));
+        Assert.assertSame(renamedNew, listener.matches.get(renamed));
+        Assert.assertSame(tiedLeftNew, listener.matches.get(tiedLeft));
+        Assert.assertEquals(Collections.singletonList(fixed), listener.unmatchedOld);
+        Assert.assertEquals(Arrays.asList(tiedRightNew, otherCheck), listener.unmatchedNew);
+    }
+
+    @Test
+    public void keyedComparerAgreesWithItsKeys() {
+        ShiftingComparer comparer = new ShiftingComparer();
+
+        Assert.assertTrue(comparer.areSame(
+                diagnostic("/A.java", "DeadException", 3, 5), diagnostic("/A.java", "DeadException", 4, 1)));
+        Assert.assertFalse(comparer.areSame(
+                diagnostic("/A.java", "DeadException", 3, 5), diagnostic("/A.java", "MissingOverride", 4, 5)));
+    }
+}
@@ -16,7 +16,12 @@
 
 package com.google.errorprone.bugtrack;
 
+import com.github.difflib.DiffUtils;
 import com.github.difflib.algorithm.DiffException;
+import com.github.difflib.algorithm.jgit.HistogramDiff;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Chunk;
+import com.github.difflib.patch.Patch;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -96,4 +101,79 @@ public class LineMotionTrackerTest {
         Assert.assertEquals(Optional.of(221L), lineMotionTracker.getNewLine(219));
         Assert.assertEquals(Optional.of(222L), lineMotionTracker.getNewLine(220));
     }
+
+    @Test
+    public void canMapManyLinesAtOnce() throws IOException, DiffException {
+        List<String> oldFile = loadTestFile("Tag.java");
+        List<String> newFile = loadTestFile("Tag_Newer.java");
+
+        LineMotionTracker lineMotionTracker = new LineMotionTracker(oldFile, newFile);
+
+        long[] lines = {221, 18, 19, 219, 29};
+        Assert.assertArrayEquals(
+                new long[] {232, 20, LineMotionTracker.NO_LINE, 221, 30}, lineMotionTracker.mapLines(lines));
+    }
+
+    /**
+     * The per-line algorithm LineMotionTracker used before it indexed the patch: a linear scan of
+     * the deltas for each line. Kept here as the reference the indexed lookups must agree with.
+     */
+    private static long baselineNewLine(List<String> oldText, Patch<String> filePatch, long line) {
+        long internalLine = line - 1;
+        Optional<AbstractDelta<String>> patch = filePatch.getDeltas().stream()
+                .filter(delta -> {
+                    Chunk<String> source = delta.getSource();
+                    return source.getPosition() <= internalLine
+                            && internalLine < source.getPosition() + source.size();
+                })
+                .findFirst();
+        if (patch.isPresent()) {
+            Chunk<String> target = patch.get().getTarget();
+            switch (patch.get().getType()) {
+                case INSERT:
+                    return target.getPosition() + target.size();
+                case CHANGE:
+                    int offsetInChange = target.getLines().indexOf(oldText.get((int) internalLine));
+                    return offsetInChange == -1
+                            ? LineMotionTracker.NO_LINE : target.getPosition() + offsetInChange;
+                default:
+                    return LineMotionTracker.NO_LINE;
+            }
+        }
+        int shift = filePatch.getDeltas().stream()
+                .filter(delta ->
+                        delta.getSource().getPosition() + delta.getSource().size() <= internalLine)
+                .mapToInt(delta -> delta.getTarget().size() - delta.getSource().size())
+                .sum();
+        return line + shift;
+    }
+
+    private void assertAgreesWithBaseline(String oldName, String newName)
+            throws IOException, DiffException {
+        List<String> oldFile = loadTestFile(oldName);
+        List<String> newFile = loadTestFile(newName);
+        Patch<String> filePatch = DiffUtils.diff(oldFile, newFile, new HistogramDiff<>());
+
+        LineMotionTracker lineMotionTracker = new LineMotionTracker(oldFile, newFile);
+
+        long[] lines = new long[oldFile.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = i + 1;
+        }
+        long[] newLines = lineMotionTracker.mapLines(lines);
+        for (int i = 0; i < lines.length; i++) {
+            long expected = baselineNewLine(oldFile, filePatch, lines[i]);
+            Assert.assertEquals("line " + lines[i], expected, newLines[i]);
+            Optional<Long> newLine = lineMotionTracker.getNewLine(lines[i]);
+            Assert.assertEquals("line " + lines[i],
+                    expected, newLine.orElse(LineMotionTracker.NO_LINE).longValue());
+        }
+    }
+
+    @Test
+    public void agreesWithBaselineOnEveryLine() throws IOException, DiffException {
+        assertAgreesWithBaseline("foo_1", "foo_2");
+        assertAgreesWithBaseline("foo_2", "foo_4");
+        assertAgreesWithBaseline("Tag.java", "Tag_Newer.java");
+    }
 }
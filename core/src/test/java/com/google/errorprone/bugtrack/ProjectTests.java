@@ -100,6 +100,16 @@ public class ProjectTests {
         new ProjectHarness(project, true).walkCommitRange(range);
     }
 
+    @Test
+    public void canWalkCommitsInParallel() throws IOException, GitAPIException {
+        // GIVEN:
+        CorpusProject project = new JSoupProject();
+        CommitRange range = new CommitRange("3c37bffe", "690d6019");
+
+        // THEN:
+        new ProjectHarness(project, true).walkCommitRange(range, 4);
+    }
+
     @Test
     public void example_DetectingNewBug() throws IOException, GitAPIException {
         // GIVEN:
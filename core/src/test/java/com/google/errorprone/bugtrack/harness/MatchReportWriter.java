@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack.harness;
+
+import com.google.errorprone.bugtrack.DiagnosticMatcher;
+import com.google.errorprone.bugtrack.DiagnosticUtils;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the result of matching two commits' diagnostics as JSON lines: one object per match or
+ * unmatched diagnostic as soon as it is found, then a final {@code summary} object.
+ */
+public final class MatchReportWriter implements DiagnosticMatcher.Listener, Flushable {
+    private final Writer out;
+
+    private long matched = 0;
+    private long unmatchedOld = 0;
+    private long unmatchedNew = 0;
+
+    public MatchReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void matched(Diagnostic<? extends JavaFileObject> oldDiagnostic,
+                        Diagnostic<? extends JavaFileObject> newDiagnostic) {
+        ++matched;
+        StringBuilder line = new StringBuilder("{\"status\":\"matched\",\"old\":");
+        appendDiagnostic(line, oldDiagnostic);
+        line.append(",\"new\":");
+        appendDiagnostic(line, newDiagnostic);
+        writeLine(line.append('}'));
+    }
+
+    @Override
+    public void unmatchedOld(Diagnostic<? extends JavaFileObject> oldDiagnostic) {
+        ++unmatchedOld;
+        StringBuilder line = new StringBuilder("{\"status\":\"unmatched_old\",\"old\":");
+        appendDiagnostic(line, oldDiagnostic);
+        writeLine(line.append('}'));
+    }
+
+    @Override
+    public void unmatchedNew(Diagnostic<? extends JavaFileObject> newDiagnostic) {
+        ++unmatchedNew;
+        StringBuilder line = new StringBuilder("{\"status\":\"unmatched_new\",\"new\":");
+        appendDiagnostic(line, newDiagnostic);
+        writeLine(line.append('}'));
+    }
+
+    /** Writes the summary line; call once matching has finished. */
+    public void finish() {
+        writeLine(new StringBuilder("{\"summary\":{")
+                .append("\"old\":").append(matched + unmatchedOld)
+                .append(",\"new\":").append(matched + unmatchedNew)
+                .append(",\"matched\":").append(matched)
+                .append(",\"unmatched_old\":").append(unmatchedOld)
+                .append(",\"unmatched_new\":").append(unmatchedNew)
+                .append("}}"));
+        flush();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(CharSequence line) {
+        try {
+            out.append(line).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendDiagnostic(StringBuilder out, Diagnostic<? extends JavaFileObject> diagnostic) {
+        out.append("{\"path\":");
+        appendString(out, DiagnosticUtils.getProjectRelativePath(diagnostic));
+        out.append(",\"line\":").append(diagnostic.getLineNumber());
+        out.append(",\"column\":").append(diagnostic.getColumnNumber());
+        out.append(",\"check\":");
+        appendString(out, DiagnosticUtils.getCheckName(diagnostic));
+        out.append(",\"message\":");
+        appendString(out, diagnostic.getMessage(null));
+        out.append('}');
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -86,7 +86,7 @@ public final class MavenCommitWalker implements Iterator<Collection<DiagnosticsS
         }
     }
 
-    private List<ProjectFile> findFilesToScan(String sourcepath) {
+    private static List<ProjectFile> findFilesToScan(CorpusProject project, String sourcepath) {
         return Arrays.stream(sourcepath.split(":"))
                 .map(path -> FileUtils.findFilesMatchingGlob(Paths.get(path), "**/*.java"))
                 .flatMap(Collection::stream)
@@ -101,6 +101,15 @@ public final class MavenCommitWalker implements Iterator<Collection<DiagnosticsS
             firstCall = false;
         }
 
+        for (DiagnosticsScan scan : loadDiagnosticsScans(project)) {
+            currentScans.put(scan.name, scan);
+        }
+    }
+
+    /** Builds the project at its root and returns one scan per compiler invocation of the build. */
+    static List<DiagnosticsScan> loadDiagnosticsScans(CorpusProject project) throws IOException, InterruptedException {
+        List<DiagnosticsScan> scans = new ArrayList<>();
+
         String scriptOutput = ShellUtils.runCommand(new File(project.getRoot()),
                 "/usr/bin/python3.8",
                 "/home/monty/IdeaProjects/error-prone/core/src/test/java/com/google/errorprone/bugtrack/harness/get_classpath.py",
@@ -110,14 +119,16 @@ public final class MavenCommitWalker implements Iterator<Collection<DiagnosticsS
         for (int i = 0; i < scriptOutputLines.length; i += 2) {
             String scanName = scriptOutputLines[i];
             List<String> cmdLineArguments = parseCmdLineArguments(scriptOutputLines[i + 1]);
-            List<ProjectFile> filesToParse = findFilesToScan(
+            List<ProjectFile> filesToParse = findFilesToScan(project,
                     cmdLineArguments.get(cmdLineArguments.indexOf("-sourcepath") + 1));
 
-            currentScans.put(scanName, new DiagnosticsScan(
+            scans.add(new DiagnosticsScan(
                     scanName,
                     filesToParse,
                     cmdLineArguments));
         }
+
+        return scans;
     }
 
     @Override
@@ -20,7 +20,7 @@ import com.google.common.collect.*;
 import com.google.errorprone.bugtrack.BugComparer;
 import com.google.errorprone.bugtrack.CommitRange;
 import com.google.errorprone.bugtrack.GitUtils;
-import com.google.errorprone.bugtrack.CollectionUtil;
+import com.google.errorprone.bugtrack.DiagnosticMatcher;
 import com.google.errorprone.bugtrack.projects.CorpusProject;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Repository;
@@ -30,6 +30,11 @@ import org.openjdk.tools.javac.util.Pair;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.BiConsumer;
 
@@ -77,6 +82,32 @@ public final class ProjectHarness {
         });
     }
 
+    public void walkCommitRange(CommitRange range, int parallelism) throws IOException, GitAPIException {
+        List<RevCommit> commits = GitUtils.expandCommitRange(project.loadRepo(), range);
+        if (verbose) {
+            System.out.printf("Going to scan %d commits on %d threads\n", commits.size(), parallelism);
+        }
+
+        forEachCommitWithDiagnostics(commits, parallelism, (commit, diagnostics) -> {
+            if (verbose) {
+                System.out.printf("Commit %s had %d alerts\n", commit.getName(), diagnostics.size());
+            }
+        });
+    }
+
+    /**
+     * Like {@link #forEachCommitWithDiagnostics(Iterable, BiConsumer)}, but checks the commits out into
+     * separate worktrees and analyzes up to {@code parallelism} of them at once, re-analyzing only the
+     * files that changed since the previous commit.
+     */
+    public void forEachCommitWithDiagnostics(List<RevCommit> commits, int parallelism,
+                                             BiConsumer<RevCommit, Collection<Diagnostic<? extends JavaFileObject>>> consumer) throws IOException {
+        if (project.getBuildSystem() != CorpusProject.BuildSystem.Maven) {
+            throw new IllegalArgumentException("not yet supporting build system of project " + project.getRoot());
+        }
+        new WorktreeCommitCollector(project, parallelism, verbose).forEachCommit(commits, consumer);
+    }
+
     public void forEachCommitWithDiagnostics(Iterable<RevCommit> commits,
                                              BiConsumer<RevCommit, Collection<Diagnostic<? extends JavaFileObject>>> consumer) throws IOException {
         Iterable<Collection<DiagnosticsScan>> scanWalker = loadScanWalker(commits);
@@ -100,7 +131,21 @@ public final class ProjectHarness {
         );
     }
 
+    /** Compares two commits, streaming the JSON-lines match report to standard output. */
     public void compareTwoCommits(RevCommit oldCommit, RevCommit newCommit, BugComparer comparer) throws IOException {
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        compareTwoCommits(oldCommit, newCommit, comparer, new MatchReportWriter(out));
+    }
+
+    /** Compares two commits, streaming the JSON-lines match report to {@code report}. */
+    public void compareTwoCommits(RevCommit oldCommit, RevCommit newCommit, BugComparer comparer, Path report) throws IOException {
+        try (Writer out = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            compareTwoCommits(oldCommit, newCommit, comparer, new MatchReportWriter(out));
+        }
+    }
+
+    private void compareTwoCommits(RevCommit oldCommit, RevCommit newCommit, BugComparer comparer,
+                                   MatchReportWriter report) throws IOException {
         Collection<Diagnostic<? extends JavaFileObject>> oldDiagnostics = new ArrayList<>();
         Collection<Diagnostic<? extends JavaFileObject>> newDiagnostics = new ArrayList<>();
 
@@ -112,43 +157,7 @@ public final class ProjectHarness {
             }
         });
 
-        Map<Diagnostic<? extends JavaFileObject>, Diagnostic<? extends JavaFileObject>> matchedDiagnostics = new HashMap<>();
-
-        oldDiagnostics.forEach(oldDiagnostic -> {
-            Collection<Diagnostic<? extends JavaFileObject>> matching = CollectionUtil.filter(
-                    newDiagnostics, newDiagnostic -> comparer.areSame(oldDiagnostic, newDiagnostic));
-
-            if (matching.size() == 1) {
-                matchedDiagnostics.put(oldDiagnostic, Iterables.getOnlyElement(matching));
-            } else if (matching.size() > 1) {
-                comparer.breakTies(oldDiagnostic, matching)
-                        .ifPresent(matchingDiagnostic -> matchedDiagnostics.put(oldDiagnostic, matchingDiagnostic));
-            }
-        });
-
-        printMatchResults(oldDiagnostics, newDiagnostics, matchedDiagnostics);
-    }
-
-    private void printMatchResults(Collection<Diagnostic<? extends JavaFileObject>> oldDiagnostics,
-                                   Collection<Diagnostic<? extends JavaFileObject>> newDiagnostics,
-                                   Map<Diagnostic<? extends JavaFileObject>, Diagnostic<? extends JavaFileObject>> matches) {
-        Set<Diagnostic<? extends JavaFileObject>> unmatchedOld = Sets.difference(
-                Sets.newHashSet(oldDiagnostics), Sets.newHashSet(matches.keySet()));
-
-        Set<Diagnostic<? extends JavaFileObject>> unmatchedNew = Sets.difference(
-                Sets.newHashSet(newDiagnostics), Sets.newHashSet(matches.values()));
-
-        System.out.printf("There are %d old and %d new diagnostics\n", oldDiagnostics.size(), newDiagnostics.size());
-        System.out.printf("We matched %d old diagnostics\n", matches.keySet().size());
-        System.out.printf("We could not match %d old and %d new diagnostics\n", unmatchedOld.size(), unmatchedNew.size());
-
-        if (!unmatchedOld.isEmpty()) {
-            System.out.println("Unmatched old diagnostics:");
-            unmatchedOld.forEach(System.out::println);
-            System.out.println();
-        }
-
-        System.out.println("Unmatched new diagnostics:");
-        unmatchedNew.forEach(System.out::println);
+        DiagnosticMatcher.match(oldDiagnostics, newDiagnostics, comparer, report);
+        report.finish();
     }
 }
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack.harness;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.errorprone.bugtrack.DiagnosticUtils;
+import com.google.errorprone.bugtrack.GitUtils;
+import com.google.errorprone.bugtrack.projects.CorpusProject;
+import com.google.errorprone.bugtrack.projects.ProjectFile;
+import com.google.errorprone.bugtrack.projects.WorktreeProject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Collects the diagnostics of several commits of a Maven project concurrently.
+ *
+ * <p>Each commit is checked out into its own git worktree next to the project (see {@link
+ * WorktreeProject}), built to find its compiler invocations, and analyzed on a bounded pool. Only
+ * the files whose blobs changed since the previous commit are re-analyzed; the diagnostics of every
+ * other file are carried over from the previous commit. The first commit is analyzed in full. At
+ * most {@code parallelism} commits, and so worktrees, are in flight at a time.
+ *
+ * <p>Carrying diagnostics over assumes that those of a file only depend on its own text. That is not
+ * true of checks that look at other classes, such as their annotations or overridden methods: when
+ * only a file that an unchanged file depends on changes, the unchanged file's diagnostics may be
+ * stale or missing. Use {@link ProjectHarness#forEachCommitWithDiagnostics(Iterable, BiConsumer)}
+ * where that matters.
+ *
+ * <p>Builds of different commits run side by side, so they share the local Maven repository; the
+ * project's own snapshot artifacts installed there may come from any of the commits being built.
+ */
+public final class WorktreeCommitCollector {
+    private final CorpusProject project;
+    private final int parallelism;
+    private final boolean verbose;
+
+    public WorktreeCommitCollector(CorpusProject project, int parallelism, boolean verbose) {
+        this.project = project;
+        this.parallelism = parallelism;
+        this.verbose = verbose;
+    }
+
+    /** What analyzing one commit produced, before diagnostics are carried over from its parent. */
+    private static final class CommitAnalysis {
+        final WorktreeProject worktree;
+        final List<DiagnosticsScan> scans;
+        // Null if every file was analyzed.
+        final Set<String> changedFiles;
+        final Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnosticsByFile;
+
+        CommitAnalysis(WorktreeProject worktree, List<DiagnosticsScan> scans, Set<String> changedFiles,
+                       Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnosticsByFile) {
+            this.worktree = worktree;
+            this.scans = scans;
+            this.changedFiles = changedFiles;
+            this.diagnosticsByFile = diagnosticsByFile;
+        }
+    }
+
+    /**
+     * Hands {@code consumer} the diagnostics of each commit, in the order of {@code commits}, as soon
+     * as they and the commits before them have been analyzed.
+     */
+    public void forEachCommit(List<RevCommit> commits,
+                              BiConsumer<RevCommit, Collection<Diagnostic<? extends JavaFileObject>>> consumer)
+            throws IOException {
+        Repository repo = project.loadRepo();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism, new ThreadFactoryBuilder().setNameFormat("bugtrack-commit-%d").setDaemon(true).build());
+        List<Future<CommitAnalysis>> analyses = new ArrayList<>(commits.size());
+        // Analyses before this index were handed over, or failed and removed their own worktrees.
+        int settled = 0;
+        AtomicBoolean abandoned = new AtomicBoolean();
+        try {
+            Map<String, List<Diagnostic<? extends JavaFileObject>>> previous = new HashMap<>();
+            for (int i = 0; i < commits.size(); i++) {
+                // Commits are handed over in order, so only start one once an earlier one is done with.
+                while (analyses.size() < commits.size() && analyses.size() < i + parallelism) {
+                    int next = analyses.size();
+                    RevCommit commit = commits.get(next);
+                    Set<String> changedFiles = next == 0 ? null : changedFiles(repo, commits.get(next - 1), commit);
+                    analyses.add(executor.submit(() -> abandoned.get() ? null : analyze(commit, changedFiles)));
+                }
+
+                settled = i + 1;
+                CommitAnalysis analysis = getResult(analyses.get(i));
+                // The worktree is kept until the consumer is done, as the diagnostics' sources are in it.
+                try {
+                    previous = carryOver(analysis, previous);
+                    if (verbose) {
+                        System.out.printf("Commit %s: re-analyzed %s files\n", commits.get(i).getName(),
+                                analysis.changedFiles == null ? "all" : Integer.toString(analysis.changedFiles.size()));
+                    }
+                    consumer.accept(commits.get(i), previous.values().stream()
+                            .flatMap(Collection::stream)
+                            .collect(Collectors.toList()));
+                } finally {
+                    removeWorktree(analysis.worktree);
+                }
+            }
+        } finally {
+            // If a commit failed, the analyses that haven't started yet are skipped, and those that
+            // have are waited for, so that no worktree or git worktree registration is left behind.
+            abandoned.set(true);
+            for (Future<CommitAnalysis> pending : analyses.subList(settled, analyses.size())) {
+                try {
+                    CommitAnalysis analysis = Uninterruptibles.getUninterruptibly(pending);
+                    if (analysis != null) {
+                        removeWorktree(analysis.worktree);
+                    }
+                } catch (ExecutionException e) {
+                    // The analysis removed its own worktree when it failed.
+                }
+            }
+            executor.shutdown();
+        }
+    }
+
+    private static CommitAnalysis getResult(Future<CommitAnalysis> analysis) throws IOException {
+        try {
+            return Uninterruptibles.getUninterruptibly(analysis);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static Set<String> changedFiles(Repository repo, RevCommit previous, RevCommit commit) throws IOException {
+        try {
+            return GitUtils.computeDiffs(repo, previous, commit).stream()
+                    .filter(diff -> diff.getChangeType() != DiffEntry.ChangeType.DELETE)
+                    .map(DiffEntry::getNewPath)
+                    .collect(Collectors.toSet());
+        } catch (GitAPIException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private CommitAnalysis analyze(RevCommit commit, Set<String> changedFiles) throws IOException, InterruptedException {
+        WorktreeProject worktree = addWorktree(commit);
+        try {
+            List<DiagnosticsScan> scans = MavenCommitWalker.loadDiagnosticsScans(worktree);
+
+            List<DiagnosticsScan> toAnalyze = changedFiles == null ? scans : restrictTo(scans, changedFiles);
+            return new CommitAnalysis(worktree, scans, changedFiles, collectByFile(toAnalyze));
+        } catch (Throwable t) {
+            removeWorktree(worktree);
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the diagnostics of every file the commit's scans cover, taking those of unchanged files
+     * from {@code previous} with their sources moved to the commit's worktree. Unchanged files that
+     * the previous commit didn't scan are analyzed now.
+     */
+    private Map<String, List<Diagnostic<? extends JavaFileObject>>> carryOver(
+            CommitAnalysis analysis, Map<String, List<Diagnostic<? extends JavaFileObject>>> previous) {
+        Map<String, List<Diagnostic<? extends JavaFileObject>>> current = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (DiagnosticsScan scan : analysis.scans) {
+            for (ProjectFile file : scan.files) {
+                String path = relativePath(file);
+                if (analysis.changedFiles == null || analysis.changedFiles.contains(path)) {
+                    current.put(path, analysis.diagnosticsByFile.getOrDefault(path, Collections.emptyList()));
+                } else if (previous.containsKey(path)) {
+                    current.put(path, previous.get(path).stream()
+                            .map(diagnostic -> RebasedDiagnostic.create(diagnostic, analysis.worktree))
+                            .collect(Collectors.toList()));
+                } else {
+                    missing.add(path);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, List<Diagnostic<? extends JavaFileObject>>> late =
+                    collectByFile(restrictTo(analysis.scans, missing));
+            missing.forEach(path -> current.put(path, late.getOrDefault(path, Collections.emptyList())));
+        }
+        return current;
+    }
+
+    private static List<DiagnosticsScan> restrictTo(List<DiagnosticsScan> scans, Set<String> paths) {
+        return scans.stream()
+                .map(scan -> new DiagnosticsScan(scan.name,
+                        scan.files.stream().filter(file -> paths.contains(relativePath(file))).collect(Collectors.toList()),
+                        scan.cmdLineArguments))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, List<Diagnostic<? extends JavaFileObject>>> collectByFile(List<DiagnosticsScan> scans) {
+        Map<String, List<Diagnostic<? extends JavaFileObject>>> byFile = new HashMap<>();
+        for (DiagnosticsScan scan : scans) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : DiagnosticsCollector.collectDiagnostics(scan)) {
+                if (diagnostic.getSource() != null) {
+                    byFile.computeIfAbsent(DiagnosticUtils.getProjectRelativePath(diagnostic), k -> new ArrayList<>())
+                            .add(diagnostic);
+                }
+            }
+        }
+        return byFile;
+    }
+
+    /** A diagnostic of an unchanged file, reported against that file in a later commit's worktree. */
+    private static final class RebasedDiagnostic implements Diagnostic<JavaFileObject> {
+        private final Diagnostic<? extends JavaFileObject> diagnostic;
+        private final JavaFileObject source;
+
+        static RebasedDiagnostic create(Diagnostic<? extends JavaFileObject> diagnostic, WorktreeProject worktree) {
+            if (diagnostic instanceof RebasedDiagnostic) {
+                diagnostic = ((RebasedDiagnostic) diagnostic).diagnostic;
+            }
+            Path file = Paths.get(worktree.getRoot(), DiagnosticUtils.getProjectRelativePath(diagnostic));
+            JavaFileObject source = new SimpleJavaFileObject(file.toUri(), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+                    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                }
+
+                @Override
+                public String getName() {
+                    return file.toString();
+                }
+            };
+            return new RebasedDiagnostic(diagnostic, source);
+        }
+
+        private RebasedDiagnostic(Diagnostic<? extends JavaFileObject> diagnostic, JavaFileObject source) {
+            this.diagnostic = diagnostic;
+            this.source = source;
+        }
+
+        @Override
+        public Kind getKind() {
+            return diagnostic.getKind();
+        }
+
+        @Override
+        public JavaFileObject getSource() {
+            return source;
+        }
+
+        @Override
+        public long getPosition() {
+            return diagnostic.getPosition();
+        }
+
+        @Override
+        public long getStartPosition() {
+            return diagnostic.getStartPosition();
+        }
+
+        @Override
+        public long getEndPosition() {
+            return diagnostic.getEndPosition();
+        }
+
+        @Override
+        public long getLineNumber() {
+            return diagnostic.getLineNumber();
+        }
+
+        @Override
+        public long getColumnNumber() {
+            return diagnostic.getColumnNumber();
+        }
+
+        @Override
+        public String getCode() {
+            return diagnostic.getCode();
+        }
+
+        @Override
+        public String getMessage(Locale locale) {
+            return diagnostic.getMessage(locale);
+        }
+
+        @Override
+        public String toString() {
+            return diagnostic.toString();
+        }
+    }
+
+    private static String relativePath(ProjectFile file) {
+        return file.getRelativeFile().toString();
+    }
+
+    private WorktreeProject addWorktree(RevCommit commit) throws IOException, InterruptedException {
+        WorktreeProject worktree = new WorktreeProject(project, commit.abbreviate(10).name());
+        // git takes locks in the main repository when adding worktrees, so don't race on them.
+        synchronized (this) {
+            ShellUtils.runCommand(new File(project.getRoot()),
+                    "git", "worktree", "add", "--force", "--detach", worktree.getRoot(), commit.getName());
+        }
+        return worktree;
+    }
+
+    private synchronized void removeWorktree(WorktreeProject worktree) {
+        try {
+            ShellUtils.runCommand(new File(project.getRoot()),
+                    "git", "worktree", "remove", "--force", worktree.getRoot());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.bugtrack.projects;
+
+import java.nio.file.Path;
+
+/**
+ * A git worktree of a {@link CorpusProject}, checked out next to it so that project-relative
+ * paths of its files look the same as the original project's.
+ */
+public final class WorktreeProject implements CorpusProject {
+    private final CorpusProject project;
+    private final String root;
+
+    public WorktreeProject(CorpusProject project, String name) {
+        this.project = project;
+        this.root = project.getRoot() + "@" + name;
+    }
+
+    @Override
+    public String getRoot() {
+        return root;
+    }
+
+    @Override
+    public boolean shouldScanFile(Path file) {
+        return project.shouldScanFile(file);
+    }
+
+    @Override
+    public BuildSystem getBuildSystem() {
+        return project.getBuildSystem();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreePath;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DataFlowCache}. */
+@RunWith(JUnit4.class)
+public class DataFlowCacheTest {
+
+  /** Runs dataflow on each method invocation, twice, and reports the cache counters. */
+  @BugPattern(
+      name = "DataFlowCacheCounters",
+      summary = "Reports DataFlowCache counters",
+      severity = ERROR)
+  public static final class DataFlowCacheCounters extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      ConstantPropagationAnalysis.numberValue(state.getPath(), state.context);
+      // A distinct path to the same tree should still hit the cache.
+      ConstantPropagationAnalysis.numberValue(
+          new TreePath(state.getPath().getParentPath(), tree), state.context);
+      DataFlowCache cache = DataFlowCache.instance(state.context);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "cfg misses/hits: %d/%d, analysis misses/hits: %d/%d",
+                  cache.cfgMisses(),
+                  cache.cfgHits(),
+                  cache.analysisMisses(),
+                  cache.analysisHits()))
+          .build();
+    }
+  }
+
+  private final CompilationTestHelper compilationHelper =
+      CompilationTestHelper.newInstance(DataFlowCacheCounters.class, getClass());
+
+  @Test
+  public void reusesGraphAndAnalysisPerMethod() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  void a() {",
+            "    // BUG: Diagnostic contains: cfg misses/hits: 1/1, analysis misses/hits: 1/1",
+            "    toString();",
+            "    // BUG: Diagnostic contains: cfg misses/hits: 1/3, analysis misses/hits: 1/3",
+            "    hashCode();",
+            "  }",
+            "  void b() {",
+            "    // BUG: Diagnostic contains: cfg misses/hits: 2/4, analysis misses/hits: 2/4",
+            "    toString();",
+            "  }",
+            "}")
+        .doTest();
+  }
+}
@@ -602,7 +602,7 @@ public class NullnessInferenceTest {
         TreePath root = state.getPath();
         InferredNullability inferenceRes =
             NullnessQualifierInference.getInferredNullability(
-                ASTHelpers.findEnclosingNode(root, MethodTree.class));
+                ASTHelpers.findEnclosingNode(root, MethodTree.class), state.context);
         assert methodInvocation.getArguments().get(0).getKind() == Kind.METHOD_INVOCATION;
         MethodInvocationTree callsiteToInspect =
             (MethodInvocationTree) methodInvocation.getArguments().get(0);
@@ -614,7 +614,7 @@ public class NullnessInferenceTest {
         TreePath root = state.getPath();
         InferredNullability inferenceRes =
             NullnessQualifierInference.getInferredNullability(
-                ASTHelpers.findEnclosingNode(root, MethodTree.class));
+                ASTHelpers.findEnclosingNode(root, MethodTree.class), state.context);
         ExpressionTree exprToInspect = methodInvocation.getArguments().get(0);
         return describeMatch(
             exprToInspect,
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow.nullnesspropagation.inference;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link InferenceCache}. */
+@RunWith(JUnit4.class)
+public class InferenceCacheTest {
+
+  /** Infers the enclosing method of each method invocation, twice, and reports the counters. */
+  @BugPattern(
+      name = "InferenceCacheCounters",
+      summary = "Reports InferenceCache counters",
+      severity = ERROR)
+  public static final class InferenceCacheCounters extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      MethodTree method = ASTHelpers.findEnclosingNode(state.getPath(), MethodTree.class);
+      NullnessQualifierInference.getInferredNullability(method, state.context);
+      NullnessQualifierInference.getInferredNullability(method, state.context);
+      InferenceCache cache = InferenceCache.instance(state.context);
+      return buildDescription(tree)
+          .setMessage(String.format("inferences/hits: %d/%d", cache.inferences(), cache.hits()))
+          .build();
+    }
+  }
+
+  private final CompilationTestHelper compilationHelper =
+      CompilationTestHelper.newInstance(InferenceCacheCounters.class, getClass());
+
+  @Test
+  public void infersEachMethodOncePerUnit() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  void a() {",
+            "    // BUG: Diagnostic contains: inferences/hits: 1/1",
+            "    toString();",
+            "    // BUG: Diagnostic contains: inferences/hits: 1/3",
+            "    hashCode();",
+            "  }",
+            "  void b() {",
+            "    // BUG: Diagnostic contains: inferences/hits: 2/4",
+            "    toString();",
+            "  }",
+            "}")
+        .doTest();
+  }
+}
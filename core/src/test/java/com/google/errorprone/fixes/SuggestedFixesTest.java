@@ -1248,6 +1248,41 @@ public class SuggestedFixesTest {
         .doTest();
   }
 
+  /** A test bugchecker that checks deleting each variable twice, and reports the verdicts. */
+  @BugPattern(name = "CompilesWithFixesChecker", summary = "", severity = ERROR)
+  public static class CompilesWithFixesChecker extends BugChecker implements VariableTreeMatcher {
+    @Override
+    public Description matchVariable(VariableTree tree, VisitorState state) {
+      Fix fix = SuggestedFix.delete(tree);
+      ImmutableList<Boolean> verdicts =
+          SuggestedFixes.compilesWithFixes(ImmutableList.of(fix, fix), state);
+      SpeculativeCompiler compiler = SpeculativeCompiler.instance(state.context);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "%s compiles: %d, cache hits: %d",
+                  verdicts, compiler.compiles(), compiler.cacheHits()))
+          .build();
+    }
+  }
+
+  @Test
+  public void compilesWithFixes_cachesVerdicts() {
+    CompilationTestHelper.newInstance(CompilesWithFixesChecker.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  void f() {",
+            "    // BUG: Diagnostic contains: [true, true] compiles: 1, cache hits: 1",
+            "    int x = 0;",
+            "    // BUG: Diagnostic contains: [false, false] compiles: 2, cache hits: 2",
+            "    int y = 1;",
+            "    System.err.println(y);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
   @Test
   public void compilesWithFix_releaseFlag() {
     assumeTrue(RuntimeVersion.isAtLeast9());
@@ -21,6 +21,8 @@ import com.google.common.base.Optional;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -68,4 +70,22 @@ public class ChoiceTest {
         .containsExactly(2, 1, 3)
         .inOrder();
   }
+
+  @Test
+  public void testMemoize() {
+    List<Integer> computed = new ArrayList<>();
+    Choice<Integer> choice =
+        Choice.from(ImmutableList.of(1, 2, 3))
+            .transform(
+                i -> {
+                  computed.add(i);
+                  return i * 10;
+                })
+            .memoize();
+    assertThat(choice.first()).hasValue(10);
+    assertThat(computed).containsExactly(1);
+    assertThat(choice.asIterable()).containsExactly(10, 20, 30).inOrder();
+    assertThat(choice.asIterable()).containsExactly(10, 20, 30).inOrder();
+    assertThat(computed).containsExactly(1, 2, 3).inOrder();
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.ErrorProneOptions;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree.Kind;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RefasterRuleSet}. */
+@RunWith(JUnit4.class)
+public class RefasterRuleSetTest {
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final UClassType STRING = UClassType.create("java.lang.String");
+
+  private static final RefasterRule<?, ?> VALUE_OF =
+      RefasterRule.create(
+          "com.example.ValueOf",
+          ImmutableList.of(
+              ExpressionTemplate.create(
+                  UMethodInvocation.create(
+                      UStaticIdent.create(
+                          "java.lang.String", "valueOf", UMethodType.create(STRING)),
+                      UFreeIdent.create("x")),
+                  STRING)),
+          ImmutableList.of(
+              ExpressionTemplate.create(
+                  UBinary.create(Kind.PLUS, ULiteral.stringLit(""), UFreeIdent.create("x")),
+                  STRING)));
+
+  private static final RefasterRule<?, ?> ANYTHING =
+      RefasterRule.create(
+          "com.example.Anything",
+          ImmutableList.of(ExpressionTemplate.create(UFreeIdent.create("x"), STRING)),
+          ImmutableList.of());
+
+  @Test
+  public void decodesRulesLazily() {
+    RefasterRuleSet ruleSet = RefasterRuleSet.create(ImmutableList.of(VALUE_OF, ANYTHING));
+
+    RefasterRuleSet decoded = RefasterRuleSet.decode(ByteBuffer.wrap(ruleSet.encode()));
+
+    assertThat(decoded.rules()).hasSize(2);
+    CompiledRefasterRule valueOf = decoded.rules().get(0);
+    assertThat(valueOf.qualifiedTemplateClass()).isEqualTo("com.example.ValueOf");
+    assertThat(valueOf.beforeTemplateSignatures())
+        .containsExactly(TemplateSignature.create(MethodInvocationTree.class, "valueOf"));
+    assertThat(decoded.rules().get(1).beforeTemplateSignatures())
+        .containsExactly(TemplateSignature.ANY);
+    assertThat(valueOf.isDecoded()).isFalse();
+    assertThat(valueOf.rule()).isEqualTo(VALUE_OF);
+    assertThat(valueOf.isDecoded()).isTrue();
+    assertThat(decoded.rules().get(1).isDecoded()).isFalse();
+  }
+
+  @Test
+  public void rejectsOtherFormatVersions() {
+    byte[] encoded = RefasterRuleSet.create(ImmutableList.of(ANYTHING)).encode();
+    encoded[7]++;
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> RefasterRuleSet.decode(ByteBuffer.wrap(encoded)));
+    assertThat(e).hasMessageThat().contains("format version 2");
+  }
+
+  private static CodeTransformer load(Path path) {
+    return ErrorProneOptions.processArgs(new String[] {"-XepPatchChecks:refaster:" + path})
+        .patchingOptions()
+        .customRefactorer()
+        .get()
+        .get();
+  }
+
+  @Test
+  public void loadsEncodedFileWithoutDecodingRules() throws IOException {
+    Path path = tempFolder.newFile("rules.refaster").toPath();
+    Files.write(path, RefasterRuleSet.create(ImmutableList.of(VALUE_OF, ANYTHING)).encode());
+
+    CodeTransformer loaded = load(path);
+
+    assertThat(loaded).isInstanceOf(RefasterRuleSet.class);
+    assertThat(((RefasterRuleSet) loaded).rules()).hasSize(2);
+    assertThat(((RefasterRuleSet) loaded).rules().get(0).isDecoded()).isFalse();
+    assertThat(((RefasterRuleSet) loaded).rules().get(0).rule()).isEqualTo(VALUE_OF);
+  }
+
+  @Test
+  public void loadsSerializedFile() throws IOException {
+    Path path = tempFolder.newFile("rules.refaster").toPath();
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+      out.writeObject(RefasterRuleSet.create(ImmutableList.of(VALUE_OF, ANYTHING)));
+    }
+
+    CodeTransformer loaded = load(path);
+
+    assertThat(loaded).isInstanceOf(RefasterRuleSet.class);
+    assertThat(((RefasterRuleSet) loaded).rules()).hasSize(2);
+  }
+
+  @Test
+  public void reportsIncompatibleFiles() throws IOException {
+    Path path = tempFolder.newFile("rules.refaster").toPath();
+    byte[] encoded = RefasterRuleSet.create(ImmutableList.of(ANYTHING)).encode();
+    encoded[7]++;
+    Files.write(path, encoded);
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> load(path));
+    assertThat(e).hasMessageThat().contains("format version 2");
+    assertThat(e).hasMessageThat().contains("recompile it");
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree.Kind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TemplateIndex}. */
+@RunWith(JUnit4.class)
+public class TemplateIndexTest extends AbstractUTreeTest {
+  private static final UClassType STRING = UClassType.create("java.lang.String");
+
+  private static ExpressionTemplate staticStringMethod(String name) {
+    return ExpressionTemplate.create(
+        UMethodInvocation.create(
+            UStaticIdent.create("java.lang.String", name, UMethodType.create(STRING)),
+            UFreeIdent.create("x")),
+        STRING);
+  }
+
+  @Test
+  public void candidates() {
+    ExpressionTemplate format = staticStringMethod("format");
+    ExpressionTemplate valueOf = staticStringMethod("valueOf");
+    ExpressionTemplate concat =
+        ExpressionTemplate.create(
+            UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b")), STRING);
+    ExpressionTemplate anything = ExpressionTemplate.create(UFreeIdent.create("x"), STRING);
+    TemplateIndex<ExpressionTemplate> index =
+        TemplateIndex.create(
+            ImmutableList.of(format, anything, valueOf, concat), Template::signature);
+
+    assertThat(index.candidates(parseExpression("String.format(\"%d\", 1)")))
+        .containsExactly(format, anything)
+        .inOrder();
+    assertThat(index.candidates(parseExpression("valueOf(1)")))
+        .containsExactly(anything, valueOf)
+        .inOrder();
+    assertThat(index.candidates(parseExpression("Integer.toString(1)"))).containsExactly(anything);
+    assertThat(index.candidates(parseExpression("\"a\" + 1")))
+        .containsExactly(anything, concat)
+        .inOrder();
+    assertThat(index.candidates(parseExpression("\"a\" - 1")))
+        .containsExactly(anything, concat)
+        .inOrder();
+    assertThat(index.candidates(parseExpression("(\"a\" + 1)"))).containsExactly(anything);
+  }
+
+  @Test
+  public void signatures() {
+    assertThat(staticStringMethod("format").signature())
+        .isEqualTo(TemplateSignature.create(MethodInvocationTree.class, "format"));
+    assertThat(ExpressionTemplate.create(ULiteral.intLit(1), UPrimitiveType.INT).signature())
+        .isEqualTo(TemplateSignature.create(LiteralTree.class, null));
+    assertThat(
+            ExpressionTemplate.create(UParens.create(ULiteral.intLit(1)), UPrimitiveType.INT)
+                .signature())
+        .isEqualTo(TemplateSignature.ANY);
+    assertThat(BlockTemplate.create().signature())
+        .isEqualTo(TemplateSignature.create(BlockTree.class, null));
+  }
+}
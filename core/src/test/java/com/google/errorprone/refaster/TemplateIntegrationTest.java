@@ -26,13 +26,18 @@ import static org.junit.Assume.assumeFalse;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.testing.SerializableTester;
 import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
 import com.google.testing.compile.JavaFileObjects;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.tools.JavaFileObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -91,6 +96,32 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
     expectTransforms(transformer, input, output);
   }
 
+  @Test
+  public void ruleSet() throws IOException {
+    ImmutableList<String> testNames =
+        ImmutableList.of("BinaryTemplate", "MethodInvocationTemplate");
+    List<CodeTransformer> rules = new ArrayList<>();
+    for (String testName : testNames) {
+      rules.add(
+          extractRefasterRule(
+              JavaFileObjects.forResource(String.format("%s/%s.java", TEMPLATE_DIR, testName))));
+    }
+    CodeTransformer transformer =
+        RefasterRuleSet.compose(
+            ImmutableList.of(rules.get(0), CompositeCodeTransformer.compose(rules.get(1))));
+    assertThat(transformer).isInstanceOf(RefasterRuleSet.class);
+    // The deserialized rule set decodes its rules as they are needed.
+    for (CodeTransformer ruleSet :
+        ImmutableList.of(transformer, SerializableTester.reserialize(transformer))) {
+      for (String testName : testNames) {
+        expectTransforms(
+            ruleSet,
+            JavaFileObjects.forResource(String.format("%s/%sExample.java", INPUT_DIR, testName)),
+            JavaFileObjects.forResource(String.format("%s/%sExample.java", OUTPUT_DIR, testName)));
+      }
+    }
+  }
+
   @Test
   public void binary() throws IOException {
     runTest("BinaryTemplate");
@@ -285,6 +316,11 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
     runTest("ImportClassDirectlyTemplate");
   }
 
+  @Test
+  public void multipleImportPolicies() throws IOException {
+    runTest("MultipleImportPoliciesTemplate");
+  }
+
   @Test
   public void assertions() throws IOException {
     runTest("AssertTemplate");
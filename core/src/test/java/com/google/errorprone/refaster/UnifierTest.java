@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import com.sun.tools.javac.util.Context;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Unifier}. */
+@RunWith(JUnit4.class)
+public class UnifierTest {
+  private static class Key extends Bindings.Key<String> {
+    Key(String identifier) {
+      super(identifier);
+    }
+  }
+
+  private static final Key FOO = new Key("foo");
+  private static final Key BAR = new Key("bar");
+
+  @Test
+  public void forksAreIndependent() {
+    Unifier unifier = new Unifier(new Context());
+    unifier.putBinding(FOO, "1");
+    Unifier fork = unifier.fork();
+    fork.putBinding(BAR, "2");
+    fork.replaceBinding(FOO, "3");
+    unifier.clearBinding(FOO);
+
+    assertThat(unifier.getBinding(FOO)).isNull();
+    assertThat(unifier.getBinding(BAR)).isNull();
+    assertThat(unifier.getBindings()).isEmpty();
+    assertThat(fork.getBinding(FOO)).isEqualTo("3");
+    assertThat(fork.getBindings()).containsExactlyEntriesIn(ImmutableMap.of(FOO, "3", BAR, "2"));
+  }
+
+  @Test
+  public void bindingsReflectChanges() {
+    Unifier unifier = new Unifier(new Context());
+    unifier.putBinding(FOO, "1");
+    assertThat(unifier.getBindings()).containsExactly(FOO, "1");
+    unifier.replaceBinding(FOO, "2");
+    assertThat(unifier.getBindings()).containsExactly(FOO, "2");
+    unifier.clearBinding(FOO);
+    unifier.putBinding(FOO, "3");
+    assertThat(unifier.getBindings()).containsExactly(FOO, "3");
+  }
+
+  @Test
+  public void cannotBindTwice() {
+    Unifier unifier = new Unifier(new Context());
+    unifier.putBinding(FOO, "1");
+    assertThrows(IllegalArgumentException.class, () -> unifier.fork().putBinding(FOO, "2"));
+    assertThrows(IllegalArgumentException.class, () -> unifier.replaceBinding(BAR, "2"));
+  }
+}
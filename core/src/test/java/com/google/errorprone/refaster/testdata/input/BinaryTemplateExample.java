@@ -29,6 +29,7 @@ class BinaryTemplateExample {
     System.out.println((0xFF + 5) / 2);
     System.out.println((x + y) / 2 + 20);
     System.err.println((y + new Random().nextInt()) / 2);
+    System.out.println(/* mean */ (x + y) / 2);
     // negative examples
     System.out.println((x + y /* signed division */) / 2 + 20);
     System.out.println(x + y / 2);
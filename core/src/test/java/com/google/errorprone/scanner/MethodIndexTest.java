@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.IndexedMethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.method.MethodMatchers.MethodMatcher;
+import com.sun.source.tree.MethodInvocationTree;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link MethodIndex}. */
+@RunWith(JUnit4.class)
+public class MethodIndexTest {
+
+  /**
+   * Reports every invocation it is asked about, so that the test shows which invocations the
+   * scanner skips it on.
+   */
+  @BugPattern(name = "IndexedInvocations", summary = "Reports every invocation", severity = ERROR)
+  public static final class IndexedInvocations extends BugChecker
+      implements IndexedMethodInvocationTreeMatcher {
+    @Override
+    public ImmutableList<MethodMatcher> invocationMatchers() {
+      return ImmutableList.of(
+          instanceMethod()
+              .onExactClass("java.lang.String")
+              .named("substring")
+              .withParameters("int"),
+          instanceMethod().onDescendantOf("java.util.Collection").named("size"),
+          staticMethod().onClass("java.lang.Integer").named("parseInt"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  private final CompilationTestHelper compilationHelper =
+      CompilationTestHelper.newInstance(IndexedInvocations.class, getClass());
+
+  @Test
+  public void onlyRunsOnIndexedMethods() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "import java.util.List;",
+            "class Test {",
+            "  void f(String s, List<String> xs, StringBuilder sb) {",
+            "    // BUG: Diagnostic contains:",
+            "    s.substring(1);",
+            "    s.substring(1, 2);",
+            "    sb.substring(1);",
+            "    // BUG: Diagnostic contains:",
+            "    xs.size();",
+            "    sb.length();",
+            "    // BUG: Diagnostic contains:",
+            "    Integer.parseInt(s);",
+            "    Long.parseLong(s);",
+            "  }",
+            "}")
+        .doTest();
+  }
+}
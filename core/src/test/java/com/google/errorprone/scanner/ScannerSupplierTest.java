@@ -16,10 +16,12 @@
 
 package com.google.errorprone.scanner;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.truth.Truth.assertAbout;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.scanner.BuiltInCheckerSuppliers.getSuppliers;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertThrows;
@@ -39,9 +41,11 @@ import com.google.errorprone.ErrorProneJavaCompilerTest;
 import com.google.errorprone.ErrorProneJavaCompilerTest.UnsuppressibleArrayEquals;
 import com.google.errorprone.ErrorProneOptions;
 import com.google.errorprone.InvalidCommandLineOptionException;
+import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.ArrayEquals;
 import com.google.errorprone.bugpatterns.BadShiftAmount;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.SynchronizedTreeMatcher;
 import com.google.errorprone.bugpatterns.ChainingConstructorIgnoresParameter;
 import com.google.errorprone.bugpatterns.DepAnn;
 import com.google.errorprone.bugpatterns.DivZero;
@@ -52,6 +56,8 @@ import com.google.errorprone.bugpatterns.RestrictedApiChecker;
 import com.google.errorprone.bugpatterns.StaticQualifiedUsingExpression;
 import com.google.errorprone.bugpatterns.StringEquality;
 import com.google.errorprone.bugpatterns.nullness.UnnecessaryCheckNotNull;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.SynchronizedTree;
 import com.sun.source.util.JavacTask;
 import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.file.JavacFileManager;
@@ -65,6 +71,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import javax.tools.JavaFileObject.Kind;
 import javax.tools.SimpleJavaFileObject;
@@ -629,6 +636,70 @@ public class ScannerSupplierTest {
     assertThat(exception).hasMessageThat().contains("may not be disabled");
   }
 
+  /** A checker without state, which scanners can share. */
+  @BugPattern(name = "StatelessChecker", summary = "", severity = ERROR)
+  @BugChecker.Stateless
+  public static class StatelessChecker extends BugChecker implements SynchronizedTreeMatcher {
+    static final AtomicInteger instances = new AtomicInteger();
+
+    public StatelessChecker() {
+      instances.incrementAndGet();
+    }
+
+    @Override
+    public Description matchSynchronized(SynchronizedTree tree, VisitorState state) {
+      return NO_MATCH;
+    }
+  }
+
+  /**
+   * A checker with state, which every scanner needs its own instance of, even though all its fields
+   * are final.
+   */
+  @BugPattern(name = "StatefulChecker", summary = "", severity = ERROR)
+  public static class StatefulChecker extends BugChecker implements SynchronizedTreeMatcher {
+    static final AtomicInteger instances = new AtomicInteger();
+
+    private final AtomicInteger matched = new AtomicInteger();
+
+    public StatefulChecker() {
+      instances.incrementAndGet();
+    }
+
+    @Override
+    public Description matchSynchronized(SynchronizedTree tree, VisitorState state) {
+      matched.incrementAndGet();
+      return NO_MATCH;
+    }
+  }
+
+  @Test
+  public void checkersAreInstantiatedWhenFirstNeeded() {
+    ScannerSupplier ss = ScannerSupplier.fromBugCheckerClasses(StatefulChecker.class);
+    int before = StatefulChecker.instances.get();
+
+    ErrorProneScanner scanner = ss.get();
+    assertThat(StatefulChecker.instances.get()).isEqualTo(before);
+
+    BugChecker checker = getOnlyElement(scanner.getBugCheckers());
+    assertThat(StatefulChecker.instances.get()).isEqualTo(before + 1);
+    assertThat(getOnlyElement(scanner.getBugCheckers())).isSameInstanceAs(checker);
+  }
+
+  @Test
+  public void onlyStatelessCheckersAreShared() {
+    ScannerSupplier ss =
+        ScannerSupplier.fromBugCheckerClasses(StatelessChecker.class, StatefulChecker.class);
+
+    ImmutableList<BugChecker> first = ss.get().getBugCheckers().asList();
+    int stateless = StatelessChecker.instances.get();
+    ImmutableList<BugChecker> second = ss.get().getBugCheckers().asList();
+
+    assertThat(StatelessChecker.instances.get()).isEqualTo(stateless);
+    assertThat(second.get(0)).isSameInstanceAs(first.get(0));
+    assertThat(second.get(1)).isNotSameInstanceAs(first.get(1));
+  }
+
   private static class ScannerSupplierSubject extends Subject {
     private final ScannerSupplier actual;
 
@@ -83,6 +83,77 @@ public class ScannerTest {
         .doTest();
   }
 
+  @Test
+  public void suppressionEndsWithAnnotatedDeclaration() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "import com.google.errorprone.scanner.ScannerTest.OkToUseFoo;",
+            "class Test {",
+            "  @OkToUseFoo",
+            "  Foo foo;",
+            "  // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "  Foo bar;",
+            "  @OkToUseFoo",
+            "  void f(Foo x) {}",
+            "  // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "  void g(Foo x) {}",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void equalSuppressionsOnSeparateDeclarations() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "import com.google.errorprone.scanner.ScannerTest.OkToUseFoo;",
+            "class Test {",
+            "  @SuppressWarnings(\"ShouldNotUseFoo\")",
+            "  void f(Foo x) {}",
+            "  class Inner {",
+            "    @SuppressWarnings(\"ShouldNotUseFoo\")",
+            "    void g(Foo x) {}",
+            "    // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "    void h(Foo x) {}",
+            "  }",
+            "  @SuppressWarnings(\"ShouldNotUseFoo\")",
+            "  @OkToUseFoo",
+            "  void i(Foo x) {}",
+            "  // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "  void j(Foo x) {}",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void suppressionOnDeclarationNestedInExpression() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "import com.google.errorprone.scanner.ScannerTest.Foo;",
+            "import com.google.errorprone.scanner.ScannerTest.OkToUseFoo;",
+            "class Test {",
+            "  Object o =",
+            "      new Object() {",
+            "        @OkToUseFoo",
+            "        Foo foo;",
+            "        // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "        Foo bar;",
+            "      };",
+            "  Runnable r =",
+            "      () -> {",
+            "        @OkToUseFoo",
+            "        Foo foo = null;",
+            "        // BUG: Diagnostic contains: ShouldNotUseFoo",
+            "        Foo bar = null;",
+            "      };",
+            "}")
+        .doTest();
+  }
+
   @Test
   public void suppressionAnnotationIgnoredWithOptions() {
     compilationHelper
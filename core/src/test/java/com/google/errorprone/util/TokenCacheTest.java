@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 The Error Prone Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.util.ASTHelpers.getStartPosition;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TokenCache}. */
+@RunWith(JUnit4.class)
+public class TokenCacheTest {
+
+  /**
+   * Compares the tokens of each method invocation, and of the invocation without its first
+   * character, with the tokens of its source lexed on its own.
+   */
+  @BugPattern(name = "TokenSlices", summary = "Compares sliced and lexed tokens", severity = ERROR)
+  public static final class TokenSlices extends BugChecker implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      int start = getStartPosition(tree);
+      int end = state.getEndPosition(tree);
+      String source = state.getSourceCode().toString();
+      boolean same =
+          same(state.getTokensForNode(tree), lex(source, start, end, 0, state))
+              && same(state.getOffsetTokensForNode(tree), lex(source, start, end, start, state))
+              && same(
+                  state.getOffsetTokens(start + 1, end),
+                  lex(source, start + 1, end, start + 1, state));
+      TokenCache cache = TokenCache.instance(state.context);
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "same: %s, lexed units/ranges: %d/%d",
+                  same, cache.lexedUnits(), cache.lexedRanges()))
+          .build();
+    }
+
+    private static List<ErrorProneToken> lex(
+        String source, int start, int end, int offset, VisitorState state) {
+      return ErrorProneTokens.getTokens(source.substring(start, end), offset, state.context);
+    }
+
+    private static boolean same(List<ErrorProneToken> sliced, List<ErrorProneToken> lexed) {
+      return describe(sliced).equals(describe(lexed));
+    }
+
+    private static String describe(List<ErrorProneToken> tokens) {
+      return tokens.stream()
+          .map(
+              t ->
+                  t.comments().stream()
+                          .map(c -> c.getSourcePos(0) + ":" + c.getText())
+                          .collect(joining(" "))
+                      + " "
+                      + t.kind()
+                      + "@"
+                      + t.pos()
+                      + "-"
+                      + t.endPos())
+          .collect(joining(", "));
+    }
+  }
+
+  /** Reports whether the source of each method invocation and of its arguments has a comment. */
+  @BugPattern(name = "CommentRanges", summary = "Checks ranges for comments", severity = ERROR)
+  public static final class CommentRanges extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      TokenCache cache = TokenCache.instance(state.context);
+      CompilationUnitTree unit = state.getPath().getCompilationUnit();
+      StringBuilder message = new StringBuilder("comments:");
+      for (Tree node : Iterables.concat(ImmutableList.of(tree), tree.getArguments())) {
+        message.append(
+            cache.containsComment(
+                    unit, state.getSourceCode(), getStartPosition(node), state.getEndPosition(node))
+                ? " y"
+                : " n");
+      }
+      return buildDescription(tree).setMessage(message.toString()).build();
+    }
+  }
+
+  private final CompilationTestHelper compilationHelper =
+      CompilationTestHelper.newInstance(TokenSlices.class, getClass());
+
+  @Test
+  public void slicesMatchLexedRanges() {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  void f(int a, int b) {",
+            "    // leading",
+            "    // BUG: Diagnostic contains: same: true, lexed units/ranges: 1/0",
+            "    f(/* a= */ 1, /* b= */ 2 /* after */);",
+            "    /* before */",
+            "    // BUG: Diagnostic contains: same: true, lexed units/ranges: 1/1",
+            "    hashCode(/* nothing */);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void containsComment() {
+    CompilationTestHelper.newInstance(CommentRanges.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            "class Test {",
+            "  int f(int a, int b) {",
+            "    // BUG: Diagnostic contains: comments: y n y",
+            "    f(/* a= */ 1, 2 /* b */ + 3);",
+            "    /* before */",
+            "    // BUG: Diagnostic contains: comments: n n n",
+            "    f(1, 2) /* after */;",
+            "    // BUG: Diagnostic contains: comments: y n n",
+            "    return f(1, /* between */ 2);",
+            "  }",
+            "}")
+        .doTest();
+  }
+}
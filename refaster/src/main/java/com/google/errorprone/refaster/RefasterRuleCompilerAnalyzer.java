@@ -15,7 +15,6 @@
 package com.google.errorprone.refaster;
 
 import com.google.errorprone.CodeTransformer;
-import com.google.errorprone.CompositeCodeTransformer;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskEvent.Kind;
@@ -67,9 +66,17 @@ public class RefasterRuleCompilerAnalyzer implements TaskListener {
     if (rules.isEmpty()) {
       throw new IllegalArgumentException("Did not find any Refaster templates");
     }
-    try (ObjectOutputStream output =
-        new ObjectOutputStream(Files.newOutputStream(destinationPath))) {
-      output.writeObject(CompositeCodeTransformer.compose(rules));
+    CodeTransformer composed = RefasterRuleSet.compose(rules);
+    try {
+      if (composed instanceof RefasterRuleSet) {
+        // Written in the rule set's own format, so it can be decoded from a mapping of the file.
+        Files.write(destinationPath, ((RefasterRuleSet) composed).encode());
+      } else {
+        try (ObjectOutputStream output =
+            new ObjectOutputStream(Files.newOutputStream(destinationPath))) {
+          output.writeObject(composed);
+        }
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }